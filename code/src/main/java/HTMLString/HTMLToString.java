@@ -5,6 +5,11 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Scanner;
 
 public final class HTMLToString {
@@ -56,5 +61,28 @@ public final class HTMLToString {
         return fileContent;
     }
 
+    /**
+     * Memory maps a UTF-8 encoded html-file. Nothing is copied or decoded up front, the parser reads the bytes directly
+     * and only decodes the parts that it keeps. Whitespace is left as it is in the file.
+     * @param path Path to the html-file, at most 2 GB
+     * @return the content of the file
+     * @throws IOException if the file can not be opened or mapped
+     */
+    public static Utf8ByteSequence mapHTMLFromFile(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            return new Utf8ByteSequence(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
 
+    /**
+     * Copies html into a direct buffer as UTF-8, outside the Java heap
+     * @param html the html
+     * @return the html in the buffer
+     */
+    public static Utf8ByteSequence toDirectBuffer(String html) {
+        byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return new Utf8ByteSequence(buffer);
+    }
 }
@@ -0,0 +1,72 @@
+package HTMLString;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A html source held as UTF-8 bytes, for example a memory mapped file, read as a CharSequence without decoding all of it.
+ * charAt gives the byte at the position, which is the character itself for the ASCII characters the parser looks for
+ * (all bytes of a multi byte UTF-8 character are 0x80 or above, so they never look like markup).
+ * Positions and lengths count bytes. Only subSequence, appendTo and toString decode, and only the bytes asked for.
+ * Not thread safe: decoding reuses a buffer.
+ */
+public final class Utf8ByteSequence implements CharSequence {
+
+    private final ByteBuffer bytes;
+
+    // reused when decoding, so a slice only allocates its resulting String
+    private byte[] scratch = new byte[256];
+
+    /**
+     * @param bytes the UTF-8 encoded source from its position to its limit, a byte order mark at the start is skipped
+     */
+    public Utf8ByteSequence(ByteBuffer bytes) {
+        ByteBuffer view = bytes.slice();
+        if (view.remaining() >= 3 && (view.get(0) & 0xFF) == 0xEF && (view.get(1) & 0xFF) == 0xBB && (view.get(2) & 0xFF) == 0xBF){
+            view.position(3);
+            view = view.slice();
+        }
+        this.bytes = view;
+    }
+
+    @Override
+    public int length() {
+        return bytes.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(index) & 0xFF);
+    }
+
+    /**
+     * @return the bytes from start to end decoded into a String
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return decode(start, end);
+    }
+
+    /**
+     * Decodes the bytes from start to end and appends them to the builder
+     */
+    public void appendTo(StringBuilder sb, int start, int end) {
+        sb.append(decode(start, end));
+    }
+
+    private String decode(int start, int end) {
+        int length = end - start;
+        if (length > scratch.length)
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+
+        for (int i = 0; i < length; i++)
+            scratch[i] = bytes.get(start + i);
+
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return StandardCharsets.UTF_8.decode(bytes.duplicate()).toString();
+    }
+}
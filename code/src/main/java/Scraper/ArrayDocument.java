@@ -0,0 +1,148 @@
+package Scraper;
+
+import java.util.HashMap;
+
+/**
+ * ArrayDocument: a {@link FlatDocument} with its arrays on the heap, as built by {@link FlatDocumentBuilder}.
+ * Text and attribute values are the CharSequences the parser reported, views into the source when built with zero copy.
+ * @author Joakim Jensen
+ * @version 1.1
+ */
+final class ArrayDocument extends FlatDocument {
+
+    private final int size;
+
+    private final int[] tagIds;
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final int[] attributeStarts;
+    private final int[] attributeCounts;
+    private final int[] firstTexts;
+
+    private final int[] attributeNames;
+    private final CharSequence[] attributeValues;
+
+    // the text runs of the page in document order, each linked to the next one of the same element
+    private final CharSequence[] texts;
+    private final int[] nextTexts;
+
+    private final String[] localNames;
+    private final HashMap<String, Integer> localNameIndexes;
+
+    ArrayDocument(int size, int[] tagIds, int[] parents, int[] firstChildren, int[] nextSiblings,
+                  int[] attributeStarts, int[] attributeCounts, int[] firstTexts,
+                  int[] attributeNames, CharSequence[] attributeValues,
+                  CharSequence[] texts, int[] nextTexts, String[] localNames) {
+        this.size = size;
+        this.tagIds = tagIds;
+        this.parents = parents;
+        this.firstChildren = firstChildren;
+        this.nextSiblings = nextSiblings;
+        this.attributeStarts = attributeStarts;
+        this.attributeCounts = attributeCounts;
+        this.firstTexts = firstTexts;
+        this.attributeNames = attributeNames;
+        this.attributeValues = attributeValues;
+        this.texts = texts;
+        this.nextTexts = nextTexts;
+        this.localNames = localNames;
+        this.localNameIndexes = indexNames(localNames);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getParent(int node) {
+        return parents[node];
+    }
+
+    @Override
+    public int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+
+    @Override
+    public int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    @Override
+    public int getAttributeCount(int node) {
+        return attributeCounts[node];
+    }
+
+    @Override
+    public int getFirstText(int node) {
+        return firstTexts[node];
+    }
+
+    @Override
+    public int getNextText(int text) {
+        return nextTexts[text];
+    }
+
+    @Override
+    public CharSequence getText(int text) {
+        return texts[text];
+    }
+
+    @Override
+    int tagIdAt(int node) {
+        return tagIds[node];
+    }
+
+    @Override
+    int attributeStart(int node) {
+        return attributeStarts[node];
+    }
+
+    @Override
+    int attributeNameAt(int attribute) {
+        return attributeNames[attribute];
+    }
+
+    @Override
+    CharSequence attributeValueAt(int attribute) {
+        return attributeValues[attribute];
+    }
+
+    @Override
+    int textCount() {
+        return texts.length;
+    }
+
+    @Override
+    int localNameCount() {
+        return localNames.length;
+    }
+
+    @Override
+    String localName(int index) {
+        return localNames[index];
+    }
+
+    @Override
+    int localNameIndex(String name) {
+        Integer index = localNameIndexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    Object key(String value) {
+        return value;
+    }
+
+    @Override
+    boolean valueMatches(int attribute, Object key) {
+        return ((String) key).contentEquals(attributeValues[attribute]);
+    }
+
+    @Override
+    boolean textContains(int text, Object key) {
+        return texts[text].toString().contains((String) key);
+    }
+}
@@ -0,0 +1,334 @@
+package Scraper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static Scraper.ElementVisitor.Next.CONTINUE;
+import static Scraper.ElementVisitor.Next.STOP;
+
+/**
+ * BatchQuery: many searches of the {@link Scraper} answered together, in one walk of the tree instead of one walk each.
+ * Each search is added to the batch, which gives back a {@link Query} to look its result up with once the batch has run.
+ * The searches are kept by the tag, id or class they look for, so each element is only handed to the searches that can use it,
+ * and adding a search costs little more than the elements it finds.
+ * <p>
+ * A batch is set up on one thread and can then be run any number of times, on several threads and on several pages,
+ * every run has a {@link Result} of its own. The results are the same as those of the methods of the Scraper with the same names.
+ * <pre>
+ * BatchQuery batch = new BatchQuery();
+ * BatchQuery.Query&lt;String&gt; titles = batch.contentFromTagAsString("h1");
+ * BatchQuery.Query&lt;String&gt; images = batch.allImagesFromPageAsString();
+ * BatchQuery.Result result = scraper.runBatch(batch);
+ * ArrayList&lt;String&gt; found = result.get(titles);
+ * </pre>
+ * @author Joakim Jensen
+ * @version 1.1
+ * @see Scraper#runBatch(BatchQuery)
+ */
+public final class BatchQuery {
+
+    /**
+     * A search of a batch, the key to its result
+     * @param <E> what the search finds, String or {@link Element}
+     */
+    public static final class Query<E> {
+
+        private final BatchQuery batch;
+        private final int number;
+
+        private Query(BatchQuery batch, int number) {
+            this.batch = batch;
+            this.number = number;
+        }
+    }
+
+    /**
+     * The results of one run of a batch
+     */
+    public static final class Result {
+
+        private final BatchQuery batch;
+        private final List<ArrayList<Object>> results;
+
+        private Result(BatchQuery batch, List<ArrayList<Object>> results) {
+            this.batch = batch;
+            this.results = results;
+        }
+
+        /**
+         * @param query a search of the batch that was run
+         * @return what the search found, in document order
+         * @throws IllegalArgumentException if the search belongs to another batch
+         */
+        @SuppressWarnings("unchecked")
+        public <E> ArrayList<E> get(Query<E> query) {
+            if (query.batch != batch)
+                throw new IllegalArgumentException("The query belongs to another batch");
+            return (ArrayList<E>) (ArrayList<?>) results.get(query.number);
+        }
+    }
+
+    // what a search does with an element it may use: adds what it takes from the element to its result,
+    // and answers true when it needs no more elements
+    private interface Action {
+        boolean visit(Element node, ArrayList<Object> result, String url);
+    }
+
+    // a search that takes what it can from every element it is handed
+    private interface Adder {
+        void add(Element node, ArrayList<Object> result, String url);
+    }
+
+    private static Action each(Adder adder) {
+        return (node, result, url) -> {
+            adder.add(node, result, url);
+            return false;
+        };
+    }
+
+    private final ArrayList<Action> actions = new ArrayList<>();
+
+    // the searches by the tag, id or class an element needs to be of use to them, and the searches looking at every element
+    private final HashMap<String, int[]> byTag = new HashMap<>();
+    private final HashMap<String, int[]> byId = new HashMap<>();
+    private final HashMap<String, int[]> byClass = new HashMap<>();
+    private int[] always = new int[0];
+
+    private <E> Query<E> add(HashMap<String, int[]> map, String key, Action action) {
+        int number = actions.size();
+        actions.add(action);
+        if (map == null)
+            always = append(always, number);
+        else
+            map.put(key, append(map.getOrDefault(key, new int[0]), number));
+        return new Query<>(this, number);
+    }
+
+    private static int[] append(int[] numbers, int number) {
+        int[] result = Arrays.copyOf(numbers, numbers.length + 1);
+        result[numbers.length] = number;
+        return result;
+    }
+
+    /**
+     * @return the number of searches in the batch
+     */
+    public int size() {
+        return actions.size();
+    }
+
+    /**
+     * Runs the batch over an element and everything inside it
+     * @param root the element to search from
+     * @param url the url of the page, put in front of the links starting with / or #
+     * @return what each search found
+     */
+    public Result run(Element root, String url) {
+        List<ArrayList<Object>> results = new ArrayList<>(actions.size());
+        for (int i = 0; i < actions.size(); i++)
+            results.add(new ArrayList<>());
+        Result result = new Result(this, results);
+        if (results.isEmpty() || root == null)
+            return result;
+
+        boolean[] done = new boolean[results.size()];
+        int[] open = {results.size()};
+
+        TreeTraverser.walk(root, (element, depth) -> {
+            visit(byTag.get(element.getTag()), element, results, done, open, url);
+            if (!byId.isEmpty())
+                visit(byKey(byId, element, "id"), element, results, done, open, url);
+            if (!byClass.isEmpty())
+                visit(byKey(byClass, element, "class"), element, results, done, open, url);
+            visit(always, element, results, done, open, url);
+            return open[0] == 0 ? STOP : CONTINUE;
+        });
+        return result;
+    }
+
+    private static int[] byKey(HashMap<String, int[]> map, Element element, String name) {
+        CharSequence value = element.getAttributeValue(name);
+        return value == null ? null : map.get(value.toString());
+    }
+
+    private void visit(int[] numbers, Element element, List<ArrayList<Object>> results, boolean[] done, int[] open, String url) {
+        if (numbers == null)
+            return;
+        for (int number : numbers)
+            if (!done[number] && actions.get(number).visit(element, results.get(number), url)){
+                done[number] = true;
+                open[0]--;
+            }
+    }
+
+    // the searches below have the names of the Scraper methods they answer like, without get
+
+    @SuppressWarnings("unchecked")
+    private static ArrayList<String> strings(ArrayList<Object> result) {
+        return (ArrayList<String>) (ArrayList<?>) result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayList<Element> elements(ArrayList<Object> result) {
+        return (ArrayList<Element>) (ArrayList<?>) result;
+    }
+
+    /** @see Scraper#getContentFromTagAsString(String) */
+    public Query<String> contentFromTagAsString(String tag) {
+        return add(byTag, tag, each((node, result, url) -> TreeTraverser.addTexts(node, strings(result))));
+    }
+
+    /** @see Scraper#getContentFromTagAsNode(String) */
+    public Query<Element> contentFromTagAsNode(String tag) {
+        return add(byTag, tag, each((node, result, url) -> TreeTraverser.addOncePerText(node, elements(result))));
+    }
+
+    /** @see Scraper#getContentFromIdAsString(String) */
+    public Query<String> contentFromIdAsString(String id) {
+        return add(byId, id, each((node, result, url) -> TreeTraverser.addTexts(node, strings(result))));
+    }
+
+    /** @see Scraper#getContentFromIdAsNode(String) */
+    public Query<Element> contentFromIdAsNode(String id) {
+        return add(byId, id, each((node, result, url) -> TreeTraverser.addOncePerText(node, elements(result))));
+    }
+
+    /** @see Scraper#getContentFromClassAsString(String) */
+    public Query<String> contentFromClassAsString(String className) {
+        return add(byClass, className, each((node, result, url) -> TreeTraverser.addTexts(node, strings(result))));
+    }
+
+    /** @see Scraper#getContentFromClassAsNode(String) */
+    public Query<Element> contentFromClassAsNode(String className) {
+        return add(byClass, className, each((node, result, url) -> TreeTraverser.addOncePerText(node, elements(result))));
+    }
+
+    /** @see Scraper#getLinksInPageAsString() */
+    public Query<String> linksInPageAsString() {
+        return add(byTag, TagRegistry.nameOf(TagRegistry.A), each((node, result, url) -> TreeTraverser.addLink(node, url, strings(result))));
+    }
+
+    /** @see Scraper#getLinksInPageAsNode() */
+    public Query<Element> linksInPageAsNode() {
+        return add(byTag, TagRegistry.nameOf(TagRegistry.A), each((node, result, url) -> result.add(node)));
+    }
+
+    /** @see Scraper#getAllImagesFromPageAsString() */
+    public Query<String> allImagesFromPageAsString() {
+        return add(byTag, TagRegistry.nameOf(TagRegistry.IMG), each((node, result, url) -> result.add(node.getAttributes().get("src"))));
+    }
+
+    /** @see Scraper#getAllImagesFromPageAsNode() */
+    public Query<Element> allImagesFromPageAsNode() {
+        return add(byTag, TagRegistry.nameOf(TagRegistry.IMG), each((node, result, url) -> result.add(node)));
+    }
+
+    /**
+     * The result holds the src of the first element with the id, or nothing if there is none
+     * @see Scraper#getImageByIdAsString(String)
+     */
+    public Query<String> imageByIdAsString(String pictureId) {
+        return add(byId, pictureId, (node, result, url) -> {
+            result.add(node.getAttributes().get("src"));
+            return true;
+        });
+    }
+
+    /**
+     * The result holds the first element with the id, or nothing if there is none
+     * @see Scraper#getImageByIdAsNode(String)
+     */
+    public Query<Element> imageByIdAsNode(String pictureId) {
+        return add(byId, pictureId, (node, result, url) -> {
+            result.add(node);
+            return true;
+        });
+    }
+
+    /** @see Scraper#getImageByClassAsString(String) */
+    public Query<String> imageByClassAsString(String pictureClass) {
+        return add(byClass, pictureClass, each((node, result, url) -> result.add(node.getAttributes().get("src"))));
+    }
+
+    /** @see Scraper#getImageByClassAsNode(String) */
+    public Query<Element> imageByClassAsNode(String pictureClass) {
+        return add(byClass, pictureClass, each((node, result, url) -> result.add(node)));
+    }
+
+    /** @see Scraper#getAllVideosFromPageAsString() */
+    public Query<String> allVideosFromPageAsString() {
+        return add(byTag, TagRegistry.nameOf(TagRegistry.VIDEO), each((node, result, url) -> addVideoSource(node, result)));
+    }
+
+    /** @see Scraper#getAllVideosFromPageAsNode() */
+    public Query<Element> allVideosFromPageAsNode() {
+        return add(byTag, TagRegistry.nameOf(TagRegistry.VIDEO), each((node, result, url) -> result.add(node)));
+    }
+
+    /**
+     * The result holds the src of the first video with the id, or nothing if there is none
+     * @see Scraper#getVideoByIdAsString(String)
+     */
+    public Query<String> videoByIdAsString(String videoId) {
+        return add(byId, videoId, (node, result, url) -> addVideoSource(node, result));
+    }
+
+    /**
+     * The result holds the first element with the id, or nothing if there is none
+     * @see Scraper#getVideoByIdAsNode(String)
+     */
+    public Query<Element> videoByIdAsNode(String videoId) {
+        return imageByIdAsNode(videoId);
+    }
+
+    /** @see Scraper#getVideoByClassAsString(String) */
+    public Query<String> videoByClassAsString(String videoClass) {
+        return add(byClass, videoClass, each((node, result, url) -> addVideoSource(node, result)));
+    }
+
+    /** @see Scraper#getVideoByClassAsNode(String) */
+    public Query<Element> videoByClassAsNode(String videoClass) {
+        return imageByClassAsNode(videoClass);
+    }
+
+    // adds the src of a video, false if the element is not one
+    private static boolean addVideoSource(Element node, ArrayList<Object> result) {
+        Element source = TreeTraverser.videoSource(node);
+        if (source == null)
+            return false;
+        result.add(source.getAttributes().get("src"));
+        return true;
+    }
+
+    /**
+     * Like the Scraper method, the tag of an element only has to contain the tag, so every element is looked at
+     * @see Scraper#getAttributeContentWithTagAndNameAsString(String, String)
+     */
+    public Query<String> attributeContentWithTagAndNameAsString(String tag, String attribute) {
+        return add(null, null, each((node, result, url) -> {
+            if (node.getTag().contains(tag) && node.hasAttribute(attribute))
+                result.add(node.getAttributes().get(attribute));
+        }));
+    }
+
+    /**
+     * Like the Scraper method, the tag of an element only has to contain the tag, so every element is looked at
+     * @see Scraper#getAttributeContentWithTagAndNameAsNode(String, String)
+     */
+    public Query<Element> attributeContentWithTagAndNameAsNode(String tag, String attribute) {
+        return add(null, null, each((node, result, url) -> {
+            if (node.getTag().contains(tag) && node.hasAttribute(attribute))
+                result.add(node);
+        }));
+    }
+
+    /** @see Scraper#getAttributeContentWithIdAndNameAsString(String, String) */
+    public Query<String> attributeContentWithIdAndNameAsString(String id, String attribute) {
+        return add(byId, id, each((node, result, url) -> {
+            if (node.hasAttribute(attribute))
+                result.add(node.getAttributes().get(attribute));
+        }));
+    }
+}
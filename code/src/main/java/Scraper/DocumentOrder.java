@@ -0,0 +1,190 @@
+package Scraper;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * DocumentOrder: the elements of a tree numbered in the order they are opened and the order they are closed in the html source.
+ * An element has a pre-order and a post-order number, and one element is inside another exactly when it is opened after
+ * and closed before it, so {@link Element#isAncestorOf(Element)} is two comparisons instead of a walk up the tree.
+ * The elements are also kept in a list in pre-order, where the elements inside an element come right after it,
+ * so the part of the page inside an element is a range of the list, found without looking at the elements in it.
+ * <p>
+ * {@link TreeBuilder} numbers every tree it builds. A tree that is changed afterwards, by adding or removing children or texts or changing attributes or tags,
+ * loses its numbering, and can be numbered again with {@link DocumentOrder#of(Element)}.
+ * Frozen elements keep the numbering they were frozen with, see {@link Element#freeze()}.
+ * @author Joakim Jensen
+ * @version 1.0
+ * @see Element#getPreOrder()
+ */
+public final class DocumentOrder {
+
+    private final Element[] elements;
+
+    // post-order number of each element, by pre-order number
+    private final int[] postOrders;
+
+    private boolean valid = true;
+
+    private DocumentOrder(Element[] elements, int[] postOrders) {
+        this.elements = elements;
+        this.postOrders = postOrders;
+    }
+
+    /**
+     * Numbers the elements of a tree and links each to its parent
+     * @param root the root of the tree, or of the part of a tree to number
+     * @return the numbering, it replaces the one the elements had before
+     */
+    public static DocumentOrder of(Element root) {
+        ArrayList<Element> elements = new ArrayList<>();
+        int[] postOrders = new int[16];
+        int postOrder = 0;
+
+        // a stack of its own, as the tree may be deeper than the call stack allows: the pre-order number and next child of each open element
+        int[] stack = new int[16];
+        int[] next = new int[16];
+        int depth = 0;
+        elements.add(root);
+        stack[depth] = 0;
+        next[depth++] = 0;
+
+        while (depth > 0){
+            Element node = elements.get(stack[depth - 1]);
+            int child = next[depth - 1];
+
+            if (child < node.getNodeChildCount()){
+                Element childNode = node.getNodeChild(child);
+                // a frozen element is never written to, it already has its parent
+                if (!childNode.isFrozen())
+                    childNode.setParent(node);
+                next[depth - 1] = child + 1;
+
+                if (depth == stack.length){
+                    stack = Arrays.copyOf(stack, depth * 2);
+                    next = Arrays.copyOf(next, depth * 2);
+                }
+                stack[depth] = elements.size();
+                next[depth++] = 0;
+                elements.add(childNode);
+            }
+            else {
+                int pre = stack[--depth];
+                if (pre >= postOrders.length)
+                    postOrders = Arrays.copyOf(postOrders, Math.max(pre + 1, postOrders.length * 2));
+                postOrders[pre] = postOrder++;
+            }
+        }
+
+        DocumentOrder order = new DocumentOrder(elements.toArray(new Element[0]), Arrays.copyOf(postOrders, elements.size()));
+        for (int i = 0; i < order.elements.length; i++)
+            if (!order.elements[i].isFrozen())
+                order.elements[i].setOrder(order, i);
+        return order;
+    }
+
+    /**
+     * Called when an element of the tree gets or loses a child, the numbers no longer describe the tree after that
+     */
+    void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * @return false if the tree has been changed since it was numbered
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * @return the number of elements in the tree
+     */
+    public int size() {
+        return elements.length;
+    }
+
+    /**
+     * @param preOrder a pre-order number, from 0 to {@link DocumentOrder#size()}
+     * @return the element with the number
+     */
+    public Element get(int preOrder) {
+        return elements[preOrder];
+    }
+
+    /**
+     * @param preOrder a pre-order number, from 0 to {@link DocumentOrder#size()}
+     * @return the post-order number of the element
+     */
+    public int getPostOrder(int preOrder) {
+        return postOrders[preOrder];
+    }
+
+    /**
+     * @return all elements of the tree, in document order, as a list that can not be changed
+     */
+    public List<Element> getElements() {
+        return new Range(0, elements.length);
+    }
+
+    /**
+     * @param ancestor an element of the tree
+     * @return the pre-order number after the last element inside the ancestor
+     */
+    public int getSubtreeEnd(Element ancestor) {
+        int pre = checkedPreOrder(ancestor);
+        int post = postOrders[pre];
+
+        // the elements inside the ancestor come right after it and are closed before it, every element after them is closed after it
+        int low = pre + 1;
+        int high = elements.length;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (postOrders[middle] < post)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * @param ancestor an element of the tree
+     * @return the elements inside the ancestor, not the ancestor itself, in document order
+     */
+    public List<Element> getDescendants(Element ancestor) {
+        int pre = checkedPreOrder(ancestor);
+        return new Range(pre + 1, getSubtreeEnd(ancestor));
+    }
+
+    private int checkedPreOrder(Element element) {
+        if (element.getDocumentOrder() != this)
+            throw new IllegalArgumentException("The element is not numbered by this DocumentOrder");
+        return element.getPreOrder();
+    }
+
+    private final class Range extends AbstractList<Element> {
+
+        private final int from;
+        private final int to;
+
+        Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Element get(int index) {
+            if (index < 0 || index >= to - from)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+            return elements[from + index];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
@@ -1,41 +1,346 @@
 package Scraper;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Dictionary;
+import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.NoSuchElementException;
 /**
  * Element: an object representing a individual element from the html source.
  * The object contains information of what content is nested within it: other html-elements or text.
  * The object also hold information about the element itself, being what tag it is and what attributes it hold, including values to the attributes. This information is used in particular when searching after elements
+ * Text and attribute values are kept as CharSequences. When built with {@link ParseOptions#setZeroCopy(boolean)} they are views into the html source,
+ * and each is turned into a String the first time it is asked for through {@link Element#getStringChildren()} or {@link Element#getAttributes()}.
+ * Attributes and children are kept in plain arrays that are only created when the first one is added,
+ * so a leaf element without attributes is not much more than its tag. The lists and dictionary returned by the getters are views of these arrays.
+ * An Element from a {@link FlatDocument} starts out with only its tag, and fills its arrays from the document the first time they are needed.
+ * Every element knows its parent. The elements of a tree built by {@link TreeBuilder} are also numbered in document order,
+ * see {@link DocumentOrder}, so finding out if one element is inside another does not need a search.
+ * <p>
+ * An element can be frozen with {@link Element#freeze()}, it and everything inside it can then no longer be changed,
+ * and reading it never writes to it, so any number of threads can read a frozen tree at the same time without locks.
  * @author Joakim Jensen
- * @version 1.0
+ * @version 1.7
  * @see Scraper
  */
 public final class Element {
     private String tag;
+    private int tagId;
 //    private String full_tag;
 
+    // attribute names and values one after the other: name, value, name, value ...
+    private Object[] attributes;
+    private int attributeCount;
 
-    private Dictionary<String, String> attributes = new Hashtable();
+    private Element[] nodeChildren;
+    private int nodeChildCount;
 
-    private ArrayList<String> attributeNames = new ArrayList<>();
+    private CharSequence[] stringChildren;
+    private int stringChildCount;
 
-    private ArrayList<Element> nodeChildren = new ArrayList<>();
-    private ArrayList<String> stringChildren = new ArrayList<>();
+    // the document and element read from, until the arrays have been filled
+    private FlatDocument document;
+    private int node;
+
+    private Element parent;
+
+    // the numbering of the tree and the pre-order number of the element in it
+    private DocumentOrder order;
+    private int preOrder;
+
+    private boolean frozen;
 
     public Element() {
     }
 
     public Element(String tag) {
-        this.tag = tag;
+        setTag(tag);
+    }
+
+    Element(FlatDocument document, int node) {
+        this.tag = document.getTag(node);
+        this.tagId = document.getTagId(node);
+        this.document = document;
+        this.node = node;
+    }
+
+    // fills the arrays of an element from a FlatDocument, its children get an Element each that is filled when they are used
+    private void inflate(){
+        FlatDocument document = this.document;
+        if (document == null)
+            return;
+        this.document = null;
+
+        if (parent == null && document.getParent(node) != FlatDocument.NONE)
+            parent = new Element(document, document.getParent(node));
+        for (int i = 0; i < document.getAttributeCount(node); i++)
+            appendAttribute(document.getAttributeName(node, i), document.getAttributeValue(node, i));
+        for (int child = document.getFirstChild(node); child != FlatDocument.NONE; child = document.getNextSibling(child))
+            addNodeChild(new Element(document, child));
+        for (int text = document.getFirstText(node); text != FlatDocument.NONE; text = document.getNextText(text))
+            appendText(document.getText(text));
+        trimToSize();
     }
 
     public void addNodeChild(Element child){
-        this.nodeChildren.add(child);
+        checkNotFrozen();
+        inflate();
+        invalidateOrder();
+        adopt(child);
+        if (nodeChildren == null)
+            nodeChildren = new Element[2];
+        else if (nodeChildCount == nodeChildren.length)
+            nodeChildren = Arrays.copyOf(nodeChildren, nodeChildCount * 2);
+        nodeChildren[nodeChildCount++] = child;
     }
 
     public void addStringChild(String text){
-        this.getStringChildren().add(text);
+        addTextChild(text);
+    }
+
+    /**
+     * Adds a text child without turning it into a String
+     * @param text the text, for example a view into the html source
+     */
+    void addTextChild(CharSequence text){
+        checkNotFrozen();
+        inflate();
+        invalidateOrder();
+        appendText(text);
+    }
+
+    // adds a text to the array, also while it is filled from a FlatDocument
+    private void appendText(CharSequence text){
+        if (stringChildren == null)
+            stringChildren = new CharSequence[1];
+        else if (stringChildCount == stringChildren.length)
+            stringChildren = Arrays.copyOf(stringChildren, stringChildCount * 2);
+        stringChildren[stringChildCount++] = text;
+    }
+
+    /**
+     * Adds an attribute and its value, without turning the value into a String.
+     * An attribute given twice is kept twice in {@link Element#getAttributeNames()}, and the last value is the one used.
+     * @param name the attribute name
+     * @param value the value, for example a view into the html source
+     */
+    void addAttribute(String name, CharSequence value){
+        checkNotFrozen();
+        inflate();
+        invalidateOrder();
+        appendAttribute(name, value);
+    }
+
+    // adds an attribute to the arrays, also while they are filled from a FlatDocument
+    private void appendAttribute(String name, CharSequence value){
+        if (attributes == null)
+            attributes = new Object[4];
+        else if (attributeCount * 2 == attributes.length)
+            attributes = Arrays.copyOf(attributes, attributes.length * 2);
+        attributes[attributeCount * 2] = name;
+        attributes[attributeCount * 2 + 1] = value;
+        attributeCount++;
+    }
+
+    // the tree is about to change, so its numbering no longer holds, and neither does an ElementIndex or TextIndex of it
+    private void invalidateOrder(){
+        if (order != null){
+            order.invalidate();
+            order = null;
+        }
+    }
+
+    // a child added to this element
+    private void adopt(Element child){
+        if (child.frozen)
+            throw new UnsupportedOperationException("A frozen element can not be moved to another parent");
+        child.invalidateOrder();
+        child.parent = this;
+    }
+
+    // a child no longer in this element, a frozen one keeps its parent as it is never written to
+    private void release(Element child){
+        if (child != null && !child.frozen && child.parent == this){
+            child.invalidateOrder();
+            child.parent = null;
+        }
+    }
+
+    void setParent(Element parent){
+        this.parent = parent;
+    }
+
+    void setOrder(DocumentOrder order, int preOrder){
+        this.order = order;
+        this.preOrder = preOrder;
+    }
+
+    /**
+     * @return the element this one is a child of, or null for the root of a tree.
+     * For an element from a {@link FlatDocument} it may be a new Element for the parent
+     */
+    public Element getParent(){
+        inflate();
+        return parent;
+    }
+
+    /**
+     * @return the numbering of the tree the element is in, or null if the tree has not been numbered or has been changed since
+     */
+    public DocumentOrder getDocumentOrder(){
+        return order != null && order.isValid() ? order : null;
+    }
+
+    /**
+     * @return the position of the element in document order, counted from 0 at the root, or -1 if the tree is not numbered
+     */
+    public int getPreOrder(){
+        return getDocumentOrder() == null ? -1 : preOrder;
+    }
+
+    /**
+     * @return the position of the element in the order elements are closed, the root being the last, or -1 if the tree is not numbered
+     */
+    public int getPostOrder(){
+        DocumentOrder order = getDocumentOrder();
+        return order == null ? -1 : order.getPostOrder(preOrder);
+    }
+
+    /**
+     * @param other another element
+     * @return true if the other element is nested somewhere inside this one
+     */
+    public boolean isAncestorOf(Element other){
+        DocumentOrder order = getDocumentOrder();
+        if (order != null && other.getDocumentOrder() == order)
+            return preOrder < other.preOrder && order.getPostOrder(other.preOrder) < order.getPostOrder(preOrder);
+
+        for (Element node = other.getParent(); node != null; node = node.getParent())
+            if (node == this)
+                return true;
+        return false;
+    }
+
+    private void checkNotFrozen(){
+        if (frozen)
+            throw new UnsupportedOperationException("The element is frozen");
+    }
+
+    /**
+     * Makes the element and everything inside it read only. Their text and attribute values are turned into Strings,
+     * elements from a {@link FlatDocument} are filled in, and the elements are numbered if they are not already, see {@link Element#getDocumentOrder()},
+     * so nothing is left to be written when they are read.
+     * Changing a frozen element, through its setters or the collections returned by its getters, throws an UnsupportedOperationException.
+     * The tree can be read by several threads at the same time once it has been handed to them the usual safe ways,
+     * for example through a final or volatile field, a concurrent collection or an ExecutorService.
+     * @return this element
+     */
+    public Element freeze(){
+        if (frozen)
+            return this;
+
+        // a numbered tree keeps its numbers, so an index of the whole tree still holds for the frozen part
+        DocumentOrder order = getDocumentOrder();
+        List<Element> inside;
+        if (order != null)
+            inside = order.getDescendants(this);
+        else {
+            order = DocumentOrder.of(this);
+            inside = order.getDescendants(this);
+        }
+
+        freezeElement();
+        for (Element element : inside)
+            element.freezeElement();
+        return this;
+    }
+
+    // freezes the element itself, the ones inside it are frozen by freeze
+    private void freezeElement(){
+        if (frozen)
+            return;
+        inflate();
+        trimToSize();
+        for (int i = 0; i < attributeCount; i++)
+            attributes[i * 2 + 1] = attributes[i * 2 + 1].toString();
+        for (int i = 0; i < stringChildCount; i++)
+            stringChildren[i] = stringChildren[i].toString();
+        frozen = true;
+    }
+
+    /**
+     * @return true if the element has been frozen, see {@link Element#freeze()}
+     */
+    public boolean isFrozen(){
+        return frozen;
+    }
+
+    /**
+     * Shrinks the arrays of the element to what it holds, called when the element is complete
+     */
+    void trimToSize(){
+        if (frozen)
+            return;
+        if (attributes != null && attributes.length > attributeCount * 2)
+            attributes = Arrays.copyOf(attributes, attributeCount * 2);
+        if (nodeChildren != null && nodeChildren.length > nodeChildCount)
+            nodeChildren = Arrays.copyOf(nodeChildren, nodeChildCount);
+        if (stringChildren != null && stringChildren.length > stringChildCount)
+            stringChildren = Arrays.copyOf(stringChildren, stringChildCount);
+    }
+
+    // index of the last attribute with the name, or -1
+    private int indexOfAttribute(Object name){
+        inflate();
+        for (int i = attributeCount - 1; i >= 0; i--){
+            Object attributeName = attributes[i * 2];
+            // known names are shared Strings from the TagRegistry, so most matches are found by reference
+            if (attributeName == name || attributeName.equals(name))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param name the attribute name
+     * @return true if the element has the attribute
+     */
+    public boolean hasAttribute(String name){
+        return indexOfAttribute(name) >= 0;
+    }
+
+    /**
+     * @param name the attribute name
+     * @return the value of the attribute as it is kept, without turning it into a String, or null if the element does not have it
+     */
+    public CharSequence getAttributeValue(String name){
+        int i = indexOfAttribute(name);
+        return i < 0 ? null : (CharSequence) attributes[i * 2 + 1];
+    }
+
+    /**
+     * @param index position of the attribute in {@link Element#getAttributeNames()}
+     * @return the value of the attribute as it is kept
+     */
+    CharSequence getAttributeValueAt(int index){
+        inflate();
+        if (index >= attributeCount)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + attributeCount);
+        return (CharSequence) attributes[index * 2 + 1];
+    }
+
+    /**
+     * Compares the value of an attribute with a String, without turning the value into a String
+     * @param name the attribute name
+     * @param value the value to compare with
+     * @return true if the element has the attribute and its value is equal to the given one
+     */
+    public boolean attributeEquals(String name, String value){
+        CharSequence actual = getAttributeValue(name);
+        return actual != null && value != null && value.contentEquals(actual);
     }
 
     public String getTag() {
@@ -43,47 +348,395 @@ public final class Element {
     }
 
     public void setTag(String tag) {
+        checkNotFrozen();
+        invalidateOrder();
         this.tag = tag;
+        this.tagId = TagRegistry.idOf(tag);
     }
 
+    /**
+     * @return the id of the tag in the {@link TagRegistry}, or {@link TagRegistry#UNKNOWN} for tags it does not know
+     */
+    public int getTagId() {
+        return tagId;
+    }
+
+    /**
+     * @return the attribute values by name, a value is turned into a String when it is read
+     */
     public Dictionary<String, String> getAttributes() {
-        return attributes;
+        inflate();
+        return new AttributeDictionary();
     }
 
     public void setAttributes(Dictionary<String, String> attributes) {
-        this.attributes = attributes;
+        checkNotFrozen();
+        inflate();
+        invalidateOrder();
+        this.attributes = null;
+        this.attributeCount = 0;
+        for (Enumeration<String> keys = attributes.keys(); keys.hasMoreElements(); ){
+            String key = keys.nextElement();
+            addAttribute(key, attributes.get(key));
+        }
     }
 
 
+    /**
+     * @return the child elements, in document order
+     */
     public ArrayList<Element> getNodeChildren() {
-        return nodeChildren;
+        inflate();
+        return new ListView<>(new NodeChildren());
     }
 
     public void setNodeChildren(ArrayList<Element> nodeChildren) {
-        this.nodeChildren = nodeChildren;
+        checkNotFrozen();
+        inflate();
+        Element[] children = nodeChildren.toArray(new Element[0]);
+        for (Element child : children)
+            if (child.frozen)
+                throw new UnsupportedOperationException("A frozen element can not be moved to another parent");
+
+        invalidateOrder();
+        for (int i = 0; i < nodeChildCount; i++)
+            release(this.nodeChildren[i]);
+        this.nodeChildren = children;
+        this.nodeChildCount = children.length;
+        for (Element child : children)
+            adopt(child);
+    }
+
+    /**
+     * @return the number of child elements
+     */
+    public int getNodeChildCount() {
+        inflate();
+        return nodeChildCount;
+    }
+
+    /**
+     * @param index position of the child, from 0 to {@link Element#getNodeChildCount()}
+     * @return the child element at the position
+     */
+    public Element getNodeChild(int index) {
+        inflate();
+        if (index >= nodeChildCount)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + nodeChildCount);
+        return nodeChildren[index];
     }
 
+    /**
+     * @return the text children, a text is turned into a String when it is read
+     */
     public ArrayList<String> getStringChildren() {
-        return stringChildren;
+        inflate();
+        return new ListView<>(new StringChildren());
+    }
+
+    /**
+     * @return the number of text children
+     */
+    public int getStringChildCount() {
+        inflate();
+        return stringChildCount;
+    }
+
+    /**
+     * @param index position of the text, from 0 to {@link Element#getStringChildCount()}
+     * @return the text child at the position, turned into a String
+     */
+    public String getStringChild(int index) {
+        inflate();
+        if (index >= stringChildCount)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + stringChildCount);
+
+        CharSequence text = stringChildren[index];
+        if (text instanceof String)
+            return (String) text;
+
+        // keep the String instead of the view, so it is only created once
+        String str = text.toString();
+        stringChildren[index] = str;
+        return str;
+    }
+
+    /**
+     * @return the text children as they are kept, views into the html source are not turned into Strings
+     */
+    public List<CharSequence> getTextChildren() {
+        inflate();
+        return new AbstractList<CharSequence>() {
+            @Override
+            public CharSequence get(int index) {
+                if (index >= stringChildCount)
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + stringChildCount);
+                return stringChildren[index];
+            }
+
+            @Override
+            public int size() {
+                return stringChildCount;
+            }
+        };
     }
 
     public void setStringChildren(ArrayList<String> stringChildren) {
-        this.stringChildren = stringChildren;
+        checkNotFrozen();
+        inflate();
+        invalidateOrder();
+        this.stringChildren = stringChildren.toArray(new CharSequence[0]);
+        this.stringChildCount = this.stringChildren.length;
     }
 
+    /**
+     * @return the attribute names in the order they appear in the html source
+     */
     public ArrayList<String> getAttributeNames() {
-        return attributeNames;
+        inflate();
+        return new ListView<>(new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (index >= attributeCount)
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + attributeCount);
+                return (String) attributes[index * 2];
+            }
+
+            @Override
+            public boolean contains(Object name) {
+                return indexOfAttribute(name) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return attributeCount;
+            }
+        });
     }
 
+    // the attributes in a Hashtable, for printing them the way they always have been printed
+    private Hashtable<String, CharSequence> attributeTable(){
+        inflate();
+        Hashtable<String, CharSequence> table = new Hashtable<>();
+        for (int i = 0; i < attributeCount; i++)
+            table.put((String) attributes[i * 2], (CharSequence) attributes[i * 2 + 1]);
+        return table;
+    }
 
     @Override
     public String toString() {
         return "Scraper.SoupNode{" +
                 "tag='" + tag + '\'' +
-                ", attributes=" + attributes +
-                ", attributeNames=" + attributeNames +
-                ", nodeChildren=" + nodeChildren +
-                ", stringChildren=" + stringChildren +
+                ", attributes=" + attributeTable() +
+                ", attributeNames=" + getAttributeNames() +
+                ", nodeChildren=" + getNodeChildren() +
+                ", stringChildren=" + getTextChildren() +
                 '}';
     }
+
+    private final class NodeChildren extends AbstractList<Element> {
+
+        @Override
+        public Element get(int index) {
+            return getNodeChild(index);
+        }
+
+        @Override
+        public Element set(int index, Element child) {
+            checkNotFrozen();
+            Element old = getNodeChild(index);
+            adopt(child);
+            invalidateOrder();
+            release(old);
+            nodeChildren[index] = child;
+            return old;
+        }
+
+        @Override
+        public void add(int index, Element child) {
+            if (index > nodeChildCount || index < 0)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + nodeChildCount);
+            addNodeChild(child);
+            System.arraycopy(nodeChildren, index, nodeChildren, index + 1, nodeChildCount - 1 - index);
+            nodeChildren[index] = child;
+        }
+
+        @Override
+        public Element remove(int index) {
+            checkNotFrozen();
+            Element old = getNodeChild(index);
+            invalidateOrder();
+            release(old);
+            System.arraycopy(nodeChildren, index + 1, nodeChildren, index, nodeChildCount - 1 - index);
+            nodeChildren[--nodeChildCount] = null;
+            return old;
+        }
+
+        @Override
+        public int size() {
+            return nodeChildCount;
+        }
+    }
+
+    private final class StringChildren extends AbstractList<String> {
+
+        @Override
+        public String get(int index) {
+            return getStringChild(index);
+        }
+
+        @Override
+        public String set(int index, String text) {
+            checkNotFrozen();
+            String old = getStringChild(index);
+            invalidateOrder();
+            stringChildren[index] = text;
+            return old;
+        }
+
+        @Override
+        public void add(int index, String text) {
+            if (index > stringChildCount || index < 0)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + stringChildCount);
+            addTextChild(text);
+            System.arraycopy(stringChildren, index, stringChildren, index + 1, stringChildCount - 1 - index);
+            stringChildren[index] = text;
+        }
+
+        @Override
+        public String remove(int index) {
+            checkNotFrozen();
+            String old = getStringChild(index);
+            invalidateOrder();
+            System.arraycopy(stringChildren, index + 1, stringChildren, index, stringChildCount - 1 - index);
+            stringChildren[--stringChildCount] = null;
+            return old;
+        }
+
+        @Override
+        public int size() {
+            return stringChildCount;
+        }
+    }
+
+    private final class AttributeDictionary extends Dictionary<String, String> {
+
+        // the distinct attribute names, the last of the ones given twice
+        private boolean isLast(int index){
+            return indexOfAttribute(attributes[index * 2]) == index;
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (int i = 0; i < attributeCount; i++)
+                if (isLast(i))
+                    size++;
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return attributeCount == 0;
+        }
+
+        @Override
+        public Enumeration<String> keys() {
+            return new Enumeration<String>() {
+                private int next = advance(0);
+
+                private int advance(int from){
+                    while (from < attributeCount && !isLast(from))
+                        from++;
+                    return from;
+                }
+
+                @Override
+                public boolean hasMoreElements() {
+                    return next < attributeCount;
+                }
+
+                @Override
+                public String nextElement() {
+                    if (next >= attributeCount)
+                        throw new NoSuchElementException();
+                    String name = (String) attributes[next * 2];
+                    next = advance(next + 1);
+                    return name;
+                }
+            };
+        }
+
+        @Override
+        public Enumeration<String> elements() {
+            Enumeration<String> keys = keys();
+            return new Enumeration<String>() {
+                @Override
+                public boolean hasMoreElements() {
+                    return keys.hasMoreElements();
+                }
+
+                @Override
+                public String nextElement() {
+                    return get(keys.nextElement());
+                }
+            };
+        }
+
+        @Override
+        public String get(Object key) {
+            int i = indexOfAttribute(key);
+            if (i < 0)
+                return null;
+
+            CharSequence value = (CharSequence) attributes[i * 2 + 1];
+            if (value instanceof String)
+                return (String) value;
+
+            // keep the String instead of the view, so it is only created once
+            String str = value.toString();
+            attributes[i * 2 + 1] = str;
+            return str;
+        }
+
+        @Override
+        public String put(String key, String value) {
+            checkNotFrozen();
+            if (key == null || value == null)
+                throw new NullPointerException();
+
+            int i = indexOfAttribute(key);
+            if (i < 0){
+                addAttribute(key, value);
+                return null;
+            }
+
+            String old = get(key);
+            invalidateOrder();
+            attributes[i * 2 + 1] = value;
+            return old;
+        }
+
+        @Override
+        public String remove(Object key) {
+            checkNotFrozen();
+            String old = get(key);
+            if (old != null)
+                invalidateOrder();
+
+            int i;
+            while ((i = indexOfAttribute(key)) >= 0){
+                System.arraycopy(attributes, (i + 1) * 2, attributes, i * 2, (attributeCount - 1 - i) * 2);
+                attributeCount--;
+                attributes[attributeCount * 2] = null;
+                attributes[attributeCount * 2 + 1] = null;
+            }
+            return old;
+        }
+
+        @Override
+        public String toString() {
+            return attributeTable().toString();
+        }
+    }
 }
@@ -0,0 +1,52 @@
+package Scraper;
+
+/**
+ * ElementFilter: decides which elements a {@link TreeBuilder} keeps when it only builds parts of a page.
+ * An element the filter accepts is kept together with everything nested in it, everything else is read past without creating elements.
+ * The id and class are compared exactly, like the rest of the Scraper does.
+ * @author Joakim Jensen
+ * @version 1.0
+ * @see Scraper#buildWithString(String, ElementFilter)
+ */
+public interface ElementFilter {
+
+    /**
+     * @param tag the tag name of the element
+     * @param id the value of the id attribute, or null if the element has none
+     * @param className the value of the class attribute, or null if the element has none
+     * @return true if the element and everything nested in it is to be kept
+     */
+    boolean accept(String tag, String id, String className);
+
+    /**
+     * @param tag tag name to keep
+     * @return filter keeping the elements with the tag
+     */
+    static ElementFilter tag(String tag){
+        return (elementTag, id, className) -> tag.equals(elementTag);
+    }
+
+    /**
+     * @param id id to keep
+     * @return filter keeping the elements with the id
+     */
+    static ElementFilter id(String id){
+        return (tag, elementId, className) -> id.equals(elementId);
+    }
+
+    /**
+     * @param className class to keep
+     * @return filter keeping the elements with the class
+     */
+    static ElementFilter className(String className){
+        return (tag, id, elementClass) -> className.equals(elementClass);
+    }
+
+    /**
+     * @param other filter to combine with
+     * @return filter keeping the elements kept by this filter or the other
+     */
+    default ElementFilter or(ElementFilter other){
+        return (tag, id, className) -> accept(tag, id, className) || other.accept(tag, id, className);
+    }
+}
@@ -0,0 +1,155 @@
+package Scraper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * ElementIndex: the elements of a tree by id, by class and by tag, filled by {@link TreeBuilder} while it builds the tree.
+ * Each list holds the elements in document order, so a search by id, class or tag is a lookup instead of a walk of the tree,
+ * and a search inside one element is the part of the list between its first and last descendant, see {@link DocumentOrder}.
+ * Ids and classes are compared exactly, like the rest of the Scraper does, so an element with class="a b" is found by "a b".
+ * <p>
+ * The index describes the tree as it was built. Once the tree is changed it is no longer valid, see {@link ElementIndex#isValid()}.
+ * @author Joakim Jensen
+ * @version 1.0
+ * @see ParseOptions#setIndexed(boolean)
+ */
+public final class ElementIndex {
+
+    private final HashMap<String, ArrayList<Element>> ids = new HashMap<>();
+    private final HashMap<String, ArrayList<Element>> classes = new HashMap<>();
+    private final HashMap<String, ArrayList<Element>> tags = new HashMap<>();
+
+    private DocumentOrder order;
+
+    ElementIndex() {
+    }
+
+    /**
+     * Adds an element, called in document order once all its attributes are known
+     */
+    void add(Element element) {
+        add(tags, element.getTag(), element);
+
+        CharSequence id = element.getAttributeValue("id");
+        if (id != null)
+            add(ids, id.toString(), element);
+
+        CharSequence className = element.getAttributeValue("class");
+        if (className != null)
+            add(classes, className.toString(), element);
+    }
+
+    private static void add(HashMap<String, ArrayList<Element>> map, String key, Element element) {
+        ArrayList<Element> list = map.get(key);
+        if (list == null){
+            list = new ArrayList<>(1);
+            map.put(key, list);
+        }
+        list.add(element);
+    }
+
+    /**
+     * Called when the tree is complete
+     * @param order the numbering of the tree, the index is valid as long as the numbering is
+     */
+    void finish(DocumentOrder order) {
+        this.order = order;
+        for (HashMap<String, ArrayList<Element>> map : List.of(ids, classes, tags))
+            for (ArrayList<Element> list : map.values())
+                list.trimToSize();
+    }
+
+    /**
+     * @return false if the tree has been changed since it was indexed
+     */
+    public boolean isValid() {
+        return order != null && order.isValid();
+    }
+
+    /**
+     * @param element an element
+     * @return true if the index can answer searches inside the element: it is valid and the element is in its tree
+     */
+    public boolean covers(Element element) {
+        return isValid() && element.getDocumentOrder() == order;
+    }
+
+    /**
+     * @return the elements with the id, in document order
+     */
+    public List<Element> getById(String id) {
+        return find(ids, id);
+    }
+
+    /**
+     * @return the elements with the class, in document order
+     */
+    public List<Element> getByClass(String className) {
+        return find(classes, className);
+    }
+
+    /**
+     * @return the elements with the tag, in document order
+     */
+    public List<Element> getByTag(String tag) {
+        return find(tags, tag);
+    }
+
+    /**
+     * @param scope the element to search inside, it is included itself
+     * @return the elements with the id in the scope, in document order
+     * @throws IllegalArgumentException if the index does not cover the scope
+     */
+    public List<Element> getById(String id, Element scope) {
+        return within(getById(id), scope);
+    }
+
+    /**
+     * @param scope the element to search inside, it is included itself
+     * @return the elements with the class in the scope, in document order
+     * @throws IllegalArgumentException if the index does not cover the scope
+     */
+    public List<Element> getByClass(String className, Element scope) {
+        return within(getByClass(className), scope);
+    }
+
+    /**
+     * @param scope the element to search inside, it is included itself
+     * @return the elements with the tag in the scope, in document order
+     * @throws IllegalArgumentException if the index does not cover the scope
+     */
+    public List<Element> getByTag(String tag, Element scope) {
+        return within(getByTag(tag), scope);
+    }
+
+    private static List<Element> find(HashMap<String, ArrayList<Element>> map, String key) {
+        ArrayList<Element> list = map.get(key);
+        return list == null ? Collections.emptyList() : Collections.unmodifiableList(list);
+    }
+
+    // the part of a list in document order that is inside the scope, found by the pre-order numbers of the scope and the element after it
+    private List<Element> within(List<Element> list, Element scope) {
+        if (!covers(scope))
+            throw new IllegalArgumentException("The element is not in the indexed tree, or the tree has been changed");
+        if (list.isEmpty() || scope.getPreOrder() == 0)
+            return list;
+        return list.subList(firstFrom(list, scope.getPreOrder()), firstFrom(list, order.getSubtreeEnd(scope)));
+    }
+
+    // index of the first element of the list with a pre-order number of at least preOrder
+    private static int firstFrom(List<Element> list, int preOrder) {
+        int low = 0;
+        int high = list.size();
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (list.get(middle).getPreOrder() < preOrder)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,31 @@
+package Scraper;
+
+/**
+ * ElementVisitor: what {@link TreeTraverser#walk(Element, ElementVisitor)} does with each element it comes to.
+ * The answer of the visitor decides how the walk goes on, so a search can leave out parts of the tree it has no use for,
+ * or stop as soon as it has found what it looks for.
+ * @author Joakim Jensen
+ * @version 1.0
+ * @see TreeTraverser#walk(Element, ElementVisitor)
+ */
+public interface ElementVisitor {
+
+    /**
+     * How the walk goes on after an element has been visited
+     */
+    enum Next {
+        /** go on into the children of the element */
+        CONTINUE,
+        /** go on with the element after the children of the element, leaving them out */
+        SKIP_CHILDREN,
+        /** end the walk */
+        STOP
+    }
+
+    /**
+     * @param node the element
+     * @param depth how far below the element the walk started from it is, 0 for that element
+     * @return how the walk goes on
+     */
+    Next visit(Element node, int depth);
+}
@@ -0,0 +1,316 @@
+package Scraper;
+
+import Scraper.Exceptions.ParseException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * FlatDocument: a parsed html page kept in arrays instead of as a tree of objects.
+ * Every element is a number, its position in the document, and what is known about it is found at that position
+ * in one array for each property: tag, parent, first child, next sibling, and where its attributes and text are.
+ * Elements are numbered in document order, so a search over the whole page is a single loop over the arrays.
+ * The root is element 0.
+ * {@link FlatDocument#build(CharSequence)} keeps the arrays on the heap, {@link FlatDocument#toOffHeap()} copies them
+ * out of it, see {@link OffHeapDocument}. The searches work the same way on both.
+ * {@link FlatDocument#getElement(int)} gives an {@link Element} for those who want to walk the page as a tree.
+ * The Element only reads its attributes and children from the arrays when they are first asked for.
+ * A FlatDocument is not changed after it is built, and can be read by several threads at the same time.
+ * The Elements it gives fill themselves in when read, so each thread should take its own from getElement.
+ * @author Joakim Jensen
+ * @version 1.2
+ * @see ParseOptions#setFlat(boolean)
+ */
+public abstract class FlatDocument {
+
+    static final int NONE = -1;
+
+    FlatDocument() {
+    }
+
+    /**
+     * Parses a html source into a FlatDocument
+     * @param html the html source
+     * @return the document, with no elements if the source has none
+     * @throws ParseException if the source is not well formed
+     */
+    public static FlatDocument build(CharSequence html) throws ParseException {
+        return build(html, false);
+    }
+
+    /**
+     * Parses a html source into a FlatDocument
+     * @param html the html source
+     * @param zeroCopy true to keep text and attribute values as views into the source, see {@link ParseOptions#setZeroCopy(boolean)}
+     * @return the document, with no elements if the source has none
+     * @throws ParseException if the source is not well formed
+     */
+    public static FlatDocument build(CharSequence html, boolean zeroCopy) throws ParseException {
+        return new FlatDocumentBuilder().build(html, zeroCopy);
+    }
+
+    /**
+     * Lays out a tree of elements as a FlatDocument
+     * @param root the root of the tree, or null for a document without elements
+     * @return the document, its text and attribute values are the ones kept by the elements
+     */
+    public static FlatDocument of(Element root) {
+        return new FlatDocumentBuilder().build(root);
+    }
+
+    /**
+     * Copies the document into memory outside the Java heap, see {@link OffHeapDocument}
+     * @return the copy, or this document if it already is off the heap
+     */
+    public FlatDocument toOffHeap() {
+        return OffHeapDocument.copyOf(this);
+    }
+
+    /**
+     * @return the number of elements
+     */
+    public abstract int size();
+
+    /**
+     * @return the parent of the element, or -1 for the root
+     */
+    public abstract int getParent(int node);
+
+    /**
+     * @return the first child element of the element, or -1 if it has none
+     */
+    public abstract int getFirstChild(int node);
+
+    /**
+     * @return the next element with the same parent, or -1 if it is the last one
+     */
+    public abstract int getNextSibling(int node);
+
+    public abstract int getAttributeCount(int node);
+
+    /**
+     * @return the first text run of the element, or -1 if it has none
+     */
+    public abstract int getFirstText(int node);
+
+    /**
+     * @return the next text run of the same element, or -1 if it is the last one
+     */
+    public abstract int getNextText(int text);
+
+    public abstract CharSequence getText(int text);
+
+    // the columns below are what the searches are built on. Names are a TagRegistry id when above 0, otherwise -(index + 1) of a local name
+
+    abstract int tagIdAt(int node);
+
+    abstract int attributeStart(int node);
+
+    abstract int attributeNameAt(int attribute);
+
+    abstract CharSequence attributeValueAt(int attribute);
+
+    abstract int textCount();
+
+    abstract int localNameCount();
+
+    abstract String localName(int index);
+
+    // the index of a local name, or -1 if no element or attribute here has it
+    abstract int localNameIndex(String name);
+
+    // a value to search for, in the form valueMatches and textContains compare with
+    abstract Object key(String value);
+
+    abstract boolean valueMatches(int attribute, Object key);
+
+    abstract boolean textContains(int text, Object key);
+
+    private String name(int id) {
+        return id > 0 ? TagRegistry.nameOf(id) : localName(-id - 1);
+    }
+
+    // the id a name has in this document, or 0 if no element or attribute here has it
+    private int idOf(String name) {
+        int id = TagRegistry.idOf(name);
+        if (id != TagRegistry.UNKNOWN)
+            return id;
+        int index = localNameIndex(name);
+        return index < 0 ? 0 : -(index + 1);
+    }
+
+    // the local names by their index, for localNameIndex
+    static HashMap<String, Integer> indexNames(String[] names) {
+        HashMap<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < names.length; i++)
+            indexes.put(names[i], i);
+        return indexes;
+    }
+
+    public String getTag(int node) {
+        return name(tagIdAt(node));
+    }
+
+    /**
+     * @return the id of the tag in the {@link TagRegistry}, or {@link TagRegistry#UNKNOWN}
+     */
+    public int getTagId(int node) {
+        return Math.max(tagIdAt(node), TagRegistry.UNKNOWN);
+    }
+
+    /**
+     * @param index the position of the attribute, from 0 to {@link FlatDocument#getAttributeCount(int)}
+     */
+    public String getAttributeName(int node, int index) {
+        return name(attributeNameAt(attributeStart(node) + index));
+    }
+
+    /**
+     * @param index the position of the attribute, from 0 to {@link FlatDocument#getAttributeCount(int)}
+     */
+    public CharSequence getAttributeValue(int node, int index) {
+        return attributeValueAt(attributeStart(node) + index);
+    }
+
+    /**
+     * @return the value of the attribute of the element, the last one if it is given twice, or null if the element does not have it
+     */
+    public String getAttributeValue(int node, String name) {
+        int i = indexOfAttribute(node, idOf(name));
+        return i < 0 ? null : attributeValueAt(i).toString();
+    }
+
+    // index in the attribute columns of the last attribute of the element with the name id, or -1
+    private int indexOfAttribute(int node, int nameId) {
+        if (nameId == 0)
+            return NONE;
+        int start = attributeStart(node);
+        for (int i = start + getAttributeCount(node) - 1; i >= start; i--)
+            if (attributeNameAt(i) == nameId)
+                return i;
+        return NONE;
+    }
+
+    /**
+     * @return the text children of the element as Strings
+     */
+    public ArrayList<String> getTexts(int node) {
+        ArrayList<String> result = new ArrayList<>();
+        addTexts(node, result);
+        return result;
+    }
+
+    private void addTexts(int node, ArrayList<String> result) {
+        for (int text = getFirstText(node); text != NONE; text = getNextText(text))
+            result.add(getText(text).toString());
+    }
+
+    /**
+     * @param node an element, from 0 to {@link FlatDocument#size()}
+     * @return an Element reading the element from this document
+     */
+    public Element getElement(int node) {
+        return new Element(this, node);
+    }
+
+    /**
+     * @return the root element, or null if the document has no elements
+     */
+    public Element getRoot() {
+        return size() == 0 ? null : getElement(0);
+    }
+
+    /**
+     * @return the elements with the tag, in document order
+     */
+    public int[] findByTag(String tag) {
+        int tagId = idOf(tag);
+        int size = size();
+        int[] found = new int[16];
+        int count = 0;
+
+        if (tagId != 0){
+            for (int node = 0; node < size; node++){
+                if (tagIdAt(node) == tagId){
+                    if (count == found.length)
+                        found = Arrays.copyOf(found, count * 2);
+                    found[count++] = node;
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * @return the elements where the attribute has the value, in document order
+     */
+    public int[] findByAttribute(String name, String value) {
+        int nameId = idOf(name);
+        Object key = key(value);
+        int size = size();
+        int[] found = new int[16];
+        int count = 0;
+
+        if (nameId != 0){
+            for (int node = 0; node < size; node++){
+                int i = indexOfAttribute(node, nameId);
+                if (i >= 0 && valueMatches(i, key)){
+                    if (count == found.length)
+                        found = Arrays.copyOf(found, count * 2);
+                    found[count++] = node;
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Works like {@link Scraper#getContentFromTagAsString(String)}
+     * @return the text children of all elements with the tag, in document order
+     */
+    public ArrayList<String> getContentFromTagAsString(String tag) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int node : findByTag(tag))
+            addTexts(node, result);
+        return result;
+    }
+
+    /**
+     * Works like {@link Scraper#getContentFromIdAsString(String)} for any attribute
+     * @return the text children of all elements where the attribute has the value, in document order
+     */
+    public ArrayList<String> getContentFromAttributeAsString(String name, String value) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int node : findByAttribute(name, value))
+            addTexts(node, result);
+        return result;
+    }
+
+    /**
+     * Works like {@link Scraper#getAllImagesFromPageAsString()} for any tag and attribute
+     * @return the value of the attribute for every element with the tag, null for those without the attribute
+     */
+    public ArrayList<String> getAttributeOfTagAsString(String tag, String attribute) {
+        int nameId = idOf(attribute);
+        ArrayList<String> result = new ArrayList<>();
+        for (int node : findByTag(tag)){
+            int i = indexOfAttribute(node, nameId);
+            result.add(i < 0 ? null : attributeValueAt(i).toString());
+        }
+        return result;
+    }
+
+    /**
+     * Works like {@link Scraper#containsAsBoolean(String)}
+     * @return true if any text run of the page contains the string
+     */
+    public boolean contains(String searchString) {
+        Object key = key(searchString);
+        int textCount = textCount();
+        for (int text = 0; text < textCount; text++)
+            if (textContains(text, key))
+                return true;
+        return false;
+    }
+}
@@ -0,0 +1,263 @@
+package Scraper;
+
+import Scraper.Exceptions.ParseException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * FlatDocumentBuilder: the handler that fills the arrays of a {@link ArrayDocument} from what a {@link HtmlParser} reports.
+ * Elements after the root element has been closed are read past, like the {@link TreeBuilder} does.
+ * @author Joakim Jensen
+ * @version 1.1
+ */
+final class FlatDocumentBuilder implements HtmlHandler {
+
+    private final HtmlParser parser = new HtmlParser();
+
+    private int size;
+    private int[] tagIds;
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] attributeStarts;
+    private int[] attributeCounts;
+    private int[] firstTexts;
+
+    private int attributeCount;
+    private int[] attributeNames;
+    private CharSequence[] attributeValues;
+
+    private int textCount;
+    private CharSequence[] texts;
+    private int[] nextTexts;
+
+    // while building: the last child and the last text run added to each element
+    private int[] lastChildren;
+    private int[] lastTexts;
+
+    private ArrayList<String> localNames;
+    private HashMap<String, Integer> localNameIndexes;
+
+    // the open elements, innermost last
+    private int[] open;
+    private int depth;
+
+    // number of open elements outside the root element, that are read past
+    private int skippedDepth;
+
+    FlatDocument build(CharSequence html, boolean zeroCopy) throws ParseException {
+        begin();
+        parser.setZeroCopy(zeroCopy);
+        try {
+            parser.parse(html, this);
+            return finish();
+        } finally {
+            clear();
+        }
+    }
+
+    private void begin() {
+        int capacity = 64;
+        size = 0;
+        tagIds = new int[capacity];
+        parents = new int[capacity];
+        firstChildren = new int[capacity];
+        nextSiblings = new int[capacity];
+        attributeStarts = new int[capacity];
+        attributeCounts = new int[capacity];
+        firstTexts = new int[capacity];
+        lastChildren = new int[capacity];
+        lastTexts = new int[capacity];
+
+        attributeCount = 0;
+        attributeNames = new int[capacity];
+        attributeValues = new CharSequence[capacity];
+
+        textCount = 0;
+        texts = new CharSequence[capacity];
+        nextTexts = new int[capacity];
+
+        localNames = new ArrayList<>();
+        localNameIndexes = new HashMap<>();
+        open = new int[16];
+        depth = 0;
+        skippedDepth = 0;
+    }
+
+    private FlatDocument finish() {
+        return new ArrayDocument(size, Arrays.copyOf(tagIds, size), Arrays.copyOf(parents, size),
+                Arrays.copyOf(firstChildren, size), Arrays.copyOf(nextSiblings, size),
+                Arrays.copyOf(attributeStarts, size), Arrays.copyOf(attributeCounts, size), Arrays.copyOf(firstTexts, size),
+                Arrays.copyOf(attributeNames, attributeCount), Arrays.copyOf(attributeValues, attributeCount),
+                Arrays.copyOf(texts, textCount), Arrays.copyOf(nextTexts, textCount),
+                localNames.toArray(new String[0]));
+    }
+
+    private void clear() {
+        tagIds = parents = firstChildren = nextSiblings = attributeStarts = attributeCounts = firstTexts = null;
+        lastChildren = lastTexts = attributeNames = nextTexts = open = null;
+        attributeValues = texts = null;
+        localNames = null;
+        localNameIndexes = null;
+    }
+
+    /**
+     * Fills the arrays from a tree of elements, by reporting it as the parser would have
+     * @param root the root of the tree, or null for a document without elements
+     */
+    FlatDocument build(Element root) {
+        begin();
+        try {
+            if (root != null)
+                report(root);
+            return finish();
+        } finally {
+            clear();
+        }
+    }
+
+    // walks the tree with a stack of its own, as it may be deeper than the call stack allows
+    private void report(Element root) {
+        ArrayList<Element> stack = new ArrayList<>();
+        ArrayList<Integer> next = new ArrayList<>();
+        stack.add(root);
+        next.add(-1);
+
+        while (!stack.isEmpty()){
+            int top = stack.size() - 1;
+            Element node = stack.get(top);
+            int child = next.get(top);
+
+            if (child == -1){
+                startElement(node.getTag());
+                List<String> names = node.getAttributeNames();
+                for (int i = 0; i < names.size(); i++)
+                    attribute(names.get(i), node.getAttributeValueAt(i));
+                for (CharSequence text : node.getTextChildren())
+                    text(text);
+                child = 0;
+            }
+
+            if (child < node.getNodeChildCount()){
+                next.set(top, child + 1);
+                stack.add(node.getNodeChild(child));
+                next.add(-1);
+            }
+            else {
+                endElement(node.getTag());
+                stack.remove(top);
+                next.remove(top);
+            }
+        }
+    }
+
+    // the id of a name for the document, see FlatDocument
+    private int idOf(String name){
+        int id = TagRegistry.idOf(name);
+        if (id != TagRegistry.UNKNOWN)
+            return id;
+
+        Integer index = localNameIndexes.get(name);
+        if (index == null){
+            index = localNames.size();
+            localNames.add(name);
+            localNameIndexes.put(name, index);
+        }
+        return -(index + 1);
+    }
+
+    @Override
+    public void startElement(String tag) {
+        if (skippedDepth > 0 || (depth == 0 && size > 0)){
+            skippedDepth++;
+            return;
+        }
+
+        if (size == tagIds.length){
+            int capacity = size * 2;
+            tagIds = Arrays.copyOf(tagIds, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            attributeStarts = Arrays.copyOf(attributeStarts, capacity);
+            attributeCounts = Arrays.copyOf(attributeCounts, capacity);
+            firstTexts = Arrays.copyOf(firstTexts, capacity);
+            lastChildren = Arrays.copyOf(lastChildren, capacity);
+            lastTexts = Arrays.copyOf(lastTexts, capacity);
+        }
+
+        int node = size++;
+        int parent = depth == 0 ? FlatDocument.NONE : open[depth - 1];
+
+        tagIds[node] = idOf(tag);
+        parents[node] = parent;
+        firstChildren[node] = FlatDocument.NONE;
+        nextSiblings[node] = FlatDocument.NONE;
+        attributeStarts[node] = attributeCount;
+        attributeCounts[node] = 0;
+        firstTexts[node] = FlatDocument.NONE;
+        lastChildren[node] = FlatDocument.NONE;
+        lastTexts[node] = FlatDocument.NONE;
+
+        if (parent != FlatDocument.NONE){
+            if (lastChildren[parent] == FlatDocument.NONE)
+                firstChildren[parent] = node;
+            else
+                nextSiblings[lastChildren[parent]] = node;
+            lastChildren[parent] = node;
+        }
+
+        if (depth == open.length)
+            open = Arrays.copyOf(open, depth * 2);
+        open[depth++] = node;
+    }
+
+    @Override
+    public void attribute(String name, CharSequence value) {
+        if (skippedDepth > 0)
+            return;
+
+        if (attributeCount == attributeNames.length){
+            attributeNames = Arrays.copyOf(attributeNames, attributeCount * 2);
+            attributeValues = Arrays.copyOf(attributeValues, attributeCount * 2);
+        }
+
+        attributeNames[attributeCount] = idOf(name);
+        attributeValues[attributeCount] = value;
+        attributeCount++;
+        attributeCounts[open[depth - 1]]++;
+    }
+
+    @Override
+    public void text(CharSequence text) {
+        if (skippedDepth > 0)
+            return;
+
+        if (textCount == texts.length){
+            texts = Arrays.copyOf(texts, textCount * 2);
+            nextTexts = Arrays.copyOf(nextTexts, textCount * 2);
+        }
+
+        int node = open[depth - 1];
+        texts[textCount] = text;
+        nextTexts[textCount] = FlatDocument.NONE;
+
+        if (lastTexts[node] == FlatDocument.NONE)
+            firstTexts[node] = textCount;
+        else
+            nextTexts[lastTexts[node]] = textCount;
+        lastTexts[node] = textCount;
+        textCount++;
+    }
+
+    @Override
+    public void endElement(String tag) {
+        if (skippedDepth > 0)
+            skippedDepth--;
+        else
+            depth--;
+    }
+}
@@ -0,0 +1,40 @@
+package Scraper;
+
+/**
+ * HtmlHandler: receives the content of a html source from a {@link HtmlParser}, in document order.
+ * An element is reported by startElement, followed by one call to attribute for each of its attributes,
+ * then the text and elements nested in it, and finally endElement. Singleton tags like img are ended right after their attributes.
+ * Implementations that only pick out what they need, like links or a few attribute values, run without building an element tree.
+ * @author Joakim Jensen
+ * @version 1.1
+ * @see HtmlParser
+ */
+public interface HtmlHandler {
+
+    /**
+     * Called when the head of an element has been read up to its tag name
+     * @param tag the tag name of the element
+     */
+    void startElement(String tag);
+
+    /**
+     * Called for each attribute of the element last started
+     * @param name the attribute name
+     * @param value the attribute value, empty for attributes without a value.
+     *              A view into the source when the parser is set to zero copy, see {@link HtmlParser#setZeroCopy(boolean)}
+     */
+    void attribute(String name, CharSequence value);
+
+    /**
+     * Called for a run of text inside the element currently open. Leading whitespace is removed,
+     * and each run of whitespace holding a line break or tab is one space.
+     * @param text the text, never empty. A view into the source when the parser is set to zero copy
+     */
+    void text(CharSequence text);
+
+    /**
+     * Called when an element is closed
+     * @param tag the tag name of the element
+     */
+    void endElement(String tag);
+}
@@ -0,0 +1,437 @@
+package Scraper;
+
+import HTMLString.Utf8ByteSequence;
+import Scraper.Exceptions.ParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Stack;
+
+/**
+ * HtmlParser: reads a html source and reports what it finds to a {@link HtmlHandler}, without building anything itself.
+ * The rules are the ones the Scraper has always used: singleton tags like img and br are closed right away,
+ * the content of script and style is skipped, and comments and doctypes are ignored.
+ * Only the names of the currently open elements are kept, so memory use does not grow with the page size.
+ * A HtmlParser is not thread safe, but is cheap to create and can be reused for several pages one after another.
+ * @author Joakim Jensen
+ * @version 1.1
+ * @see HtmlHandler
+ * @see TreeBuilder
+ */
+public final class HtmlParser {
+
+    // size of the chunks read from a Reader
+    private static final int CHUNK_SIZE = 8192;
+
+    private HtmlHandler handler;
+
+    private CharSequence html;
+
+    private int index;
+
+    // when streaming: how far the current unfinished token has been searched already
+    private int searchedTo;
+
+    // reused for text runs that have line breaks or tabs turned into spaces
+    private final StringBuilder textBuffer = new StringBuilder();
+
+    private Stack<String> openTags;
+
+    // the TagRegistry id of the tag last read by readHead
+    private int headTagId;
+
+    private boolean isComment;
+    private boolean isIgnoreable;
+    private boolean isDoctype;
+
+    // set by the handler through pause() to stop after the token being read, when parsing step by step
+    private boolean stepwise;
+    private boolean paused;
+
+    // report text and attribute values as views into a String source instead of copies
+    private boolean zeroCopy;
+
+    public HtmlParser() {
+    }
+
+    /**
+     * Sets if text runs and attribute values of a String source are reported as views into the source instead of as copies.
+     * A view keeps the whole source in memory for as long as it is kept. Text that has line breaks or tabs turned into spaces is always copied,
+     * and so is everything from other sources, which may change or be read as bytes.
+     * @param zeroCopy true to report views
+     */
+    public void setZeroCopy(boolean zeroCopy){
+        this.zeroCopy = zeroCopy;
+    }
+
+    /**
+     * Parses the html source and reports its content to the handler
+     * @param html the html source, a String or for example a {@link Utf8ByteSequence} over the bytes of a file
+     * @param handler receives the elements and text of the source in document order
+     * @throws ParseException if the source is not well formed
+     */
+    public void parse(CharSequence html, HtmlHandler handler) throws ParseException {
+        begin(html, handler);
+        try {
+            parse(true);
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * Parses html from a reader while it is being read. The source is consumed in chunks and every
+     * complete tag and text run is reported as soon as it has arrived, so only the unfinished
+     * tail of the source is kept in memory.
+     * @param reader reader delivering the html source, it is not closed by this method
+     * @param handler receives the elements and text of the source in document order
+     * @throws ParseException if the source is not well formed
+     * @throws IOException if reading from the reader fails
+     */
+    public void parse(Reader reader, HtmlHandler handler) throws ParseException, IOException {
+        StringBuilder buffer = new StringBuilder(CHUNK_SIZE * 2);
+        char[] chunk = new char[CHUNK_SIZE];
+        begin(buffer, handler);
+
+        try {
+            int read;
+            while ((read = reader.read(chunk)) != -1){
+                buffer.append(chunk, 0, read);
+                parse(false);
+
+                // drop what has been parsed, comment mode looks two characters back
+                int consumed = index - 2;
+                if (consumed > CHUNK_SIZE){
+                    buffer.delete(0, consumed);
+                    index -= consumed;
+                    searchedTo -= consumed;
+                }
+            }
+
+            parse(true);
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * Starts parsing the html source step by step. Nothing is read until {@link HtmlParser#resume()} is called.
+     * @param html the html source
+     * @param handler receives the elements and text of the source in document order, and may call {@link HtmlParser#pause()}
+     */
+    public void start(CharSequence html, HtmlHandler handler){
+        begin(html, handler);
+        stepwise = true;
+    }
+
+    /**
+     * Parses on from where parsing was paused, until the handler pauses it again or the source ends
+     * @return true if the end of the source was reached
+     * @throws ParseException if the source is not well formed, parsing is then ended
+     */
+    public boolean resume() throws ParseException {
+        paused = false;
+        try {
+            parse(true);
+        } catch (ParseException | RuntimeException e) {
+            finish();
+            throw e;
+        }
+
+        if (paused)
+            return false;
+
+        finish();
+        return true;
+    }
+
+    /**
+     * Called by the handler to stop parsing when the token being read is done.
+     * Only has effect on parsing started with {@link HtmlParser#start(CharSequence, HtmlHandler)}.
+     */
+    public void pause(){
+        if (stepwise)
+            paused = true;
+    }
+
+    private void begin(CharSequence html, HtmlHandler handler){
+        this.html = html;
+        this.handler = handler;
+        index = 0;
+        searchedTo = 0;
+        openTags = new Stack<>();
+        isComment = false;
+        isIgnoreable = false;
+        isDoctype = false;
+        stepwise = false;
+        paused = false;
+    }
+
+    private void finish(){
+        html = null;
+        handler = null;
+        openTags = null;
+        stepwise = false;
+    }
+
+    /**
+     * Parses from the current index towards the end of the source.
+     * @param endOfInput false when more of the source may arrive, parsing then stops in front of the first unfinished token
+     */
+    private void parse(boolean endOfInput) throws ParseException {
+        for(; index < html.length(); index++){
+            if (paused)
+                return;
+
+            char ch = html.charAt(index);
+
+            // ignore content of tag mode
+            if (isIgnoreable){
+                if (ch == '<' && !isAvailable(index+1, endOfInput))
+                    return;
+                if (!(ch == '<' && html.charAt(index+1) == '/'))
+                    continue;
+                isIgnoreable = false;
+            }
+
+            //comment mode
+            if (isComment){
+                if (ch == '>' && html.charAt(index-1) == '-' && html.charAt(index-2) == '-'){
+                    isComment = false;
+                }
+                continue;
+            }
+
+            // if doctypemode alternative ignoremode
+            if (isDoctype){
+                if (ch == '>')
+                    isDoctype = false;
+                continue;
+            }
+
+
+            // to go into ignore/comment mode
+            if (ch == '<'){
+                if (!endOfInput && (!isAvailable(index+3, false) || !isTokenComplete('>')))
+                    return;
+
+                if (html.charAt(index+1) == '!') {
+                    if (html.charAt(index + 2) == '-' && html.charAt(index + 3) == '-')
+                        isComment = true;
+                    else
+                        isDoctype = true;
+                }
+                else if (html.charAt(index+1) == '/'){
+                    readTail();
+                }
+                else{
+                    String tag = readHead();
+
+                    if (TagRegistry.isSingleton(headTagId))
+                        handler.endElement(tag);
+                    else
+                        openTags.push(tag);
+
+                    if (TagRegistry.isIgnoreableContent(headTagId))
+                        isIgnoreable = true;
+                }
+                continue;
+            }
+
+            //read string children if there is a parent to contain it
+            if (!openTags.isEmpty()){
+                if (!endOfInput && !isTokenComplete('<'))
+                    return;
+                readStringChild();
+            }
+        }
+    }
+
+    private boolean isAvailable(int position, boolean endOfInput){
+        return endOfInput || position < html.length();
+    }
+
+    /**
+     * Checks if the token starting at index has arrived in full, that is if the character ending it is in the buffer.
+     * Remembers how far it searched so a long token arriving in many chunks is only searched once.
+     */
+    private boolean isTokenComplete(char end){
+        int from = Math.max(index + 1, searchedTo);
+        for (int i = from; i < html.length(); i++){
+            if (html.charAt(i) == end){
+                searchedTo = 0;
+                return true;
+            }
+        }
+        searchedTo = html.length();
+        return false;
+    }
+
+    private String slice(int start, int end){
+        return html.subSequence(start, end).toString();
+    }
+
+    // a text run or attribute value, a view into the source when possible
+    private CharSequence value(int start, int end){
+        if (zeroCopy && html instanceof String)
+            return new SourceText((String) html, start, end);
+        return slice(start, end);
+    }
+
+    // a tag or attribute name, the shared String from the TagRegistry when the name is known
+    private String name(int start, int end){
+        int id = TagRegistry.idOf(html, start, end);
+        return id != TagRegistry.UNKNOWN ? TagRegistry.nameOf(id) : slice(start, end);
+    }
+
+    private void appendSlice(int start, int end){
+        if (html instanceof Utf8ByteSequence)
+            ((Utf8ByteSequence) html).appendTo(textBuffer, start, end);
+        else
+            textBuffer.append(html, start, end);
+    }
+
+    private void readTail() throws ParseException {
+        index += 2;
+
+        int start = index;
+        while (html.charAt(index) != '>')
+            index++;
+
+        String tag = name(start, index);
+
+        String parent = openTags.pop();
+        if (!parent.equals(tag))
+            throw new ParseException("tail tag does match the match parent tag=" + tag + " parentnode= " + parent);
+
+        handler.endElement(parent);
+    }
+
+    private void readStringChild(){
+        int end = index;
+        while (html.charAt(end) != '<')
+            end++;
+
+        // leading whitespace is skipped, and each run of whitespace holding a line break or tab becomes one space,
+        // the way the text read from files and web pages always has been
+        int start = index;
+        while (start < end && isWhitespace(html.charAt(start)))
+            start++;
+
+        if (start < end){
+            int cut = start;
+            while (cut < end && !isLineBreakOrTab(html.charAt(cut)))
+                cut++;
+
+            if (cut == end)
+                handler.text(value(start, end));
+            else{
+                textBuffer.setLength(0);
+                int runStart = start;
+                for (int i = start; i < end; i++){
+                    if (!isWhitespace(html.charAt(i)))
+                        continue;
+
+                    int runEnd = i;
+                    boolean lineBreak = false;
+                    while (runEnd < end && isWhitespace(html.charAt(runEnd)))
+                        lineBreak |= isLineBreakOrTab(html.charAt(runEnd++));
+                    if (lineBreak){
+                        appendSlice(runStart, i);
+                        textBuffer.append(' ');
+                        runStart = runEnd;
+                    }
+                    i = runEnd - 1;
+                }
+                appendSlice(runStart, end);
+                handler.text(textBuffer.toString());
+            }
+        }
+
+        index = end - 1;
+    }
+
+    private String readHead() throws ParseException {
+        char ch = html.charAt(index);
+        if (ch != '<')
+            throw new ParseException("This is no time to read head! Not <");
+
+        index++;
+        while (isWhitespace(html.charAt(index)))
+            index++;
+
+        int tagStart = index;
+        ch = html.charAt(index);
+        while (!isWhitespace(ch) && ch != '>'){
+            index++;
+            ch = html.charAt(index);
+        }
+
+        if (tagStart == index)
+            throw new ParseException("Empty tag is detected");
+
+        headTagId = TagRegistry.idOf(html, tagStart, index);
+        String tag = headTagId != TagRegistry.UNKNOWN ? TagRegistry.nameOf(headTagId) : slice(tagStart, index);
+        handler.startElement(tag);
+
+        boolean readAttValue = false;
+        boolean quoted = false;
+
+        // start offsets of the attribute key or value being read, -1 when none
+        int keyStart = -1;
+        int valueStart = -1;
+        String attKey = "";
+
+        while (ch != '>'){
+
+            if (!readAttValue){
+                // when attribute name is to end
+                if (ch == '='){
+                    attKey = keyStart < 0 ? "" : name(keyStart, index);
+                    keyStart = -1;
+                    readAttValue = true;
+                }
+                //for solo attributes
+                else if (isWhitespace(ch)){
+                    if (keyStart >= 0){
+                        handler.attribute(name(keyStart, index), "");
+                        keyStart = -1;
+                    }
+                }
+                else if (keyStart < 0)
+                    keyStart = index;
+            }
+            else if (!quoted){
+                if (ch != '\"')
+                    throw new ParseException("Missing quotes after attributtes for key=" + attKey + " breaking char=" + ch + " in tag " + tag);
+                quoted = true;
+                valueStart = index + 1;
+            }
+            else if (ch == '\"'){
+                handler.attribute(attKey, value(valueStart, index));
+
+                attKey = "";
+                readAttValue = false;
+                quoted = false;
+            }
+
+            index++;
+            ch = html.charAt(index);
+        }
+
+        if (keyStart >= 0)
+            handler.attribute(name(keyStart, index), "");
+        else if (readAttValue && !attKey.isEmpty())
+            handler.attribute(attKey, "");
+
+        return tag;
+    }
+
+    private static boolean isWhitespace(char ch){
+        return ch == ' ' || isLineBreakOrTab(ch);
+    }
+
+    private static boolean isLineBreakOrTab(char ch){
+        return ch == '\n' || ch == '\r' || ch == '\t';
+    }
+}
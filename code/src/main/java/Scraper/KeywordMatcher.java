@@ -0,0 +1,299 @@
+package Scraper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static Scraper.ElementVisitor.Next.CONTINUE;
+import static Scraper.ElementVisitor.Next.STOP;
+
+/**
+ * KeywordMatcher: a set of keywords compiled into one automaton that finds all of them in a single pass over the texts of a page,
+ * see {@link Scraper#getKeywordHits(KeywordMatcher)}. A search for hundreds of keywords then reads each character once,
+ * instead of walking the tree once for each keyword.
+ * <p>
+ * The keywords are matched without case: each character of the keywords and of the texts is turned into lower case on its own,
+ * so the texts are never copied. Keywords differing only in case are the same keyword, the first given is reported.
+ * Like the contains searches of the Scraper, a keyword is found inside one text child of an element, not across them,
+ * and keywords inside other keywords and overlapping keywords are all found.
+ * <p>
+ * The automaton is built once by {@link KeywordMatcher#compile(Collection)}: a trie of the keywords where each state has its move
+ * for every character, so a character is one lookup in a table. Only the characters found in the keywords have a column of their own,
+ * all others share one. A compiled matcher can not be changed and is used by many threads at once.
+ * @author Joakim Jensen
+ * @version 1.0
+ * @see Scraper#getKeywordHits(KeywordMatcher)
+ * @see Scraper#getKeywordsInPageAsString(KeywordMatcher)
+ */
+public final class KeywordMatcher {
+
+    private final String[] keywords;
+
+    // the column of each character below 128, after lower casing it, and the other characters of the keywords in order, column i + 1 + their index
+    private final int[] asciiColumns = new int[128];
+    private final char[] otherChars;
+    private final int width;
+
+    // the state after each state and column, width columns per state, state 0 is the start
+    private final int[] moves;
+    // the keywords ending at each state, longest first
+    private final int[][] outputs;
+
+    private KeywordMatcher(String[] keywords, String[] folded) {
+        this.keywords = keywords;
+
+        // the columns: 0 for characters in no keyword, then the ascii characters, then the others
+        StringBuilder chars = new StringBuilder();
+        for (String keyword : folded)
+            chars.append(keyword);
+        char[] all = chars.toString().toCharArray();
+        Arrays.sort(all);
+        int columns = 1;
+        int others = 0;
+        char[] otherChars = new char[all.length];
+        for (int i = 0; i < all.length; i++){
+            if (i > 0 && all[i] == all[i - 1])
+                continue;
+            if (all[i] < 128)
+                asciiColumns[all[i]] = columns++;
+            else
+                otherChars[others++] = all[i];
+        }
+        this.otherChars = Arrays.copyOf(otherChars, others);
+        int firstOther = columns;
+        this.width = columns + others;
+        for (char c = 0; c < 128; c++)
+            asciiColumns[c] = asciiColumns[Character.toLowerCase(c)];
+
+        // the trie, -1 where it has no move yet
+        int[] moves = new int[(all.length + 1) * width];
+        Arrays.fill(moves, -1);
+        ArrayList<int[]> own = new ArrayList<>();
+        own.add(new int[0]);
+        int states = 1;
+        for (int k = 0; k < folded.length; k++){
+            int state = 0;
+            for (int i = 0; i < folded[k].length(); i++){
+                int column = column(folded[k].charAt(i), firstOther);
+                if (moves[state * width + column] < 0){
+                    moves[state * width + column] = states++;
+                    own.add(new int[0]);
+                }
+                state = moves[state * width + column];
+            }
+            own.set(state, new int[]{k});
+        }
+
+        // the moves missing from the trie go where the longest end of the text read so far that is a start of a keyword goes,
+        // filled in breadth first so that state is always complete before it is used
+        int[] fail = new int[states];
+        int[][] outputs = new int[states][];
+        outputs[0] = own.get(0);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int column = 0; column < width; column++){
+            int next = moves[column];
+            if (next < 0)
+                moves[column] = 0;
+            else {
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()){
+            int state = queue.poll();
+            outputs[state] = concat(own.get(state), outputs[fail[state]]);
+            for (int column = 0; column < width; column++){
+                int next = moves[state * width + column];
+                int fallback = moves[fail[state] * width + column];
+                if (next < 0)
+                    moves[state * width + column] = fallback;
+                else {
+                    fail[next] = fallback;
+                    queue.add(next);
+                }
+            }
+        }
+
+        this.moves = Arrays.copyOf(moves, states * width);
+        this.outputs = outputs;
+    }
+
+    /**
+     * @param keywords the keywords to look for, without case
+     * @return the keywords compiled into a matcher
+     * @throws IllegalArgumentException if there are no keywords or one of them is empty
+     */
+    public static KeywordMatcher compile(Collection<String> keywords) {
+        // keywords the same in lower case are kept once, the first spelling is reported
+        LinkedHashMap<String, String> distinct = new LinkedHashMap<>();
+        for (String keyword : keywords){
+            if (keyword.isEmpty())
+                throw new IllegalArgumentException("A keyword can not be empty");
+            distinct.putIfAbsent(fold(keyword), keyword);
+        }
+        if (distinct.isEmpty())
+            throw new IllegalArgumentException("There are no keywords");
+        return new KeywordMatcher(distinct.values().toArray(new String[0]), distinct.keySet().toArray(new String[0]));
+    }
+
+    /**
+     * Works like {@link KeywordMatcher#compile(Collection)}
+     * @param keywords the keywords to look for, without case
+     * @return the keywords compiled into a matcher
+     */
+    public static KeywordMatcher compile(String... keywords) {
+        return compile(Arrays.asList(keywords));
+    }
+
+    /**
+     * @return the keywords of the matcher, the first spelling of those differing only in case
+     */
+    public List<String> getKeywords() {
+        return Arrays.asList(keywords.clone());
+    }
+
+    /**
+     * @param root the element to search from, its own texts included
+     * @return every place a keyword is found, in document order, and by where it ends inside a text
+     */
+    public ArrayList<Hit> findAll(Element root) {
+        ArrayList<Hit> hits = new ArrayList<>();
+        if (root == null)
+            return hits;
+
+        TreeTraverser.walk(root, (element, depth) -> {
+            for (int i = 0; i < element.getStringChildCount(); i++){
+                String text = element.getStringChild(i);
+                int state = 0;
+                for (int at = 0; at < text.length(); at++){
+                    state = moves[state * width + column(text.charAt(at))];
+                    for (int keyword : outputs[state])
+                        hits.add(new Hit(element, i, at + 1 - keywords[keyword].length(), keywords[keyword]));
+                }
+            }
+            return CONTINUE;
+        });
+        return hits;
+    }
+
+    /**
+     * @param root the element to search from, its own texts included
+     * @return the keywords found in the texts, each once, in the order they were given. The walk ends once all keywords are found
+     */
+    public ArrayList<String> findKeywords(Element root) {
+        boolean[] found = new boolean[keywords.length];
+        int[] count = new int[1];
+        if (root != null)
+            TreeTraverser.walk(root, (element, depth) -> {
+                for (int i = 0; i < element.getStringChildCount(); i++){
+                    String text = element.getStringChild(i);
+                    int state = 0;
+                    for (int at = 0; at < text.length(); at++){
+                        state = moves[state * width + column(text.charAt(at))];
+                        for (int keyword : outputs[state])
+                            if (!found[keyword]){
+                                found[keyword] = true;
+                                if (++count[0] == keywords.length)
+                                    return STOP;
+                            }
+                    }
+                }
+                return CONTINUE;
+            });
+
+        ArrayList<String> result = new ArrayList<>();
+        for (int keyword = 0; keyword < keywords.length; keyword++)
+            if (found[keyword])
+                result.add(keywords[keyword]);
+        return result;
+    }
+
+    // the column of a character of a text
+    private int column(char c) {
+        if (c < 128)
+            return asciiColumns[c];
+        // some characters, like the Kelvin sign, are ascii in lower case
+        char lower = Character.toLowerCase(c);
+        if (lower < 128)
+            return asciiColumns[lower];
+        int other = Arrays.binarySearch(otherChars, lower);
+        return other < 0 ? 0 : width - otherChars.length + other;
+    }
+
+    // the column of a character of a keyword, already in lower case, while the ascii columns are being set up
+    private int column(char c, int firstOther) {
+        return c < 128 ? asciiColumns[c] : firstOther + Arrays.binarySearch(otherChars, c);
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        if (b.length == 0)
+            return a;
+        if (a.length == 0)
+            return b;
+        int[] both = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, both, a.length, b.length);
+        return both;
+    }
+
+    // lower case one character at a time, the way the texts are read
+    private static String fold(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = Character.toLowerCase(chars[i]);
+        return new String(chars);
+    }
+
+    /**
+     * Hit: a keyword found in a text of an element
+     */
+    public static final class Hit {
+
+        private final Element element;
+        private final int text;
+        private final int start;
+        private final String keyword;
+
+        Hit(Element element, int text, int start, String keyword) {
+            this.element = element;
+            this.text = text;
+            this.start = start;
+            this.keyword = keyword;
+        }
+
+        /**
+         * @return the element the keyword was found in
+         */
+        public Element getElement() {
+            return element;
+        }
+
+        /**
+         * @return the position of the text among the text children of the element, see {@link Element#getStringChild(int)}
+         */
+        public int getTextIndex() {
+            return text;
+        }
+
+        /**
+         * @return where the keyword starts in the text
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * @return the keyword, spelled as it was given
+         */
+        public String getKeyword() {
+            return keyword;
+        }
+
+        @Override
+        public String toString() {
+            return keyword + " in " + element.getTag() + " text " + text + " at " + start;
+        }
+    }
+}
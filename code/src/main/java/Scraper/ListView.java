@@ -0,0 +1,248 @@
+package Scraper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * ListView: a list of an {@link Element}, handed out as an ArrayList so the getters keep the types they have always had.
+ * It keeps nothing of its own, every method is passed on to the list it shows, so reading and changing it reads and changes the element.
+ * The ArrayList it extends is always empty, so each public method of ArrayList has to be passed on here, also the ones of newer Java versions.
+ * @author Joakim Jensen
+ * @version 1.1
+ * @see Element#getNodeChildren()
+ */
+final class ListView<E> extends ArrayList<E> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<E> list;
+
+    ListView(List<E> list) {
+        super(0);
+        this.list = list;
+    }
+
+    @Override
+    public void trimToSize() {
+    }
+
+    @Override
+    public void ensureCapacity(int minCapacity) {
+    }
+
+    @Override
+    public int size() {
+        return list.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return list.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return list.contains(o);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        return list.containsAll(c);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return list.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return list.lastIndexOf(o);
+    }
+
+    /**
+     * @return a copy of the list, which is not a view
+     */
+    @Override
+    public Object clone() {
+        return new ArrayList<>(list);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return list.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return list.toArray(a);
+    }
+
+    @Override
+    public E get(int index) {
+        return list.get(index);
+    }
+
+    // getFirst, getLast, addFirst, addLast, removeFirst and removeLast are methods of ArrayList from Java 21, and are overridden there
+
+    public E getFirst() {
+        if (list.isEmpty())
+            throw new NoSuchElementException();
+        return list.get(0);
+    }
+
+    public E getLast() {
+        if (list.isEmpty())
+            throw new NoSuchElementException();
+        return list.get(list.size() - 1);
+    }
+
+    public void addFirst(E element) {
+        list.add(0, element);
+    }
+
+    public void addLast(E element) {
+        list.add(element);
+    }
+
+    public E removeFirst() {
+        if (list.isEmpty())
+            throw new NoSuchElementException();
+        return list.remove(0);
+    }
+
+    public E removeLast() {
+        if (list.isEmpty())
+            throw new NoSuchElementException();
+        return list.remove(list.size() - 1);
+    }
+
+    @Override
+    public E set(int index, E element) {
+        return list.set(index, element);
+    }
+
+    @Override
+    public boolean add(E e) {
+        return list.add(e);
+    }
+
+    @Override
+    public void add(int index, E element) {
+        list.add(index, element);
+    }
+
+    @Override
+    public E remove(int index) {
+        return list.remove(index);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return list.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        list.clear();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        return list.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends E> c) {
+        return list.addAll(index, c);
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        list.subList(fromIndex, toIndex).clear();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return list.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return list.retainAll(c);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        return list.removeIf(filter);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<E> operator) {
+        list.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super E> c) {
+        list.sort(c);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return list.iterator();
+    }
+
+    @Override
+    public ListIterator<E> listIterator() {
+        return list.listIterator();
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return list.listIterator(index);
+    }
+
+    @Override
+    public List<E> subList(int fromIndex, int toIndex) {
+        return list.subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        list.forEach(action);
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return list.spliterator();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return list.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return list.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return list.toString();
+    }
+
+    // written as the plain ArrayList it shows, the element is not written with it
+    private Object writeReplace() {
+        return new ArrayList<>(list);
+    }
+}
@@ -0,0 +1,381 @@
+package Scraper;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * OffHeapDocument: a {@link FlatDocument} kept in a direct ByteBuffer, outside the Java heap.
+ * All arrays of the document, and the text, attribute values and names as UTF-8, are laid out one after another in the buffer,
+ * so a document only leaves a handful of objects on the heap however large the page is, and the garbage collector never looks through it.
+ * Searches compare and scan the UTF-8 bytes in the buffer. Strings are only created for what a search returns.
+ * The memory is given back when the document is no longer referenced.
+ * <p>
+ * The layout, with every int little endian:
+ * <pre>
+ * header:      magic, version, registry fingerprint, elements, attributes, texts, local names, string bytes
+ * elements:    one column each of tag id, parent, first child, next sibling, attribute start, attribute count, first text
+ * attributes:  one column each of name id, value offset, value length
+ * texts:       one column each of next text, offset, length
+ * local names: one column each of offset, length
+ * strings:     the UTF-8 bytes the offsets point into
+ * </pre>
+ * Tag and attribute names are kept as {@link TagRegistry} ids, so the header holds {@link TagRegistry#fingerprint()},
+ * and a document written while other names were known is not read, as its ids would give the wrong names.
+ * @author Joakim Jensen
+ * @version 1.1
+ * @see FlatDocument#toOffHeap()
+ */
+final class OffHeapDocument extends FlatDocument {
+
+    static final int MAGIC = 0x46534443;
+    static final int VERSION = 2;
+
+    private static final int HEADER_INTS = 8;
+    private static final int ELEMENT_COLUMNS = 7;
+    private static final int ATTRIBUTE_COLUMNS = 3;
+    private static final int TEXT_COLUMNS = 3;
+    private static final int LOCAL_NAME_COLUMNS = 2;
+
+    private final ByteBuffer buffer;
+
+    private final int size;
+    private final int attributeCount;
+    private final int textCount;
+    private final int localNameCount;
+
+    // byte offsets of the columns in the buffer
+    private final int tagIds;
+    private final int parents;
+    private final int firstChildren;
+    private final int nextSiblings;
+    private final int attributeStarts;
+    private final int attributeCounts;
+    private final int firstTexts;
+    private final int attributeNames;
+    private final int valueOffsets;
+    private final int valueLengths;
+    private final int nextTexts;
+    private final int textOffsets;
+    private final int textLengths;
+    private final int localNameOffsets;
+    private final int localNameLengths;
+    private final int strings;
+
+    // the local names are few and used by every search for an unknown name, so they are kept as Strings, and by name
+    private final String[] localNames;
+    private final HashMap<String, Integer> localNameIndexes;
+
+    /**
+     * @param buffer a document in the layout described above, from position 0
+     * @throws IllegalArgumentException if the buffer does not hold a document of this version, written with the same known names
+     */
+    OffHeapDocument(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        if (this.buffer.limit() < HEADER_INTS * 4 || this.buffer.getInt(0) != MAGIC)
+            throw new IllegalArgumentException("Not a FrameScraper document");
+        if (this.buffer.getInt(4) != VERSION)
+            throw new IllegalArgumentException("Document version " + this.buffer.getInt(4) + " is not supported, expected " + VERSION);
+
+        if (this.buffer.getInt(8) != TagRegistry.fingerprint())
+            throw new IllegalArgumentException("Document was written with other known tag and attribute names");
+
+        size = this.buffer.getInt(12);
+        attributeCount = this.buffer.getInt(16);
+        textCount = this.buffer.getInt(20);
+        localNameCount = this.buffer.getInt(24);
+        int stringBytes = this.buffer.getInt(28);
+
+        if (size < 0 || attributeCount < 0 || textCount < 0 || localNameCount < 0 || stringBytes < 0)
+            throw new IllegalArgumentException("Document has a negative count");
+
+        // the sections are checked in long arithmetic, so a count too large for the buffer can not wrap around into a small offset
+        int limit = this.buffer.limit();
+        long end = sectionEnd(HEADER_INTS * 4L, size, ELEMENT_COLUMNS, "elements", limit);
+        end = sectionEnd(end, attributeCount, ATTRIBUTE_COLUMNS, "attributes", limit);
+        end = sectionEnd(end, textCount, TEXT_COLUMNS, "texts", limit);
+        end = sectionEnd(end, localNameCount, LOCAL_NAME_COLUMNS, "local names", limit);
+        if (end + stringBytes != limit)
+            throw new IllegalArgumentException("Document is " + limit + " bytes, expected " + (end + stringBytes));
+
+        // every section is inside the buffer, so the offsets below fit in an int
+        tagIds = HEADER_INTS * 4;
+        parents = tagIds + size * 4;
+        firstChildren = parents + size * 4;
+        nextSiblings = firstChildren + size * 4;
+        attributeStarts = nextSiblings + size * 4;
+        attributeCounts = attributeStarts + size * 4;
+        firstTexts = attributeCounts + size * 4;
+        attributeNames = firstTexts + size * 4;
+        valueOffsets = attributeNames + attributeCount * 4;
+        valueLengths = valueOffsets + attributeCount * 4;
+        nextTexts = valueLengths + attributeCount * 4;
+        textOffsets = nextTexts + textCount * 4;
+        textLengths = textOffsets + textCount * 4;
+        localNameOffsets = textLengths + textCount * 4;
+        localNameLengths = localNameOffsets + localNameCount * 4;
+        strings = localNameLengths + localNameCount * 4;
+
+        localNames = new String[localNameCount];
+        for (int i = 0; i < localNameCount; i++){
+            int offset = intAt(localNameOffsets, i);
+            int length = intAt(localNameLengths, i);
+            if (offset < 0 || length < 0 || (long) offset + length > stringBytes)
+                throw new IllegalArgumentException("Local name " + i + " is outside the strings");
+            localNames[i] = decode(offset, length);
+        }
+        localNameIndexes = indexNames(localNames);
+    }
+
+    // the end of a section of count rows of columns ints starting at start
+    private static long sectionEnd(long start, int count, int columns, String section, int limit) {
+        long end = start + (long) count * columns * 4;
+        if (end > limit)
+            throw new IllegalArgumentException("The " + section + " of the document end at byte " + end + ", after its end at " + limit);
+        return end;
+    }
+
+    /**
+     * Copies a document into a direct ByteBuffer
+     * @param document the document to copy
+     * @return the copy, or the document itself if it already is an OffHeapDocument
+     */
+    static OffHeapDocument copyOf(FlatDocument document) {
+        if (document instanceof OffHeapDocument)
+            return (OffHeapDocument) document;
+        return new OffHeapDocument(encode(document, true));
+    }
+
+    /**
+     * Lays the document out in a new buffer, in the layout described above
+     * @param direct true for a direct buffer, false for one on the heap
+     * @return the buffer, from position 0 to its limit
+     */
+    static ByteBuffer encode(FlatDocument document, boolean direct) {
+        int size = document.size();
+        int textCount = document.textCount();
+        int localNameCount = document.localNameCount();
+
+        int attributeCount = 0;
+        for (int node = 0; node < size; node++)
+            attributeCount += document.getAttributeCount(node);
+
+        // the strings are encoded first, to know how large the buffer has to be
+        ArrayList<byte[]> encoded = new ArrayList<>(attributeCount + textCount + localNameCount);
+        long stringBytes = 0;
+        for (int i = 0; i < attributeCount; i++)
+            stringBytes += add(encoded, document.attributeValueAt(i));
+        for (int i = 0; i < textCount; i++)
+            stringBytes += add(encoded, document.getText(i));
+        for (int i = 0; i < localNameCount; i++)
+            stringBytes += add(encoded, document.localName(i));
+
+        long bytes = (HEADER_INTS + (long) size * ELEMENT_COLUMNS + (long) attributeCount * ATTRIBUTE_COLUMNS
+                + (long) textCount * TEXT_COLUMNS + (long) localNameCount * LOCAL_NAME_COLUMNS) * 4 + stringBytes;
+        if (bytes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The document needs " + bytes + " bytes, more than a ByteBuffer holds");
+        ByteBuffer buffer = (direct ? ByteBuffer.allocateDirect((int) bytes) : ByteBuffer.allocate((int) bytes)).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(TagRegistry.fingerprint()).putInt(size).putInt(attributeCount).putInt(textCount).putInt(localNameCount).putInt((int) stringBytes);
+
+        for (int node = 0; node < size; node++)
+            buffer.putInt(document.tagIdAt(node));
+        for (int node = 0; node < size; node++)
+            buffer.putInt(document.getParent(node));
+        for (int node = 0; node < size; node++)
+            buffer.putInt(document.getFirstChild(node));
+        for (int node = 0; node < size; node++)
+            buffer.putInt(document.getNextSibling(node));
+        for (int node = 0; node < size; node++)
+            buffer.putInt(document.attributeStart(node));
+        for (int node = 0; node < size; node++)
+            buffer.putInt(document.getAttributeCount(node));
+        for (int node = 0; node < size; node++)
+            buffer.putInt(document.getFirstText(node));
+
+        for (int i = 0; i < attributeCount; i++)
+            buffer.putInt(document.attributeNameAt(i));
+
+        // the offsets and lengths of the strings, in the order they were encoded
+        int offset = 0;
+        int[] offsets = new int[encoded.size()];
+        for (int i = 0; i < encoded.size(); i++){
+            offsets[i] = offset;
+            offset += encoded.get(i).length;
+        }
+
+        int string = putColumns(buffer, encoded, offsets, 0, attributeCount);
+        for (int i = 0; i < textCount; i++)
+            buffer.putInt(document.getNextText(i));
+        string = putColumns(buffer, encoded, offsets, string, textCount);
+        putColumns(buffer, encoded, offsets, string, localNameCount);
+
+        for (byte[] value : encoded)
+            buffer.put(value);
+
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int add(ArrayList<byte[]> encoded, CharSequence value) {
+        byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+        encoded.add(bytes);
+        return bytes.length;
+    }
+
+    // the offset column and then the length column of count strings, from the string with index first
+    private static int putColumns(ByteBuffer buffer, ArrayList<byte[]> encoded, int[] offsets, int first, int count) {
+        for (int i = first; i < first + count; i++)
+            buffer.putInt(offsets[i]);
+        for (int i = first; i < first + count; i++)
+            buffer.putInt(encoded.get(i).length);
+        return first + count;
+    }
+
+    /**
+     * @return the number of bytes the document takes outside the heap
+     */
+    int byteSize() {
+        return buffer.limit();
+    }
+
+    /**
+     * @return a read only view of the document in its layout
+     */
+    ByteBuffer bytes() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    private int intAt(int column, int index) {
+        return buffer.getInt(column + index * 4);
+    }
+
+    private String decode(int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+            bytes[i] = buffer.get(strings + offset + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public FlatDocument toOffHeap() {
+        return this;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getParent(int node) {
+        return intAt(parents, node);
+    }
+
+    @Override
+    public int getFirstChild(int node) {
+        return intAt(firstChildren, node);
+    }
+
+    @Override
+    public int getNextSibling(int node) {
+        return intAt(nextSiblings, node);
+    }
+
+    @Override
+    public int getAttributeCount(int node) {
+        return intAt(attributeCounts, node);
+    }
+
+    @Override
+    public int getFirstText(int node) {
+        return intAt(firstTexts, node);
+    }
+
+    @Override
+    public int getNextText(int text) {
+        return intAt(nextTexts, text);
+    }
+
+    @Override
+    public CharSequence getText(int text) {
+        return decode(intAt(textOffsets, text), intAt(textLengths, text));
+    }
+
+    @Override
+    int tagIdAt(int node) {
+        return intAt(tagIds, node);
+    }
+
+    @Override
+    int attributeStart(int node) {
+        return intAt(attributeStarts, node);
+    }
+
+    @Override
+    int attributeNameAt(int attribute) {
+        return intAt(attributeNames, attribute);
+    }
+
+    @Override
+    CharSequence attributeValueAt(int attribute) {
+        return decode(intAt(valueOffsets, attribute), intAt(valueLengths, attribute));
+    }
+
+    @Override
+    int textCount() {
+        return textCount;
+    }
+
+    @Override
+    int localNameCount() {
+        return localNameCount;
+    }
+
+    @Override
+    String localName(int index) {
+        return localNames[index];
+    }
+
+    @Override
+    int localNameIndex(String name) {
+        Integer index = localNameIndexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    Object key(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    boolean valueMatches(int attribute, Object key) {
+        byte[] bytes = (byte[]) key;
+        if (intAt(valueLengths, attribute) != bytes.length)
+            return false;
+        return regionMatches(strings + intAt(valueOffsets, attribute), bytes);
+    }
+
+    @Override
+    boolean textContains(int text, Object key) {
+        byte[] bytes = (byte[]) key;
+        int start = strings + intAt(textOffsets, text);
+        int last = start + intAt(textLengths, text) - bytes.length;
+
+        // a match of whole UTF-8 characters can only start on the first byte of a character, so searching bytes finds the same as searching chars
+        for (int i = start; i <= last; i++)
+            if (regionMatches(i, bytes))
+                return true;
+        return false;
+    }
+
+    private boolean regionMatches(int position, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++)
+            if (buffer.get(position + i) != bytes[i])
+                return false;
+        return true;
+    }
+}
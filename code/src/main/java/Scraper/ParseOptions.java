@@ -0,0 +1,134 @@
+package Scraper;
+
+/**
+ * ParseOptions: how a {@link Scraper} builds its tree, for the build methods taking options.
+ * By default every element is built, the whole source is parsed right away and text and attribute values are copied out of the source.
+ * @author Joakim Jensen
+ * @version 1.3
+ * @see Scraper#buildWithString(String, ParseOptions)
+ */
+public final class ParseOptions {
+
+    private ElementFilter filter;
+    private boolean lazy;
+    private boolean zeroCopy;
+    private boolean flat;
+    private boolean offHeap;
+    private boolean indexed;
+    private boolean textIndexed;
+
+    public ParseOptions() {
+    }
+
+    public ElementFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * @param filter decides which elements are built, or null to build all of them, see {@link Scraper#buildWithString(String, ElementFilter)}
+     * @return these options
+     */
+    public ParseOptions setFilter(ElementFilter filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * @param lazy true to parse the source on demand, see {@link Scraper#buildLazyWithString(String)}
+     * @return these options
+     */
+    public ParseOptions setLazy(boolean lazy) {
+        this.lazy = lazy;
+        return this;
+    }
+
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+
+    /**
+     * Keeps text and attribute values as views into the source the scraper already holds, instead of as copies of their own.
+     * Each is turned into a String only when it is asked for, which roughly halves the memory of a scraper that is kept around.
+     * Applies to html given as a String or fetched from a web url. Files are parsed from their bytes, and their values are always decoded into Strings.
+     * @param zeroCopy true to keep views into the source
+     * @return these options
+     */
+    public ParseOptions setZeroCopy(boolean zeroCopy) {
+        this.zeroCopy = zeroCopy;
+        return this;
+    }
+
+    public boolean isFlat() {
+        return flat;
+    }
+
+    /**
+     * Keeps the page as a {@link FlatDocument}, in arrays instead of as a tree of elements.
+     * Searches over the whole page by tag, id or class, for images and for text then run as loops over the arrays,
+     * and elements are only created for the parts of the page that are walked as a tree, for that call only,
+     * so searches on several threads at the same time each walk elements of their own.
+     * The filter and laziness are not used for a flat page.
+     * @param flat true to keep the page as a FlatDocument
+     * @return these options
+     */
+    public ParseOptions setFlat(boolean flat) {
+        this.flat = flat;
+        return this;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Keeps the page as a {@link FlatDocument} outside the Java heap, together with its html source.
+     * The searches of {@link ParseOptions#setFlat(boolean)} run against it directly. Every other method walks elements
+     * read from it for that call only, so a scraper that is kept around leaves almost nothing on the heap for the garbage collector.
+     * @param offHeap true to keep the page outside the heap, the page is then also flat
+     * @return these options
+     */
+    public ParseOptions setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+        if (offHeap)
+            this.flat = true;
+        return this;
+    }
+
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Indexes the elements by id, class and tag while the tree is built, see {@link ElementIndex}.
+     * Searches by id, class or tag, for images, videos and links then look the elements up instead of walking the tree,
+     * which pays off for a scraper that is searched many times. The index is not used once the tree has been changed.
+     * Flat pages are searched as arrays and are not indexed.
+     * @param indexed true to index the tree
+     * @return these options
+     */
+    public ParseOptions setIndexed(boolean indexed) {
+        this.indexed = indexed;
+        return this;
+    }
+
+    public boolean isTextIndexed() {
+        return textIndexed;
+    }
+
+    /**
+     * Indexes the text of the page once the tree is built, see {@link TextIndex}.
+     * The searches for a string, with and without case, then compare only the texts that can contain it instead of walking the tree,
+     * which pays off for a scraper that is searched for many strings. The index is not used once the tree has been changed.
+     * Flat pages are searched as arrays and are not indexed.
+     * @param textIndexed true to index the text of the page
+     * @return these options
+     */
+    public ParseOptions setTextIndexed(boolean textIndexed) {
+        this.textIndexed = textIndexed;
+        return this;
+    }
+}
@@ -5,7 +5,17 @@ import HTMLString.HTMLToString;
 
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Generic scraper class representing a specific instantiation of a Scraper.ConceptScraper
@@ -13,7 +23,7 @@ import java.util.ArrayList;
  * @author Thomas Johannessen
  * @author Joakim Jensen
  * @author Michal Kowalski
- * @version 1.1
+ * @version 1.7
  * @see ConceptScraper
  */
 public class Scraper {
@@ -22,9 +32,23 @@ public class Scraper {
     private final static int STRING = 2;
 
     private String url;
-    private String websiteContent;
+    private CharSequence websiteContent;
     private Element root = null;
 
+    // set while a lazy scraper has not parsed all of its source yet
+    private TreeBuilder lazyBuilder = null;
+
+    // set for a scraper keeping its page as a FlatDocument. The root is not kept, every call gets its own element reading from it,
+    // as the elements fill themselves in when read and can not be shared between threads. A frozen flat scraper keeps its frozen root
+    private FlatDocument document = null;
+
+    // set for a scraper built with ParseOptions#setIndexed(boolean), once its tree is complete
+    private ElementIndex index = null;
+
+    // set for a scraper built with ParseOptions#setTextIndexed(boolean), once its tree is complete
+    private TextIndex textIndex = null;
+    private boolean textIndexed = false;
+
 
 
     private ArrayList<Element> nodes = new ArrayList<>();
@@ -46,38 +70,102 @@ public class Scraper {
     }
 
     // nye Scraper konstruktør
-    private Scraper (String source, int sourceType){
+    private Scraper (String source, int sourceType, ParseOptions options){
 
         try {
+            TreeBuilder builder = new TreeBuilder(options);
+            this.textIndexed = options.isTextIndexed();
+
             if (sourceType == FILE){
-                this.websiteContent = HTMLToString.readHTMLFromFile(source);
+                this.websiteContent = HTMLToString.mapHTMLFromFile(source);
                 this.url = source;
-                this.root = TreeBuilder.createTree(this.websiteContent);
             }
             else if(sourceType == WEBURL){
                 this.websiteContent = HTMLToString.requestHTMLWithUrl(source);
                 this.url = source;
-                this.root = TreeBuilder.createTree(this.websiteContent);
             }
             else if (sourceType == STRING){
                 this.websiteContent = source;
-                this.root = TreeBuilder.createTree(source);
             }
-        } catch (ParseException e) {
+
+            if (options.isOffHeap()){
+                // the heap document is only a step on the way, so its values may as well be views into the source
+                this.document = FlatDocument.build(this.websiteContent, true).toOffHeap();
+                if (this.websiteContent instanceof String)
+                    this.websiteContent = HTMLToString.toDirectBuffer((String) this.websiteContent);
+            }
+            else if (options.isFlat()){
+                this.document = FlatDocument.build(this.websiteContent, options.isZeroCopy());
+            }
+            else if (options.isLazy()){
+                this.lazyBuilder = builder;
+                builder.startLazy(this.websiteContent);
+            }
+            else {
+                this.root = builder.build(this.websiteContent);
+                this.index = builder.getIndex();
+                if (textIndexed)
+                    this.textIndex = TextIndex.build(root);
+            }
+        } catch (ParseException | IOException e) {
             e.printStackTrace();
         }
 
     }
 
+    // Scraper built while the source is read, the source is not kept as websiteContent
+    private Scraper (Reader source){
+        try {
+            this.root = new TreeBuilder().build(source);
+        } catch (ParseException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Scraper for a page read from a snapshot, kept off the heap in the mapped file. The source is not kept as websiteContent
+    private Scraper (Path snapshot){
+        try {
+            SnapshotFile file = SnapshotFile.read(snapshot.toString());
+            this.document = file.getDocument();
+            this.url = file.getUrl();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
 
     /**
-     * A methode for getting the content from a specific HTML-tag in the webpage
+     * A methode for building a scraper from a UTF-8 encoded html-file. The file is memory mapped and parsed from its bytes,
+     * so only the tags, attribute values and text that end up in the tree are decoded.
      * @param path: Path to the html-file
      * @return Scraper object build from file
      * example: Scraper sc = Scraper.buildScraperWithFile("index.html");
      */
     public static Scraper buildWithFile(String path){
-        return new Scraper(path, FILE);
+        return new Scraper(path, FILE, new ParseOptions());
+    }
+
+    /**
+     * Works like {@link Scraper#buildWithFile(String)}, but only the elements accepted by the filter are built,
+     * together with everything nested in them. See {@link Scraper#buildWithString(String, ElementFilter)}.
+     * @param path: Path to the html-file
+     * @param filter: Decides which elements are kept
+     * @return Scraper object build from file
+     * example: Scraper sc = Scraper.buildWithFile("index.html", ElementFilter.className("product"));
+     */
+    public static Scraper buildWithFile(String path, ElementFilter filter){
+        return new Scraper(path, FILE, new ParseOptions().setFilter(filter));
+    }
+
+    /**
+     * Works like {@link Scraper#buildWithFile(String)}, built the way the options say
+     * @param path: Path to the html-file
+     * @param options: Filter, laziness and zero copy to build with
+     * @return Scraper object build from file
+     * example: Scraper sc = Scraper.buildWithFile("index.html", new ParseOptions().setLazy(true));
+     */
+    public static Scraper buildWithFile(String path, ParseOptions options){
+        return new Scraper(path, FILE, options);
     }
 
     /**
@@ -87,7 +175,30 @@ public class Scraper {
      * example: Scraper sc = Scraper.buildScraperWithWebUrl("https://webscraper.io/test-sites/e-commerce/allinone");
      */
     public static Scraper buildWithWebUrl(String url){
-        return new Scraper(url, WEBURL);
+        return new Scraper(url, WEBURL, new ParseOptions());
+    }
+
+    /**
+     * Works like {@link Scraper#buildWithWebUrl(String)}, but only the elements accepted by the filter are built,
+     * together with everything nested in them. See {@link Scraper#buildWithString(String, ElementFilter)}.
+     * @param url: WebUrl to the website that is to be scraped
+     * @param filter: Decides which elements are kept
+     * @return Scraper object build from the websites html-source
+     * example: Scraper sc = Scraper.buildWithWebUrl("https://webscraper.io/test-sites/e-commerce/allinone", ElementFilter.className("thumbnail"));
+     */
+    public static Scraper buildWithWebUrl(String url, ElementFilter filter){
+        return new Scraper(url, WEBURL, new ParseOptions().setFilter(filter));
+    }
+
+    /**
+     * Works like {@link Scraper#buildWithWebUrl(String)}, built the way the options say
+     * @param url: WebUrl to the website that is to be scraped
+     * @param options: Filter, laziness and zero copy to build with
+     * @return Scraper object build from the websites html-source
+     * example: Scraper sc = Scraper.buildWithWebUrl("https://webscraper.io/test-sites/e-commerce/allinone", new ParseOptions().setZeroCopy(true));
+     */
+    public static Scraper buildWithWebUrl(String url, ParseOptions options){
+        return new Scraper(url, WEBURL, options);
     }
 
     /**
@@ -97,7 +208,120 @@ public class Scraper {
      * example: Scraper sc = Scraper.buildScraperWithString("<html lang="en"><body><h1 id="header1">Hello world</h1><p>This is my world</p></body></html>");
      */
     public static Scraper buildWithString(String html){
-        return new Scraper(html, STRING);
+        return new Scraper(html, STRING, new ParseOptions());
+    }
+
+    /**
+     * Works like {@link Scraper#buildWithString(String)}, but only the elements accepted by the filter are built,
+     * together with everything nested in them. The kept elements become the children of the root element of the page,
+     * and everything outside them, like navigation or footers, is read past without creating elements.
+     * @param html: A string which contains html
+     * @param filter: Decides which elements are kept, for example ElementFilter.id("main").or(ElementFilter.tag("table"))
+     * @return Scraper object build from the websites html-source
+     * example: Scraper sc = Scraper.buildWithString(html, ElementFilter.className("product"));
+     */
+    public static Scraper buildWithString(String html, ElementFilter filter){
+        return new Scraper(html, STRING, new ParseOptions().setFilter(filter));
+    }
+
+    /**
+     * Works like {@link Scraper#buildWithString(String)}, built the way the options say.
+     * With {@link ParseOptions#setZeroCopy(boolean)} the text and attribute values of the tree are views into the html,
+     * which suits scrapers that are kept around for a long time.
+     * @param html: A string which contains html
+     * @param options: Filter, laziness and zero copy to build with
+     * @return Scraper object build from the websites html-source
+     * example: Scraper sc = Scraper.buildWithString(html, new ParseOptions().setZeroCopy(true).setFilter(ElementFilter.tag("table")));
+     */
+    public static Scraper buildWithString(String html, ParseOptions options){
+        return new Scraper(html, STRING, options);
+    }
+
+    /**
+     * A methode for building a lazy scraper from a html-file. A lazy scraper parses its source on demand:
+     * {@link Scraper#getImageByIdAsString(String)}, {@link Scraper#getImageByIdAsNode(String)}, {@link Scraper#getVideoByIdAsString(String)},
+     * {@link Scraper#getVideoByIdAsNode(String)}, {@link Scraper#containsAsBoolean(String)} and {@link Scraper#containsCaseInSensetiveAsBoolean(String)}
+     * only parse until they have found what they look for, and leave the rest of the source unparsed for later calls to continue on.
+     * Every other method parses the rest of the source first. A lazy scraper is not thread safe until all of it has been parsed.
+     * @param path: Path to the html-file
+     * @return Scraper object that parses the file on demand
+     * example: Scraper sc = Scraper.buildLazyWithFile("index.html");
+     */
+    public static Scraper buildLazyWithFile(String path){
+        return new Scraper(path, FILE, new ParseOptions().setLazy(true));
+    }
+
+    /**
+     * Works like {@link Scraper#buildLazyWithFile(String)} for a web page
+     * @param url: WebUrl to the website that is to be scraped
+     * @return Scraper object that parses the websites html-source on demand
+     * example: Scraper sc = Scraper.buildLazyWithWebUrl("https://webscraper.io/test-sites/e-commerce/allinone");
+     */
+    public static Scraper buildLazyWithWebUrl(String url){
+        return new Scraper(url, WEBURL, new ParseOptions().setLazy(true));
+    }
+
+    /**
+     * Works like {@link Scraper#buildLazyWithFile(String)} for a string of html
+     * @param html: A string which contains html
+     * @return Scraper object that parses the html on demand
+     * example: Scraper sc = Scraper.buildLazyWithString("<html lang="en"><body><h1 id="header1">Hello world</h1></body></html>");
+     */
+    public static Scraper buildLazyWithString(String html){
+        return new Scraper(html, STRING, new ParseOptions().setLazy(true));
+    }
+
+    /**
+     * A methode for building a scraper from html that is parsed while it is read, for example while a page is downloading.
+     * Elements are added to the tree chunk by chunk, so the whole source is never held in memory and
+     * {@link Scraper#getWebsiteContent()} returns null for the scraper.
+     * @param reader: Reader delivering the html, it is not closed
+     * @return Scraper object build from the html read
+     * example: Scraper sc = Scraper.buildWithReader(new FileReader("index.html"));
+     */
+    public static Scraper buildWithReader(Reader reader){
+        return new Scraper(reader);
+    }
+
+    /**
+     * Works like {@link Scraper#buildWithReader(Reader)} for a stream of UTF-8 encoded html
+     * @param inputStream: Stream delivering the html, it is not closed
+     * @return Scraper object build from the html read
+     * example: Scraper sc = Scraper.buildWithInputStream(new URL("https://webscraper.io/test-sites/e-commerce/allinone").openStream());
+     */
+    public static Scraper buildWithInputStream(InputStream inputStream){
+        return new Scraper(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Works like {@link Scraper#buildWithReader(Reader)} for a channel of UTF-8 encoded html
+     * @param channel: Channel delivering the html, it is not closed
+     * @return Scraper object build from the html read
+     */
+    public static Scraper buildWithChannel(ReadableByteChannel channel){
+        return new Scraper(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1));
+    }
+
+    /**
+     * A methode for building a scraper from a snapshot written by {@link Scraper#writeSnapshot(String)}.
+     * The file is memory mapped and read as it is, so the page is neither fetched nor parsed again.
+     * The scraper works like one built with {@link ParseOptions#setOffHeap(boolean)}, and has no website content.
+     * @param path: Path to the snapshot
+     * @return Scraper object with the page of the snapshot
+     * example: Scraper sc = Scraper.buildWithSnapshot("allinone.snapshot");
+     */
+    public static Scraper buildWithSnapshot(String path){
+        return new Scraper(Paths.get(path));
+    }
+
+    /**
+     * Saves the parsed page to a file, to be read back by {@link Scraper#buildWithSnapshot(String)}
+     * @param path: Path to the snapshot, it is replaced if it exists
+     * @throws IOException if the file can not be written
+     */
+    public void writeSnapshot(String path) throws IOException {
+        FlatDocument page = document != null ? document : FlatDocument.of(getRoot());
+        SnapshotFile.write(path, url, page);
     }
 
     /**
@@ -110,10 +334,10 @@ public class Scraper {
 
     /**
      *
-     * @return The website content as String
+     * @return The website content as String, decoded on each call for scrapers built from a file
      */
     public String getWebsiteContent() {
-        return websiteContent;
+        return websiteContent == null ? null : websiteContent.toString();
     }
 
     /**
@@ -122,8 +346,10 @@ public class Scraper {
      * @return The content is returned as Strings in an Arraylist of Strings
      */
     public ArrayList<String> getContentFromTagAsString(String tag){
-            TreeTraverser.traversingGetContentFromTagAsString(root, tag);
-        return TreeTraverser.getTagStringArray();
+        if (document != null)
+            return document.getContentFromTagAsString(tag);
+
+        return getContentFromTagAsString(tag, getRoot());
     }
 
     /**
@@ -134,8 +360,11 @@ public class Scraper {
      * @see Scraper#getContentFromTagAsString(String)
      */
     public ArrayList<String> getContentFromTagAsString(String tag, Element startNode){
-        TreeTraverser.traversingGetContentFromTagAsString(startNode, tag);
-        return TreeTraverser.getTagStringArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return TreeTraverser.textsOf(index.getByTag(tag, startNode));
+
+        return TreeTraverser.traversingGetContentFromTagAsString(startNode, tag);
     }
 
     /**
@@ -144,8 +373,7 @@ public class Scraper {
      * @return The content is returned as Nodes in an Arraylist of Nodes
      */
     public ArrayList<Element> getContentFromTagAsNode(String tag){
-            TreeTraverser.traversingGetContentFromTagAsNode(root, tag);
-        return TreeTraverser.getTagNodeArray();
+        return getContentFromTagAsNode(tag, getRoot());
     }
 
     /**
@@ -156,8 +384,11 @@ public class Scraper {
      * @see Scraper#getContentFromTagAsNode(String)
      */
     public ArrayList<Element> getContentFromTagAsNode(String tag, Element startNode){
-        TreeTraverser.traversingGetContentFromTagAsNode(startNode, tag);
-        return TreeTraverser.getTagNodeArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return TreeTraverser.oncePerTextOf(index.getByTag(tag, startNode));
+
+        return TreeTraverser.traversingGetContentFromTagAsNode(startNode, tag);
     }
 
     /**
@@ -166,8 +397,10 @@ public class Scraper {
      * @return The content is returned as Strings in a Arraylist of Strings
      */
     public ArrayList<String> getContentFromIdAsString(String id){
-            TreeTraverser.traversingGetContentFromIdAsString(root,id);
-        return TreeTraverser.getIdStringArray();
+        if (document != null)
+            return document.getContentFromAttributeAsString("id", id);
+
+        return getContentFromIdAsString(id, getRoot());
     }
 
     /**
@@ -178,8 +411,11 @@ public class Scraper {
      * @see Scraper#getContentFromIdAsString(String)
      */
     public ArrayList<String> getContentFromIdAsString(String id, Element startNode){
-        TreeTraverser.traversingGetContentFromIdAsString(startNode,id);
-        return TreeTraverser.getIdStringArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return TreeTraverser.textsOf(index.getById(id, startNode));
+
+        return TreeTraverser.traversingGetContentFromIdAsString(startNode,id);
     }
 
     /**
@@ -188,8 +424,7 @@ public class Scraper {
      * @return The content is returned as Nodes in a Arraylist of Nodes
      */
     public ArrayList<Element> getContentFromIdAsNode(String id){
-            TreeTraverser.traversingGetContentFromIdAsNode(root, id);
-        return TreeTraverser.getIdNodeArray();
+        return getContentFromIdAsNode(id, getRoot());
     }
 
     /**
@@ -200,8 +435,11 @@ public class Scraper {
      * @see Scraper#getContentFromIdAsNode(String)
      */
     public ArrayList<Element> getContentFromIdAsNode(String id, Element startNode){
-        TreeTraverser.traversingGetContentFromIdAsNode(startNode, id);
-        return TreeTraverser.getIdNodeArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return TreeTraverser.oncePerTextOf(index.getById(id, startNode));
+
+        return TreeTraverser.traversingGetContentFromIdAsNode(startNode, id);
     }
 
     /**
@@ -210,8 +448,10 @@ public class Scraper {
      * @return returns the content of the given class as strings in an Arraylist of Strings
      */
     public ArrayList<String> getContentFromClassAsString(String className){
-            TreeTraverser.traversingGetContentFromClassAsString(root,className);
-        return TreeTraverser.getClassStringArray();
+        if (document != null)
+            return document.getContentFromAttributeAsString("class", className);
+
+        return getContentFromClassAsString(className, getRoot());
     }
 
     /**
@@ -222,8 +462,11 @@ public class Scraper {
      * @see Scraper#getContentFromClassAsString(String)
      */
     public ArrayList<String> getContentFromClassAsString(String className, Element startNode){
-        TreeTraverser.traversingGetContentFromClassAsString(startNode, className);
-        return TreeTraverser.getClassStringArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return TreeTraverser.textsOf(index.getByClass(className, startNode));
+
+        return TreeTraverser.traversingGetContentFromClassAsString(startNode, className);
     }
 
     /**
@@ -232,8 +475,7 @@ public class Scraper {
      * @return returns the content of the given class as Nodes in an Arraylist of Nodes
      */
     public ArrayList<Element> getContentFromClassAsNode(String className){
-            TreeTraverser.traversingGetContentFromClassAsNode(root, className);
-        return TreeTraverser.getClassNodeArray();
+        return getContentFromClassAsNode(className, getRoot());
     }
 
     /**
@@ -244,8 +486,11 @@ public class Scraper {
      * @see Scraper#getContentFromClassAsNode(String)
      */
     public ArrayList<Element> getContentFromClassAsNode(String className, Element startNode){
-        TreeTraverser.traversingGetContentFromClassAsNode(startNode, className);
-        return TreeTraverser.getClassNodeArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return TreeTraverser.oncePerTextOf(index.getByClass(className, startNode));
+
+        return TreeTraverser.traversingGetContentFromClassAsNode(startNode, className);
     }
 
     /**
@@ -253,8 +498,7 @@ public class Scraper {
      * @return the links as String in an Arraylist of Strings
      */
     public ArrayList<String> getLinksInPageAsString(){
-            TreeTraverser.traversingGetLinksInPageAsString(root,getUrl());
-        return TreeTraverser.getLinksStringArray();
+        return getLinksInPageAsString(getRoot());
     }
 
     /**
@@ -266,8 +510,11 @@ public class Scraper {
      */
 
     public ArrayList<String> getLinksInPageAsString(Element startNode){
-        TreeTraverser.traversingGetLinksInPageAsString(startNode,getUrl());
-        return TreeTraverser.getLinksStringArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return TreeTraverser.linksOf(index.getByTag(TagRegistry.nameOf(TagRegistry.A), startNode), getUrl());
+
+        return TreeTraverser.traversingGetLinksInPageAsString(startNode,getUrl());
     }
 
     /**
@@ -275,8 +522,7 @@ public class Scraper {
      * @return the links as Nodes in an Arraylist of Nodes
      */
     public ArrayList<Element> getLinksInPageAsNode(){
-            TreeTraverser.traversingGetLinksInPageAsNode(root);
-        return TreeTraverser.getLinksNodeArray();
+        return getLinksInPageAsNode(getRoot());
     }
 
     /**
@@ -287,8 +533,11 @@ public class Scraper {
      * @see Scraper#getLinksInPageAsNode()
      */
     public ArrayList<Element> getLinksInPageAsNode(Element startNode){
-        TreeTraverser.traversingGetLinksInPageAsNode(startNode);
-        return TreeTraverser.getLinksNodeArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return new ArrayList<>(index.getByTag(TagRegistry.nameOf(TagRegistry.A), startNode));
+
+        return TreeTraverser.traversingGetLinksInPageAsNode(startNode);
     }
 
     /**
@@ -297,8 +546,12 @@ public class Scraper {
      * @return returns boolean based on if the String was found or not. True for was found and false for was not found.
      */
     public boolean containsAsBoolean(String searchString){
-            Boolean contains = TreeTraverser.traversingContainsAsBoolean(root, searchString);
-        return contains;
+        if (lazyBuilder != null)
+            return containsLazily(searchString, false);
+        if (document != null)
+            return document.contains(searchString);
+
+        return containsAsBoolean(searchString, getRoot());
     }
 
     /**
@@ -309,8 +562,11 @@ public class Scraper {
      * @see Scraper#containsAsBoolean(String)
      */
     public boolean containsAsBoolean(String searchString, Element startNode){
-        Boolean contains = TreeTraverser.traversingContainsAsBoolean(startNode, searchString);
-        return contains;
+        TextIndex textIndex = textIndexFor(startNode);
+        if (textIndex != null)
+            return textIndex.contains(searchString, startNode);
+
+        return TreeTraverser.traversingContainsAsBoolean(startNode, searchString);
     }
 
     /**
@@ -319,8 +575,7 @@ public class Scraper {
      * @return returns all nodes where it the search string was found in an arraylist of nodes
      */
     public ArrayList<Element> containsAsNode(String searchString){
-        TreeTraverser.traversingContainsAsNode(root, searchString);
-        return TreeTraverser.getContainsNodeArray();
+        return containsAsNode(searchString, getRoot());
     }
 
     /**
@@ -331,8 +586,11 @@ public class Scraper {
      * @see Scraper#containsAsNode(String)
      */
     public ArrayList<Element> containsAsNode(String searchString, Element startNode){
-        TreeTraverser.traversingContainsAsNode(startNode, searchString);
-        return TreeTraverser.getContainsNodeArray();
+        TextIndex textIndex = textIndexFor(startNode);
+        if (textIndex != null)
+            return textIndex.getContaining(searchString, startNode);
+
+        return TreeTraverser.traversingContainsAsNode(startNode, searchString);
     }
 
     /**
@@ -341,8 +599,10 @@ public class Scraper {
      * @return returns boolean based on if the String was found or not. True for was found and false for was not found.
      */
     public boolean containsCaseInSensetiveAsBoolean(String searchString){
-        Boolean contains = TreeTraverser.traversingContainsCaseInSensetiveAsBoolean(root, searchString);
-        return contains;
+        if (lazyBuilder != null)
+            return containsLazily(searchString, true);
+
+        return containsCaseInSensetiveAsBoolean(searchString, getRoot());
     }
 
     /**
@@ -353,8 +613,11 @@ public class Scraper {
      * @see Scraper#containsCaseInSensetiveAsBoolean(String)
      */
     public boolean containsCaseInSensetiveAsBoolean(String searchString, Element startNode){
-        Boolean contains = TreeTraverser.traversingContainsCaseInSensetiveAsBoolean(startNode, searchString);
-        return contains;
+        TextIndex textIndex = textIndexFor(startNode);
+        if (textIndex != null)
+            return textIndex.containsIgnoringCase(searchString, startNode);
+
+        return TreeTraverser.traversingContainsCaseInSensetiveAsBoolean(startNode, searchString);
     }
 
     /**
@@ -363,8 +626,7 @@ public class Scraper {
      * @return returns all nodes where it the search string was found in an arraylist of nodes
      */
     public ArrayList<Element> containsCaseInSensetiveAsNode(String searchString){
-            TreeTraverser.traversingContainsCaseInSensetiveAsNode(root, searchString);
-        return TreeTraverser.getContainsCaseInSensitiveNodeArray();
+        return containsCaseInSensetiveAsNode(searchString, getRoot());
     }
 
     /**
@@ -375,8 +637,11 @@ public class Scraper {
      * @see Scraper#containsCaseInSensetiveAsNode(String)
      */
     public ArrayList<Element> containsCaseInSensetiveAsNode(String searchString, Element startNode){
-        TreeTraverser.traversingContainsCaseInSensetiveAsNode(startNode, searchString);
-        return TreeTraverser.getContainsCaseInSensitiveNodeArray();
+        TextIndex textIndex = textIndexFor(startNode);
+        if (textIndex != null)
+            return textIndex.getContainingIgnoringCase(searchString, startNode);
+
+        return TreeTraverser.traversingContainsCaseInSensetiveAsNode(startNode, searchString);
     }
 
     /**
@@ -384,8 +649,10 @@ public class Scraper {
      * @return the source for the images as String in an Arraylist of Strings
      */
     public ArrayList<String> getAllImagesFromPageAsString(){
-            TreeTraverser.traversingGetAllImagesFromPageAsString(root);
-        return TreeTraverser.getImgStringArray();
+        if (document != null)
+            return document.getAttributeOfTagAsString("img", "src");
+
+        return getAllImagesFromPageAsString(getRoot());
     }
 
     /**
@@ -396,8 +663,11 @@ public class Scraper {
      * @see Scraper#getAllImagesFromPageAsString()
      */
     public ArrayList<String> getAllImagesFromPageAsString(Element startNode){
-        TreeTraverser.traversingGetAllImagesFromPageAsString(startNode);
-        return TreeTraverser.getImgStringArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return TreeTraverser.attributeOf(index.getByTag(TagRegistry.nameOf(TagRegistry.IMG), startNode), "src");
+
+        return TreeTraverser.traversingGetAllImagesFromPageAsString(startNode);
     }
 
     /**
@@ -405,8 +675,7 @@ public class Scraper {
      * @return the source for the images as Nodes in an Arraylist of Nodes
      */
     public ArrayList<Element> getAllImagesFromPageAsNode(){
-        TreeTraverser.traversingGetAllImagesFromPageAsNode(root);
-        return TreeTraverser.getImgNodeArray();
+        return getAllImagesFromPageAsNode(getRoot());
     }
 
     /**
@@ -417,8 +686,11 @@ public class Scraper {
      * @see Scraper#getAllImagesFromPageAsNode()
      */
     public ArrayList<Element> getAllImagesFromPageAsNode(Element startNode){
-        TreeTraverser.traversingGetAllImagesFromPageAsNode(startNode);
-        return TreeTraverser.getImgNodeArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return new ArrayList<>(index.getByTag(TagRegistry.nameOf(TagRegistry.IMG), startNode));
+
+        return TreeTraverser.traversingGetAllImagesFromPageAsNode(startNode);
     }
 
     /**
@@ -427,7 +699,13 @@ public class Scraper {
      * @return the source for the image as String
      */
     public String getImageByIdAsString(String pictureId){
-        return TreeTraverser.traversingGetImageByIdAsString(root, pictureId);
+        if (lazyBuilder != null){
+            Element node = findByIdLazily(pictureId, false);
+            if (node != null)
+                return node.getAttributes().get("src");
+        }
+
+        return getImageByIdAsString(pictureId, getRoot());
     }
 
     /**
@@ -438,6 +716,12 @@ public class Scraper {
      * @see Scraper#getImageByIdAsString(String)
      */
     public String getImageByIdAsString(String pictureId, Element startNode){
+        ElementIndex index = indexFor(startNode);
+        if (index != null){
+            List<Element> found = index.getById(pictureId, startNode);
+            return found.isEmpty() ? "" : found.get(0).getAttributes().get("src");
+        }
+
         return TreeTraverser.traversingGetImageByIdAsString(startNode, pictureId);
     }
 
@@ -447,7 +731,13 @@ public class Scraper {
      * @return the source for the image as Nodes in an Arraylist of Nodes
      */
     public Element getImageByIdAsNode(String pictureId){
-        return TreeTraverser.traversingGetImageByIdAsNode(root, pictureId);
+        if (lazyBuilder != null){
+            Element node = findByIdLazily(pictureId, false);
+            if (node != null)
+                return node;
+        }
+
+        return getImageByIdAsNode(pictureId, getRoot());
     }
 
     /**
@@ -458,6 +748,12 @@ public class Scraper {
      * @see Scraper#getImageByIdAsNode(String)
      */
     public Element getImageByIdAsNode(String pictureId, Element startNode){
+        ElementIndex index = indexFor(startNode);
+        if (index != null){
+            List<Element> found = index.getById(pictureId, startNode);
+            return found.isEmpty() ? null : found.get(0);
+        }
+
         return TreeTraverser.traversingGetImageByIdAsNode(startNode, pictureId);
     }
 
@@ -467,8 +763,7 @@ public class Scraper {
      * @return the source for the images as String in an Arraylist of Strings
      */
     public ArrayList<String> getImageByClassAsString(String pictureClass){
-        TreeTraverser.traversingGetImageByClassAsString(root, pictureClass);
-        return TreeTraverser.getImgClassStringArray();
+        return getImageByClassAsString(pictureClass, getRoot());
     }
 
     /**
@@ -479,8 +774,11 @@ public class Scraper {
      * @see Scraper#getImageByClassAsString(String)
      */
     public ArrayList<String> getImageByClassAsString(String pictureClass, Element startNode){
-        TreeTraverser.traversingGetImageByClassAsString(startNode, pictureClass);
-        return TreeTraverser.getImgClassStringArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return TreeTraverser.attributeOf(index.getByClass(pictureClass, startNode), "src");
+
+        return TreeTraverser.traversingGetImageByClassAsString(startNode, pictureClass);
     }
 
     /**
@@ -489,8 +787,7 @@ public class Scraper {
      * @return the source for the images as Nodes in an Arraylist of Nodes
      */
     public ArrayList<Element> getImageByClassAsNode(String pictureClass){
-        TreeTraverser.traversingGetImageByClassAsNode(root, pictureClass);
-        return TreeTraverser.getImgClassNodeArray();
+        return getImageByClassAsNode(pictureClass, getRoot());
     }
 
     /**
@@ -501,8 +798,11 @@ public class Scraper {
      * @see Scraper#getImageByClassAsNode(String)
      */
     public ArrayList<Element> getImageByClassAsNode(String pictureClass, Element startNode){
-        TreeTraverser.traversingGetImageByClassAsNode(startNode, pictureClass);
-        return TreeTraverser.getImgClassNodeArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return new ArrayList<>(index.getByClass(pictureClass, startNode));
+
+        return TreeTraverser.traversingGetImageByClassAsNode(startNode, pictureClass);
     }
 
     /**
@@ -510,8 +810,7 @@ public class Scraper {
      * @return the source for the videos as String in an Arraylist of Strings
      */
     public ArrayList<String> getAllVideosFromPageAsString(){
-        TreeTraverser.traversingGetAllVideosFromPageAsString(root);
-        return TreeTraverser.getVideoStringArray();
+        return getAllVideosFromPageAsString(getRoot());
     }
 
     /**
@@ -522,8 +821,11 @@ public class Scraper {
      * @see Scraper#getAllVideosFromPageAsString()
      */
     public ArrayList<String> getAllVideosFromPageAsString(Element startNode){
-        TreeTraverser.traversingGetAllVideosFromPageAsString(startNode);
-        return TreeTraverser.getVideoStringArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return TreeTraverser.videoSourcesOf(index.getByTag(TagRegistry.nameOf(TagRegistry.VIDEO), startNode));
+
+        return TreeTraverser.traversingGetAllVideosFromPageAsString(startNode);
     }
 
     /**
@@ -531,8 +833,7 @@ public class Scraper {
      * @return the source for the videos as Nodes in an Arraylist of Nodes
      */
     public ArrayList<Element> getAllVideosFromPageAsNode(){
-        TreeTraverser.traversingGetAllVideosFromPageAsNode(root);
-        return TreeTraverser.getVideoNodeArray();
+        return getAllVideosFromPageAsNode(getRoot());
     }
 
     /**
@@ -543,8 +844,11 @@ public class Scraper {
      * @see Scraper#getAllVideosFromPageAsNode()
      */
     public ArrayList<Element> getAllVideosFromPageAsNode(Element startNode){
-        TreeTraverser.traversingGetAllVideosFromPageAsNode(startNode);
-        return TreeTraverser.getVideoNodeArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return new ArrayList<>(index.getByTag(TagRegistry.nameOf(TagRegistry.VIDEO), startNode));
+
+        return TreeTraverser.traversingGetAllVideosFromPageAsNode(startNode);
     }
 
     /**
@@ -553,7 +857,13 @@ public class Scraper {
      * @return the source for the video as String in a ArrayList of strings
      */
     public String getVideoByIdAsString(String videoId){
-        return TreeTraverser.traversingGetVideoByIdAsString(root, videoId);
+        if (lazyBuilder != null){
+            Element node = findByIdLazily(videoId, true);
+            if (node != null)
+                return node.getNodeChildCount() == 0 ? node.getAttributes().get("src") : node.getNodeChild(0).getAttributes().get("src");
+        }
+
+        return getVideoByIdAsString(videoId, getRoot());
     }
 
     /**
@@ -564,6 +874,10 @@ public class Scraper {
      * @see Scraper#getVideoByIdAsString(String)
      */
     public String getVideoByIdAsString(String videoId, Element startNode){
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return TreeTraverser.firstVideoSourceOf(index.getById(videoId, startNode));
+
         return TreeTraverser.traversingGetVideoByIdAsString(startNode, videoId);
     }
 
@@ -573,7 +887,13 @@ public class Scraper {
      * @return the source for the video as Nods in a Arraylist of Nodes
      */
     public Element getVideoByIdAsNode(String videoId){
-        return TreeTraverser.traversingGetVideoByIdAsNode(root, videoId);
+        if (lazyBuilder != null){
+            Element node = findByIdLazily(videoId, false);
+            if (node != null)
+                return node;
+        }
+
+        return getVideoByIdAsNode(videoId, getRoot());
     }
 
     /**
@@ -584,6 +904,12 @@ public class Scraper {
      * @see Scraper#getVideoByIdAsNode(String)
      */
     public Element getVideoByIdAsNode(String videoId, Element startNode){
+        ElementIndex index = indexFor(startNode);
+        if (index != null){
+            List<Element> found = index.getById(videoId, startNode);
+            return found.isEmpty() ? null : found.get(0);
+        }
+
         return TreeTraverser.traversingGetVideoByIdAsNode(startNode, videoId);
     }
 
@@ -593,8 +919,7 @@ public class Scraper {
      * @return the source for the videos as String in an Arraylist of Strings
      */
     public ArrayList<String> getVideoByClassAsString(String videoClass){
-        TreeTraverser.traversingGetVideoByClassAsString(root, videoClass);
-        return TreeTraverser.getVideoClassStringArray();
+        return getVideoByClassAsString(videoClass, getRoot());
     }
 
     /**
@@ -605,8 +930,11 @@ public class Scraper {
      * @see Scraper#getVideoByClassAsString(String)
      */
     public ArrayList<String> getVideoByClassAsString(String videoClass, Element startNode){
-        TreeTraverser.traversingGetVideoByClassAsString(startNode, videoClass);
-        return TreeTraverser.getVideoClassStringArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return TreeTraverser.videoSourcesOf(index.getByClass(videoClass, startNode));
+
+        return TreeTraverser.traversingGetVideoByClassAsString(startNode, videoClass);
     }
 
     /**
@@ -615,8 +943,7 @@ public class Scraper {
      * @return the source for the videos as Node in an Arraylist of Nodes
      */
     public ArrayList<Element> getVideoByClassAsNode(String videoClass){
-        TreeTraverser.traversingGetVideoByClassAsNode(root, videoClass);
-        return TreeTraverser.getVideoClassNodeArray();
+        return getVideoByClassAsNode(videoClass, getRoot());
     }
 
     /**
@@ -627,8 +954,11 @@ public class Scraper {
      * @see Scraper#getVideoByClassAsNode(String)
      */
     public ArrayList<Element> getVideoByClassAsNode(String videoClass, Element startNode){
-        TreeTraverser.traversingGetVideoByClassAsNode(startNode, videoClass);
-        return TreeTraverser.getVideoClassNodeArray();
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return new ArrayList<>(index.getByClass(videoClass, startNode));
+
+        return TreeTraverser.traversingGetVideoByClassAsNode(startNode, videoClass);
     }
 
     /**
@@ -636,8 +966,7 @@ public class Scraper {
      * @return all found classes as strings in an Arraylist of Strings
      */
     public ArrayList<String> getClassesInPage(){
-        TreeTraverser.traversingGetClassesInPage(root);
-        return TreeTraverser.getAllClassArray();
+        return TreeTraverser.traversingGetClassesInPage(getRoot());
     }
 
     /**
@@ -648,8 +977,7 @@ public class Scraper {
      * @see Scraper#getClassesInPage()
      */
     public ArrayList<String> getClassesInPage(Element startNode){
-        TreeTraverser.traversingGetClassesInPage(startNode);
-        return TreeTraverser.getAllClassArray();
+        return TreeTraverser.traversingGetClassesInPage(startNode);
     }
 
     /**
@@ -657,8 +985,7 @@ public class Scraper {
      * @return all found id's as strings in an Arraylist of Strings
      */
     public ArrayList<String> getIdsInPage(){
-        TreeTraverser.traversingGetIdsInPage(root);
-        return TreeTraverser.getAllIdsArray();
+        return TreeTraverser.traversingGetIdsInPage(getRoot());
     }
 
     /**
@@ -669,8 +996,7 @@ public class Scraper {
      * @see Scraper#getIdsInPage()
      */
     public ArrayList<String> getIdsInPage(Element startNode){
-        TreeTraverser.traversingGetIdsInPage(startNode);
-        return TreeTraverser.getAllIdsArray();
+        return TreeTraverser.traversingGetIdsInPage(startNode);
     }
 
     /**
@@ -680,8 +1006,7 @@ public class Scraper {
      * @return a list with the content of the attribute in the tag as Node in an Arraylist of Nodes
      */
     public ArrayList<Element> getAttributeContentWithTagAndNameAsNode(String tag, String attribute){
-        TreeTraverser.traversingGetAttributeContentWithTagAndNameAsNode(root, tag,attribute);
-        return TreeTraverser.getAttributeContentNodeArray();
+        return TreeTraverser.traversingGetAttributeContentWithTagAndNameAsNode(getRoot(), tag,attribute);
     }
 
     /**
@@ -692,8 +1017,7 @@ public class Scraper {
      * @see Scraper#getAttributeContentWithTagAndNameAsNode(String, String)
      */
     public ArrayList<Element> getAttributeContentWithTagAndNameAsNode(String tag, String attribute, Element startNode){
-        TreeTraverser.traversingGetAttributeContentWithTagAndNameAsNode(startNode, tag,attribute);
-        return TreeTraverser.getAttributeContentNodeArray();
+        return TreeTraverser.traversingGetAttributeContentWithTagAndNameAsNode(startNode, tag,attribute);
     }
 
     /**
@@ -703,8 +1027,7 @@ public class Scraper {
      * @return a list with the content of the attribute in the tag as String in an Arraylist of Strings
      */
     public ArrayList<String> getAttributeContentWithTagAndNameAsString(String tag, String attribute){
-        TreeTraverser.traversingGetAttributeContentWithTagAndNameAsString(root, tag,attribute);
-        return TreeTraverser.getAttributeContentStringArray();
+        return TreeTraverser.traversingGetAttributeContentWithTagAndNameAsString(getRoot(), tag,attribute);
     }
 
     /**
@@ -715,8 +1038,7 @@ public class Scraper {
      * @see Scraper#getAttributeContentWithTagAndNameAsString(String, String)
      */
     public ArrayList<String> getAttributeContentWithTagAndNameAsString(String tag, String attribute, Element startNode){
-        TreeTraverser.traversingGetAttributeContentWithTagAndNameAsString(startNode, tag,attribute);
-        return TreeTraverser.getAttributeContentStringArray();
+        return TreeTraverser.traversingGetAttributeContentWithTagAndNameAsString(startNode, tag,attribute);
     }
 
     /**
@@ -726,8 +1048,7 @@ public class Scraper {
      * @return a list with the content of the attribute in the tag with the id, as String in an Arraylist of Strings
      */
     public ArrayList<String> getAttributeContentWithIdAndNameAsString(String id, String attribute){
-        TreeTraverser.traversingGetAttributeContentWithIdAndNameAsString(root, id,attribute);
-        return TreeTraverser.getAttributeIdContentStringArray();
+        return getAttributeContentWithIdAndNameAsString(id, attribute, getRoot());
     }
 
     /**
@@ -737,41 +1058,590 @@ public class Scraper {
      * @param startNode Node to start the search from.
      * @see Scraper#getAttributeContentWithIdAndNameAsString(String, String)
      */
-    public ArrayList<String> getAttributeContentWithIdAndNameAsString(String id, String attribute, SoupNode startNode){
-        TreeTraverser.traversingGetAttributeContentWithIdAndNameAsString(startNode, id,attribute);
-        return TreeTraverser.getAttributeIdContentStringArray();
+    public ArrayList<String> getAttributeContentWithIdAndNameAsString(String id, String attribute, Element startNode){
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return TreeTraverser.presentAttributeOf(index.getById(id, startNode), attribute);
+
+        return TreeTraverser.traversingGetAttributeContentWithIdAndNameAsString(startNode, id,attribute);
+    }
+
+
+
+    /**
+     * A method for getting the elements matching a CSS selector, see {@link Selector} for the selectors supported.
+     * The selector is compiled once and kept, so using it again costs only the search
+     * @param cssSelector the selector, for example "div.product &gt; a[href^=/item]:nth-child(2n+1)"
+     * @return the matching elements in an Arraylist of Nodes, in document order
+     * @throws IllegalArgumentException if the selector is not valid or not supported
+     */
+    public ArrayList<Element> select(String cssSelector){
+        return select(cssSelector, getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#select(String)} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from, the selector only looks at it and the elements inside it.
+     * @see Scraper#select(String)
+     */
+    public ArrayList<Element> select(String cssSelector, Element startNode){
+        return Selector.compile(cssSelector).select(startNode);
+    }
+
+    /**
+     * Works like {@link Scraper#getContentFromTagAsString(String)}, with the content found one at a time.
+     * The tree is walked only as far as the stream is read, so findFirst, limit and anyMatch stop the search early.
+     * Made parallel, the stream splits the page into parts of the same size, see {@link TreeTraverser#spliterator(Element)},
+     * which is worth it for large pages only
+     * @param tag The tag from which we want to see the content of
+     * @return The content as a sequential Stream of Strings, in document order
+     */
+    public Stream<String> streamContentFromTagAsString(String tag){
+        return streamContentFromTagAsString(tag, getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#streamContentFromTagAsString(String)} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from.
+     * @see Scraper#streamContentFromTagAsString(String)
+     */
+    public Stream<String> streamContentFromTagAsString(String tag, Element startNode){
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return index.getByTag(tag, startNode).stream().flatMap(TreeTraverser::texts);
+
+        return TreeTraverser.streamingGetContentFromTagAsString(startNode, tag);
+    }
+
+    /**
+     * Works like {@link Scraper#getContentFromTagAsNode(String)}, with the content found one at a time.
+     * The tree is walked only as far as the stream is read, so findFirst, limit and anyMatch stop the search early
+     * @param tag The tag from which we want to see the content of
+     * @return The content as a sequential Stream of Nodes, in document order
+     */
+    public Stream<Element> streamContentFromTagAsNode(String tag){
+        return streamContentFromTagAsNode(tag, getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#streamContentFromTagAsNode(String)} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from.
+     * @see Scraper#streamContentFromTagAsNode(String)
+     */
+    public Stream<Element> streamContentFromTagAsNode(String tag, Element startNode){
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return index.getByTag(tag, startNode).stream().flatMap(TreeTraverser::oncePerText);
+
+        return TreeTraverser.streamingGetContentFromTagAsNode(startNode, tag);
+    }
+
+    /**
+     * Works like {@link Scraper#getContentFromIdAsString(String)}, with the content found one at a time.
+     * The tree is walked only as far as the stream is read, so findFirst, limit and anyMatch stop the search early
+     * @param id The id of an element which we want to get the content from
+     * @return The content as a sequential Stream of Strings, in document order
+     */
+    public Stream<String> streamContentFromIdAsString(String id){
+        return streamContentFromIdAsString(id, getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#streamContentFromIdAsString(String)} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from.
+     * @see Scraper#streamContentFromIdAsString(String)
+     */
+    public Stream<String> streamContentFromIdAsString(String id, Element startNode){
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return index.getById(id, startNode).stream().flatMap(TreeTraverser::texts);
+
+        return TreeTraverser.streamingGetContentFromIdAsString(startNode, id);
+    }
+
+    /**
+     * Works like {@link Scraper#getContentFromIdAsNode(String)}, with the content found one at a time.
+     * The tree is walked only as far as the stream is read, so findFirst, limit and anyMatch stop the search early
+     * @param id The id of an element which we want to get the content from
+     * @return The content as a sequential Stream of Nodes, in document order
+     */
+    public Stream<Element> streamContentFromIdAsNode(String id){
+        return streamContentFromIdAsNode(id, getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#streamContentFromIdAsNode(String)} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from.
+     * @see Scraper#streamContentFromIdAsNode(String)
+     */
+    public Stream<Element> streamContentFromIdAsNode(String id, Element startNode){
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return index.getById(id, startNode).stream().flatMap(TreeTraverser::oncePerText);
+
+        return TreeTraverser.streamingGetContentFromIdAsNode(startNode, id);
+    }
+
+    /**
+     * Works like {@link Scraper#getContentFromClassAsString(String)}, with the content found one at a time.
+     * The tree is walked only as far as the stream is read, so findFirst, limit and anyMatch stop the search early
+     * @param className The class name of the element which we want to get the content of
+     * @return The content as a sequential Stream of Strings, in document order
+     */
+    public Stream<String> streamContentFromClassAsString(String className){
+        return streamContentFromClassAsString(className, getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#streamContentFromClassAsString(String)} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from.
+     * @see Scraper#streamContentFromClassAsString(String)
+     */
+    public Stream<String> streamContentFromClassAsString(String className, Element startNode){
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return index.getByClass(className, startNode).stream().flatMap(TreeTraverser::texts);
+
+        return TreeTraverser.streamingGetContentFromClassAsString(startNode, className);
+    }
+
+    /**
+     * Works like {@link Scraper#getContentFromClassAsNode(String)}, with the content found one at a time.
+     * The tree is walked only as far as the stream is read, so findFirst, limit and anyMatch stop the search early
+     * @param className The class name of the element which we want to get the content of
+     * @return The content as a sequential Stream of Nodes, in document order
+     */
+    public Stream<Element> streamContentFromClassAsNode(String className){
+        return streamContentFromClassAsNode(className, getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#streamContentFromClassAsNode(String)} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from.
+     * @see Scraper#streamContentFromClassAsNode(String)
+     */
+    public Stream<Element> streamContentFromClassAsNode(String className, Element startNode){
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return index.getByClass(className, startNode).stream().flatMap(TreeTraverser::oncePerText);
+
+        return TreeTraverser.streamingGetContentFromClassAsNode(startNode, className);
+    }
+
+    /**
+     * Works like {@link Scraper#getLinksInPageAsNode()}, with the elements found one at a time.
+     * The tree is walked only as far as the stream is read, so findFirst, limit and anyMatch stop the search early
+     * @return the elements as a sequential Stream of Nodes, in document order
+     */
+    public Stream<Element> streamLinksInPageAsNode(){
+        return streamLinksInPageAsNode(getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#streamLinksInPageAsNode()} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from.
+     * @see Scraper#streamLinksInPageAsNode()
+     */
+    public Stream<Element> streamLinksInPageAsNode(Element startNode){
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return index.getByTag(TagRegistry.nameOf(TagRegistry.A), startNode).stream();
+
+        return TreeTraverser.streamingGetLinksInPageAsNode(startNode);
+    }
+
+    /**
+     * Works like {@link Scraper#getAllImagesFromPageAsNode()}, with the elements found one at a time.
+     * The tree is walked only as far as the stream is read, so findFirst, limit and anyMatch stop the search early
+     * @return the elements as a sequential Stream of Nodes, in document order
+     */
+    public Stream<Element> streamAllImagesFromPageAsNode(){
+        return streamAllImagesFromPageAsNode(getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#streamAllImagesFromPageAsNode()} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from.
+     * @see Scraper#streamAllImagesFromPageAsNode()
+     */
+    public Stream<Element> streamAllImagesFromPageAsNode(Element startNode){
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return index.getByTag(TagRegistry.nameOf(TagRegistry.IMG), startNode).stream();
+
+        return TreeTraverser.streamingGetAllImagesFromPageAsNode(startNode);
+    }
+
+    /**
+     * Works like {@link Scraper#getAllVideosFromPageAsNode()}, with the elements found one at a time.
+     * The tree is walked only as far as the stream is read, so findFirst, limit and anyMatch stop the search early
+     * @return the elements as a sequential Stream of Nodes, in document order
+     */
+    public Stream<Element> streamAllVideosFromPageAsNode(){
+        return streamAllVideosFromPageAsNode(getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#streamAllVideosFromPageAsNode()} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from.
+     * @see Scraper#streamAllVideosFromPageAsNode()
+     */
+    public Stream<Element> streamAllVideosFromPageAsNode(Element startNode){
+        ElementIndex index = indexFor(startNode);
+        if (index != null)
+            return index.getByTag(TagRegistry.nameOf(TagRegistry.VIDEO), startNode).stream();
+
+        return TreeTraverser.streamingGetAllVideosFromPageAsNode(startNode);
+    }
+
+    /**
+     * Works like {@link Scraper#containsAsNode(String)}, with the elements found one at a time. IS case sensetive.
+     * The tree is walked only as far as the stream is read, so findFirst, limit and anyMatch stop the search early
+     * @param searchString string we want to find in the text of the elements
+     * @return the elements as a sequential Stream of Nodes, in document order
+     */
+    public Stream<Element> streamContainsAsNode(String searchString){
+        return streamContainsAsNode(searchString, getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#streamContainsAsNode(String)} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from.
+     * @see Scraper#streamContainsAsNode(String)
+     */
+    public Stream<Element> streamContainsAsNode(String searchString, Element startNode){
+        TextIndex textIndex = textIndexFor(startNode);
+        if (textIndex != null)
+            return textIndex.getContaining(searchString, startNode).stream();
+
+        return TreeTraverser.streamingContainsAsNode(startNode, searchString);
+    }
+
+    /**
+     * Works like {@link Scraper#select(String)}, with the elements found one at a time.
+     * The tree is walked only as far as the stream is read, so findFirst, limit and anyMatch stop the search early
+     * @param cssSelector the selector, see {@link Selector} for the selectors supported
+     * @return the matching elements as a sequential Stream of Nodes, in document order
+     * @throws IllegalArgumentException if the selector is not valid or not supported
+     */
+    public Stream<Element> streamSelect(String cssSelector){
+        return streamSelect(cssSelector, getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#streamSelect(String)} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from.
+     * @see Scraper#streamSelect(String)
+     */
+    public Stream<Element> streamSelect(String cssSelector, Element startNode){
+        return Selector.compile(cssSelector).stream(startNode);
+    }
+
+    /**
+     * A method for getting the elements an XPath expression finds, see {@link XPath} for the part of XPath supported.
+     * The expression is compiled once and kept, so using it again costs only the search
+     * @param expression the expression, for example "//ul[@class='menu']/li[last()]/a"
+     * @return the elements in an Arraylist of Nodes, in document order
+     * @throws IllegalArgumentException if the expression is not valid or not supported
+     */
+    public ArrayList<Element> getXPathAsNode(String expression){
+        return getXPathAsNode(expression, getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#getXPathAsNode(String)} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node a relative expression starts from.
+     * @see Scraper#getXPathAsNode(String)
+     */
+    public ArrayList<Element> getXPathAsNode(String expression, Element startNode){
+        return XPath.compile(expression).selectNodes(startNode);
     }
 
+    /**
+     * A method for getting the text or attribute values an XPath expression finds, see {@link XPath} for the part of XPath supported
+     * @param expression the expression, ending in @name for the values of an attribute, for example "//a[contains(@href, 'item')]/@href",
+     *                   or in anything else for the text directly inside the elements found
+     * @return the values as Strings in an Arraylist of Strings, in document order
+     * @throws IllegalArgumentException if the expression is not valid or not supported
+     */
+    public ArrayList<String> getXPathAsString(String expression){
+        return getXPathAsString(expression, getRoot());
+    }
 
+    /**
+     * Works like {@link Scraper#getXPathAsString(String)} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node a relative expression starts from.
+     * @see Scraper#getXPathAsString(String)
+     */
+    public ArrayList<String> getXPathAsString(String expression, Element startNode){
+        return XPath.compile(expression).selectStrings(startNode);
+    }
 
+    /**
+     * A method for finding many keywords in the webpage at once, the text of the page is read once for all of them.
+     * IS NOT case sensetive
+     * @param keywords the keywords, compiled once with {@link KeywordMatcher#compile(java.util.Collection)}
+     * @return every place a keyword was found, with the Node it was found in, in document order
+     */
+    public ArrayList<KeywordMatcher.Hit> getKeywordHits(KeywordMatcher keywords){
+        return getKeywordHits(keywords, getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#getKeywordHits(KeywordMatcher)} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from.
+     * @see Scraper#getKeywordHits(KeywordMatcher)
+     */
+    public ArrayList<KeywordMatcher.Hit> getKeywordHits(KeywordMatcher keywords, Element startNode){
+        return keywords.findAll(startNode);
+    }
+
+    /**
+     * A method for seaching which of many keywords the webpage contains, the search ends once all of them are found.
+     * IS NOT case sensetive
+     * @param keywords the keywords, compiled once with {@link KeywordMatcher#compile(java.util.Collection)}
+     * @return the keywords found as Strings in an Arraylist of Strings, in the order they were given
+     */
+    public ArrayList<String> getKeywordsInPageAsString(KeywordMatcher keywords){
+        return getKeywordsInPageAsString(keywords, getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#getKeywordsInPageAsString(KeywordMatcher)} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from.
+     * @see Scraper#getKeywordsInPageAsString(KeywordMatcher)
+     */
+    public ArrayList<String> getKeywordsInPageAsString(KeywordMatcher keywords, Element startNode){
+        return keywords.findKeywords(startNode);
+    }
+
+    /**
+     * A method for running many searches in one go, the tree is walked once for all of them
+     * @param batch the searches, see {@link BatchQuery}
+     * @return what each search found
+     */
+    public BatchQuery.Result runBatch(BatchQuery batch){
+        return runBatch(batch, getRoot());
+    }
+
+    /**
+     * Works like {@link Scraper#runBatch(BatchQuery)} except you can choose your own startnode
+     * from anywhere in the HTML code tree
+     *
+     * @param startNode Node to start the search from.
+     * @see Scraper#runBatch(BatchQuery)
+     */
+    public BatchQuery.Result runBatch(BatchQuery batch, Element startNode){
+        return batch.run(startNode, getUrl());
+    }
+
+    /**
+     * @return The root element of the tree, a lazy scraper parses the rest of its source first.
+     * For a flat scraper that is not frozen, or one kept off the heap, it is a new element on every call
+     */
     public Element getRoot() {
+        if (lazyBuilder != null)
+            completeParsing();
+        if (root == null && document != null)
+            return document.getRoot();
         return root;
     }
 
-    public void printBeautyfull(){
-        printBeautyfull(root, 0);
+    /**
+     * @return The page as a FlatDocument, or null if the scraper was neither built with {@link ParseOptions#setFlat(boolean)} nor from a snapshot
+     */
+    public FlatDocument getDocument() {
+        return document;
     }
 
-    public void printBeautyfull(Element node, int nTabs){
+    /**
+     * Makes the tree of the page read only, see {@link Element#freeze()}. A lazy scraper parses the rest of its source first.
+     * A flat page is read once into a tree that is kept and given by {@link Scraper#getRoot()} from then on, as a frozen tree can be shared.
+     * Off the heap the page is already read only, and each call to {@link Scraper#getRoot()} gives a tree of its own.
+     * @return this scraper
+     */
+    public Scraper freeze() {
+        if (root == null && document != null && !(document instanceof OffHeapDocument))
+            root = document.getRoot();
+        Element root = getRoot();
+        if (root != null && this.root == root)
+            root.freeze();
+        return this;
+    }
 
-        if (node != null){
-            String tabs = "";
+    /**
+     * @return The elements of the page numbered in document order, or null if the page has no elements.
+     * A tree that has been changed, or that was built with {@link ParseOptions#setFlat(boolean)}, is numbered on the call
+     */
+    public DocumentOrder getDocumentOrder() {
+        Element root = getRoot();
+        if (root == null)
+            return null;
+        DocumentOrder order = root.getDocumentOrder();
+        return order != null ? order : DocumentOrder.of(root);
+    }
+
+    /**
+     * @return The index of the page, or null if the scraper was not built with {@link ParseOptions#setIndexed(boolean)}.
+     * A lazy scraper parses the rest of its source first. Once the tree is changed the index is no longer valid, see {@link ElementIndex#isValid()}
+     */
+    public ElementIndex getIndex() {
+        if (lazyBuilder != null)
+            completeParsing();
+        return index;
+    }
+
+    /**
+     * @return The text index of the page, or null if the scraper was not built with {@link ParseOptions#setTextIndexed(boolean)}.
+     * A lazy scraper parses the rest of its source first. Once the tree is changed the index is no longer valid, see {@link TextIndex#isValid()}
+     */
+    public TextIndex getTextIndex() {
+        if (lazyBuilder != null)
+            completeParsing();
+        return textIndex;
+    }
+
+    // the text index of the page if it can answer a search from the element, null if the search has to walk the tree
+    private TextIndex textIndexFor(Element startNode){
+        return textIndex != null && startNode != null && textIndex.covers(startNode) ? textIndex : null;
+    }
+
+    // the index of the page if it can answer a search from the element, null if the search has to walk the tree
+    private ElementIndex indexFor(Element startNode){
+        return index != null && startNode != null && index.covers(startNode) ? index : null;
+    }
+
+    // parses the rest of the source of a lazy scraper
+    private void completeParsing(){
+        while (parseNext());
+    }
+
+    // parses one more element or text run of a lazy scraper, false when there is nothing more to parse
+    private boolean parseNext(){
+        if (lazyBuilder == null)
+            return false;
+
+        try {
+            if (lazyBuilder.buildNext())
+                return true;
+        } catch (ParseException e) {
+            // a source that is not well formed gives no tree and no index, like it does for a scraper that is not lazy
+            e.printStackTrace();
+            lazyBuilder = null;
+            return false;
+        }
+
+        root = lazyBuilder.finishLazy();
+        index = lazyBuilder.getIndex();
+        if (textIndexed)
+            textIndex = TextIndex.build(root);
+        lazyBuilder = null;
+        return false;
+    }
 
-            for (int i = 0; i < nTabs; i++){
-                tabs += '\t';
+    /**
+     * Looks through the elements of a lazy scraper for the first one with the id, parsing more of the source until it is found.
+     * @param video true to look for a video: one without children, or with a source element as first child
+     * @return the element, or null if the whole source was parsed, or found not to be well formed, without finding it
+     */
+    private Element findByIdLazily(String id, boolean video){
+        ArrayList<Element> elements = lazyBuilder.getLazyElements();
+        int i = 0;
+
+        do {
+            for (; i < elements.size(); i++){
+                Element node = elements.get(i);
+                if (!node.attributeEquals("id", id))
+                    continue;
+                if (!video)
+                    return node;
+
+                // the first child decides, so wait for it while the element is open
+                while (node.getNodeChildCount() == 0 && lazyBuilder != null && lazyBuilder.isOpen(node))
+                    parseNext();
+
+                if (node.getNodeChildCount() == 0 || node.getNodeChild(0).getTagId() == TagRegistry.SOURCE)
+                    return node;
             }
+        } while (parseNext());
 
-            String str = tabs +
-                    "Scraper.SoupNode{" +
-                    "tag=\'" + node.getTag() + '\'' +
-                    ", attributes=" + node.getAttributeNames().toString() +
-                    ", textChildren=" + node.getStringChildren().toString() + '}';
+        return null;
+    }
 
-            System.out.println(str);
+    // looks through the text of a lazy scraper, parsing more of the source until the string is found
+    private boolean containsLazily(String searchString, boolean caseInsensitive){
+        ArrayList<CharSequence> texts = lazyBuilder.getLazyTexts();
+        String search = caseInsensitive ? searchString.toLowerCase() : searchString;
+        int i = 0;
 
-            for (int i = 0; i < node.getNodeChildren().size(); i++){
-                printBeautyfull(node.getNodeChildren().get(i), nTabs+1);
+        do {
+            for (; i < texts.size(); i++){
+                String text = caseInsensitive ? texts.get(i).toString().toLowerCase() : texts.get(i).toString();
+                if (text.contains(search))
+                    return true;
             }
+        } while (parseNext());
+
+        // without a tree, because the source could not be parsed, it is answered the way a scraper that is not lazy answers
+        if (root == null)
+            return caseInsensitive ? containsCaseInSensetiveAsBoolean(searchString, null) : containsAsBoolean(searchString, null);
+        return false;
+    }
+
+    public void printBeautyfull(){
+        printBeautyfull(getRoot(), 0);
+    }
+
+    public void printBeautyfull(Element node, int nTabs){
+
+        if (node != null){
+            TreeTraverser.walk(node, (element, depth) -> {
+                StringBuilder str = new StringBuilder();
+
+                for (int i = 0; i < nTabs + depth; i++){
+                    str.append('\t');
+                }
+
+                str.append("Scraper.SoupNode{")
+                        .append("tag='").append(element.getTag()).append('\'')
+                        .append(", attributes=").append(element.getAttributeNames().toString())
+                        .append(", textChildren=").append(element.getStringChildren().toString()).append('}');
+
+                System.out.println(str);
+                return ElementVisitor.Next.CONTINUE;
+            });
         }
     }
 }
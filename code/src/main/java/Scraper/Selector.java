@@ -0,0 +1,496 @@
+package Scraper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static Scraper.ElementVisitor.Next.CONTINUE;
+
+/**
+ * Selector: a CSS selector compiled into a matcher for {@link Element}s, see {@link Scraper#select(String)}.
+ * A selector is parsed once by {@link Selector#compile(String)}, which keeps the last selectors it compiled,
+ * so a selector used again on many pages costs only the walk over each page.
+ * <p>
+ * Supported are the type selector and *, #id, .class, the attribute selectors [a], [a=v], [a~=v], [a|=v], [a^=v], [a$=v] and [a*=v],
+ * the pseudo classes :first-child, :last-child, :nth-child(an+b), :nth-child(odd) and :nth-child(even),
+ * the descendant, child (&gt;), next sibling (+) and later sibling (~) combinators, and lists of selectors separated by commas.
+ * Like in CSS, .class matches any of the classes of an element, where the search methods of the Scraper compare the whole class attribute.
+ * <p>
+ * An element is matched from the right: the last part of the selector is tried on every element of the walk, and only for the elements
+ * it matches are the parts to the left tried on the ancestors and siblings the walk has already gone through.
+ * The elements looked at are the one a search starts from and the elements inside it, the rest of the page is not.
+ * A compiled selector can not be changed and is used by many threads at once.
+ * @author Joakim Jensen
+ * @version 1.1
+ * @see Scraper#select(String)
+ */
+public final class Selector {
+
+    private static final int CACHE_SIZE = 256;
+
+    // the selectors compiled last, the one used longest ago is dropped first
+    private static final Map<String, Selector> cache = Collections.synchronizedMap(new LinkedHashMap<String, Selector>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Selector> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+
+    private static final char DESCENDANT = ' ';
+    private static final char CHILD = '>';
+    private static final char NEXT_SIBLING = '+';
+    private static final char LATER_SIBLING = '~';
+
+    private final String css;
+
+    // each selector of the list as its compound selectors from right to left, and the combinator to the left of each
+    private final Compound[][] alternatives;
+    private final char[][] combinators;
+
+    private Selector(String css, Compound[][] alternatives, char[][] combinators) {
+        this.css = css;
+        this.alternatives = alternatives;
+        this.combinators = combinators;
+    }
+
+    /**
+     * @param css the selector
+     * @return the compiled selector, the same one for the same selector while it is kept
+     * @throws IllegalArgumentException if the selector is not valid or not supported
+     */
+    public static Selector compile(String css) {
+        Selector selector = cache.get(css);
+        if (selector == null){
+            selector = new SelectorParser(css).parse();
+            cache.put(css, selector);
+        }
+        return selector;
+    }
+
+    /**
+     * @return the selector as it was given
+     */
+    @Override
+    public String toString() {
+        return css;
+    }
+
+    /**
+     * @param root the element to search from, it may match itself
+     * @return the elements matching the selector, in document order
+     */
+    public ArrayList<Element> select(Element root) {
+        ArrayList<Element> result = new ArrayList<>();
+        if (root == null)
+            return result;
+
+        // the elements from the root to the element visited, and the position of each among the children of the one before it
+        Path path = new Path(root);
+        TreeTraverser.walk(root, (element, depth) -> {
+            path.enter(element, depth);
+            if (matches(path, depth))
+                result.add(element);
+            return CONTINUE;
+        });
+        return result;
+    }
+
+    /**
+     * Works like {@link Selector#select(Element)}, the walk goes only as far as the stream is read
+     * @param root the element to search from, it may match itself
+     * @return the elements matching the selector, in document order
+     */
+    public Stream<Element> stream(Element root) {
+        if (root == null)
+            return Stream.empty();
+
+        Path path = new Path(root);
+        return TreeTraverser.stream(root, (element, depth) -> {
+            path.enter(element, depth);
+            return matches(path, depth);
+        });
+    }
+
+    /**
+     * @param element an element
+     * @return true if the element matches the selector, its ancestors and siblings are looked up through {@link Element#getParent()}
+     */
+    public boolean matches(Element element) {
+        ArrayList<Element> ancestors = new ArrayList<>();
+        for (Element node = element; node != null; node = node.getParent())
+            ancestors.add(node);
+
+        Path path = new Path(ancestors.get(ancestors.size() - 1));
+        for (int depth = 1; depth < ancestors.size(); depth++)
+            path.enterAt(ancestors.get(ancestors.size() - 1 - depth), depth);
+        return matches(path, ancestors.size() - 1);
+    }
+
+    private boolean matches(Path path, int depth) {
+        for (int i = 0; i < alternatives.length; i++)
+            if (matches(path, alternatives[i], combinators[i], 0, depth, path.indexes[depth]))
+                return true;
+        return false;
+    }
+
+    // if the element at the depth with the position among its siblings matches the part of the selector, and the parts left of it
+    private static boolean matches(Path path, Compound[] parts, char[] combinators, int part, int depth, int index) {
+        if (!parts[part].matches(path.get(depth, index), index, path.siblingCount(depth)))
+            return false;
+        if (part == parts.length - 1)
+            return true;
+
+        switch (combinators[part]){
+            case CHILD:
+                return depth > 0 && matches(path, parts, combinators, part + 1, depth - 1, path.indexes[depth - 1]);
+            case DESCENDANT:
+                for (int d = depth - 1; d >= 0; d--)
+                    if (matches(path, parts, combinators, part + 1, d, path.indexes[d]))
+                        return true;
+                return false;
+            case NEXT_SIBLING:
+                return depth > 0 && index > 0 && matches(path, parts, combinators, part + 1, depth, index - 1);
+            default:
+                if (depth > 0)
+                    for (int i = index - 1; i >= 0; i--)
+                        if (matches(path, parts, combinators, part + 1, depth, i))
+                            return true;
+                return false;
+        }
+    }
+
+    // the open elements of a walk, kept as the walk goes
+    private static final class Path {
+
+        Element[] elements = new Element[16];
+        int[] indexes = new int[16];
+        // the position the next child of the element at each depth will have
+        int[] next = new int[16];
+
+        Path(Element root) {
+            elements[0] = root;
+            Element parent = root.getParent();
+            indexes[0] = parent == null ? 0 : parent.getNodeChildren().indexOf(root);
+        }
+
+        // called for each element of a walk in document order, the siblings before it have been visited
+        void enter(Element element, int depth) {
+            grow(depth);
+            if (depth > 0){
+                elements[depth] = element;
+                indexes[depth] = next[depth]++;
+            }
+            next[depth + 1] = 0;
+        }
+
+        // called for each ancestor of an element from the top, the position is looked up among the children of the parent
+        void enterAt(Element element, int depth) {
+            grow(depth);
+            elements[depth] = element;
+            indexes[depth] = elements[depth - 1].getNodeChildren().indexOf(element);
+        }
+
+        private void grow(int depth) {
+            if (depth + 1 < elements.length)
+                return;
+            elements = Arrays.copyOf(elements, elements.length * 2);
+            indexes = Arrays.copyOf(indexes, indexes.length * 2);
+            next = Arrays.copyOf(next, next.length * 2);
+        }
+
+        Element get(int depth, int index) {
+            if (depth == 0 || index == indexes[depth])
+                return elements[depth];
+            return elements[depth - 1].getNodeChild(index);
+        }
+
+        // the number of children of the parent of the element at the depth, the root of the walk counts as an only child
+        int siblingCount(int depth) {
+            if (depth == 0){
+                Element parent = elements[0].getParent();
+                return parent == null ? 1 : parent.getNodeChildCount();
+            }
+            return elements[depth - 1].getNodeChildCount();
+        }
+    }
+
+    // a compound selector: a tag or *, and the ids, classes, attributes and positions an element has to have
+    static final class Compound {
+
+        String tag;
+        int tagId;
+        final ArrayList<String> ids = new ArrayList<>();
+        final ArrayList<String> classes = new ArrayList<>();
+        final ArrayList<String[]> attributes = new ArrayList<>();
+        // a and b of each :nth-child(an+b), and of :first-child (0n+1)
+        final ArrayList<int[]> positions = new ArrayList<>();
+        boolean lastChild;
+
+        boolean matches(Element element, int index, int siblingCount) {
+            if (tag != null && !TagRegistry.hasTag(element, tag, tagId))
+                return false;
+            for (String id : ids)
+                if (!element.attributeEquals("id", id))
+                    return false;
+            if (!classes.isEmpty()){
+                CharSequence className = element.getAttributeValue("class");
+                if (className == null)
+                    return false;
+                String value = className.toString();
+                for (String wanted : classes)
+                    if (!containsWord(value, wanted))
+                        return false;
+            }
+            for (String[] attribute : attributes)
+                if (!matchesAttribute(element, attribute))
+                    return false;
+            for (int[] position : positions)
+                if (!isPosition(index + 1, position[0], position[1]))
+                    return false;
+            return !lastChild || index == siblingCount - 1;
+        }
+
+        // attribute is name, operator and value, the operator is null for [name]
+        private static boolean matchesAttribute(Element element, String[] attribute) {
+            CharSequence found = element.getAttributeValue(attribute[0]);
+            if (found == null)
+                return false;
+            if (attribute[1] == null)
+                return true;
+
+            String value = found.toString();
+            String wanted = attribute[2];
+            switch (attribute[1]){
+                case "=":  return value.equals(wanted);
+                case "~=": return containsWord(value, wanted);
+                case "|=": return value.equals(wanted) || value.startsWith(wanted + "-");
+                case "^=": return !wanted.isEmpty() && value.startsWith(wanted);
+                case "$=": return !wanted.isEmpty() && value.endsWith(wanted);
+                default:   return !wanted.isEmpty() && value.contains(wanted);
+            }
+        }
+
+        // true if the position, counted from 1, is a * n + b for some n of 0 or more
+        private static boolean isPosition(int position, int a, int b) {
+            if (a == 0)
+                return position == b;
+            int n = position - b;
+            return n % a == 0 && n / a >= 0;
+        }
+
+        // true if the word is one of the words of the value separated by whitespace
+        static boolean containsWord(String value, String word) {
+            if (word.isEmpty())
+                return false;
+            int from = 0;
+            while ((from = value.indexOf(word, from)) >= 0){
+                int end = from + word.length();
+                if ((from == 0 || Character.isWhitespace(value.charAt(from - 1)))
+                        && (end == value.length() || Character.isWhitespace(value.charAt(end))))
+                    return true;
+                from = end;
+            }
+            return false;
+        }
+    }
+
+    // parses a selector into its compiled form
+    private static final class SelectorParser {
+
+        private final String css;
+        private int position;
+
+        SelectorParser(String css) {
+            this.css = css;
+        }
+
+        Selector parse() {
+            ArrayList<Compound[]> alternatives = new ArrayList<>();
+            ArrayList<char[]> combinators = new ArrayList<>();
+
+            do {
+                ArrayList<Compound> parts = new ArrayList<>();
+                StringBuilder between = new StringBuilder();
+                skipWhitespace();
+                parts.add(compound());
+
+                while (true){
+                    boolean whitespace = skipWhitespace();
+                    if (position == css.length() || css.charAt(position) == ',')
+                        break;
+                    char c = css.charAt(position);
+                    if (c == CHILD || c == NEXT_SIBLING || c == LATER_SIBLING){
+                        position++;
+                        skipWhitespace();
+                        between.append(c);
+                    }
+                    else if (whitespace)
+                        between.append(DESCENDANT);
+                    else
+                        throw error("Unexpected '" + c + "'");
+                    parts.add(compound());
+                }
+
+                // matched from the right, so the parts and the combinators between them are kept in reverse
+                Collections.reverse(parts);
+                alternatives.add(parts.toArray(new Compound[0]));
+                combinators.add(between.reverse().toString().toCharArray());
+            } while (position < css.length() && css.charAt(position++) == ',');
+
+            return new Selector(css, alternatives.toArray(new Compound[0][]), combinators.toArray(new char[0][]));
+        }
+
+        private Compound compound() {
+            Compound compound = new Compound();
+            int start = position;
+
+            if (position < css.length() && css.charAt(position) == '*')
+                position++;
+            else if (position < css.length() && isNameChar(css.charAt(position))){
+                compound.tag = name();
+                compound.tagId = TagRegistry.idOf(compound.tag);
+            }
+
+            while (position < css.length()){
+                char c = css.charAt(position);
+                if (c == '#'){
+                    position++;
+                    compound.ids.add(name());
+                }
+                else if (c == '.'){
+                    position++;
+                    compound.classes.add(name());
+                }
+                else if (c == '[')
+                    compound.attributes.add(attribute());
+                else if (c == ':')
+                    pseudoClass(compound);
+                else
+                    break;
+            }
+
+            if (position == start)
+                throw error(position == css.length() ? "Selector ends where an element was expected" : "Unexpected '" + css.charAt(position) + "'");
+            return compound;
+        }
+
+        private String[] attribute() {
+            position++;
+            skipWhitespace();
+            String name = name();
+            skipWhitespace();
+            expectMore();
+
+            if (css.charAt(position) == ']'){
+                position++;
+                return new String[]{name, null, null};
+            }
+
+            String operator;
+            if (css.charAt(position) == '=')
+                operator = "=";
+            else if ("~|^$*".indexOf(css.charAt(position)) >= 0 && css.startsWith("=", position + 1))
+                operator = css.substring(position, position + 2);
+            else
+                throw error("Unknown attribute operator");
+            position += operator.length();
+            skipWhitespace();
+            expectMore();
+
+            String value;
+            char quote = css.charAt(position);
+            if (quote == '"' || quote == '\''){
+                int end = css.indexOf(quote, position + 1);
+                if (end < 0)
+                    throw error("Unclosed quote");
+                value = css.substring(position + 1, end);
+                position = end + 1;
+            }
+            else
+                value = name();
+
+            skipWhitespace();
+            if (position == css.length() || css.charAt(position) != ']')
+                throw error("Expected ']'");
+            position++;
+            return new String[]{name, operator, value};
+        }
+
+        private void pseudoClass(Compound compound) {
+            position++;
+            String name = name();
+            switch (name){
+                case "first-child":
+                    compound.positions.add(new int[]{0, 1});
+                    break;
+                case "last-child":
+                    compound.lastChild = true;
+                    break;
+                case "nth-child":
+                    if (position == css.length() || css.charAt(position) != '(')
+                        throw error("Expected '('");
+                    int end = css.indexOf(')', position);
+                    if (end < 0)
+                        throw error("Expected ')'");
+                    compound.positions.add(nth(css.substring(position + 1, end).replace(" ", "")));
+                    position = end + 1;
+                    break;
+                default:
+                    throw error("Unsupported pseudo class :" + name);
+            }
+        }
+
+        // a and b of an+b, odd or even
+        private int[] nth(String expression) {
+            if (expression.equals("odd"))
+                return new int[]{2, 1};
+            if (expression.equals("even"))
+                return new int[]{2, 0};
+            try {
+                int n = expression.indexOf('n');
+                if (n < 0)
+                    return new int[]{0, Integer.parseInt(expression)};
+
+                String a = expression.substring(0, n);
+                String b = expression.substring(n + 1);
+                return new int[]{
+                        a.isEmpty() || a.equals("+") ? 1 : a.equals("-") ? -1 : Integer.parseInt(a),
+                        b.isEmpty() ? 0 : Integer.parseInt(b.startsWith("+") ? b.substring(1) : b)};
+            } catch (NumberFormatException e) {
+                throw error("Invalid :nth-child(" + expression + ")");
+            }
+        }
+
+        private String name() {
+            int start = position;
+            while (position < css.length() && isNameChar(css.charAt(position)))
+                position++;
+            if (position == start)
+                throw error("Expected a name");
+            return css.substring(start, position);
+        }
+
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '-' || c == '_';
+        }
+
+        private boolean skipWhitespace() {
+            int start = position;
+            while (position < css.length() && Character.isWhitespace(css.charAt(position)))
+                position++;
+            return position > start;
+        }
+
+        private void expectMore() {
+            if (position == css.length())
+                throw error("Selector ends inside an attribute selector");
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position + " of selector \"" + css + "\"");
+        }
+    }
+}
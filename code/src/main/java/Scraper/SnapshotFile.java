@@ -0,0 +1,119 @@
+package Scraper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * SnapshotFile: a parsed page saved to disk, so it can be used again without being fetched and parsed.
+ * The file is a short header followed by the page as an {@link OffHeapDocument}, in the layout of that class.
+ * Reading a snapshot maps the file into memory, the document is then read straight from the mapped file,
+ * so loading it costs the same however large the page is.
+ * <p>
+ * The header, with every int little endian:
+ * <pre>
+ * magic, version, url length in bytes or -1 when the page has no url, the url as UTF-8
+ * </pre>
+ * The document keeps the names of tags and attributes as {@link TagRegistry} ids, a snapshot written while other names were known
+ * is not read, see {@link OffHeapDocument}.
+ * @author Joakim Jensen
+ * @version 1.1
+ * @see Scraper#writeSnapshot(String)
+ * @see Scraper#buildWithSnapshot(String)
+ */
+final class SnapshotFile {
+
+    static final int MAGIC = 0x4653534E;
+    static final int VERSION = 1;
+
+    private final String url;
+    private final FlatDocument document;
+
+    private SnapshotFile(String url, FlatDocument document) {
+        this.url = url;
+        this.document = document;
+    }
+
+    /**
+     * @return the url of the page, or null if it had none
+     */
+    String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the page, read from the mapped file
+     */
+    FlatDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * Writes a page to a file, replacing the file if it exists
+     * @param path the file to write
+     * @param url the url of the page, or null
+     * @param document the page
+     * @throws IOException if the file can not be written
+     */
+    static void write(String path, String url, FlatDocument document) throws IOException {
+        ByteBuffer body = document instanceof OffHeapDocument
+                ? ((OffHeapDocument) document).bytes()
+                : OffHeapDocument.encode(document, false);
+
+        byte[] urlBytes = url == null ? new byte[0] : url.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(12 + urlBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(url == null ? -1 : urlBytes.length).put(urlBytes);
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining())
+                channel.write(header);
+            while (body.hasRemaining())
+                channel.write(body);
+        }
+    }
+
+    /**
+     * Maps a snapshot into memory
+     * @param path the file written by {@link SnapshotFile#write(String, String, FlatDocument)}
+     * @return the snapshot
+     * @throws IOException if the file can not be read, is not a snapshot of this version, or was written with other known names
+     */
+    static SnapshotFile read(String path) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.limit() < 12 || buffer.getInt(0) != MAGIC)
+            throw new IOException(path + " is not a FrameScraper snapshot");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Snapshot version " + buffer.getInt(4) + " is not supported, expected " + VERSION);
+
+        int urlLength = buffer.getInt(8);
+        if (urlLength < -1 || 12L + Math.max(urlLength, 0) > buffer.limit())
+            throw new IOException(path + " is not a FrameScraper snapshot");
+
+        String url = null;
+        if (urlLength >= 0){
+            byte[] urlBytes = new byte[urlLength];
+            buffer.position(12);
+            buffer.get(urlBytes);
+            url = new String(urlBytes, StandardCharsets.UTF_8);
+        }
+
+        buffer.position(12 + Math.max(urlLength, 0));
+        try {
+            return new SnapshotFile(url, new OffHeapDocument(buffer.slice()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(path + " holds no readable page: " + e.getMessage(), e);
+        }
+    }
+}
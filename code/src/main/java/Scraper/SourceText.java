@@ -0,0 +1,41 @@
+package Scraper;
+
+/**
+ * A piece of text or an attribute value seen through the html source it was parsed from, without a copy of its own.
+ * toString creates the String; {@link Element} replaces the view with that String the first time it is asked for it.
+ * @author Joakim Jensen
+ * @version 1.0
+ * @see HtmlParser#setZeroCopy(boolean)
+ */
+final class SourceText implements CharSequence {
+
+    private final String source;
+    private final int start;
+    private final int end;
+
+    SourceText(String source, int start, int end) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return source.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new SourceText(source, this.start + start, this.start + end);
+    }
+
+    @Override
+    public String toString() {
+        return source.substring(start, end);
+    }
+}
@@ -0,0 +1,178 @@
+package Scraper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * TagRegistry: the known html tag and attribute names, each with an integer id.
+ * The parser takes names found in a source from here, so every element shares the same "div", "class" or "href" String,
+ * and an element knows the id of its tag. Tag checks can then compare ints instead of Strings.
+ * Names that are not known get the id {@link TagRegistry#UNKNOWN} and are compared as Strings.
+ * @author Joakim Jensen
+ * @version 1.1
+ * @see Element#getTagId()
+ */
+public final class TagRegistry {
+
+    public static final int UNKNOWN = 0;
+
+    private static final ArrayList<String> names = new ArrayList<>();
+    private static final HashMap<String, Integer> ids = new HashMap<>();
+
+    public static final int A = register("a");
+    public static final int IMG = register("img");
+    public static final int VIDEO = register("video");
+    public static final int SOURCE = register("source");
+    public static final int SCRIPT = register("script");
+    public static final int STYLE = register("style");
+
+    private static final String[] SINGLETON_TAGS = {"area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source", "track", "wbr", "command", "keygen", "menuitem"};
+
+    private static final String[] OTHER_TAGS = {"html", "head", "body", "title", "noscript", "template",
+            "div", "span", "p", "pre", "code", "blockquote", "h1", "h2", "h3", "h4", "h5", "h6",
+            "header", "footer", "nav", "main", "section", "article", "aside", "figure", "figcaption", "picture",
+            "ul", "ol", "li", "dl", "dt", "dd", "table", "caption", "colgroup", "thead", "tbody", "tfoot", "tr", "td", "th",
+            "form", "fieldset", "legend", "label", "button", "select", "option", "optgroup", "textarea", "details", "summary",
+            "b", "i", "u", "s", "q", "em", "strong", "small", "sub", "sup", "mark", "abbr", "cite", "time", "del", "ins",
+            "audio", "canvas", "iframe", "object", "map", "svg", "path", "g"};
+
+    private static final String[] ATTRIBUTE_NAMES = {"id", "class", "href", "src", "alt", "width", "height", "style", "title",
+            "lang", "type", "name", "value", "rel", "target", "content", "charset", "action", "method", "for", "role",
+            "placeholder", "srcset", "sizes", "loading", "hidden", "disabled", "checked", "selected", "async", "defer",
+            "colspan", "rowspan", "tabindex", "dir", "property", "itemprop", "http-equiv", "crossorigin", "integrity"};
+
+    private static final boolean[] singleton;
+    private static final boolean[] ignoreableContent;
+
+    // open addressing table of all name ids by hash, so a name can be looked up from a range of the source without creating a String
+    private static final int[] table;
+
+    private static final int fingerprint;
+
+    static {
+        for (String tag : SINGLETON_TAGS)
+            register(tag);
+        for (String tag : OTHER_TAGS)
+            register(tag);
+        for (String attribute : ATTRIBUTE_NAMES)
+            register(attribute);
+
+        singleton = new boolean[names.size()];
+        for (String tag : SINGLETON_TAGS)
+            singleton[ids.get(tag)] = true;
+
+        ignoreableContent = new boolean[names.size()];
+        ignoreableContent[SCRIPT] = true;
+        ignoreableContent[STYLE] = true;
+
+        int size = Integer.highestOneBit(names.size() * 4);
+        table = new int[size];
+        for (int id = 1; id < names.size(); id++){
+            String name = names.get(id);
+            int slot = hash(name, 0, name.length()) & (size - 1);
+            while (table[slot] != UNKNOWN)
+                slot = (slot + 1) & (size - 1);
+            table[slot] = id;
+        }
+
+        // String#hashCode is the same in every JVM, so the fingerprint only changes when the names or their order do
+        fingerprint = names.hashCode();
+    }
+
+    private TagRegistry() {
+    }
+
+    private static int register(String name){
+        if (names.isEmpty())
+            names.add(null);
+
+        Integer id = ids.get(name);
+        if (id != null)
+            return id;
+
+        names.add(name);
+        ids.put(name, names.size() - 1);
+        return names.size() - 1;
+    }
+
+    private static int hash(CharSequence source, int start, int end){
+        int h = 0;
+        for (int i = start; i < end; i++)
+            h = 31 * h + source.charAt(i);
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @param name a tag or attribute name
+     * @return the id of the name, or {@link TagRegistry#UNKNOWN}
+     */
+    public static int idOf(String name){
+        Integer id = ids.get(name);
+        return id == null ? UNKNOWN : id;
+    }
+
+    /**
+     * Looks up the name found between start and end in the source, without creating a String for it
+     * @return the id of the name, or {@link TagRegistry#UNKNOWN}
+     */
+    public static int idOf(CharSequence source, int start, int end){
+        int slot = hash(source, start, end) & (table.length - 1);
+
+        while (table[slot] != UNKNOWN){
+            String name = names.get(table[slot]);
+            if (name.length() == end - start && regionMatches(name, source, start))
+                return table[slot];
+            slot = (slot + 1) & (table.length - 1);
+        }
+        return UNKNOWN;
+    }
+
+    private static boolean regionMatches(String name, CharSequence source, int start){
+        for (int i = 0; i < name.length(); i++)
+            if (name.charAt(i) != source.charAt(start + i))
+                return false;
+        return true;
+    }
+
+    /**
+     * @param id id of a known name
+     * @return the shared String of the name
+     */
+    public static String nameOf(int id){
+        return names.get(id);
+    }
+
+    /**
+     * @return a hash of all known names in id order. Ids saved with one fingerprint mean other names under another,
+     * see {@link OffHeapDocument}
+     */
+    static int fingerprint(){
+        return fingerprint;
+    }
+
+    /**
+     * @return true if elements with the tag have no content and no tail tag, like img or br
+     */
+    public static boolean isSingleton(int tagId){
+        return singleton[tagId];
+    }
+
+    /**
+     * @return true if the content of elements with the tag is not html and is skipped, like for script and style
+     */
+    public static boolean isIgnoreableContent(int tagId){
+        return ignoreableContent[tagId];
+    }
+
+    /**
+     * Compares the tag of an element with a tag name, by id when the name is known
+     * @param node the element
+     * @param tag the tag name
+     * @param tagId the id of the tag name, from {@link TagRegistry#idOf(String)}
+     */
+    static boolean hasTag(Element node, String tag, int tagId){
+        if (tagId != UNKNOWN)
+            return node.getTagId() == tagId;
+        return node.getTag().equals(tag);
+    }
+}
@@ -0,0 +1,343 @@
+package Scraper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static Scraper.ElementVisitor.Next.CONTINUE;
+
+/**
+ * TextIndex: the text children of a tree by the three character sequences they contain, built once the tree is complete.
+ * A search for a string looks up the texts containing each sequence of three characters of the string, and only those texts
+ * are compared with the string, so a search is a few lookups instead of a walk of the tree comparing every text.
+ * The sequences are taken after turning each character into lower case, so one index serves the searches with and without case,
+ * and the texts are kept in lower case once, instead of for every search. Strings shorter than three characters are compared with every text.
+ * <p>
+ * The results are the same as those of the searches walking the tree, an element is given once for each of its texts containing the string.
+ * Like {@link ElementIndex} the index describes the tree as it was built, once the tree is changed it is no longer valid, see {@link TextIndex#isValid()}.
+ * @author Joakim Jensen
+ * @version 1.0
+ * @see ParseOptions#setTextIndexed(boolean)
+ */
+public final class TextIndex {
+
+    private static final int[] NONE = new int[0];
+
+    private final DocumentOrder order;
+
+    // each text child, in document order, with the element it belongs to and the pre-order number of the element
+    private final Element[] owners;
+    private final int[] ownerPreOrders;
+    private final String[] texts;
+    private final String[] lowerCaseTexts;
+
+    // the texts String#toLowerCase() changes differently from lower casing one character at a time, which are compared on every search without case
+    private final int[] irregular;
+
+    private final Trigrams trigrams;
+    // the texts containing each sequence, by the number the sequence has in trigrams, in document order
+    private final int[][] postings;
+
+    private TextIndex(DocumentOrder order, ArrayList<Element> owners, ArrayList<String> texts) {
+        int count = texts.size();
+        this.order = order;
+        this.owners = owners.toArray(new Element[0]);
+        this.texts = texts.toArray(new String[0]);
+        this.ownerPreOrders = new int[count];
+        this.lowerCaseTexts = new String[count];
+
+        Trigrams trigrams = new Trigrams();
+        int[][] postings = new int[64][];
+        int[] postingCounts = new int[64];
+        int[] irregular = new int[16];
+        int irregularCount = 0;
+
+        for (int text = 0; text < count; text++){
+            ownerPreOrders[text] = this.owners[text].getPreOrder();
+            String value = this.texts[text];
+            // toLowerCase gives the same String when nothing changes, so most texts are not kept twice
+            lowerCaseTexts[text] = value.toLowerCase();
+            String folded = fold(value);
+            if (!lowerCaseTexts[text].equals(folded)){
+                if (irregularCount == irregular.length)
+                    irregular = Arrays.copyOf(irregular, irregularCount * 2);
+                irregular[irregularCount++] = text;
+            }
+
+            for (int i = 0; i + 3 <= folded.length(); i++){
+                int id = trigrams.add(key(folded, i));
+                if (id == postings.length){
+                    postings = Arrays.copyOf(postings, id * 2);
+                    postingCounts = Arrays.copyOf(postingCounts, id * 2);
+                }
+                int[] list = postings[id];
+                int size = postingCounts[id];
+                // a text holding a sequence more than once is added once
+                if (size > 0 && list[size - 1] == text)
+                    continue;
+                if (list == null)
+                    list = postings[id] = new int[2];
+                else if (size == list.length)
+                    list = postings[id] = Arrays.copyOf(list, size * 2);
+                list[size] = text;
+                postingCounts[id] = size + 1;
+            }
+        }
+
+        this.trigrams = trigrams;
+        this.postings = new int[trigrams.size][];
+        for (int id = 0; id < trigrams.size; id++)
+            this.postings[id] = Arrays.copyOf(postings[id], postingCounts[id]);
+        this.irregular = Arrays.copyOf(irregular, irregularCount);
+    }
+
+    /**
+     * Indexes the texts of a numbered tree
+     * @param root the root of the tree
+     * @return the index, it is not valid if the tree is not numbered, see {@link Element#getDocumentOrder()}
+     */
+    static TextIndex build(Element root) {
+        ArrayList<Element> owners = new ArrayList<>();
+        ArrayList<String> texts = new ArrayList<>();
+        DocumentOrder order = root == null ? null : root.getDocumentOrder();
+        if (order != null)
+            TreeTraverser.walk(root, (element, depth) -> {
+                for (int i = 0; i < element.getStringChildCount(); i++){
+                    owners.add(element);
+                    texts.add(element.getStringChild(i));
+                }
+                return CONTINUE;
+            });
+        return new TextIndex(order, owners, texts);
+    }
+
+    /**
+     * @return false if the tree has been changed since it was indexed
+     */
+    public boolean isValid() {
+        return order != null && order.isValid();
+    }
+
+    /**
+     * @param element an element
+     * @return true if the index can answer searches inside the element: it is valid and the element is in its tree
+     */
+    public boolean covers(Element element) {
+        return isValid() && element.getDocumentOrder() == order;
+    }
+
+    /**
+     * @param searchString the string to look for, case sensitive
+     * @param scope the element to search inside, its own texts included
+     * @return true if a text in the scope contains the string
+     * @throws IllegalArgumentException if the index does not cover the scope
+     */
+    public boolean contains(String searchString, Element scope) {
+        return search(searchString, false, scope, null);
+    }
+
+    /**
+     * @param searchString the string to look for, not case sensitive
+     * @param scope the element to search inside, its own texts included
+     * @return true if a text in the scope contains the string
+     * @throws IllegalArgumentException if the index does not cover the scope
+     */
+    public boolean containsIgnoringCase(String searchString, Element scope) {
+        return search(searchString, true, scope, null);
+    }
+
+    /**
+     * @param searchString the string to look for, case sensitive
+     * @param scope the element to search inside, its own texts included
+     * @return the elements in the scope, once for each of their texts containing the string, in document order
+     * @throws IllegalArgumentException if the index does not cover the scope
+     */
+    public ArrayList<Element> getContaining(String searchString, Element scope) {
+        ArrayList<Element> result = new ArrayList<>();
+        search(searchString, false, scope, result);
+        return result;
+    }
+
+    /**
+     * @param searchString the string to look for, not case sensitive
+     * @param scope the element to search inside, its own texts included
+     * @return the elements in the scope, once for each of their texts containing the string, in document order
+     * @throws IllegalArgumentException if the index does not cover the scope
+     */
+    public ArrayList<Element> getContainingIgnoringCase(String searchString, Element scope) {
+        ArrayList<Element> result = new ArrayList<>();
+        search(searchString, true, scope, result);
+        return result;
+    }
+
+    // compares the texts in the scope that may contain the string, adding the elements of those that do to the result,
+    // or stopping at the first of them when there is no result. True if a text contains the string
+    private boolean search(String searchString, boolean ignoreCase, Element scope, ArrayList<Element> result) {
+        if (!covers(scope))
+            throw new IllegalArgumentException("The element is not in the indexed tree, or the tree has been changed");
+        int from = firstFrom(scope.getPreOrder());
+        int to = firstFrom(order.getSubtreeEnd(scope));
+
+        String search = ignoreCase ? searchString.toLowerCase() : searchString;
+        String[] compared = ignoreCase ? lowerCaseTexts : texts;
+        boolean found = false;
+
+        int[] candidates = candidates(ignoreCase ? search : fold(search), from, to);
+        if (ignoreCase)
+            candidates = merge(candidates, within(irregular, from, to));
+        for (int text : candidates){
+            if (!compared[text].contains(search))
+                continue;
+            found = true;
+            if (result == null)
+                return true;
+            result.add(owners[text]);
+        }
+        return found;
+    }
+
+    // the texts from number from to number to holding every sequence of the folded string, in document order.
+    // All of them for a string too short to have a sequence
+    private int[] candidates(String folded, int from, int to) {
+        if (folded.length() < 3){
+            int[] all = new int[to - from];
+            for (int i = 0; i < all.length; i++)
+                all[i] = from + i;
+            return all;
+        }
+
+        int[][] lists = new int[folded.length() - 2][];
+        for (int i = 0; i < lists.length; i++){
+            int id = trigrams.get(key(folded, i));
+            if (id < 0)
+                return NONE;
+            lists[i] = postings[id];
+        }
+        // the shortest list is gone through, the others are only looked up in
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+
+        int[] shortest = within(lists[0], from, to);
+        int[] kept = new int[shortest.length];
+        int count = 0;
+        next:
+        for (int text : shortest){
+            for (int i = 1; i < lists.length; i++)
+                if (lists[i] != lists[i - 1] && Arrays.binarySearch(lists[i], text) < 0)
+                    continue next;
+            kept[count++] = text;
+        }
+        return Arrays.copyOf(kept, count);
+    }
+
+    // the part of a sorted list of text numbers from number from to number to
+    private static int[] within(int[] list, int from, int to) {
+        int start = Arrays.binarySearch(list, from);
+        int end = Arrays.binarySearch(list, to);
+        start = start < 0 ? -start - 1 : start;
+        end = end < 0 ? -end - 1 : end;
+        return start == 0 && end == list.length ? list : Arrays.copyOfRange(list, start, end);
+    }
+
+    // two sorted lists of text numbers as one, without doubles
+    private static int[] merge(int[] a, int[] b) {
+        if (b.length == 0)
+            return a;
+        int[] merged = new int[a.length + b.length];
+        int i = 0, j = 0, count = 0;
+        while (i < a.length || j < b.length){
+            int next = j == b.length || (i < a.length && a[i] <= b[j]) ? a[i] : b[j];
+            if (i < a.length && a[i] == next)
+                i++;
+            if (j < b.length && b[j] == next)
+                j++;
+            merged[count++] = next;
+        }
+        return Arrays.copyOf(merged, count);
+    }
+
+    // number of the first text belonging to an element with a pre-order number of at least preOrder
+    private int firstFrom(int preOrder) {
+        int low = 0;
+        int high = ownerPreOrders.length;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (ownerPreOrders[middle] < preOrder)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    // lower case one character at a time, so a string inside a text is still inside it after both are folded
+    private static String fold(String value) {
+        char[] chars = null;
+        for (int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            char lower = Character.toLowerCase(c);
+            if (lower == c)
+                continue;
+            if (chars == null)
+                chars = value.toCharArray();
+            chars[i] = lower;
+        }
+        return chars == null ? value : new String(chars);
+    }
+
+    // the three characters from the index, never 0
+    private static long key(String folded, int index) {
+        return ((long) folded.charAt(index) << 32 | (long) folded.charAt(index + 1) << 16 | folded.charAt(index + 2)) + 1;
+    }
+
+    // the sequences of three characters, numbered in the order they were added, kept in an open addressing table of longs
+    private static final class Trigrams {
+
+        private long[] keys = new long[1024];
+        private int[] ids = new int[1024];
+        int size;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask)
+                if (keys[slot] == key)
+                    return ids[slot];
+            return -1;
+        }
+
+        // the number of the sequence, a new one if it was not added before
+        int add(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            for (; keys[slot] != 0; slot = (slot + 1) & mask)
+                if (keys[slot] == key)
+                    return ids[slot];
+
+            keys[slot] = key;
+            ids[slot] = size;
+            if (++size * 2 > keys.length)
+                grow();
+            return size - 1;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldIds = ids;
+            keys = new long[oldKeys.length * 2];
+            ids = new int[oldIds.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++){
+                if (oldKeys[i] == 0)
+                    continue;
+                int slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != 0)
+                    slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
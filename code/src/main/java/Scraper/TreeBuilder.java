@@ -2,244 +2,346 @@ package Scraper;
 
 import Scraper.Exceptions.ParseException;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Stack;
 
-public final class TreeBuilder {
-
-    private static int index;
-
-    private static Stack<Element> parentStack;
-
-    protected static Element createTree(String html) throws ParseException {
-
-        parentStack = new Stack<>();
+/**
+ * TreeBuilder: turns a html source into a tree of {@link Element}s.
+ * The source is read by a {@link HtmlParser}, and the TreeBuilder is the handler that builds the elements from what it reports.
+ * All parsing state lives in the instance, so a TreeBuilder is cheap to create and separate instances
+ * can parse pages on separate threads at the same time.
+ * A single instance is not thread safe, but can be reused for several pages one after another.
+ * With an {@link ElementFilter} only the elements the filter accepts are built, together with everything nested in them.
+ * They are added as children of the root element of the page, which is always kept, and the rest of the page is read past.
+ * A tree can also be built lazily, a little at a time, see {@link TreeBuilder#startLazy(CharSequence)}.
+ * A finished tree is numbered in document order, see {@link DocumentOrder}, and can be indexed while it is built, see {@link ElementIndex}.
+ * @author Joakim Jensen
+ * @version 1.6
+ * @see Element
+ * @see HtmlParser
+ */
+public final class TreeBuilder implements HtmlHandler {
+
+    private final HtmlParser parser = new HtmlParser();
+
+    private Stack<Element> parentStack;
+
+    private Element root;
+
+    private final ElementFilter filter;
+
+    // number of open elements inside the subtree being kept, when filtering
+    private int keptDepth;
+
+    // an element outside the kept subtrees, waiting for its attributes before the filter can decide on it
+    private String pendingTag;
+    private final ArrayList<String> pendingNames = new ArrayList<>();
+    private final ArrayList<CharSequence> pendingValues = new ArrayList<>();
+
+    // when indexing: the index of the tree being built, and the element last started, added once all its attributes have been read
+    private boolean indexed;
+    private ElementIndex index;
+    private Element unindexed;
+
+    // when building lazily: the elements and text runs added so far, in document order
+    private boolean lazy;
+    private ArrayList<Element> lazyElements;
+    private ArrayList<CharSequence> lazyTexts;
+    private boolean lazyParsed;
+
+    public TreeBuilder() {
+        this((ElementFilter) null);
+    }
 
-        boolean isComment = false;
-        boolean isIgnoreable = false;
-        boolean isDoctype = false;
-
-        Element root = null;
-        Element buildingNode;
-
-        for(index = 0; index < html.length(); index++){
-            char ch = html.charAt(index);
-
-            // ignore content of tag mode
-            if (isIgnoreable)
-                if (!(ch == '<' && html.charAt(index+1) == '/'))
-                    continue;
-                else
-                    isIgnoreable = false;
-
-            //comment mode
-            if (isComment){
-                if (ch == '>' && html.charAt(index-1) == '-' && html.charAt(index-2) == '-'){
-                    isComment = false;
-                }
-                continue;
-            }
+    /**
+     * @param filter decides which elements are built, or null to build all of them
+     */
+    public TreeBuilder(ElementFilter filter) {
+        this.filter = filter;
+    }
 
-            // if doctypemode alternative ignoremode
-            if (isDoctype){
-                if (ch == '>')
-                    isDoctype = false;
-                continue;
-            }
+    /**
+     * @param options the filter and zero copy setting to build with, laziness is left to the caller
+     */
+    public TreeBuilder(ParseOptions options) {
+        this(options.getFilter());
+        setZeroCopy(options.isZeroCopy());
+        setIndexed(options.isIndexed());
+    }
 
+    /**
+     * Sets if text and attribute values from a String source are kept as views into the source instead of as copies,
+     * see {@link HtmlParser#setZeroCopy(boolean)}. The elements then keep the source in memory.
+     * @param zeroCopy true to keep views
+     */
+    public void setZeroCopy(boolean zeroCopy){
+        parser.setZeroCopy(zeroCopy);
+    }
 
-            // to go into ignore/comment mode
-            if (ch == '<'){
-                if (html.charAt(index+1) == '!') {
-                    if (html.charAt(index + 2) == '-' && html.charAt(index + 3) == '-')
-                        isComment = true;
-                    else
-                        isDoctype = true;
-                }
-                else if (html.charAt(index+1) == '/'){
-                    readTail(html);
-                }
-                else{
-                    buildingNode = readHead(html);
+    /**
+     * Sets if the elements are indexed by id, class and tag while the tree is built, see {@link TreeBuilder#getIndex()}
+     * @param indexed true to index the trees built from now on
+     */
+    public void setIndexed(boolean indexed){
+        this.indexed = indexed;
+    }
 
-                    if (root == null)
-                        root = buildingNode;
+    /**
+     * @return the index of the tree last built, or null if it was not indexed.
+     * For a tree built lazily the index is complete once the whole source has been parsed
+     */
+    public ElementIndex getIndex(){
+        return index;
+    }
 
-                    if (!parentStack.isEmpty())
-                        parentStack.peek().addNodeChild(buildingNode);
+    protected static Element createTree(CharSequence html) throws ParseException {
+        return new TreeBuilder().build(html);
+    }
 
-                    if (!isSingletonTag(buildingNode.getTag())){
-                        parentStack.push(buildingNode);
-                    }
+    /**
+     * Parses the html source into a tree of elements
+     * @param html the html source, a String or for example a {@link HTMLString.Utf8ByteSequence} over the bytes of a file
+     * @return the root element of the tree, or null if the source contains no elements
+     * @throws ParseException if the source is not well formed
+     */
+    public Element build(CharSequence html) throws ParseException {
+        begin();
+        parser.parse(html, this);
+        return finish();
+    }
 
-                    if (isIgnoreableContentTag(buildingNode.getTag()))
-                        isIgnoreable = true;
+    /**
+     * Parses html from a reader while it is being read. The source is consumed in chunks and every
+     * complete tag and text run is added to the tree as soon as it has arrived, so only the unfinished
+     * tail of the source is kept in memory.
+     * @param reader reader delivering the html source, it is not closed by this method
+     * @return the root element of the tree, or null if the source contains no elements
+     * @throws ParseException if the source is not well formed
+     * @throws IOException if reading from the reader fails
+     */
+    public Element build(Reader reader) throws ParseException, IOException {
+        begin();
+        parser.parse(reader, this);
+        return finish();
+    }
 
-                }
-                continue;
-            }
+    /**
+     * Starts building the tree of the html source lazily. Nothing is parsed until {@link TreeBuilder#buildNext()} is called,
+     * and each call parses on until one more element or text run has been added.
+     * The elements and text added so far can be looked at in between, so a search can stop parsing as soon as it has its answer.
+     * @param html the html source
+     */
+    void startLazy(CharSequence html){
+        begin();
+        lazy = true;
+        lazyElements = new ArrayList<>();
+        lazyTexts = new ArrayList<>();
+        lazyParsed = false;
+        parser.start(html, this);
+    }
 
-            //read string children if there is a parent to contain it
-            if (!parentStack.isEmpty()){
-                readStringChild(html);
-            }
-        }
+    /**
+     * Parses on until one more element or text run has been added to the lazily built tree
+     * @return false if the whole source has been parsed, the tree is then complete and can be taken with {@link TreeBuilder#finishLazy()}
+     * @throws ParseException if the source is not well formed
+     */
+    boolean buildNext() throws ParseException {
+        if (!lazyParsed && !parser.resume())
+            return true;
+        lazyParsed = true;
+
+        // an element the filter has not decided on when the source ends is added as one more step
+        int added = lazyElements.size();
+        resolvePending();
+        return lazyElements.size() > added;
+    }
 
+    /**
+     * @return the root of the lazily built tree, or null if no element has been added yet
+     */
+    Element getLazyRoot(){
         return root;
     }
 
-    private static void readTail(String html) throws ParseException {
-        index += 2;
+    /**
+     * @return the elements added to the lazily built tree so far, in document order
+     */
+    ArrayList<Element> getLazyElements(){
+        return lazyElements;
+    }
 
-        String tag = "";
+    /**
+     * @return the text runs added to the lazily built tree so far, in document order
+     */
+    ArrayList<CharSequence> getLazyTexts(){
+        return lazyTexts;
+    }
 
-        char ch = html.charAt(index);
-        while (ch != '>'){
-            tag += ch;
+    /**
+     * @param node element of the lazily built tree
+     * @return true if the element is still open, so more children can be added to it
+     */
+    boolean isOpen(Element node){
+        return parentStack != null && parentStack.contains(node);
+    }
 
-            index++;
-            ch = html.charAt(index);
-        }
+    /**
+     * Ends lazy building, after the source has been parsed or parsing failed
+     * @return the root of the tree
+     */
+    Element finishLazy(){
+        lazy = false;
+        lazyElements = null;
+        lazyTexts = null;
+        return finish();
+    }
 
-        Element parent = parentStack.pop();
-        if (!parent.getTag().equals(tag))
-            throw new ParseException("tail tag does match the match parent tag=" + tag + " parentnode= " + parent);
+    private void begin(){
+        parentStack = new Stack<>();
+        root = null;
+        keptDepth = 0;
+        pendingTag = null;
+        index = indexed ? new ElementIndex() : null;
+        unindexed = null;
     }
 
-    private static void readStringChild(String html){
-        String str = "";
+    private Element finish(){
+        resolvePending();
+        addToIndex();
+        Element result = root;
+        if (result != null){
+            result.trimToSize();
+            DocumentOrder order = DocumentOrder.of(result);
+            if (index != null)
+                index.finish(order);
+        }
 
-        char ch = html.charAt(index);
+        parentStack = null;
+        root = null;
 
-        while (ch != '<'){
-            if (!(ch == '\n' || ch == '\t' || (str.isEmpty() && ch == ' ')))
-                str += ch;
+        return result;
+    }
 
-            index++;
-            ch = html.charAt(index);
+    // adds the element last started to the index, its attributes come right after it is started
+    private void addToIndex(){
+        if (unindexed != null){
+            index.add(unindexed);
+            unindexed = null;
         }
-
-        if (!parentStack.isEmpty())
-            if (!str.isEmpty())
-                parentStack.peek().addStringChild(str);
-
-        index--;
     }
 
-    private static Element readHead(String html) throws ParseException {
-        char ch = html.charAt(index);
-        if (ch != '<')
-            throw new ParseException("This is no time to read head! Not <");
+    @Override
+    public void startElement(String tag) {
+        resolvePending();
+        addToIndex();
 
-        Element buildingNode = new Element();
+        if (filter != null && keptDepth == 0){
+            pendingTag = tag;
+            return;
+        }
 
-        index++;
-        boolean readTag = true;
-        boolean readAttKey = false;
-        boolean readAttValue = false;
+        Element buildingNode = new Element(tag);
 
-        int quotes = 0;
+        if (root == null)
+            root = buildingNode;
 
-        String tag = "";
-        String attKey = "";
-        String attValue = "";
-        
-        ch = html.charAt(index);
-        while (ch != '>'){
+        if (!parentStack.isEmpty())
+            parentStack.peek().addNodeChild(buildingNode);
 
-            if (readTag){
-                if (ch != ' ')
-                    tag += ch;
-                else {
-                    if (!tag.isEmpty()){
-                        buildingNode.setTag(tag);
+        parentStack.push(buildingNode);
+        keptDepth++;
 
-                        readAttKey = true;
-                        readTag = false;
-                    }
-                }
-            }
-            else if (readAttKey){
-                // when attribute name is to end
-                if (ch == '='){
-                    readAttKey = false;
-                    readAttValue = true;
-                }
-                //for solo attributes
-                else if (ch == ' '){
-                    if (!attKey.isEmpty()){
-
-                        buildingNode.getAttributeNames().add(attKey);
-                        buildingNode.getAttributes().put(attKey, "");
-
-                        attKey = "";
-                    }
-                }
-                else
-                    attKey += ch;
-            }
-            else if (readAttValue){
-                if (quotes < 1){
-                    if (ch != '\"')
-                        throw new ParseException("Missing quotes after attributtes for key=" + attKey + " breaking char=" + ch, buildingNode);
-                    quotes++;
-                }
-                else if (quotes == 1){
-                    if (ch != '\"'){
-                        attValue += ch;
-                    }
-                    else{
-                        buildingNode.getAttributeNames().add(attKey);
-                        buildingNode.getAttributes().put(attKey, attValue);
-
-                        attKey = "";
-                        attValue = "";
-
-                        readAttKey = true;
-                        readAttValue = false;
-
-                        quotes = 0;
-                    }
-                }
-            }
-            index++;
-            ch = html.charAt(index);
+        if (index != null)
+            unindexed = buildingNode;
+
+        if (lazy){
+            lazyElements.add(buildingNode);
+            parser.pause();
         }
+    }
 
-        if (buildingNode.getTag() == null){
-            if (tag.isEmpty())
-                throw new ParseException("Empty tag is detected");
-            else
-                buildingNode.setTag(tag);
+    @Override
+    public void attribute(String name, CharSequence value) {
+        if (pendingTag != null){
+            pendingNames.add(name);
+            pendingValues.add(value);
+            return;
         }
 
+        parentStack.peek().addAttribute(name, value);
+    }
 
+    @Override
+    public void text(CharSequence text) {
+        resolvePending();
+        addToIndex();
 
-        if (!attKey.isEmpty()){
-            buildingNode.getAttributeNames().add(attKey);
-            buildingNode.getAttributes().put(attKey, "");
-        }
+        if (keptDepth > 0){
+            parentStack.peek().addTextChild(text);
 
+            if (lazy){
+                lazyTexts.add(text);
+                parser.pause();
+            }
+        }
+    }
 
+    @Override
+    public void endElement(String tag) {
+        resolvePending();
+        addToIndex();
 
-        return buildingNode;
+        if (keptDepth > 0){
+            parentStack.pop().trimToSize();
+            keptDepth--;
+        }
     }
 
-    private static boolean isSingletonTag(String tag){
-        String[] singletons = {"area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source", "track", "wbr", "command", "keygen", "menuitem"};
+    /**
+     * Lets the filter decide on the pending element, now that all its attributes are read.
+     * The element is only created if it is accepted, or if it is the root of the page.
+     */
+    private void resolvePending(){
+        if (pendingTag == null)
+            return;
+
+        String id = null;
+        String className = null;
+        for (int i = 0; i < pendingNames.size(); i++){
+            if (pendingNames.get(i).equals("id"))
+                id = pendingValues.get(i).toString();
+            else if (pendingNames.get(i).equals("class"))
+                className = pendingValues.get(i).toString();
+        }
 
-        for (int i = 0; i < singletons.length; i++)
-            if (tag.equals(singletons[i]))
-                return true;
-        return false;
-    }
+        boolean accepted = filter.accept(pendingTag, id, className);
+
+        if (accepted || root == null){
+            Element node = new Element(pendingTag);
+            for (int i = 0; i < pendingNames.size(); i++)
+                node.addAttribute(pendingNames.get(i), pendingValues.get(i));
 
-    private static boolean isIgnoreableContentTag(String tag){
-        String[] ignoreableTags = {"script", "style"};
+            if (root == null)
+                root = node;
+            else
+                root.addNodeChild(node);
+            if (index != null)
+                index.add(node);
+            if (lazy){
+                lazyElements.add(node);
+                parser.pause();
+            }
 
-        for (int i = 0; i < ignoreableTags.length; i++){
-            if (tag.equals(ignoreableTags[i]))
-                return true;
+            if (accepted){
+                parentStack.push(node);
+                keptDepth = 1;
+            }
         }
-        return false;
+
+        pendingTag = null;
+        pendingNames.clear();
+        pendingValues.clear();
     }
 }
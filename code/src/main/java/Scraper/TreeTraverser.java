@@ -2,627 +2,683 @@ package Scraper;
 
 
 import java.util.ArrayList;
-
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static Scraper.ElementVisitor.Next.CONTINUE;
+import static Scraper.ElementVisitor.Next.STOP;
+
+/**
+ * TreeTraverser: the searches {@link Scraper} runs over a tree of {@link Element}s.
+ * Each search creates the list for its result and hands it down the walk, nothing is kept between calls,
+ * so searches can run on several threads at the same time, on the same tree or on different ones.
+ * All searches go through {@link TreeTraverser#walk(Element, ElementVisitor)}, which keeps its own stack
+ * instead of calling itself for each level, so a tree can be as deep as memory allows.
+ * For a tree with an {@link ElementIndex} the Scraper hands the elements found in the index to the methods ending in Of,
+ * which give the same results as the searches without walking.
+ * The searches starting with streaming give their results as a {@link Stream} that walks the tree only as far as it is read,
+ * so findFirst, limit and anyMatch end the walk at the element they stop at. Made parallel they split the tree, see {@link ElementSpliterator}.
+ * @author Joakim Jensen
+ * @version 1.6
+ * @see Scraper
+ */
 public final class TreeTraverser {
-    private static ArrayList<String> tagStringArray = new ArrayList<String>();
-    private static ArrayList<String> idStringArray = new ArrayList<String>();
-    private static ArrayList<String> classStringArray = new ArrayList<String>();
-    private static ArrayList<String> linksStringArray = new ArrayList<String>();
-    private static ArrayList<String> ImgStringArray = new ArrayList<String>();
-    private static ArrayList<String> ImgClassStringArray = new ArrayList<String>();
-    private static ArrayList<String> VideoStringArray = new ArrayList<String>();
-    private static ArrayList<String> VideoClassStringArray = new ArrayList<String>();
-    private static ArrayList<String> AllIdArray = new ArrayList<String>();
-    private static ArrayList<String> AllClassArray = new ArrayList<String>();
-    private static ArrayList<String> AttributeContentStringArray = new ArrayList<>();
-    private static ArrayList<Element> tagNodeArray = new ArrayList<>();
-    private static ArrayList<Element> idNodeArray = new ArrayList<>();
-    private static ArrayList<Element> classNodeArray = new ArrayList<>();
-    private static ArrayList<Element> linksNodeArray = new ArrayList<>();
-    private static ArrayList<Element> ImgNodeArray = new ArrayList<>();
-    private static ArrayList<Element> ImgClassNodeArray = new ArrayList<>();
-    private static ArrayList<Element> VideoNodeArray = new ArrayList<>();
-    private static ArrayList<Element> VideoClassNodeArray = new ArrayList<>();
-    private static ArrayList<Element> ContainsNodeArray = new ArrayList<>();
-    private static ArrayList<Element> ContainsCaseInSensitiveNodeArray = new ArrayList<>();
-    private static ArrayList<Element> AttributeContentNodeArray = new ArrayList<>();
-    private static boolean containsVar = false;
-    private static String srcString;
-    private static Element srcNode;
-    private static ArrayList<String> AttributeIdContentStringArray = new ArrayList<>();
-    private static String returnSrcString = "";
-    private static String returnImgSrcString = "";
-
-
-
-    public static void traversingGetContentFromTagAsString(Element node, String tag){
-
-        if (node.getTag().equals(tag)){
-            for(int i = 0; i < node.getStringChildren().size(); i++) {
-                tagStringArray.add(node.getStringChildren().get(i));
+
+    // levels walk goes down by recursion, below them it keeps a stack of its own, see walkChildren
+    private static final int MAX_RECURSION = 512;
+
+    private TreeTraverser() {
+    }
+
+    /**
+     * Visits the element and everything inside it, in document order
+     * @param root the element to start from
+     * @param visitor decides for each element if the walk goes into its children, past them, or ends
+     * @return true if the visitor ended the walk, false if it went through the tree
+     */
+    public static boolean walk(Element root, ElementVisitor visitor){
+        ElementVisitor.Next next = visitor.visit(root, 0);
+        if (next != CONTINUE)
+            return next == STOP;
+        return walkChildren(root, 1, visitor);
+    }
+
+    // visits the children of the element and what is inside them by recursion, which is the fastest way down the levels of
+    // an ordinary page, and with a stack of its own below MAX_RECURSION levels, so a page nested deeper does not overflow the thread's stack
+    private static boolean walkChildren(Element node, int depth, ElementVisitor visitor){
+        for (int i = 0; i < node.getNodeChildCount(); i++){
+            Element child = node.getNodeChild(i);
+            ElementVisitor.Next next = visitor.visit(child, depth);
+            if (next == STOP)
+                return true;
+            if (next == CONTINUE && child.getNodeChildCount() > 0){
+                boolean stopped = depth < MAX_RECURSION ? walkChildren(child, depth + 1, visitor) : walkStacked(child, depth + 1, visitor);
+                if (stopped)
+                    return true;
             }
         }
-        for (int i=0; i<node.getNodeChildren().size(); i++){
-            traversingGetContentFromTagAsString(node.getNodeChildren().get(i),tag);
-        }
+        return false;
     }
 
-    public static ArrayList<String> getTagStringArray() {
-        ArrayList<String> arr = new ArrayList<>(tagStringArray);
-        tagStringArray.clear();
-        return arr;
-    }
+    // visits the children of the element and what is inside them, keeping the open elements on a stack instead of recursing
+    private static boolean walkStacked(Element node, int depth, ElementVisitor visitor){
+        // the open elements and the index of the child to visit next in each, only elements with children are put here
+        Element[] stack = new Element[16];
+        int[] nextChild = new int[16];
+        stack[0] = node;
+        int open = 1;
 
-    public static void traversingGetContentFromIdAsString(Element node, String id) {
+        while (open > 0){
+            Element parent = stack[open - 1];
+            int child = nextChild[open - 1];
 
-        if (node.getAttributeNames().contains("id")){
-            if (node.getAttributes().get("id").equals(id)) {
-                for(int i = 0; i < node.getStringChildren().size(); i++) {
-                    idStringArray.add(node.getStringChildren().get(i));
-                }
+            if (child == parent.getNodeChildCount()){
+                stack[--open] = null;
+                continue;
             }
-        }
+            nextChild[open - 1] = child + 1;
 
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetContentFromIdAsString(node.getNodeChildren().get(i), id);
-        }
-    }
+            Element childNode = parent.getNodeChild(child);
+            ElementVisitor.Next next = visitor.visit(childNode, depth + open - 1);
+            if (next == STOP)
+                return true;
 
-    public static ArrayList<String> getIdStringArray() {
-        ArrayList<String> arr = new ArrayList<>(idStringArray);
-        idStringArray.clear();
-        return arr;
-    }
-
-    public static void traversingGetContentFromClassAsString(Element node, String className) {
-        if (node.getAttributeNames().contains("class")){
-            if (node.getAttributes().get("class").equals(className)) {
-                for(int i = 0; i < node.getStringChildren().size(); i++) {
-                    classStringArray.add(node.getStringChildren().get(i));
+            if (next == CONTINUE && childNode.getNodeChildCount() > 0){
+                if (open == stack.length){
+                    stack = Arrays.copyOf(stack, open * 2);
+                    nextChild = Arrays.copyOf(nextChild, open * 2);
                 }
+                stack[open] = childNode;
+                nextChild[open++] = 0;
             }
         }
-
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetContentFromClassAsString(node.getNodeChildren().get(i), className);
-        }
+        return false;
     }
 
-    public static ArrayList<String> getClassStringArray() {
-        ArrayList<String> arr = new ArrayList<>(classStringArray);
-        classStringArray.clear();
-        return arr;
+    /**
+     * @param root the element to start from, or null for none
+     * @return the element and everything inside it, in document order, found one at a time as the iterator is read.
+     * The tree should not be changed while the iterator is in use
+     */
+    public static Iterator<Element> iterator(Element root){
+        return new Matching(root, (element, depth) -> true);
     }
 
-
-    public static void traversingGetLinksInPageAsString(Element node, String url){
-
-        String tag = "a";
-
-        if (node.getTag().equals(tag)){
-            if (node.getAttributeNames().contains("href")) {
-                char start = node.getAttributes().get("href").charAt(0);
-                if (start == '/' || start == '#')
-                    linksStringArray.add(url + node.getAttributes().get("href"));
-                else
-                    linksStringArray.add(node.getAttributes().get("href"));
-            }
-        }
-        for (int i=0; i<node.getNodeChildren().size(); i++){
-            traversingGetLinksInPageAsString(node.getNodeChildren().get(i), url);
-        }
+    /**
+     * Works like {@link TreeTraverser#iterator(Element)}, and splits the tree into parts of the same size for a parallel stream
+     * @param root the element to start from, or null for none
+     * @return the element and everything inside it, in document order
+     * @see ElementSpliterator
+     */
+    public static Spliterator<Element> spliterator(Element root){
+        return new ElementSpliterator(root);
     }
 
-    public static ArrayList<String> getLinksStringArray() {
-        ArrayList<String> arr = new ArrayList<>(linksStringArray);
-        linksStringArray.clear();
-        return arr;
+    /**
+     * Works like {@link TreeTraverser#iterator(Element)}, as a sequential Stream. Made parallel, the parts of the tree
+     * are searched on the common fork/join pool and still come out in document order
+     * @param root the element to start from, or null for none
+     * @return the element and everything inside it, in document order
+     */
+    public static Stream<Element> stream(Element root){
+        return StreamSupport.stream(spliterator(root), false);
     }
 
-    public static Boolean traversingContainsAsBoolean(Element node, String searchString) {
-
-        for (int j = 0; j < node.getStringChildren().size(); j++){
-            if (node.getStringChildren().get(j).contains(searchString)) {
-                containsVar = true;
-                break;
-            }
-        }
-
-        if (!containsVar)
-            for (int i = 0; i < node.getNodeChildren().size(); i++) {
-                traversingContainsAsBoolean(node.getNodeChildren().get(i), searchString);
-            }
-        Boolean returnContainsVar = containsVar;
-        containsVar = false;
-        return returnContainsVar;
+    // the elements the matcher accepts, it is called once for each element in document order, also when the stream is split,
+    // so it may keep what it has seen
+    static Stream<Element> stream(Element root, Matcher matcher){
+        Spliterator<Element> elements = Spliterators.spliteratorUnknownSize(new Matching(root, matcher), Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(elements, false);
     }
 
-    public static Boolean traversingContainsCaseInSensetiveAsBoolean(Element node, String searchString) {
-
-        String SS = searchString.toLowerCase();
-
-        for (int j = 0; j < node.getStringChildren().size(); j++){
-            if (node.getStringChildren().get(j).toLowerCase().contains(SS)) {
-                containsVar = true;
-                break;
-            }
-        }
-
-        if (!containsVar)
-            for (int i = 0; i < node.getNodeChildren().size(); i++) {
-                traversingContainsCaseInSensetiveAsBoolean(node.getNodeChildren().get(i), searchString);
-            }
-
-        Boolean returnContainsVar = containsVar;
-        containsVar = false;
-        return returnContainsVar;
+    static Stream<String> texts(Element node){
+        return node.getStringChildren().stream();
     }
 
-    public static void traversingGetAllImagesFromPageAsString(Element node) {
-        String tag = "img";
-
-        if (node.getTag().equals(tag)){
-            ImgStringArray.add(node.getAttributes().get("src"));
-        }
-        for (int i=0; i<node.getNodeChildren().size(); i++){
-            traversingGetAllImagesFromPageAsString(node.getNodeChildren().get(i));
-        }
+    static Stream<Element> oncePerText(Element node){
+        return Collections.nCopies(node.getStringChildCount(), node).stream();
     }
 
-    public static ArrayList<String> getImgStringArray() {
-        ArrayList<String> arr = new ArrayList<>(ImgStringArray);
-        ImgStringArray.clear();
-        return arr;
+    static void addTexts(Element node, ArrayList<String> result){
+        for (int i = 0; i < node.getStringChildCount(); i++)
+            result.add(node.getStringChild(i));
     }
 
-    public static String traversingGetImageByIdAsString(Element node, String pictureId) {
-
-        if (node.getAttributeNames().contains("id")){
-            if (node.getAttributes().get("id").equals(pictureId)) {
-                srcString = node.getAttributes().get("src");
-
-                returnImgSrcString = srcString;
-                srcString = "";
-                return returnImgSrcString;
-                }
-            }
-
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetImageByIdAsString(node.getNodeChildren().get(i), pictureId);
-        }
+    // an element is added once for each of its text children, as it always has been
+    static void addOncePerText(Element node, ArrayList<Element> result){
+        for (int i = 0; i < node.getStringChildCount(); i++)
+            result.add(node);
+    }
 
-        return returnImgSrcString;
+    public static ArrayList<String> traversingGetContentFromTagAsString(Element node, String tag){
+        int tagId = TagRegistry.idOf(tag);
+        ArrayList<String> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            if (TagRegistry.hasTag(element, tag, tagId))
+                addTexts(element, result);
+            return CONTINUE;
+        });
+        return result;
     }
 
-    public static void traversingGetImageByClassAsString(Element node, String pictureClass) {
+    public static ArrayList<String> traversingGetContentFromIdAsString(Element node, String id) {
+        return contentFromAttributeAsString(node, "id", id);
+    }
 
-        if (node.getAttributeNames().contains("class")){
-            if (node.getAttributes().get("class").equals(pictureClass)) {
-                ImgClassStringArray.add(node.getAttributes().get("src"));
-            }
-        }
+    public static ArrayList<String> traversingGetContentFromClassAsString(Element node, String className) {
+        return contentFromAttributeAsString(node, "class", className);
+    }
 
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetImageByClassAsString(node.getNodeChildren().get(i), pictureClass);
-        }
+    private static ArrayList<String> contentFromAttributeAsString(Element node, String name, String value) {
+        ArrayList<String> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            if (element.attributeEquals(name, value))
+                addTexts(element, result);
+            return CONTINUE;
+        });
+        return result;
     }
 
-    public static ArrayList<String> getImgClassStringArray() {
-        ArrayList<String> arr = new ArrayList<>(ImgClassStringArray);
-        ImgClassStringArray.clear();
-        return arr;
+    public static ArrayList<String> traversingGetLinksInPageAsString(Element node, String url){
+        ArrayList<String> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            if (element.getTagId() == TagRegistry.A)
+                addLink(element, url, result);
+            return CONTINUE;
+        });
+        return result;
     }
 
-    public static void traversingGetAllVideosFromPageAsString(Element node) {
-        String tag = "video";
+    // links starting with / or # are relative to the url of the page
+    static void addLink(Element node, String url, ArrayList<String> result){
+        if (!node.hasAttribute("href"))
+            return;
+        String href = node.getAttributes().get("href");
+        char start = href.charAt(0);
+        if (start == '/' || start == '#')
+            result.add(url + href);
+        else
+            result.add(href);
+    }
 
-        if (node.getTag().equals(tag)){
-            if (!node.getNodeChildren().isEmpty()){
-                if (node.getNodeChildren().get(0).getTag().equals("source")){
-                    VideoStringArray.add(node.getNodeChildren().get(0).getAttributes().get("src"));
-                }
-            }
-            else
-                VideoStringArray.add(node.getAttributes().get("src"));
-        }
-        for (int i=0; i<node.getNodeChildren().size(); i++){
-            traversingGetAllVideosFromPageAsString(node.getNodeChildren().get(i));
-        }
+    public static boolean traversingContainsAsBoolean(Element node, String searchString) {
+        return walk(node, (element, depth) -> {
+            for (int i = 0; i < element.getStringChildCount(); i++)
+                if (element.getStringChild(i).contains(searchString))
+                    return STOP;
+            return CONTINUE;
+        });
     }
 
-    public static ArrayList<String> getVideoStringArray() {
-        ArrayList<String> arr = new ArrayList<>(VideoStringArray);
-        VideoStringArray.clear();
-        return arr;
+    public static boolean traversingContainsCaseInSensetiveAsBoolean(Element node, String searchString) {
+        String lowerCase = searchString.toLowerCase();
+        return walk(node, (element, depth) -> {
+            for (int i = 0; i < element.getStringChildCount(); i++)
+                if (element.getStringChild(i).toLowerCase().contains(lowerCase))
+                    return STOP;
+            return CONTINUE;
+        });
     }
 
-    public static String traversingGetVideoByIdAsString(Element node, String videoId) {
-        if (node.getAttributeNames().contains("id")){
-            if (node.getAttributes().get("id").equals(videoId)) {
-                if (!node.getNodeChildren().isEmpty()) {
-                    if (node.getNodeChildren().get(0).getTag().equals("source")) {
-                        srcString = node.getNodeChildren().get(0).getAttributes().get("src");
-                        returnSrcString = srcString;
-                        srcString = "";
-                        return returnSrcString;
-                    }
-                }
-                else {
-                    srcString = node.getAttributes().get("src");
-                    returnSrcString = srcString;
-                    srcString = "";
-                    return returnSrcString;
+    public static ArrayList<String> traversingGetAllImagesFromPageAsString(Element node) {
+        ArrayList<String> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            if (element.getTagId() == TagRegistry.IMG)
+                result.add(element.getAttributes().get("src"));
+            return CONTINUE;
+        });
+        return result;
+    }
 
-                }
+    /**
+     * @return the src of the first element with the id, or an empty String if there is none
+     */
+    public static String traversingGetImageByIdAsString(Element node, String pictureId) {
+        Element image = traversingGetImageByIdAsNode(node, pictureId);
+        return image == null ? "" : image.getAttributes().get("src");
+    }
+
+    public static ArrayList<String> traversingGetImageByClassAsString(Element node, String pictureClass) {
+        ArrayList<String> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            if (element.attributeEquals("class", pictureClass))
+                result.add(element.getAttributes().get("src"));
+            return CONTINUE;
+        });
+        return result;
+    }
+
+    public static ArrayList<String> traversingGetAllVideosFromPageAsString(Element node) {
+        ArrayList<String> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            if (element.getTagId() == TagRegistry.VIDEO){
+                Element source = videoSource(element);
+                if (source != null)
+                    result.add(source.getAttributes().get("src"));
             }
-        }
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetVideoByIdAsString(node.getNodeChildren().get(i), videoId);
-        }
-
-        return returnSrcString;
+            return CONTINUE;
+        });
+        return result;
     }
 
-    public static void traversingGetVideoByClassAsString(Element node, String videoClass) {
-        if (node.getAttributeNames().contains("class")){
-            if (node.getAttributes().get("class").equals(videoClass)) {
-                if (!node.getNodeChildren().isEmpty()) {
-                    if (node.getNodeChildren().get(0).getTag().equals("source")) {
-                        VideoClassStringArray.add(node.getNodeChildren().get(0).getAttributes().get("src"));
-                    }
+    /**
+     * @return the src of the first video with the id, taken from its source element if it has one, or an empty String if there is none
+     */
+    public static String traversingGetVideoByIdAsString(Element node, String videoId) {
+        String[] found = {""};
+        walk(node, (element, depth) -> {
+            if (element.attributeEquals("id", videoId)){
+                Element source = videoSource(element);
+                if (source != null){
+                    found[0] = source.getAttributes().get("src");
+                    return STOP;
                 }
-                else
-                    VideoClassStringArray.add(node.getAttributes().get("src"));
             }
-        }
-
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetVideoByClassAsString(node.getNodeChildren().get(i), videoClass);
-        }
+            return CONTINUE;
+        });
+        return found[0];
+    }
+
+    // the element holding the src of a video: the video itself when it has no children, or the source element that is its first child.
+    // null for other elements
+    static Element videoSource(Element node) {
+        if (node.getNodeChildCount() == 0)
+            return node;
+        Element first = node.getNodeChild(0);
+        return first.getTagId() == TagRegistry.SOURCE ? first : null;
+    }
+
+    public static ArrayList<String> traversingGetVideoByClassAsString(Element node, String videoClass) {
+        ArrayList<String> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            if (element.attributeEquals("class", videoClass)){
+                Element source = videoSource(element);
+                if (source != null)
+                    result.add(source.getAttributes().get("src"));
+            }
+            return CONTINUE;
+        });
+        return result;
     }
 
-    public static ArrayList<String> getVideoClassStringArray() {
-        ArrayList<String> arr = new ArrayList<>(VideoClassStringArray);
-        VideoClassStringArray.clear();
-        return arr;
+    /**
+     * @return the distinct classes, in the order they first appear
+     */
+    public static ArrayList<String> traversingGetClassesInPage(Element node) {
+        return attributeValuesInPage(node, "class");
     }
 
-
-    public static void traversingGetClassesInPage(Element node) {
-        if (node.getAttributeNames().contains("class")){
-            if (!AllClassArray.contains(node.getAttributes().get("class"))) {
-                AllClassArray.add(node.getAttributes().get("class"));
-            }
-        }
-
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetClassesInPage(node.getNodeChildren().get(i));
-        }
+    /**
+     * @return the distinct ids, in the order they first appear
+     */
+    public static ArrayList<String> traversingGetIdsInPage(Element node) {
+        return attributeValuesInPage(node, "id");
     }
 
-    public static ArrayList<String> getAllClassArray() {
-        ArrayList<String> arr = new ArrayList<>(AllClassArray);
-        AllClassArray.clear();
-        return arr;
+    private static ArrayList<String> attributeValuesInPage(Element node, String name) {
+        LinkedHashSet<String> result = new LinkedHashSet<>();
+        walk(node, (element, depth) -> {
+            if (element.hasAttribute(name))
+                result.add(element.getAttributes().get(name));
+            return CONTINUE;
+        });
+        return new ArrayList<>(result);
     }
 
-    public static void traversingGetIdsInPage(Element node) {
-        if (node.getAttributeNames().contains("id")){
-            if (!AllIdArray.contains(node.getAttributes().get("id"))) {
-                AllIdArray.add(node.getAttributes().get("id"));
-            }
-        }
 
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetIdsInPage(node.getNodeChildren().get(i));
-        }
+    public static ArrayList<Element> traversingGetContentFromTagAsNode(Element node, String tag){
+        int tagId = TagRegistry.idOf(tag);
+        ArrayList<Element> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            if (TagRegistry.hasTag(element, tag, tagId))
+                addOncePerText(element, result);
+            return CONTINUE;
+        });
+        return result;
     }
 
-    public static ArrayList<String> getAllIdsArray() {
-        ArrayList<String> arr = new ArrayList<>(AllIdArray);
-        AllIdArray.clear();
-        return arr;
+    public static ArrayList<Element> traversingGetContentFromIdAsNode(Element node, String id) {
+        return contentFromAttributeAsNode(node, "id", id);
     }
 
-
-    public static void traversingGetContentFromTagAsNode(Element node, String tag){
-
-        if (node.getTag().equals(tag)){
-            for(int i = 0; i < node.getStringChildren().size(); i++) {
-                tagNodeArray.add(node);
-            }
-        }
-        for (int i=0; i<node.getNodeChildren().size(); i++){
-            traversingGetContentFromTagAsNode(node.getNodeChildren().get(i),tag);
-        }
+    public static ArrayList<Element> traversingGetContentFromClassAsNode(Element node, String className) {
+        return contentFromAttributeAsNode(node, "class", className);
     }
 
-
-    public static ArrayList<Element> getTagNodeArray() {
-        ArrayList<Element> arr = new ArrayList<>(tagNodeArray);
-        tagNodeArray.clear();
-        return arr;
-
+    private static ArrayList<Element> contentFromAttributeAsNode(Element node, String name, String value) {
+        ArrayList<Element> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            if (element.attributeEquals(name, value))
+                addOncePerText(element, result);
+            return CONTINUE;
+        });
+        return result;
     }
 
-    public static void traversingGetContentFromIdAsNode(Element node, String id) {
-
-        if (node.getAttributeNames().contains("id")){
-            if (node.getAttributes().get("id").equals(id)) {
-                for(int i = 0; i < node.getStringChildren().size(); i++) {
-                    idNodeArray.add(node);
-                }
-            }
-        }
-
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetContentFromIdAsNode(node.getNodeChildren().get(i), id);
-        }
+    public static ArrayList<Element> traversingGetLinksInPageAsNode(Element node){
+        return elementsWithTag(node, TagRegistry.A);
     }
 
-
-    public static ArrayList<Element> getIdNodeArray() {
-        ArrayList<Element> arr = new ArrayList<>(idNodeArray);
-        idNodeArray.clear();
-        return arr;
-
+    public static ArrayList<Element> traversingGetAllImagesFromPageAsNode(Element node) {
+        return elementsWithTag(node, TagRegistry.IMG);
     }
 
-    public static void traversingGetContentFromClassAsNode(Element node, String className) {
-        if (node.getAttributeNames().contains("class")){
-            if (node.getAttributes().get("class").equals(className)) {
-                for(int i = 0; i < node.getStringChildren().size(); i++) {
-                    classNodeArray.add(node);
-                }
-            }
-        }
-
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetContentFromClassAsNode(node.getNodeChildren().get(i), className);
-        }
+    public static ArrayList<Element> traversingGetAllVideosFromPageAsNode(Element node) {
+        return elementsWithTag(node, TagRegistry.VIDEO);
     }
 
-
-    public static ArrayList<Element> getClassNodeArray() {
-        ArrayList<Element> arr = new ArrayList<>(classNodeArray);
-        classNodeArray.clear();
-        return arr;
-
+    private static ArrayList<Element> elementsWithTag(Element node, int tagId){
+        ArrayList<Element> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            if (element.getTagId() == tagId)
+                result.add(element);
+            return CONTINUE;
+        });
+        return result;
     }
 
-    public static void traversingGetLinksInPageAsNode(Element node){
-        String tag = "a";
-
-        if (node.getTag().equals(tag)){
-            linksNodeArray.add(node);
-        }
-        for (int i=0; i<node.getNodeChildren().size(); i++){
-            traversingGetLinksInPageAsNode(node.getNodeChildren().get(i));
-        }
+    public static ArrayList<Element> traversingContainsAsNode(Element node, String searchString) {
+        ArrayList<Element> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            // an element is added once for each of its text children containing the string, as it always has been
+            for (int i = 0; i < element.getStringChildCount(); i++)
+                if (element.getStringChild(i).contains(searchString))
+                    result.add(element);
+            return CONTINUE;
+        });
+        return result;
     }
 
-
-    public static ArrayList<Element> getLinksNodeArray() {
-        ArrayList<Element> arr = new ArrayList<>(linksNodeArray);
-        linksNodeArray.clear();
-        return arr;
-
+    public static ArrayList<Element> traversingContainsCaseInSensetiveAsNode(Element node, String searchString) {
+        String lowerCase = searchString.toLowerCase();
+        ArrayList<Element> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            for (int i = 0; i < element.getStringChildCount(); i++)
+                if (element.getStringChild(i).toLowerCase().contains(lowerCase))
+                    result.add(element);
+            return CONTINUE;
+        });
+        return result;
     }
 
-    public static void traversingContainsAsNode(Element node, String searchString) {
-
-        for (int j = 0; j < node.getStringChildren().size(); j++){
-            if (node.getStringChildren().get(j).contains(searchString)) {
-                ContainsNodeArray.add(node);
-            }
-        }
-
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingContainsAsNode(node.getNodeChildren().get(i), searchString);
-        }
+    public static Stream<String> streamingGetContentFromTagAsString(Element node, String tag){
+        return withTag(node, tag).flatMap(TreeTraverser::texts);
     }
 
-
-    public static ArrayList<Element> getContainsNodeArray() {
-        ArrayList<Element> arr = new ArrayList<>(ContainsNodeArray);
-        ContainsNodeArray.clear();
-        return arr;
-
+    public static Stream<String> streamingGetContentFromIdAsString(Element node, String id){
+        return withAttribute(node, "id", id).flatMap(TreeTraverser::texts);
     }
 
-    public static void traversingContainsCaseInSensetiveAsNode(Element node, String searchString) {
-
-        String SS = searchString.toLowerCase();
+    public static Stream<String> streamingGetContentFromClassAsString(Element node, String className){
+        return withAttribute(node, "class", className).flatMap(TreeTraverser::texts);
+    }
 
-        for (int j = 0; j < node.getStringChildren().size(); j++){
-            if (node.getStringChildren().get(j).toLowerCase().contains(SS)) {
-                ContainsCaseInSensitiveNodeArray.add(node);
-            }
-        }
+    public static Stream<Element> streamingGetContentFromTagAsNode(Element node, String tag){
+        return withTag(node, tag).flatMap(TreeTraverser::oncePerText);
+    }
 
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingContainsCaseInSensetiveAsNode(node.getNodeChildren().get(i), searchString);
-        }
+    public static Stream<Element> streamingGetContentFromIdAsNode(Element node, String id){
+        return withAttribute(node, "id", id).flatMap(TreeTraverser::oncePerText);
     }
 
+    public static Stream<Element> streamingGetContentFromClassAsNode(Element node, String className){
+        return withAttribute(node, "class", className).flatMap(TreeTraverser::oncePerText);
+    }
 
-    public static ArrayList<Element> getContainsCaseInSensitiveNodeArray() {
-        ArrayList<Element> arr = new ArrayList<>(ContainsCaseInSensitiveNodeArray);
-        ContainsCaseInSensitiveNodeArray.clear();
-        return arr;
+    public static Stream<Element> streamingGetLinksInPageAsNode(Element node){
+        return withTagId(node, TagRegistry.A);
+    }
 
+    public static Stream<Element> streamingGetAllImagesFromPageAsNode(Element node){
+        return withTagId(node, TagRegistry.IMG);
     }
 
-    public static void traversingGetAllImagesFromPageAsNode(Element node) {
-        String tag = "img";
+    public static Stream<Element> streamingGetAllVideosFromPageAsNode(Element node){
+        return withTagId(node, TagRegistry.VIDEO);
+    }
 
-        if (node.getTag().equals(tag)){
-            ImgNodeArray.add(node);
-        }
-        for (int i=0; i<node.getNodeChildren().size(); i++){
-            traversingGetAllImagesFromPageAsNode(node.getNodeChildren().get(i));
-        }
+    private static Stream<Element> withTag(Element node, String tag){
+        int tagId = TagRegistry.idOf(tag);
+        return stream(node).filter(element -> TagRegistry.hasTag(element, tag, tagId));
     }
 
+    private static Stream<Element> withTagId(Element node, int tagId){
+        return stream(node).filter(element -> element.getTagId() == tagId);
+    }
 
-    public static ArrayList<Element> getImgNodeArray() {
-        ArrayList<Element> arr = new ArrayList<>(ImgNodeArray);
-        ImgNodeArray.clear();
-        return arr;
+    private static Stream<Element> withAttribute(Element node, String name, String value){
+        return stream(node).filter(element -> element.attributeEquals(name, value));
+    }
 
+    public static Stream<Element> streamingContainsAsNode(Element node, String searchString){
+        return stream(node).flatMap(element -> {
+            // once for each text child containing the string, like traversingContainsAsNode
+            int count = 0;
+            for (int i = 0; i < element.getStringChildCount(); i++)
+                if (element.getStringChild(i).contains(searchString))
+                    count++;
+            return Collections.nCopies(count, element).stream();
+        });
     }
 
+    /**
+     * @return the first element with the id, or null if there is none
+     */
     public static Element traversingGetImageByIdAsNode(Element node, String pictureId) {
-
-        if (node.getAttributeNames().contains("id")){
-            if (node.getAttributes().get("id").equals(pictureId)) {
-                srcNode = node;
-                Element returnSrcNode = srcNode;
-                srcString = null;
-                return returnSrcNode;
+        Element[] found = new Element[1];
+        walk(node, (element, depth) -> {
+            if (element.attributeEquals("id", pictureId)){
+                found[0] = element;
+                return STOP;
             }
-        }
-
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetImageByIdAsNode(node.getNodeChildren().get(i), pictureId);
-        }
-        Element returnSrcNode = srcNode;
-        srcString = null;
-        return returnSrcNode;
+            return CONTINUE;
+        });
+        return found[0];
     }
 
-    public static void traversingGetImageByClassAsNode(Element node, String pictureClass) {
-
-        if (node.getAttributeNames().contains("class")){
-            if (node.getAttributes().get("class").equals(pictureClass)) {
-                ImgClassNodeArray.add(node);
-            }
-        }
-
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetImageByClassAsNode(node.getNodeChildren().get(i), pictureClass);
-        }
+    public static ArrayList<Element> traversingGetImageByClassAsNode(Element node, String pictureClass) {
+        return elementsWithClass(node, pictureClass);
     }
 
-
-    public static ArrayList<Element> getImgClassNodeArray() {
-        ArrayList<Element> arr = new ArrayList<>(ImgClassNodeArray);
-        ImgClassNodeArray.clear();
-        return arr;
-
+    /**
+     * @return the first element with the id, or null if there is none
+     */
+    public static Element traversingGetVideoByIdAsNode(Element node, String videoId) {
+        return traversingGetImageByIdAsNode(node, videoId);
     }
 
-    public static void traversingGetAllVideosFromPageAsNode(Element node) {
-        String tag = "video";
-
-        if (node.getTag().equals(tag)){
-                VideoNodeArray.add(node);
-        }
-        for (int i=0; i<node.getNodeChildren().size(); i++){
-            traversingGetAllVideosFromPageAsNode(node.getNodeChildren().get(i));
-        }
+    public static ArrayList<Element> traversingGetVideoByClassAsNode(Element node, String videoClass) {
+        return elementsWithClass(node, videoClass);
     }
 
-
-    public static ArrayList<Element> getVideoNodeArray() {
-        ArrayList<Element> arr = new ArrayList<>(VideoNodeArray);
-        VideoNodeArray.clear();
-        return arr;
-
+    private static ArrayList<Element> elementsWithClass(Element node, String className) {
+        ArrayList<Element> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            if (element.attributeEquals("class", className))
+                result.add(element);
+            return CONTINUE;
+        });
+        return result;
     }
 
-    public static Element traversingGetVideoByIdAsNode(Element node, String videoId) {
-        if (node.getAttributeNames().contains("id")){
-            if (node.getAttributes().get("id").equals(videoId)) {
-                srcNode = node;
-                Element returnSrcNode = srcNode;
-                srcNode = null;
-                return returnSrcNode;
-            }
-        }
-
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetVideoByIdAsNode(node.getNodeChildren().get(i), videoId);
-        }
+    public static ArrayList<Element> traversingGetAttributeContentWithTagAndNameAsNode(Element node, String tag, String attribute) {
+        ArrayList<Element> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            if (element.getTag().contains(tag) && element.hasAttribute(attribute))
+                result.add(element);
+            return CONTINUE;
+        });
+        return result;
+    }
 
-        Element returnSrcNode = srcNode;
-        srcNode = null;
-        return returnSrcNode;
+    public static ArrayList<String> traversingGetAttributeContentWithTagAndNameAsString(Element node, String tag, String attribute) {
+        ArrayList<String> result = new ArrayList<>();
+        for (Element found : traversingGetAttributeContentWithTagAndNameAsNode(node, tag, attribute))
+            result.add(found.getAttributes().get(attribute));
+        return result;
     }
 
-    public static void traversingGetVideoByClassAsNode(Element node, String videoClass) {
-        if (node.getAttributeNames().contains("class")){
-            if (node.getAttributes().get("class").equals(videoClass)) {
-                VideoClassNodeArray.add(node);
-            }
-        }
+    public static ArrayList<String> traversingGetAttributeContentWithIdAndNameAsString(Element node, String id, String attribute) {
+        ArrayList<String> result = new ArrayList<>();
+        walk(node, (element, depth) -> {
+            if (element.attributeEquals("id", id) && element.hasAttribute(attribute))
+                result.add(element.getAttributes().get(attribute));
+            return CONTINUE;
+        });
+        return result;
+    }
 
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetVideoByClassAsNode(node.getNodeChildren().get(i), videoClass);
-        }
+    static ArrayList<String> textsOf(List<Element> elements) {
+        ArrayList<String> result = new ArrayList<>();
+        for (Element element : elements)
+            addTexts(element, result);
+        return result;
     }
 
+    static ArrayList<Element> oncePerTextOf(List<Element> elements) {
+        ArrayList<Element> result = new ArrayList<>();
+        for (Element element : elements)
+            addOncePerText(element, result);
+        return result;
+    }
 
-    public static ArrayList<Element> getVideoClassNodeArray() {
-        ArrayList<Element> arr = new ArrayList<>(VideoClassNodeArray);
-        VideoClassNodeArray.clear();
-        return arr;
+    static ArrayList<String> linksOf(List<Element> links, String url) {
+        ArrayList<String> result = new ArrayList<>();
+        for (Element link : links)
+            addLink(link, url, result);
+        return result;
     }
 
-    public static void traversingGetAttributeContentWithTagAndNameAsNode(Element node, String tag, String attribute) {
+    /**
+     * @return the value of the attribute of each element, null for the elements without it
+     */
+    static ArrayList<String> attributeOf(List<Element> elements, String name) {
+        ArrayList<String> result = new ArrayList<>(elements.size());
+        for (Element element : elements)
+            result.add(element.getAttributes().get(name));
+        return result;
+    }
 
-        if (node.getTag().contains(tag)){
-            if (node.getAttributeNames().contains(attribute)) {
-                AttributeContentNodeArray.add(node);
-            }
-        }
+    /**
+     * @return the value of the attribute of each element that has it
+     */
+    static ArrayList<String> presentAttributeOf(List<Element> elements, String name) {
+        ArrayList<String> result = new ArrayList<>();
+        for (Element element : elements)
+            if (element.hasAttribute(name))
+                result.add(element.getAttributes().get(name));
+        return result;
+    }
 
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetAttributeContentWithTagAndNameAsNode(node.getNodeChildren().get(i), tag, attribute);
+    static ArrayList<String> videoSourcesOf(List<Element> videos) {
+        ArrayList<String> result = new ArrayList<>();
+        for (Element video : videos){
+            Element source = videoSource(video);
+            if (source != null)
+                result.add(source.getAttributes().get("src"));
         }
+        return result;
     }
 
+    /**
+     * @return the src of the first of the elements that is a video, or an empty String if none is
+     */
+    static String firstVideoSourceOf(List<Element> elements) {
+        for (Element element : elements){
+            Element source = videoSource(element);
+            if (source != null)
+                return source.getAttributes().get("src");
+        }
+        return "";
+    }
+
+    // decides for each element of a walk if a stream or iterator gives it
+    interface Matcher {
+        boolean matches(Element element, int depth);
+    }
+
+    // the walk of TreeTraverser#walk one element at a time, giving the elements the matcher accepts
+    private static final class Matching implements Iterator<Element> {
 
-    public static ArrayList<Element> getAttributeContentNodeArray() {
-        ArrayList<Element> arr = new ArrayList<>(AttributeContentNodeArray);
-        AttributeContentNodeArray.clear();
-        return arr;
+        private final Matcher matcher;
+        private Element root;
+        // the element given last, its children are visited next
+        private Element last;
+        private int lastDepth;
+        private Element next;
 
-    }
+        private Element[] stack = new Element[16];
+        private int[] nextChild = new int[16];
+        private int depth = 0;
+
+        Matching(Element root, Matcher matcher) {
+            this.root = root;
+            this.matcher = matcher;
+        }
 
-    public static void traversingGetAttributeContentWithTagAndNameAsString(Element node, String tag, String attribute) {
-        if (node.getTag().contains(tag)){
-            if (node.getAttributeNames().contains(attribute)) {
-                AttributeContentStringArray.add(node.getAttributes().get(attribute));
+        @Override
+        public boolean hasNext() {
+            while (next == null){
+                Element element = advance();
+                if (element == null)
+                    return false;
+                if (matcher.matches(element, lastDepth))
+                    next = element;
             }
+            return true;
         }
 
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetAttributeContentWithTagAndNameAsString(node.getNodeChildren().get(i), tag, attribute);
+        @Override
+        public Element next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Element element = next;
+            next = null;
+            return element;
         }
-    }
 
-    public static ArrayList<String> getAttributeContentStringArray() {
-        ArrayList<String> arr = new ArrayList<>(AttributeContentStringArray);
-        AttributeContentStringArray.clear();
-        return arr;
-    }
+        // the element after the one visited last, in document order, or null at the end of the walk
+        private Element advance() {
+            if (root != null){
+                last = root;
+                root = null;
+                lastDepth = 0;
+                return last;
+            }
+            if (last == null)
+                return null;
 
-    public static void traversingGetAttributeContentWithIdAndNameAsString(Element node, String id, String attribute) {
-        if (node.getAttributeNames().contains("id")){
-            if (node.getAttributes().get("id").equals(id)) {
-                 if (node.getAttributeNames().contains(attribute)) {
-                     AttributeIdContentStringArray.add(node.getAttributes().get(attribute));
-                 }
+            if (last.getNodeChildCount() > 0){
+                if (depth == stack.length){
+                    stack = Arrays.copyOf(stack, depth * 2);
+                    nextChild = Arrays.copyOf(nextChild, depth * 2);
+                }
+                stack[depth] = last;
+                nextChild[depth++] = 0;
             }
-        }
 
-        for (int i = 0; i < node.getNodeChildren().size(); i++) {
-            traversingGetAttributeContentWithIdAndNameAsString(node.getNodeChildren().get(i), id, attribute);
+            while (depth > 0){
+                Element node = stack[depth - 1];
+                int child = nextChild[depth - 1];
+                if (child == node.getNodeChildCount()){
+                    stack[--depth] = null;
+                    continue;
+                }
+                nextChild[depth - 1] = child + 1;
+                last = node.getNodeChild(child);
+                lastDepth = depth;
+                return last;
+            }
+            last = null;
+            return null;
         }
     }
-
-    public static ArrayList<String> getAttributeIdContentStringArray() {
-        return AttributeIdContentStringArray;
-    }
 }
@@ -0,0 +1,352 @@
+package Scraper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static Scraper.ElementVisitor.Next.CONTINUE;
+
+/**
+ * XPath: an XPath expression compiled into an evaluator over a tree of {@link Element}s, see {@link Scraper#getXPathAsNode(String)}.
+ * An expression is parsed once by {@link XPath#compile(String)}, which keeps the last expressions it compiled.
+ * <p>
+ * The subset supported is location paths, absolute or relative to the element the search starts from, with the steps
+ * name, *, node(), . and .., the axes child, descendant, descendant-or-self, self, parent, ancestor, ancestor-or-self,
+ * following-sibling and preceding-sibling, and // for /descendant-or-self::node()/. The last step may be text() or @name
+ * to get the texts or the attribute values of the elements. Predicates are numbers, last(), position(), @name, text() and child names,
+ * compared with = != &lt; &lt;= &gt; &gt;= to strings and numbers, contains() and starts-with(), and combined with and, or, not() and brackets.
+ * An element has no string value of its own in this tree, as its texts are not kept in order with its children,
+ * so . can not be compared, text() gives the texts directly inside an element.
+ * <p>
+ * The elements go through the steps one at a time, each step handing the elements it finds straight to the next one,
+ * so no set of elements is built between the steps. Only a step with a position in a predicate collects its elements,
+ * for one element at a time, as position() and last() count among them. A descendant step followed by a child step without one
+ * is evaluated as a single descendant step, so //p is one walk. Paths that can find an element twice are made distinct,
+ * and paths that can find the elements out of order are put in document order at the end. The ancestor and sibling axes follow {@link Element#getParent()}.
+ * @author Joakim Jensen
+ * @version 1.0
+ * @see Scraper#getXPathAsNode(String)
+ * @see Scraper#getXPathAsString(String)
+ */
+public final class XPath {
+
+    private static final int CACHE_SIZE = 256;
+
+    // the expressions compiled last, the one used longest ago is dropped first
+    private static final Map<String, XPath> cache = Collections.synchronizedMap(new LinkedHashMap<String, XPath>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, XPath> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+
+    static final int CHILD = 0;
+    static final int DESCENDANT = 1;
+    static final int DESCENDANT_OR_SELF = 2;
+    static final int SELF = 3;
+    static final int PARENT = 4;
+    static final int ANCESTOR = 5;
+    static final int ANCESTOR_OR_SELF = 6;
+    static final int FOLLOWING_SIBLING = 7;
+    static final int PRECEDING_SIBLING = 8;
+
+    static final String[] AXES = {"child", "descendant", "descendant-or-self", "self", "parent",
+            "ancestor", "ancestor-or-self", "following-sibling", "preceding-sibling"};
+
+    // what the last step gives: the elements, their texts, or the values of an attribute
+    static final int ELEMENTS = 0;
+    static final int TEXTS = 1;
+    static final int ATTRIBUTES = 2;
+
+    private final String expression;
+    private final boolean absolute;
+    private final Step[] steps;
+    private final int result;
+    private final String attribute;
+
+    // true if the steps always find the elements in document order, once each
+    private final boolean ordered;
+    // true if the steps find each element once, in any order
+    private final boolean distinct;
+
+    XPath(String expression, boolean absolute, List<Step> steps, int result, String attribute) {
+        this.expression = expression;
+        this.absolute = absolute;
+        this.steps = optimize(steps).toArray(new Step[0]);
+        this.result = result;
+        this.attribute = attribute;
+        this.ordered = isOrdered(this.steps);
+        this.distinct = isDistinct(this.steps);
+    }
+
+    /**
+     * @param expression the XPath expression
+     * @return the compiled expression, the same one for the same expression while it is kept
+     * @throws IllegalArgumentException if the expression is not valid or not supported
+     */
+    public static XPath compile(String expression) {
+        XPath xPath = cache.get(expression);
+        if (xPath == null){
+            xPath = new XPathParser(expression).parse();
+            cache.put(expression, xPath);
+        }
+        return xPath;
+    }
+
+    /**
+     * @return the expression as it was given
+     */
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    // descendant-or-self::node() followed by a child step without positions is the same as one descendant step
+    private static List<Step> optimize(List<Step> steps) {
+        ArrayList<Step> result = new ArrayList<>();
+        for (int i = 0; i < steps.size(); i++){
+            Step step = steps.get(i);
+            Step next = i + 1 < steps.size() ? steps.get(i + 1) : null;
+            if (step.axis == DESCENDANT_OR_SELF && step.tag == null && step.predicates.isEmpty()
+                    && next != null && next.axis == CHILD && !next.positional){
+                result.add(new Step(DESCENDANT, next.tag, next.anyElement, next.predicates));
+                i++;
+            }
+            else
+                result.add(step);
+        }
+        return result;
+    }
+
+    // child and self steps keep the elements in order, and so does a descendant step at the end, as the elements before it
+    // are all at the same depth and none is inside another
+    private static boolean isOrdered(Step[] steps) {
+        for (int i = 0; i < steps.length; i++){
+            int axis = steps[i].axis;
+            if (axis == CHILD || axis == SELF)
+                continue;
+            if (i == steps.length - 1 && (axis == DESCENDANT || axis == DESCENDANT_OR_SELF))
+                continue;
+            return false;
+        }
+        return true;
+    }
+
+    // any axis gives each element once from one element, and a child or self step keeps them apart, as an element has one parent
+    private static boolean isDistinct(Step[] steps) {
+        for (int i = 1; i < steps.length; i++)
+            if (steps[i].axis != CHILD && steps[i].axis != SELF)
+                return false;
+        return true;
+    }
+
+    /**
+     * @param context the element a relative expression starts from, an absolute one starts from the top of its tree
+     * @return the elements the expression finds, in document order. For an expression ending in text() or @name,
+     * the elements having a text or the attribute
+     */
+    public ArrayList<Element> selectNodes(Element context) {
+        if (context == null)
+            return new ArrayList<>();
+        Collection<Element> found = distinct ? new ArrayList<>() : new LinkedHashSet<>();
+
+        Element top = context;
+        while (top.getParent() != null)
+            top = top.getParent();
+        evaluate(0, absolute ? null : context, top, element -> {
+            if (element == null)
+                return;
+            if (result == TEXTS && element.getStringChildCount() == 0)
+                return;
+            if (result == ATTRIBUTES && !element.hasAttribute(attribute))
+                return;
+            found.add(element);
+        });
+
+        ArrayList<Element> elements = distinct ? (ArrayList<Element>) found : new ArrayList<>(found);
+        if (!ordered)
+            sortInDocumentOrder(elements, top);
+        return elements;
+    }
+
+    /**
+     * @param context the element a relative expression starts from, an absolute one starts from the top of its tree
+     * @return for an expression ending in @name the values of the attribute, for any other the texts directly inside the elements
+     * it finds, in document order
+     */
+    public ArrayList<String> selectStrings(Element context) {
+        ArrayList<String> strings = new ArrayList<>();
+        for (Element element : selectNodes(context)){
+            if (result == ATTRIBUTES)
+                strings.add(element.getAttributes().get(attribute));
+            else
+                TreeTraverser.addTexts(element, strings);
+        }
+        return strings;
+    }
+
+    // hands the elements step number step finds from the node to the next step, and the elements of the last step to the sink.
+    // null is the document above the top element
+    private void evaluate(int step, Element node, Element top, Sink sink) {
+        if (step == steps.length){
+            sink.accept(node);
+            return;
+        }
+        Step current = steps[step];
+
+        if (!current.positional){
+            current.axis(node, top, element -> {
+                if (current.test(element) && current.matches(element, 1, 1))
+                    evaluate(step + 1, element, top, sink);
+            });
+            return;
+        }
+
+        // position() and last() count among the elements the step finds from this node, after the predicates before
+        ArrayList<Element> onAxis = new ArrayList<>();
+        current.axis(node, top, element -> {
+            if (current.test(element))
+                onAxis.add(element);
+        });
+        ArrayList<Element> candidates = onAxis;
+        for (Predicate predicate : current.predicates){
+            ArrayList<Element> kept = new ArrayList<>();
+            for (int i = 0; i < candidates.size(); i++)
+                if (predicate.test(candidates.get(i), i + 1, candidates.size()))
+                    kept.add(candidates.get(i));
+            candidates = kept;
+        }
+        for (Element element : candidates)
+            evaluate(step + 1, element, top, sink);
+    }
+
+    private static void sortInDocumentOrder(ArrayList<Element> elements, Element top) {
+        if (elements.size() < 2)
+            return;
+
+        // the numbering of the tree when it still describes all the elements, or a numbering of its own otherwise
+        DocumentOrder order = top.getDocumentOrder();
+        boolean numbered = order != null && order.get(0) == top;
+        for (int i = 0; numbered && i < elements.size(); i++)
+            numbered = elements.get(i).getDocumentOrder() == order;
+        if (numbered){
+            elements.sort((a, b) -> Integer.compare(a.getPreOrder(), b.getPreOrder()));
+            return;
+        }
+        IdentityHashMap<Element, Integer> numbers = new IdentityHashMap<>();
+        TreeTraverser.walk(top, (element, depth) -> {
+            numbers.put(element, numbers.size());
+            return CONTINUE;
+        });
+        elements.sort((a, b) -> Integer.compare(numbers.get(a), numbers.get(b)));
+    }
+
+    interface Sink {
+        void accept(Element element);
+    }
+
+    // one step of a path: an axis, the elements it looks for, and the predicates they have to match
+    static final class Step {
+
+        final int axis;
+        // the tag, or null for * and node()
+        final String tag;
+        final int tagId;
+        // true for *, which does not match the document
+        final boolean anyElement;
+        final List<Predicate> predicates;
+        final boolean positional;
+
+        Step(int axis, String tag, boolean anyElement, List<Predicate> predicates) {
+            this.axis = axis;
+            this.tag = tag;
+            this.tagId = tag == null ? TagRegistry.UNKNOWN : TagRegistry.idOf(tag);
+            this.anyElement = anyElement;
+            this.predicates = predicates;
+            boolean positional = false;
+            for (Predicate predicate : predicates)
+                positional |= predicate.isPositional();
+            this.positional = positional;
+        }
+
+        boolean test(Element element) {
+            if (element == null)
+                return tag == null && !anyElement;
+            return tag == null || TagRegistry.hasTag(element, tag, tagId);
+        }
+
+        boolean matches(Element element, int position, int size) {
+            if (element == null)
+                return predicates.isEmpty();
+            for (Predicate predicate : predicates)
+                if (!predicate.test(element, position, size))
+                    return false;
+            return true;
+        }
+
+        // the elements on the axis from the node, in the order of the axis: document order, or nearest first for the ancestors and
+        // the siblings before it. The document, null, is the parent of the top element
+        void axis(Element node, Element top, Sink sink) {
+            switch (axis){
+                case CHILD:
+                    if (node == null)
+                        sink.accept(top);
+                    else
+                        for (int i = 0; i < node.getNodeChildCount(); i++)
+                            sink.accept(node.getNodeChild(i));
+                    break;
+                case DESCENDANT:
+                case DESCENDANT_OR_SELF:
+                    if (axis == DESCENDANT_OR_SELF && node == null)
+                        sink.accept(null);
+                    TreeTraverser.walk(node == null ? top : node, (element, depth) -> {
+                        if (depth > 0 || axis == DESCENDANT_OR_SELF || node == null)
+                            sink.accept(element);
+                        return CONTINUE;
+                    });
+                    break;
+                case SELF:
+                    sink.accept(node);
+                    break;
+                case PARENT:
+                    if (node != null)
+                        sink.accept(node == top ? null : node.getParent());
+                    break;
+                case ANCESTOR:
+                case ANCESTOR_OR_SELF:
+                    if (node == null){
+                        if (axis == ANCESTOR_OR_SELF)
+                            sink.accept(null);
+                        break;
+                    }
+                    for (Element element = axis == ANCESTOR ? node.getParent() : node; element != null; element = element.getParent())
+                        sink.accept(element);
+                    sink.accept(null);
+                    break;
+                default:
+                    Element parent = node == null || node == top ? null : node.getParent();
+                    if (parent == null)
+                        break;
+                    int index = parent.getNodeChildren().indexOf(node);
+                    if (axis == FOLLOWING_SIBLING)
+                        for (int i = index + 1; i < parent.getNodeChildCount(); i++)
+                            sink.accept(parent.getNodeChild(i));
+                    else
+                        for (int i = index - 1; i >= 0; i--)
+                            sink.accept(parent.getNodeChild(i));
+            }
+        }
+    }
+
+    // a predicate of a step, given the position of the element among those the step found and how many they are
+    interface Predicate {
+        boolean test(Element element, int position, int size);
+
+        boolean isPositional();
+    }
+}
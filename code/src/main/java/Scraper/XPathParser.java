@@ -0,0 +1,465 @@
+package Scraper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * XPathParser: parses the subset of XPath {@link XPath} supports into its steps and predicates.
+ * @author Joakim Jensen
+ * @version 1.0
+ * @see XPath#compile(String)
+ */
+final class XPathParser {
+
+    private final String expression;
+    private int position;
+
+    XPathParser(String expression) {
+        this.expression = expression;
+    }
+
+    XPath parse() {
+        ArrayList<XPath.Step> steps = new ArrayList<>();
+        boolean absolute = false;
+        int result = XPath.ELEMENTS;
+        String attribute = null;
+
+        skipWhitespace();
+        if (skip("//")){
+            absolute = true;
+            steps.add(descendantOrSelf());
+        }
+        else if (skip("/"))
+            absolute = true;
+
+        while (true){
+            skipWhitespace();
+            if (skip("@")){
+                result = XPath.ATTRIBUTES;
+                attribute = name();
+            }
+            else if (skip("text()"))
+                result = XPath.TEXTS;
+            else
+                steps.add(step());
+
+            skipWhitespace();
+            if (position == expression.length())
+                break;
+            if (result != XPath.ELEMENTS)
+                throw error("text() and @ can only be the last step");
+            if (skip("//"))
+                steps.add(descendantOrSelf());
+            else if (!skip("/"))
+                throw error("Unexpected '" + expression.charAt(position) + "'");
+        }
+        return new XPath(expression, absolute, steps, result, attribute);
+    }
+
+    private static XPath.Step descendantOrSelf() {
+        return new XPath.Step(XPath.DESCENDANT_OR_SELF, null, false, Collections.emptyList());
+    }
+
+    private XPath.Step step() {
+        if (skip(".."))
+            return new XPath.Step(XPath.PARENT, null, false, Collections.emptyList());
+        if (skip("."))
+            return new XPath.Step(XPath.SELF, null, false, Collections.emptyList());
+
+        int axis = XPath.CHILD;
+        int start = position;
+        if (position < expression.length() && isNameChar(expression.charAt(position))){
+            String name = name();
+            skipWhitespace();
+            if (skip("::")){
+                axis = indexOf(XPath.AXES, name);
+                if (axis < 0)
+                    throw error("Unsupported axis " + name);
+                skipWhitespace();
+            }
+            else
+                position = start;
+        }
+
+        String tag = null;
+        boolean anyElement = false;
+        if (skip("*"))
+            anyElement = true;
+        else if (!skip("node()"))
+            tag = name();
+
+        ArrayList<XPath.Predicate> predicates = new ArrayList<>();
+        skipWhitespace();
+        while (skip("[")){
+            predicates.add(or());
+            skipWhitespace();
+            expect("]");
+            skipWhitespace();
+        }
+        return new XPath.Step(axis, tag, anyElement, predicates);
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++)
+            if (names[i].equals(name))
+                return i;
+        return -1;
+    }
+
+    // predicates, from the loosest binding to the tightest
+
+    private XPath.Predicate or() {
+        XPath.Predicate left = and();
+        while (keyword("or")){
+            XPath.Predicate a = left;
+            XPath.Predicate b = and();
+            left = predicate((element, position, size) -> a.test(element, position, size) || b.test(element, position, size), a, b);
+        }
+        return left;
+    }
+
+    private XPath.Predicate and() {
+        XPath.Predicate left = primary();
+        while (keyword("and")){
+            XPath.Predicate a = left;
+            XPath.Predicate b = primary();
+            left = predicate((element, position, size) -> a.test(element, position, size) && b.test(element, position, size), a, b);
+        }
+        return left;
+    }
+
+    private XPath.Predicate primary() {
+        skipWhitespace();
+        if (skip("(")){
+            XPath.Predicate inner = or();
+            skipWhitespace();
+            expect(")");
+            return inner;
+        }
+        if (function("not")){
+            XPath.Predicate inner = or();
+            skipWhitespace();
+            expect(")");
+            return predicate((element, position, size) -> !inner.test(element, position, size), inner);
+        }
+        boolean contains = function("contains");
+        if (contains || function("starts-with")){
+            Operand haystack = operand();
+            skipWhitespace();
+            expect(",");
+            Operand needle = operand();
+            skipWhitespace();
+            expect(")");
+            return new XPath.Predicate() {
+                @Override
+                public boolean test(Element element, int position, int size) {
+                    String wanted = needle.string(element, position, size);
+                    for (String value : haystack.strings(element, position, size))
+                        if (contains ? value.contains(wanted) : value.startsWith(wanted))
+                            return true;
+                    return false;
+                }
+
+                @Override
+                public boolean isPositional() {
+                    return haystack.isPositional() || needle.isPositional();
+                }
+            };
+        }
+        return comparison();
+    }
+
+    private XPath.Predicate comparison() {
+        Operand left = operand();
+        skipWhitespace();
+        String operator = null;
+        for (String candidate : new String[]{"!=", "<=", ">=", "=", "<", ">"})
+            if (skip(candidate)){
+                operator = candidate;
+                break;
+            }
+
+        if (operator == null){
+            // a number alone is a position, last() is the last position, anything else has to exist
+            return new XPath.Predicate() {
+                @Override
+                public boolean test(Element element, int position, int size) {
+                    if (left.isNumber())
+                        return position == left.number(position, size);
+                    return !left.strings(element, position, size).isEmpty();
+                }
+
+                @Override
+                public boolean isPositional() {
+                    return left.isNumber();
+                }
+            };
+        }
+
+        Operand right = operand();
+        String op = operator;
+        return new XPath.Predicate() {
+            @Override
+            public boolean test(Element element, int position, int size) {
+                if (left.isNumber() && right.isNumber())
+                    return compare(left.number(position, size), op, right.number(position, size));
+                if (left.isNumber())
+                    return anyNumber(right.strings(element, position, size), flip(op), left.number(position, size));
+                if (right.isNumber())
+                    return anyNumber(left.strings(element, position, size), op, right.number(position, size));
+
+                // two strings or sets of strings: true if any pair compares
+                for (String a : left.strings(element, position, size))
+                    for (String b : right.strings(element, position, size))
+                        if (op.equals("=") ? a.equals(b) : op.equals("!=") ? !a.equals(b) : compare(toNumber(a), op, toNumber(b)))
+                            return true;
+                return false;
+            }
+
+            @Override
+            public boolean isPositional() {
+                return left.isPositional() || right.isPositional();
+            }
+        };
+    }
+
+    private static boolean anyNumber(List<String> values, String op, double number) {
+        for (String value : values)
+            if (compare(toNumber(value), op, number))
+                return true;
+        return false;
+    }
+
+    private static String flip(String op) {
+        switch (op){
+            case "<":  return ">";
+            case ">":  return "<";
+            case "<=": return ">=";
+            case ">=": return "<=";
+            default:   return op;
+        }
+    }
+
+    private static boolean compare(double a, String op, double b) {
+        switch (op){
+            case "=":  return a == b;
+            case "!=": return a != b;
+            case "<":  return a < b;
+            case "<=": return a <= b;
+            case ">":  return a > b;
+            default:   return a >= b;
+        }
+    }
+
+    private static double toNumber(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static XPath.Predicate predicate(Test test, XPath.Predicate... parts) {
+        boolean positional = false;
+        for (XPath.Predicate part : parts)
+            positional |= part.isPositional();
+        boolean isPositional = positional;
+        return new XPath.Predicate() {
+            @Override
+            public boolean test(Element element, int position, int size) {
+                return test.test(element, position, size);
+            }
+
+            @Override
+            public boolean isPositional() {
+                return isPositional;
+            }
+        };
+    }
+
+    private interface Test {
+        boolean test(Element element, int position, int size);
+    }
+
+    // a value in a predicate: a number, a position, or strings taken from the element
+    private static final class Operand {
+
+        static final int NUMBER = 0;
+        static final int POSITION = 1;
+        static final int LAST = 2;
+        static final int STRING = 3;
+        static final int ATTRIBUTE = 4;
+        static final int TEXT = 5;
+        static final int CHILD = 6;
+
+        final int kind;
+        final String value;
+        final double number;
+
+        Operand(int kind, String value, double number) {
+            this.kind = kind;
+            this.value = value;
+            this.number = number;
+        }
+
+        boolean isNumber() {
+            return kind <= LAST;
+        }
+
+        boolean isPositional() {
+            return kind == POSITION || kind == LAST;
+        }
+
+        double number(int position, int size) {
+            if (kind == POSITION)
+                return position;
+            if (kind == LAST)
+                return size + number;
+            return number;
+        }
+
+        List<String> strings(Element element, int position, int size) {
+            switch (kind){
+                case STRING:
+                    return Collections.singletonList(value);
+                case ATTRIBUTE:
+                    CharSequence attribute = element.getAttributeValue(value);
+                    return attribute == null ? Collections.emptyList() : Collections.singletonList(attribute.toString());
+                case TEXT:
+                    return element.getStringChildren();
+                case CHILD:
+                    ArrayList<String> texts = new ArrayList<>();
+                    int tagId = TagRegistry.idOf(value);
+                    for (int i = 0; i < element.getNodeChildCount(); i++)
+                        if (TagRegistry.hasTag(element.getNodeChild(i), value, tagId))
+                            texts.add(String.join("", element.getNodeChild(i).getStringChildren()));
+                    return texts;
+                default:
+                    double n = number(position, size);
+                    return Collections.singletonList(n == Math.rint(n) ? String.valueOf((long) n) : String.valueOf(n));
+            }
+        }
+
+        // the first of the strings, or an empty String
+        String string(Element element, int position, int size) {
+            List<String> strings = strings(element, position, size);
+            return strings.isEmpty() ? "" : strings.get(0);
+        }
+    }
+
+    private Operand operand() {
+        skipWhitespace();
+        if (position == expression.length())
+            throw error("Expression ends where a value was expected");
+
+        char c = expression.charAt(position);
+        if (c == '\'' || c == '"'){
+            int end = expression.indexOf(c, position + 1);
+            if (end < 0)
+                throw error("Unclosed quote");
+            String value = expression.substring(position + 1, end);
+            position = end + 1;
+            return new Operand(Operand.STRING, value, 0);
+        }
+        if (Character.isDigit(c) || c == '-'){
+            int start = position++;
+            while (position < expression.length() && (Character.isDigit(expression.charAt(position)) || expression.charAt(position) == '.'))
+                position++;
+            try {
+                return new Operand(Operand.NUMBER, null, Double.parseDouble(expression.substring(start, position)));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number");
+            }
+        }
+        if (skip("@"))
+            return new Operand(Operand.ATTRIBUTE, name(), 0);
+        if (skip("text()"))
+            return new Operand(Operand.TEXT, null, 0);
+        if (skip("position()"))
+            return new Operand(Operand.POSITION, null, 0);
+        if (skip("last()")){
+            // last() - n, the only sum supported
+            int start = position;
+            skipWhitespace();
+            boolean minus = skip("-");
+            if (minus || skip("+")){
+                skipWhitespace();
+                int numberStart = position;
+                while (position < expression.length() && Character.isDigit(expression.charAt(position)))
+                    position++;
+                if (numberStart == position)
+                    throw error("Expected a number");
+                int n = Integer.parseInt(expression.substring(numberStart, position));
+                return new Operand(Operand.LAST, null, minus ? -n : n);
+            }
+            position = start;
+            return new Operand(Operand.LAST, null, 0);
+        }
+
+        int start = position;
+        String name = name();
+        if (position < expression.length() && expression.charAt(position) == '('){
+            position = start;
+            throw error("Unsupported function " + name + "()");
+        }
+        return new Operand(Operand.CHILD, name, 0);
+    }
+
+    // reading the expression
+
+    private boolean keyword(String keyword) {
+        skipWhitespace();
+        int end = position + keyword.length();
+        if (expression.startsWith(keyword, position) && (end == expression.length() || !isNameChar(expression.charAt(end)))){
+            position = end;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean function(String name) {
+        int start = position;
+        if (keyword(name)){
+            skipWhitespace();
+            if (skip("("))
+                return true;
+        }
+        position = start;
+        return false;
+    }
+
+    private String name() {
+        int start = position;
+        while (position < expression.length() && isNameChar(expression.charAt(position)))
+            position++;
+        if (position == start)
+            throw error(position == expression.length() ? "Expression ends where a name was expected" : "Unexpected '" + expression.charAt(position) + "'");
+        return expression.substring(start, position);
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '_';
+    }
+
+    private boolean skip(String text) {
+        if (!expression.startsWith(text, position))
+            return false;
+        position += text.length();
+        return true;
+    }
+
+    private void expect(String text) {
+        if (!skip(text))
+            throw error("Expected '" + text + "'");
+    }
+
+    private void skipWhitespace() {
+        while (position < expression.length() && Character.isWhitespace(expression.charAt(position)))
+            position++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position + " of expression \"" + expression + "\"");
+    }
+}
@@ -0,0 +1,38 @@
+import Scraper.BatchQuery;
+import Scraper.Scraper;
+
+/**
+ * Time of eight searches run one after the other, each walking the tree, next to the same searches run as one BatchQuery.
+ * Run with: java -Xmx2g -cp build/classes/java/main:build/classes/java/test BatchBenchmark
+ */
+public class BatchBenchmark {
+
+    public static void main(String[] args) {
+        Scraper scraper = Scraper.buildWithString(ElementMemoryBenchmark.page(50_000));
+
+        BatchQuery batch = new BatchQuery();
+        BatchQuery.Query<String> titles = batch.contentFromTagAsString("h4");
+        BatchQuery.Query<String> prices = batch.contentFromTagAsString("b");
+        BatchQuery.Query<String> links = batch.linksInPageAsString();
+        BatchQuery.Query<String> images = batch.allImagesFromPageAsString();
+        BatchQuery.Query<String> product = batch.contentFromIdAsString("p49999");
+        BatchQuery.Query<String> list = batch.contentFromClassAsString("products");
+        BatchQuery.Query<String> alts = batch.attributeContentWithTagAndNameAsString("img", "alt");
+        BatchQuery.Query<String> videos = batch.allVideosFromPageAsString();
+
+        System.out.printf("%-28s %10s %10s%n", "search", "found", "ms");
+        FlatDocumentBenchmark.time("8 searches, one by one", () -> scraper.getContentFromTagAsString("h4").size()
+                + scraper.getContentFromTagAsString("b").size()
+                + scraper.getLinksInPageAsString().size()
+                + scraper.getAllImagesFromPageAsString().size()
+                + scraper.getContentFromIdAsString("p49999").size()
+                + scraper.getContentFromClassAsString("products").size()
+                + scraper.getAttributeContentWithTagAndNameAsString("img", "alt").size()
+                + scraper.getAllVideosFromPageAsString().size());
+        FlatDocumentBenchmark.time("8 searches, batch", () -> {
+            BatchQuery.Result result = scraper.runBatch(batch);
+            return result.get(titles).size() + result.get(prices).size() + result.get(links).size() + result.get(images).size()
+                    + result.get(product).size() + result.get(list).size() + result.get(alts).size() + result.get(videos).size();
+        });
+    }
+}
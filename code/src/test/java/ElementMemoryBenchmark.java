@@ -0,0 +1,72 @@
+import Scraper.Element;
+import Scraper.Exceptions.ParseException;
+import Scraper.FlatDocument;
+import Scraper.TreeBuilder;
+
+/**
+ * Retained heap per element for trees of a generated product listing, built normally, with zero copy, flat and off the heap.
+ * The source itself is created before measuring, so only what the trees hold on to is counted.
+ * Run with: java -Xmx2g -cp build/classes/java/main:build/classes/java/test ElementMemoryBenchmark
+ */
+public class ElementMemoryBenchmark {
+
+    private static final int TREES = 20;
+
+    static String page(int items) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<!DOCTYPE html><html lang=\"en\"><head><title>Products</title></head><body><ul class=\"products\">");
+        for (int i = 0; i < items; i++) {
+            sb.append("<li class=\"product\" id=\"p").append(i).append("\"><a href=\"/product/").append(i).append("\">")
+                    .append("<img src=\"/img/").append(i).append(".jpg\" alt=\"Product ").append(i).append("\"></a>")
+                    .append("<h4>Product ").append(i).append("</h4><p>Price <b>").append(i * 3).append(" kr</b><br>in stock</p>")
+                    .append("<span></span></li>");
+        }
+        sb.append("</ul></body></html>");
+        return sb.toString();
+    }
+
+    static int count(Element node) {
+        int n = 1;
+        for (Element child : node.getNodeChildren())
+            n += count(child);
+        return n;
+    }
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    interface Build {
+        Object run(String html) throws ParseException;
+    }
+
+    static void measure(String name, String html, int elements, Build build) throws ParseException {
+        Object[] trees = new Object[TREES];
+
+        long before = usedHeap();
+        for (int i = 0; i < TREES; i++)
+            trees[i] = build.run(html);
+        long after = usedHeap();
+
+        int nodes = elements * TREES;
+        System.out.printf("%-10s %10d %14.1f%n", name, nodes, (double) (after - before) / nodes);
+    }
+
+    public static void main(String[] args) throws ParseException {
+        String html = page(20_000);
+        int elements = count(new TreeBuilder().build(html));
+
+        TreeBuilder copy = new TreeBuilder();
+        TreeBuilder zeroCopy = new TreeBuilder();
+        zeroCopy.setZeroCopy(true);
+
+        System.out.printf("%-10s %10s %14s%n", "mode", "elements", "bytes/element");
+        measure("copy", html, elements, copy::build);
+        measure("zero copy", html, elements, zeroCopy::build);
+        measure("flat", html, elements, FlatDocument::build);
+        measure("off heap", html, elements, source -> FlatDocument.build(source, true).toOffHeap());
+    }
+}
@@ -0,0 +1,48 @@
+import Scraper.Exceptions.ParseException;
+import Scraper.Scraper;
+import Scraper.ParseOptions;
+
+/**
+ * Time of a search over the whole page, by id, for images and by tag, with the page kept as elements, as a FlatDocument and off the heap.
+ * Run with: java -Xmx2g -cp build/classes/java/main:build/classes/java/test FlatDocumentBenchmark
+ */
+public class FlatDocumentBenchmark {
+
+    private static final int RUNS = 50;
+
+    interface Search {
+        int run();
+    }
+
+    static void time(String name, Search search) {
+        for (int i = 0; i < RUNS; i++)
+            search.run();
+
+        long best = Long.MAX_VALUE;
+        int found = 0;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            found = search.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-28s %10d %10.2f%n", name, found, best / 1e6);
+    }
+
+    public static void main(String[] args) throws ParseException {
+        String html = ElementMemoryBenchmark.page(50_000);
+        Scraper tree = Scraper.buildWithString(html);
+        Scraper flat = Scraper.buildWithString(html, new ParseOptions().setFlat(true));
+        Scraper offHeap = Scraper.buildWithString(html, new ParseOptions().setOffHeap(true));
+
+        System.out.printf("%-28s %10s %10s%n", "search", "found", "ms");
+        time("id, elements", () -> tree.getContentFromIdAsString("p49999").size());
+        time("id, flat", () -> flat.getContentFromIdAsString("p49999").size());
+        time("id, off heap", () -> offHeap.getContentFromIdAsString("p49999").size());
+        time("images, elements", () -> tree.getAllImagesFromPageAsString().size());
+        time("images, flat", () -> flat.getAllImagesFromPageAsString().size());
+        time("images, off heap", () -> offHeap.getAllImagesFromPageAsString().size());
+        time("tag h4, elements", () -> tree.getContentFromTagAsString("h4").size());
+        time("tag h4, flat", () -> flat.getContentFromTagAsString("h4").size());
+        time("tag h4, off heap", () -> offHeap.getContentFromTagAsString("h4").size());
+    }
+}
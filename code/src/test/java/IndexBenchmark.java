@@ -0,0 +1,32 @@
+import Scraper.ParseOptions;
+import Scraper.Scraper;
+
+/**
+ * Time of building a page with and without an ElementIndex, and of 50 searches by id and by class on it,
+ * answered by walking the tree or by looking the elements up in the index.
+ * Run with: java -Xmx2g -cp build/classes/java/main:build/classes/java/test IndexBenchmark
+ */
+public class IndexBenchmark {
+
+    static int searches(Scraper scraper) {
+        int found = 0;
+        for (int i = 0; i < 50; i++){
+            found += scraper.getContentFromIdAsNode("p" + i * 997).size();
+            found += scraper.getImageByClassAsString("product").size();
+        }
+        return found;
+    }
+
+    public static void main(String[] args) {
+        String html = ElementMemoryBenchmark.page(50_000);
+
+        System.out.printf("%-28s %10s %10s%n", "search", "found", "ms");
+        FlatDocumentBenchmark.time("build", () -> Scraper.buildWithString(html).getRoot().getNodeChildCount());
+        FlatDocumentBenchmark.time("build, indexed", () -> Scraper.buildWithString(html, new ParseOptions().setIndexed(true)).getRoot().getNodeChildCount());
+
+        Scraper walking = Scraper.buildWithString(html);
+        Scraper indexed = Scraper.buildWithString(html, new ParseOptions().setIndexed(true));
+        FlatDocumentBenchmark.time("50 searches, walk", () -> searches(walking));
+        FlatDocumentBenchmark.time("50 searches, index", () -> searches(indexed));
+    }
+}
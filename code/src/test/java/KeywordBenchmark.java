@@ -0,0 +1,32 @@
+import Scraper.KeywordMatcher;
+import Scraper.Scraper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Time of checking a page for 200 keywords, with a case insensitive contains search for each keyword
+ * next to one pass of a KeywordMatcher for all of them.
+ * Run with: java -Xmx2g -cp build/classes/java/main:build/classes/java/test KeywordBenchmark
+ */
+public class KeywordBenchmark {
+
+    public static void main(String[] args) {
+        Scraper scraper = Scraper.buildWithString(ElementMemoryBenchmark.page(10_000));
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 200; i++)
+            words.add(i % 2 == 0 ? "PRODUCT " + i * 97 : "sold out " + i);
+        KeywordMatcher keywords = KeywordMatcher.compile(words);
+
+        System.out.printf("%-28s %10s %10s%n", "search", "found", "ms");
+        FlatDocumentBenchmark.time("200 contains searches", () -> {
+            int found = 0;
+            for (String word : words)
+                found += scraper.containsCaseInSensetiveAsBoolean(word) ? 1 : 0;
+            return found;
+        });
+        FlatDocumentBenchmark.time("keywords in page", () -> scraper.getKeywordsInPageAsString(keywords).size());
+        FlatDocumentBenchmark.time("keyword hits", () -> scraper.getKeywordHits(keywords).size());
+        FlatDocumentBenchmark.time("compile", () -> KeywordMatcher.compile(words).getKeywords().size());
+    }
+}
@@ -0,0 +1,74 @@
+import Scraper.Element;
+import Scraper.Scraper;
+import Scraper.TreeTraverser;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Time of a search through the text of pages of growing size, as a sequential and as a parallel stream,
+ * to find the size from which splitting the page over the common fork/join pool pays off on this machine.
+ * Besides the times it prints what a part of a split page costs: the time of the search per element, and the time the parallel
+ * stream takes beyond the sequential one for each part it runs. ElementSpliterator#MIN_SPLIT is set from these,
+ * so a part is large enough that running it as a task of its own adds at most a hundredth to its time.
+ * Run with: java -Xmx3g -cp build/classes/java/main:build/classes/java/test ParallelBenchmark
+ */
+public class ParallelBenchmark {
+
+    private static final int RUNS = 101;
+
+    public static void main(String[] args) {
+        System.out.printf("%d processors, common pool parallelism %d%n", Runtime.getRuntime().availableProcessors(),
+                ForkJoinPool.commonPool().getParallelism());
+        System.out.printf("%-10s %10s %7s %10s %10s %12s %14s%n", "products", "elements", "parts", "seq ms", "par ms", "ns/element", "us extra/part");
+
+        for (int products : new int[]{100, 1_000, 5_000, 10_000, 50_000, 100_000}){
+            Scraper scraper = Scraper.buildWithString(ElementMemoryBenchmark.page(products));
+            Element root = scraper.getRoot();
+            int elements = scraper.getDocumentOrder().size();
+            int parts = parts(TreeTraverser.spliterator(root));
+
+            // the two are run in turn and their difference taken for each pair, so the machine slowing down or speeding up cancels out
+            long[] times = pairs(() -> (int) scraper.streamContainsAsNode("99 kr").count(),
+                    () -> (int) scraper.streamContainsAsNode("99 kr").parallel().count());
+            long sequential = times[0];
+            long parallel = times[1];
+            long extra = times[2];
+
+            System.out.printf("%-10d %10d %7d %10.3f %10.3f %12.1f %14.2f%n", products, elements, parts, sequential / 1e6, parallel / 1e6,
+                    (double) sequential / elements, extra / 1e3 / parts);
+        }
+    }
+
+    // the number of parts the spliterator is split into, the way a parallel stream splits it
+    private static int parts(Spliterator<Element> spliterator) {
+        Spliterator<Element> prefix = spliterator.trySplit();
+        return prefix == null ? 1 : parts(prefix) + parts(spliterator);
+    }
+
+    // the median time of each search and the median of the second minus the first, run in turn
+    private static long[] pairs(FlatDocumentBenchmark.Search first, FlatDocumentBenchmark.Search second) {
+        for (int i = 0; i < RUNS; i++){
+            first.run();
+            second.run();
+        }
+        long[] firstTimes = new long[RUNS];
+        long[] secondTimes = new long[RUNS];
+        long[] differences = new long[RUNS];
+        for (int i = 0; i < RUNS; i++){
+            long start = System.nanoTime();
+            first.run();
+            long middle = System.nanoTime();
+            second.run();
+            long end = System.nanoTime();
+            firstTimes[i] = middle - start;
+            secondTimes[i] = end - middle;
+            differences[i] = secondTimes[i] - firstTimes[i];
+        }
+        Arrays.sort(firstTimes);
+        Arrays.sort(secondTimes);
+        Arrays.sort(differences);
+        return new long[]{firstTimes[RUNS / 2], secondTimes[RUNS / 2], differences[RUNS / 2]};
+    }
+}
@@ -0,0 +1,27 @@
+import Scraper.Element;
+import Scraper.Scraper;
+
+import java.util.ArrayList;
+
+/**
+ * Time of finding the images of the products with a CSS selector, next to doing it with one search for the products
+ * followed by a search from each of them, the way it is done without selectors.
+ * Run with: java -Xmx2g -cp build/classes/java/main:build/classes/java/test SelectorBenchmark
+ */
+public class SelectorBenchmark {
+
+    public static void main(String[] args) {
+        Scraper scraper = Scraper.buildWithString(ElementMemoryBenchmark.page(50_000));
+
+        System.out.printf("%-28s %10s %10s%n", "search", "found", "ms");
+        FlatDocumentBenchmark.time("search per product", () -> {
+            ArrayList<Element> images = new ArrayList<>();
+            for (Element product : scraper.getImageByClassAsNode("product"))
+                for (Element link : scraper.getLinksInPageAsNode(product))
+                    images.addAll(scraper.getAllImagesFromPageAsNode(link));
+            return images.size();
+        });
+        FlatDocumentBenchmark.time("select", () -> scraper.select("li.product > a img").size());
+        FlatDocumentBenchmark.time("select, nth-child", () -> scraper.select("ul.products > li:nth-child(2n+1) h4").size());
+    }
+}
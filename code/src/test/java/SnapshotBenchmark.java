@@ -0,0 +1,23 @@
+import Scraper.Scraper;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Time to get a scraper for a page and list its images, by parsing its html and by loading a snapshot of it written before.
+ * Run with: java -Xmx2g -cp build/classes/java/main:build/classes/java/test SnapshotBenchmark
+ */
+public class SnapshotBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        String html = ElementMemoryBenchmark.page(50_000);
+        File snapshot = File.createTempFile("framescraper", ".snapshot");
+        snapshot.deleteOnExit();
+        Scraper.buildWithString(html).writeSnapshot(snapshot.getPath());
+        System.out.printf("html %d chars, snapshot %d bytes%n", html.length(), snapshot.length());
+
+        System.out.printf("%-28s %10s %10s%n", "build", "found", "ms");
+        FlatDocumentBenchmark.time("parse", () -> Scraper.buildWithString(html).getAllImagesFromPageAsString().size());
+        FlatDocumentBenchmark.time("snapshot", () -> Scraper.buildWithSnapshot(snapshot.getPath()).getAllImagesFromPageAsString().size());
+    }
+}
@@ -0,0 +1,23 @@
+import Scraper.Scraper;
+
+/**
+ * Time of getting the first matches of a search as a list and as a stream, which stops the walk at the last element it gives,
+ * and of a search without matches, where both go through the whole page.
+ * Run with: java -Xmx2g -cp build/classes/java/main:build/classes/java/test StreamBenchmark
+ */
+public class StreamBenchmark {
+
+    public static void main(String[] args) {
+        Scraper scraper = Scraper.buildWithString(ElementMemoryBenchmark.page(50_000));
+
+        System.out.printf("%-28s %10s %10s%n", "search", "found", "ms");
+        FlatDocumentBenchmark.time("first link, list", () -> scraper.getLinksInPageAsNode().subList(0, 1).size());
+        FlatDocumentBenchmark.time("first link, stream", () -> (int) scraper.streamLinksInPageAsNode().limit(1).count());
+        FlatDocumentBenchmark.time("ten h4, list", () -> scraper.getContentFromTagAsString("h4").subList(0, 10).size());
+        FlatDocumentBenchmark.time("ten h4, stream", () -> (int) scraper.streamContentFromTagAsString("h4").limit(10).count());
+        FlatDocumentBenchmark.time("select, list", () -> scraper.select("li.product > a img").isEmpty() ? 0 : 1);
+        FlatDocumentBenchmark.time("select, stream", () -> scraper.streamSelect("li.product > a img").findFirst().isPresent() ? 1 : 0);
+        FlatDocumentBenchmark.time("no match, list", () -> scraper.getContentFromTagAsNode("table").size());
+        FlatDocumentBenchmark.time("no match, stream", () -> (int) scraper.streamContentFromTagAsNode("table").count());
+    }
+}
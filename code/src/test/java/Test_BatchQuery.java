@@ -0,0 +1,68 @@
+import Scraper.BatchQuery;
+import Scraper.Element;
+import Scraper.Scraper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Test_BatchQuery {
+
+    @Test
+    public void batchAnswersLikeSeparateSearches() {
+        Scraper scraper = Scraper.buildWithString(Test_ElementIndex.indexedPage());
+        BatchQuery batch = new BatchQuery();
+        BatchQuery.Query<String> tagTexts = batch.contentFromTagAsString("p");
+        BatchQuery.Query<Element> tagNodes = batch.contentFromTagAsNode("p");
+        BatchQuery.Query<String> idTexts = batch.contentFromIdAsString("d3");
+        BatchQuery.Query<Element> classNodes = batch.contentFromClassAsNode("text");
+        BatchQuery.Query<String> links = batch.linksInPageAsString();
+        BatchQuery.Query<Element> linkNodes = batch.linksInPageAsNode();
+        BatchQuery.Query<String> images = batch.allImagesFromPageAsString();
+        BatchQuery.Query<String> imageById = batch.imageByIdAsString("i7");
+        BatchQuery.Query<Element> missing = batch.imageByIdAsNode("missing");
+        BatchQuery.Query<String> imagesByClass = batch.imageByClassAsString("pic");
+        BatchQuery.Query<String> videos = batch.allVideosFromPageAsString();
+        BatchQuery.Query<String> videoById = batch.videoByIdAsString("v9");
+        BatchQuery.Query<Element> videoNodeById = batch.videoByIdAsNode("v9");
+        BatchQuery.Query<String> videosByClass = batch.videoByClassAsString("clip");
+        BatchQuery.Query<String> attributes = batch.attributeContentWithTagAndNameAsString("im", "src");
+        BatchQuery.Query<String> idAttributes = batch.attributeContentWithIdAndNameAsString("d3", "class");
+        assertEquals(16, batch.size());
+
+        for (Element scope : new Element[]{scraper.getRoot(), scraper.getRoot().getNodeChild(0).getNodeChild(9)}){
+            BatchQuery.Result result = scraper.runBatch(batch, scope);
+            assertEquals(scraper.getContentFromTagAsString("p", scope), result.get(tagTexts));
+            assertEquals(scraper.getContentFromTagAsNode("p", scope), result.get(tagNodes));
+            assertEquals(scraper.getContentFromIdAsString("d3", scope), result.get(idTexts));
+            assertEquals(scraper.getContentFromClassAsNode("text", scope), result.get(classNodes));
+            assertEquals(scraper.getLinksInPageAsString(scope), result.get(links));
+            assertEquals(scraper.getLinksInPageAsNode(scope), result.get(linkNodes));
+            assertEquals(scraper.getAllImagesFromPageAsString(scope), result.get(images));
+            String image = scraper.getImageByIdAsString("i7", scope);
+            assertEquals(image.isEmpty() ? List.of() : List.of(image), result.get(imageById));
+            assertEquals(List.of(), result.get(missing));
+            assertEquals(scraper.getImageByClassAsString("pic", scope), result.get(imagesByClass));
+            assertEquals(scraper.getAllVideosFromPageAsString(scope), result.get(videos));
+            assertEquals(scraper.getVideoByIdAsString("v9", scope), result.get(videoById).get(0));
+            assertSame(scraper.getVideoByIdAsNode("v9", scope), result.get(videoNodeById).get(0));
+            assertEquals(scraper.getVideoByClassAsString("clip", scope), result.get(videosByClass));
+            assertEquals(scraper.getAttributeContentWithTagAndNameAsString("im", "src", scope), result.get(attributes));
+            assertEquals(scraper.getAttributeContentWithIdAndNameAsString("d3", "class", scope), result.get(idAttributes));
+        }
+    }
+
+    @Test
+    public void batchKeepsFirstMatchOfIdSearches() {
+        Scraper scraper = Scraper.buildWithString(Test_ElementIndex.indexedPage());
+        BatchQuery batch = new BatchQuery();
+        BatchQuery.Query<String> first = batch.imageByIdAsString("i0");
+        BatchQuery.Query<Element> video = batch.videoByIdAsNode("v1");
+
+        BatchQuery.Result result = scraper.runBatch(batch);
+        assertEquals(List.of("0.jpg"), result.get(first));
+        assertEquals(1, result.get(video).size());
+        assertThrows(IllegalArgumentException.class, () -> scraper.runBatch(new BatchQuery()).get(first));
+    }
+}
@@ -0,0 +1,92 @@
+import Scraper.DocumentOrder;
+import Scraper.Element;
+import Scraper.Exceptions.ParseException;
+import Scraper.ParseOptions;
+import Scraper.Scraper;
+import Scraper.TreeBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Test_DocumentOrder {
+
+    @Test
+    public void treeIsNumberedInDocumentOrder() throws ParseException {
+        Element root = new TreeBuilder().build("<html><div class=\"card\"><p>a<b>1</b></p><span>2</span></div><div class=\"card\"><b>3</b></div></html>");
+        DocumentOrder order = root.getDocumentOrder();
+        Element card = root.getNodeChild(0);
+        Element b = card.getNodeChild(0).getNodeChild(0);
+        Element otherCard = root.getNodeChild(1);
+
+        assertNotNull(order);
+        assertEquals(7, order.size());
+        assertEquals(List.of("html", "div", "p", "b", "span", "div", "b"),
+                order.getElements().stream().map(Element::getTag).collect(Collectors.toList()));
+        assertEquals(0, root.getPreOrder());
+        assertEquals(6, root.getPostOrder());
+        assertEquals(3, b.getPreOrder());
+        assertEquals(0, b.getPostOrder());
+
+        assertNull(root.getParent());
+        assertSame(card, b.getParent().getParent());
+        assertTrue(card.isAncestorOf(b));
+        assertTrue(root.isAncestorOf(b));
+        assertFalse(b.isAncestorOf(card));
+        assertFalse(card.isAncestorOf(card));
+        assertFalse(otherCard.isAncestorOf(b));
+
+        assertEquals(List.of("p", "b", "span"), order.getDescendants(card).stream().map(Element::getTag).collect(Collectors.toList()));
+        assertEquals(1, order.getDescendants(otherCard).size());
+        assertEquals(7, order.getSubtreeEnd(otherCard));
+        assertTrue(order.getDescendants(b).isEmpty());
+    }
+
+    @Test
+    public void changedTreeLosesNumbering() throws ParseException {
+        Element root = new TreeBuilder().build("<html><div><p>a</p></div><span></span></html>");
+        DocumentOrder order = root.getDocumentOrder();
+        Element div = root.getNodeChild(0);
+        Element p = div.getNodeChild(0);
+        Element span = root.getNodeChild(1);
+
+        span.addNodeChild(div.getNodeChildren().remove(0));
+        assertFalse(order.isValid());
+        assertNull(root.getDocumentOrder());
+        assertEquals(-1, p.getPreOrder());
+        assertSame(span, p.getParent());
+        assertTrue(span.isAncestorOf(p));
+        assertFalse(div.isAncestorOf(p));
+
+        DocumentOrder renumbered = DocumentOrder.of(root);
+        assertSame(renumbered, p.getDocumentOrder());
+        assertEquals(List.of("p"), renumbered.getDescendants(span).stream().map(Element::getTag).collect(Collectors.toList()));
+        assertThrows(IllegalArgumentException.class, () -> order.getDescendants(span));
+    }
+
+    @Test
+    public void deepTreeIsNumbered() throws ParseException {
+        StringBuilder html = new StringBuilder();
+        for (int i = 0; i < 100_000; i++)
+            html.append("<div>");
+        for (int i = 0; i < 100_000; i++)
+            html.append("</div>");
+        Element root = new TreeBuilder().build(html.toString());
+
+        Element deepest = root.getDocumentOrder().get(99_999);
+        assertEquals(0, deepest.getPostOrder());
+        assertTrue(root.isAncestorOf(deepest));
+        assertEquals(99_999, root.getDocumentOrder().getDescendants(root).size());
+    }
+
+    @Test
+    public void flatElementsKnowTheirParent() throws ParseException {
+        Scraper flat = Scraper.buildWithString("<html><body><p>a</p></body></html>", new ParseOptions().setFlat(true));
+        Element p = flat.getDocument().getElement(2);
+        assertEquals("body", p.getParent().getTag());
+        assertEquals("html", p.getParent().getParent().getTag());
+        assertEquals(3, flat.getDocumentOrder().size());
+    }
+}
@@ -0,0 +1,79 @@
+import Scraper.DocumentOrder;
+import Scraper.Element;
+import Scraper.Exceptions.ParseException;
+import Scraper.ParseOptions;
+import Scraper.Scraper;
+import Scraper.TreeBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Test_Element {
+
+    @Test
+    public void frozenTreeCanNotBeChanged() throws ParseException {
+        TreeBuilder builder = new TreeBuilder();
+        builder.setZeroCopy(true);
+        Element root = builder.build("<html><p id=\"a\">text</p></html>").freeze();
+        Element p = root.getNodeChild(0);
+
+        assertTrue(root.isFrozen());
+        assertTrue(p.isFrozen());
+        assertThrows(UnsupportedOperationException.class, () -> root.addNodeChild(new Element("div")));
+        assertThrows(UnsupportedOperationException.class, () -> root.getNodeChildren().remove(0));
+        assertThrows(UnsupportedOperationException.class, () -> root.getNodeChildren().add(new Element("div")));
+        assertThrows(UnsupportedOperationException.class, () -> p.getStringChildren().set(0, "other"));
+        assertThrows(UnsupportedOperationException.class, () -> p.getAttributes().put("class", "x"));
+        assertThrows(UnsupportedOperationException.class, () -> p.getAttributes().remove("id"));
+        assertThrows(UnsupportedOperationException.class, () -> p.setTag("div"));
+        assertThrows(UnsupportedOperationException.class, () -> new Element("div").addNodeChild(p));
+        assertThrows(UnsupportedOperationException.class, () -> root.getDocumentOrder().getElements().clear());
+
+        assertEquals("text", p.getStringChild(0));
+        assertEquals("a", p.getAttributes().get("id"));
+        assertSame(root, p.getParent());
+        assertTrue(root.isAncestorOf(p));
+    }
+
+    @Test
+    public void frozenTreeIsReadByManyThreads() throws Exception {
+        Scraper scraper = Scraper.buildWithString(Test_TreeBuilder.page(19), new ParseOptions().setZeroCopy(true).setFlat(true)).freeze();
+        Element root = scraper.getRoot();
+        assertTrue(root.isFrozen());
+        String expected = new TreeBuilder().build(Test_TreeBuilder.page(19)).toString();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++)
+                futures.add(pool.submit(root::toString));
+            for (Future<String> future : futures)
+                assertEquals(expected, future.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void freezingPartOfTreeLeavesTheRestChangeable() throws ParseException {
+        Element root = new TreeBuilder().build("<html><div><p>a</p></div><span></span></html>");
+        Element div = root.getNodeChild(0).freeze();
+
+        assertFalse(root.isFrozen());
+        assertTrue(div.getNodeChild(0).isFrozen());
+        root.getNodeChildren().remove(0);
+        assertSame(root, div.getParent());
+        root.addNodeChild(new Element("b"));
+
+        DocumentOrder order = DocumentOrder.of(root);
+        assertEquals(3, order.size());
+        root.freeze();
+        assertTrue(root.getNodeChild(1).isFrozen());
+    }
+}
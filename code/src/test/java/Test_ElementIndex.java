@@ -0,0 +1,135 @@
+import Scraper.Element;
+import Scraper.ElementIndex;
+import Scraper.Exceptions.ParseException;
+import Scraper.ParseOptions;
+import Scraper.Scraper;
+import Scraper.TreeBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.Hashtable;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Test_ElementIndex {
+
+    static String indexedPage() {
+        StringBuilder sb = new StringBuilder("<html><body>");
+        for (int n = 0; n < 50; n++)
+            sb.append("<div id=\"d").append(n % 7).append("\" class=\"box").append(n % 3).append("\"><p class=\"text\">Text ").append(n).append("</p>")
+                    .append("<img id=\"i").append(n).append("\" class=\"pic\" src=\"").append(n).append(".jpg\">")
+                    .append("<a href=\"/page").append(n).append("\">link</a><a href=\"http://other/").append(n).append("\">out</a><a>none</a>")
+                    .append("<video id=\"v").append(n).append("\" class=\"clip\"><source src=\"").append(n).append(".mp4\"></video>")
+                    .append("<video id=\"v").append(n).append("\" class=\"clip\"><p>no source</p></video></div>");
+        sb.append("</body></html>");
+        return sb.toString();
+    }
+
+    private static void assertSameSearches(Scraper expected, Scraper actual, Element expectedScope, Element actualScope) {
+        assertEquals(expected.getContentFromTagAsString("p", expectedScope), actual.getContentFromTagAsString("p", actualScope));
+        assertEquals(expected.getContentFromTagAsNode("p", expectedScope).toString(), actual.getContentFromTagAsNode("p", actualScope).toString());
+        assertEquals(expected.getContentFromIdAsString("d3", expectedScope), actual.getContentFromIdAsString("d3", actualScope));
+        assertEquals(expected.getContentFromIdAsNode("d3", expectedScope).toString(), actual.getContentFromIdAsNode("d3", actualScope).toString());
+        assertEquals(expected.getContentFromClassAsString("text", expectedScope), actual.getContentFromClassAsString("text", actualScope));
+        assertEquals(expected.getContentFromClassAsNode("text", expectedScope).toString(), actual.getContentFromClassAsNode("text", actualScope).toString());
+        assertEquals(expected.getLinksInPageAsString(expectedScope), actual.getLinksInPageAsString(actualScope));
+        assertEquals(expected.getLinksInPageAsNode(expectedScope).toString(), actual.getLinksInPageAsNode(actualScope).toString());
+        assertEquals(expected.getAllImagesFromPageAsString(expectedScope), actual.getAllImagesFromPageAsString(actualScope));
+        assertEquals(expected.getAllImagesFromPageAsNode(expectedScope).toString(), actual.getAllImagesFromPageAsNode(actualScope).toString());
+        assertEquals(expected.getImageByIdAsString("i7", expectedScope), actual.getImageByIdAsString("i7", actualScope));
+        assertEquals(String.valueOf(expected.getImageByIdAsNode("i7", expectedScope)), String.valueOf(actual.getImageByIdAsNode("i7", actualScope)));
+        assertEquals(expected.getImageByClassAsString("pic", expectedScope), actual.getImageByClassAsString("pic", actualScope));
+        assertEquals(expected.getImageByClassAsNode("pic", expectedScope).toString(), actual.getImageByClassAsNode("pic", actualScope).toString());
+        assertEquals(expected.getAllVideosFromPageAsString(expectedScope), actual.getAllVideosFromPageAsString(actualScope));
+        assertEquals(expected.getAllVideosFromPageAsNode(expectedScope).toString(), actual.getAllVideosFromPageAsNode(actualScope).toString());
+        assertEquals(expected.getVideoByIdAsString("v9", expectedScope), actual.getVideoByIdAsString("v9", actualScope));
+        assertEquals(String.valueOf(expected.getVideoByIdAsNode("v9", expectedScope)), String.valueOf(actual.getVideoByIdAsNode("v9", actualScope)));
+        assertEquals(expected.getVideoByClassAsString("clip", expectedScope), actual.getVideoByClassAsString("clip", actualScope));
+        assertEquals(expected.getVideoByClassAsNode("clip", expectedScope).toString(), actual.getVideoByClassAsNode("clip", actualScope).toString());
+        assertEquals(expected.getAttributeContentWithIdAndNameAsString("d3", "class", expectedScope), actual.getAttributeContentWithIdAndNameAsString("d3", "class", actualScope));
+        assertEquals(expected.getImageByIdAsString("missing", expectedScope), actual.getImageByIdAsString("missing", actualScope));
+        assertEquals(expected.getContentFromClassAsString("missing", expectedScope), actual.getContentFromClassAsString("missing", actualScope));
+    }
+
+    @Test
+    public void indexedScraperAnswersLikeWalkingScraper() {
+        String html = indexedPage();
+        Scraper walking = Scraper.buildWithString(html);
+        Scraper indexed = Scraper.buildWithString(html, new ParseOptions().setIndexed(true));
+
+        assertNull(walking.getIndex());
+        assertTrue(indexed.getIndex().isValid());
+        assertEquals(7, indexed.getIndex().getById("d3").size());
+        assertEquals(100, indexed.getIndex().getByTag("video").size());
+
+        assertSameSearches(walking, indexed, walking.getRoot(), indexed.getRoot());
+        assertEquals(walking.getImageByIdAsString("i7"), indexed.getImageByIdAsString("i7"));
+        assertEquals(walking.getVideoByClassAsString("clip"), indexed.getVideoByClassAsString("clip"));
+
+        // searches from an element inside the page look at the part of each list inside it
+        for (int n : new int[]{0, 9, 49}){
+            Element walkingDiv = walking.getRoot().getNodeChild(0).getNodeChild(n);
+            Element indexedDiv = indexed.getRoot().getNodeChild(0).getNodeChild(n);
+            assertSameSearches(walking, indexed, walkingDiv, indexedDiv);
+            assertEquals(List.of(indexedDiv), indexed.getIndex().getByClass("box" + n % 3, indexedDiv));
+            assertEquals(List.of(indexedDiv.getNodeChild(0)), indexed.getIndex().getByTag("p", indexedDiv).subList(0, 1));
+        }
+    }
+
+    @Test
+    public void lazyAndFrozenScrapersUseTheIndex() {
+        String html = indexedPage();
+        Scraper walking = Scraper.buildWithString(html);
+        Scraper lazy = Scraper.buildWithString(html, new ParseOptions().setLazy(true).setIndexed(true));
+
+        assertEquals("7.jpg", lazy.getImageByIdAsString("i7"));
+        assertSameSearches(walking, lazy, walking.getRoot(), lazy.getRoot());
+        assertTrue(lazy.getIndex().isValid());
+
+        Scraper frozen = Scraper.buildWithString(html, new ParseOptions().setIndexed(true).setZeroCopy(true)).freeze();
+        assertTrue(frozen.getIndex().covers(frozen.getRoot()));
+        assertSameSearches(walking, frozen, walking.getRoot(), frozen.getRoot());
+    }
+
+    @Test
+    public void changedTreeIsSearchedWithoutIndex() throws ParseException {
+        Scraper scraper = Scraper.buildWithString(indexedPage(), new ParseOptions().setIndexed(true));
+        ElementIndex index = scraper.getIndex();
+        Element body = scraper.getRoot().getNodeChild(0);
+        Element div = body.getNodeChild(0);
+
+        body.addNodeChild(new TreeBuilder().build("<p class=\"text\">added</p>"));
+
+        assertFalse(index.isValid());
+        assertFalse(index.covers(div));
+        assertThrows(IllegalArgumentException.class, () -> index.getByClass("text", div));
+        assertEquals(51, scraper.getContentFromClassAsString("text").size());
+        assertEquals("added", scraper.getContentFromClassAsString("text").get(50));
+        assertEquals(List.of("Text 0"), scraper.getContentFromClassAsString("text", div));
+    }
+
+    @Test
+    public void changedAttributesAreSearchedWithoutIndex() {
+        Scraper scraper = Scraper.buildWithString("<div><p id=\"x\" class=\"a\">hello</p><span>there</span></div>", new ParseOptions().setIndexed(true));
+        ElementIndex index = scraper.getIndex();
+        Element p = scraper.getRoot().getNodeChild(0);
+
+        p.getAttributes().put("id", "z");
+        assertFalse(index.isValid());
+        assertEquals(List.of("hello"), scraper.getContentFromIdAsString("z"));
+        assertEquals(List.of(), scraper.getContentFromIdAsString("x"));
+
+        p.getAttributes().remove("class");
+        assertEquals(List.of(), scraper.getContentFromClassAsString("a"));
+
+        Scraper tagged = Scraper.buildWithString("<div><p class=\"a\">hello</p><span>there</span></div>", new ParseOptions().setIndexed(true));
+        tagged.getRoot().getNodeChild(1).setTag("p");
+        assertFalse(tagged.getIndex().isValid());
+        assertEquals(List.of("hello", "there"), tagged.getContentFromTagAsString("p"));
+
+        Hashtable<String, String> attributes = new Hashtable<>();
+        attributes.put("class", "b");
+        tagged.getRoot().getNodeChild(0).setAttributes(attributes);
+        assertEquals(List.of("hello"), tagged.getContentFromClassAsString("b"));
+    }
+}
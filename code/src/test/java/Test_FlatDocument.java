@@ -0,0 +1,149 @@
+import Scraper.Element;
+import Scraper.Exceptions.ParseException;
+import Scraper.FlatDocument;
+import Scraper.ParseOptions;
+import Scraper.Scraper;
+import Scraper.TagRegistry;
+import Scraper.TreeBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Test_FlatDocument {
+    String siteContent = "<!DOCTYPE html><html lang=\"en\"><body><h1 id=\"header1\" class=\"title\">Hello world</h1>" +
+            "<div class=\"item\">first<p>nested <my-tag my-attr=\"1\">x</my-tag></p>second</div>" +
+            "<img src=\"a.jpg\" id=\"pic\"><img alt=\"none\"><p class=\"item\">third</p></body></html><p>after</p>";
+
+    @Test
+    public void elementsReadTheSameTreeAsTreeBuilder() throws ParseException {
+        FlatDocument document = FlatDocument.build(siteContent);
+        Element root = new TreeBuilder().build(siteContent);
+
+        assertEquals(root.toString(), document.getRoot().toString());
+        assertEquals(root.toString(), FlatDocument.build(siteContent, true).getRoot().toString());
+    }
+
+    @Test
+    public void keepsTreeInArrays() throws ParseException {
+        FlatDocument document = FlatDocument.build(siteContent);
+
+        // html, body, h1, div, p, my-tag, img, img, p: the p after the root is read past
+        assertEquals(9, document.size());
+        assertEquals("html", document.getTag(0));
+        assertEquals(-1, document.getParent(0));
+        assertEquals(1, document.getFirstChild(0));
+        assertEquals(2, document.getFirstChild(1));
+        assertEquals(3, document.getNextSibling(2));
+        assertEquals(6, document.getNextSibling(3));
+        assertEquals(-1, document.getNextSibling(8));
+
+        assertEquals("my-tag", document.getTag(5));
+        assertEquals(TagRegistry.UNKNOWN, document.getTagId(5));
+        assertEquals("1", document.getAttributeValue(5, "my-attr"));
+        assertEquals(List.of("first", "second"), document.getTexts(3));
+
+        assertArrayEquals(new int[]{4, 8}, document.findByTag("p"));
+        assertArrayEquals(new int[]{3, 8}, document.findByAttribute("class", "item"));
+        assertArrayEquals(new int[0], document.findByTag("video"));
+    }
+
+    @Test
+    public void scraperSearchesFlatDocument() {
+        Scraper eager = Scraper.buildWithString(siteContent);
+        Scraper flat = Scraper.buildWithString(siteContent, new ParseOptions().setFlat(true));
+
+        assertNotNull(flat.getDocument());
+        assertEquals(eager.getContentFromTagAsString("p"), flat.getContentFromTagAsString("p"));
+        assertEquals(eager.getContentFromIdAsString("header1"), flat.getContentFromIdAsString("header1"));
+        assertEquals(eager.getContentFromClassAsString("item"), flat.getContentFromClassAsString("item"));
+        assertEquals(eager.getAllImagesFromPageAsString(), flat.getAllImagesFromPageAsString());
+        assertTrue(eager.containsAsBoolean("nested"));
+        assertTrue(flat.containsAsBoolean("nested"));
+        assertFalse(flat.containsAsBoolean("after"));
+
+        // searches without a flat version walk the elements read from the document
+        assertEquals(eager.getImageByIdAsString("pic"), flat.getImageByIdAsString("pic"));
+        assertEquals(eager.getContentFromTagAsNode("p").toString(), flat.getContentFromTagAsNode("p").toString());
+    }
+
+    @Test
+    public void flatScraperIsSearchedByManyThreads() throws Exception {
+        Scraper eager = Scraper.buildWithString(siteContent);
+        Scraper flat = Scraper.buildWithString(siteContent, new ParseOptions().setFlat(true));
+        String expected = eager.getContentFromTagAsNode("p").toString() + eager.getLinksInPageAsString();
+
+        // the elements read from the document fill themselves in, so every call walks elements of its own
+        assertNotSame(flat.getRoot(), flat.getRoot());
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++)
+                futures.add(pool.submit(() -> flat.getContentFromTagAsNode("p").toString() + flat.getLinksInPageAsString()));
+            for (Future<String> future : futures)
+                assertEquals(expected, future.get());
+        } finally {
+            pool.shutdown();
+        }
+
+        // a frozen flat scraper keeps its tree, which is read only
+        flat.freeze();
+        assertSame(flat.getRoot(), flat.getRoot());
+        assertTrue(flat.getRoot().isFrozen());
+    }
+
+    @Test
+    public void manyLocalNamesAreFoundByName() throws ParseException {
+        StringBuilder html = new StringBuilder("<html>");
+        for (int i = 0; i < 500; i++)
+            html.append("<tag-").append(i).append(" attr-").append(i).append("=\"").append(i).append("\"></tag-").append(i).append('>');
+        html.append("</html>");
+        FlatDocument heap = FlatDocument.build(html);
+        FlatDocument offHeap = heap.toOffHeap();
+
+        for (FlatDocument document : List.of(heap, offHeap)) {
+            assertArrayEquals(new int[]{300}, document.findByTag("tag-299"));
+            assertArrayEquals(new int[]{300}, document.findByAttribute("attr-299", "299"));
+            assertEquals("tag-499", document.getTag(500));
+            assertEquals(0, document.findByTag("tag-500").length);
+        }
+    }
+
+    @Test
+    public void offHeapDocumentReadsTheSame() throws ParseException {
+        String html = siteContent.replace("Hello world", "Bl\u00e5b\u00e6r \u20ac").replace("a.jpg", "\u00f8.jpg");
+        FlatDocument heap = FlatDocument.build(html);
+        FlatDocument offHeap = heap.toOffHeap();
+
+        assertSame(offHeap, offHeap.toOffHeap());
+        assertEquals(heap.getRoot().toString(), offHeap.getRoot().toString());
+        assertEquals(heap.size(), offHeap.size());
+        assertArrayEquals(heap.findByAttribute("id", "pic"), offHeap.findByAttribute("id", "pic"));
+        assertArrayEquals(heap.findByTag("my-tag"), offHeap.findByTag("my-tag"));
+        assertEquals("1", offHeap.getAttributeValue(5, "my-attr"));
+        assertTrue(offHeap.contains("\u00e6r \u20ac"));
+        assertFalse(offHeap.contains("\u00e6r  \u20ac"));
+    }
+
+    @Test
+    public void scraperSearchesOffHeap() {
+        Scraper eager = Scraper.buildWithString(siteContent);
+        Scraper offHeap = Scraper.buildWithString(siteContent, new ParseOptions().setOffHeap(true));
+
+        assertEquals(siteContent, offHeap.getWebsiteContent());
+        assertEquals(eager.getContentFromIdAsString("header1"), offHeap.getContentFromIdAsString("header1"));
+        assertEquals(eager.getContentFromClassAsString("item"), offHeap.getContentFromClassAsString("item"));
+        assertEquals(eager.getAllImagesFromPageAsString(), offHeap.getAllImagesFromPageAsString());
+        assertTrue(offHeap.containsAsBoolean("nested"));
+        assertEquals(eager.getLinksInPageAsString(), offHeap.getLinksInPageAsString());
+        assertEquals(eager.getRoot().toString(), offHeap.getRoot().toString());
+
+        // nothing read through the elements is kept
+        assertNotSame(offHeap.getRoot(), offHeap.getRoot());
+    }
+}
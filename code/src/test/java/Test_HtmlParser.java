@@ -0,0 +1,102 @@
+import Scraper.Exceptions.ParseException;
+import Scraper.HtmlHandler;
+import Scraper.HtmlParser;
+import Scraper.Scraper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Test_HtmlParser {
+    String siteContent = "<!DOCTYPE html><html><!-- <a href=\"no\"> --><body class=\"c\">Hei <a href=\"/one\">one</a><img src=\"x.jpg\" alt><script>var a = '<a href=\"no\">';</script><p><a href=\"/two\" hidden>two</a></p></body></html>";
+
+    static final String MULTI_LINE_FILE = "src/test/java/MultiLineHTMLForScraper.html";
+
+    // records every event as a line of text
+    private static class Recorder implements HtmlHandler {
+        ArrayList<String> events = new ArrayList<>();
+
+        @Override
+        public void startElement(String tag) {
+            events.add("start " + tag);
+        }
+
+        @Override
+        public void attribute(String name, CharSequence value) {
+            events.add("attribute " + name + "=" + value);
+        }
+
+        @Override
+        public void text(CharSequence text) {
+            events.add("text " + text);
+        }
+
+        @Override
+        public void endElement(String tag) {
+            events.add("end " + tag);
+        }
+    }
+
+    @Test
+    public void reportsEventsInDocumentOrder() throws ParseException {
+        Recorder recorder = new Recorder();
+        new HtmlParser().parse(siteContent, recorder);
+
+        String[] expected = {
+                "start html",
+                "start body", "attribute class=c", "text Hei ",
+                "start a", "attribute href=/one", "text one", "end a",
+                "start img", "attribute src=x.jpg", "attribute alt=", "end img",
+                "start script", "end script",
+                "start p", "start a", "attribute href=/two", "attribute hidden=", "text two", "end a", "end p",
+                "end body",
+                "end html"};
+        assertArrayEquals(expected, recorder.events.toArray());
+    }
+
+    @Test
+    public void extractsLinksWithoutBuildingTree() throws ParseException {
+        ArrayList<String> links = new ArrayList<>();
+
+        new HtmlParser().parse(siteContent, new HtmlHandler() {
+            private boolean inLink;
+
+            @Override
+            public void startElement(String tag) {
+                inLink = tag.equals("a");
+            }
+
+            @Override
+            public void attribute(String name, CharSequence value) {
+                if (inLink && name.equals("href"))
+                    links.add(value.toString());
+            }
+
+            @Override
+            public void text(CharSequence text) {
+            }
+
+            @Override
+            public void endElement(String tag) {
+            }
+        });
+
+        assertArrayEquals(new String[]{"/one", "/two"}, links.toArray());
+    }
+
+    @Test
+    public void lineBreaksInFileTextBecomeOneSpace() {
+        Scraper sc = Scraper.buildWithFile(MULTI_LINE_FILE);
+
+        assertEquals("Hello world and friends", sc.getContentFromIdAsString("greeting").get(0));
+        assertEquals("tab separated,   spaces kept ", sc.getContentFromClassAsString("item").get(0));
+        assertEquals("next page", sc.getContentFromTagAsString("a").get(0));
+        assertEquals("Multi line", sc.getContentFromTagAsString("title").get(0));
+    }
+
+    @Test
+    public void throwsOnMismatchedTailTag() {
+        assertThrows(ParseException.class, () -> new HtmlParser().parse("<div><p>text</div>", new Recorder()));
+    }
+}
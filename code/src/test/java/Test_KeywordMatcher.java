@@ -0,0 +1,85 @@
+import Scraper.Element;
+import Scraper.KeywordMatcher;
+import Scraper.ParseOptions;
+import Scraper.Scraper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Test_KeywordMatcher {
+    String siteContent = "<html><body id=\"body\">" +
+            "<div id=\"d1\"><p id=\"p1\">Cheap Shoes on SALE</p><p id=\"p2\">shoes, hats and shoelaces</p></div>" +
+            "<div id=\"d2\"><h1 id=\"h1\">Hers and his</h1><p id=\"p3\">Ser du ΣΟΦΟΣ?<b id=\"b1\">Sal</b>e</p></div>" +
+            "</body></html>";
+    Scraper sc = Scraper.buildWithString(siteContent);
+
+    private static List<String> hits(ArrayList<KeywordMatcher.Hit> hits) {
+        List<String> result = new ArrayList<>();
+        for (KeywordMatcher.Hit hit : hits)
+            result.add(hit.getKeyword() + "@" + hit.getElement().getAttributes().get("id") + ":" + hit.getTextIndex() + ":" + hit.getStart());
+        return result;
+    }
+
+    @Test
+    public void findsEveryKeywordInOnePass() {
+        KeywordMatcher keywords = KeywordMatcher.compile("shoe", "shoes", "sale", "hats");
+
+        assertEquals(List.of("shoe@p1:0:6", "shoes@p1:0:6", "sale@p1:0:15", "shoe@p2:0:0", "shoes@p2:0:0", "hats@p2:0:7", "shoe@p2:0:16"),
+                hits(sc.getKeywordHits(keywords)));
+        assertEquals(List.of("shoe", "shoes", "sale", "hats"), sc.getKeywordsInPageAsString(keywords));
+    }
+
+    @Test
+    public void findsOverlappingAndNestedKeywords() {
+        KeywordMatcher keywords = KeywordMatcher.compile("he", "she", "his", "hers");
+
+        assertEquals(List.of("he@p1:0:1", "he@h1:0:0", "hers@h1:0:0", "his@h1:0:9"), hits(sc.getKeywordHits(keywords)));
+        // at the same end the longer keyword comes first
+        assertEquals(List.of("she@x:0:0", "he@x:0:1", "hers@x:0:1", "she@x:0:4", "he@x:0:5"),
+                hits(keywords.findAll(Scraper.buildWithString("<p id=\"x\">shershe</p>").getRoot())));
+    }
+
+    @Test
+    public void ignoresCaseWithoutCopyingText() {
+        KeywordMatcher keywords = KeywordMatcher.compile("CHEAP", "Sale", "σοφοσ", "sal");
+
+        assertEquals(List.of("CHEAP@p1:0:0", "sal@p1:0:15", "Sale@p1:0:15", "σοφοσ@p3:0:7", "sal@b1:0:0"), hits(sc.getKeywordHits(keywords)));
+        // "Sal" and "e" are different texts, a keyword is found inside one text only
+        assertEquals(List.of("CHEAP", "Sale", "σοφοσ", "sal"), sc.getKeywordsInPageAsString(keywords));
+        assertEquals(List.of("sale", "dotted"), KeywordMatcher.compile("sale", "SALE", "dotted").getKeywords());
+        assertEquals(1, KeywordMatcher.compile("Kelvin").findAll(Scraper.buildWithString("<p>kelvin</p>").getRoot()).size());
+    }
+
+    @Test
+    public void searchesInsideStartNode() {
+        Element d2 = sc.getRoot().getNodeChild(0).getNodeChild(1);
+        KeywordMatcher keywords = KeywordMatcher.compile("shoes", "his", "sal");
+
+        assertEquals(List.of("his@h1:0:9", "sal@b1:0:0"), hits(sc.getKeywordHits(keywords, d2)));
+        assertEquals(List.of("his", "sal"), sc.getKeywordsInPageAsString(keywords, d2));
+        assertEquals(List.of(), KeywordMatcher.compile("zebra").findKeywords(d2));
+    }
+
+    @Test
+    public void findsTheSameAsContainsSearches() {
+        Scraper flat = Scraper.buildWithString(siteContent, new ParseOptions().setFlat(true));
+        List<String> words = List.of("shoe", "and", "SALE", "du", "missing", "s", "ΣΟΦΟΣ", "e");
+        KeywordMatcher keywords = KeywordMatcher.compile(words);
+
+        List<String> expected = new ArrayList<>();
+        for (String word : words)
+            if (sc.containsCaseInSensetiveAsBoolean(word))
+                expected.add(word);
+        assertEquals(expected, sc.getKeywordsInPageAsString(keywords));
+        assertEquals(expected, flat.getKeywordsInPageAsString(keywords));
+    }
+
+    @Test
+    public void invalidKeywordsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> KeywordMatcher.compile(), "no keywords");
+        assertThrows(IllegalArgumentException.class, () -> KeywordMatcher.compile("a", ""), "empty keyword");
+    }
+}
@@ -0,0 +1,110 @@
+import Scraper.Element;
+import Scraper.Exceptions.ParseException;
+import Scraper.ParseOptions;
+import Scraper.Scraper;
+import Scraper.Selector;
+import Scraper.TreeBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Test_Selector {
+    String siteContent = "<html><body id=\"body\">" +
+            "<div id=\"d1\" class=\"box main\"><p id=\"p1\" class=\"text\">one</p><p id=\"p2\">two</p><span id=\"s1\"></span><p id=\"p3\" lang=\"en-US\">three</p></div>" +
+            "<div id=\"d2\" class=\"box\"><ul id=\"u1\"><li id=\"l1\">a</li><li id=\"l2\">b</li><li id=\"l3\">c</li><li id=\"l4\">d</li><li id=\"l5\">e</li></ul></div>" +
+            "<a id=\"a1\" href=\"/item/1\">x</a><a id=\"a2\" href=\"http://other/item.html\" rel=\"next nofollow\">y</a>" +
+            "</body></html>";
+    Scraper sc = Scraper.buildWithString(siteContent);
+
+    private static List<String> ids(ArrayList<Element> elements) {
+        List<String> ids = new ArrayList<>();
+        for (Element element : elements)
+            ids.add(element.getAttributes().get("id"));
+        return ids;
+    }
+
+    @Test
+    public void selectsByTagIdAndClass() {
+        assertEquals(List.of("p1", "p2", "p3"), ids(sc.select("p")));
+        assertEquals(List.of("d2"), ids(sc.select("#d2")));
+        assertEquals(List.of("d1", "d2"), ids(sc.select(".box")));
+        assertEquals(List.of("d1"), ids(sc.select("div.box.main")));
+        assertEquals(List.of("p1"), ids(sc.select("p.text#p1")));
+        assertEquals(16, sc.select("*").size());
+        assertEquals(List.of(), sc.select("table"));
+    }
+
+    @Test
+    public void selectsWithCombinators() {
+        assertEquals(List.of("p1", "p2", "p3"), ids(sc.select("body p")));
+        assertEquals(List.of("l1", "l2", "l3", "l4", "l5"), ids(sc.select("div.box li")));
+        assertEquals(List.of(), sc.select("div > li"));
+        assertEquals(List.of("l1"), ids(sc.select("#d2 > ul > li:first-child")));
+        assertEquals(List.of("p2"), ids(sc.select("p.text + p")));
+        assertEquals(List.of("p2", "p3"), ids(sc.select("p.text ~ p")));
+        assertEquals(List.of("p3"), ids(sc.select("span+p")));
+        assertEquals(List.of("a1", "a2"), ids(sc.select("div ~ a")));
+        assertEquals(List.of("u1"), ids(sc.select("body div.box:nth-child(2)>ul")));
+    }
+
+    @Test
+    public void selectsByAttribute() {
+        assertEquals(List.of("a1", "a2"), ids(sc.select("a[href]")));
+        assertEquals(List.of("a1"), ids(sc.select("a[href=\"/item/1\"]")));
+        assertEquals(List.of("a1"), ids(sc.select("[href^='/item']")));
+        assertEquals(List.of("a2"), ids(sc.select("a[href$='.html']")));
+        assertEquals(List.of("a1", "a2"), ids(sc.select("a[href*=item]")));
+        assertEquals(List.of("a2"), ids(sc.select("a[rel~=nofollow]")));
+        assertEquals(List.of("p3"), ids(sc.select("[lang|=en]")));
+        assertEquals(List.of(), sc.select("a[href^='']"));
+    }
+
+    @Test
+    public void selectsByPosition() {
+        assertEquals(List.of("l1", "l3", "l5"), ids(sc.select("li:nth-child(odd)")));
+        assertEquals(List.of("l2", "l4"), ids(sc.select("li:nth-child(even)")));
+        assertEquals(List.of("l2", "l5"), ids(sc.select("li:nth-child(3n+2)")));
+        assertEquals(List.of("l1", "l2"), ids(sc.select("li:nth-child(-n+2)")));
+        assertEquals(List.of("l4"), ids(sc.select("li:nth-child(4)")));
+        assertEquals(List.of("l5"), ids(sc.select("li:last-child")));
+        assertEquals(List.of("p1", "l1"), ids(sc.select("p:first-child, li:first-child")));
+    }
+
+    @Test
+    public void selectsInsideStartNode() {
+        Element d2 = sc.getRoot().getNodeChild(0).getNodeChild(1);
+        assertEquals(List.of("l2", "l3", "l4", "l5"), ids(sc.select("li + li", d2)));
+        assertEquals(List.of("d2"), ids(sc.select("div", d2)));
+        assertEquals(List.of(), sc.select("body li", d2));
+    }
+
+    @Test
+    public void matchesSingleElement() throws ParseException {
+        Element root = new TreeBuilder().build(siteContent);
+        Element l3 = root.getNodeChild(0).getNodeChild(1).getNodeChild(0).getNodeChild(2);
+        assertTrue(Selector.compile("body > div ul li:nth-child(3)").matches(l3));
+        assertTrue(Selector.compile("li + li ~ li").matches(l3));
+        assertFalse(Selector.compile("div > li").matches(l3));
+    }
+
+    @Test
+    public void compiledSelectorsAreKept() {
+        assertSame(Selector.compile("div > p.text"), Selector.compile("div > p.text"));
+        assertEquals("div > p.text", Selector.compile("div > p.text").toString());
+    }
+
+    @Test
+    public void flatPagesAreSelectedTheSame() {
+        Scraper flat = Scraper.buildWithString(siteContent, new ParseOptions().setFlat(true));
+        assertEquals(ids(sc.select("div.box > :nth-child(2n+1), a[href^=http]")), ids(flat.select("div.box > :nth-child(2n+1), a[href^=http]")));
+    }
+
+    @Test
+    public void invalidSelectorsAreRejected() {
+        for (String css : new String[]{"", "div >", "a[href", "a[href=x", "p:hover", "li:nth-child(x)", "div,", "a[href!=x]", "p)"})
+            assertThrows(IllegalArgumentException.class, () -> Selector.compile(css), css);
+    }
+}
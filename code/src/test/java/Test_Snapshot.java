@@ -0,0 +1,110 @@
+import Scraper.Exceptions.ParseException;
+import Scraper.FlatDocument;
+import Scraper.ParseOptions;
+import Scraper.Scraper;
+import Scraper.TreeBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Test_Snapshot {
+    String siteContent = "<!DOCTYPE html><html lang=\"en\"><body><h1 id=\"header1\" class=\"title\">Hello wörld</h1>" +
+            "<div class=\"item\">first<p>nested <my-tag my-attr=\"1\">x</my-tag></p>second</div>" +
+            "<img src=\"a.jpg\" id=\"pic\"><img alt=\"none\"><p class=\"item\">third</p></body></html>";
+
+    File snapshotFile() throws IOException {
+        File file = File.createTempFile("framescraper", ".snapshot");
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void snapshotReadsTheSameAsParsing() throws IOException, ParseException {
+        String expected = new TreeBuilder().build(siteContent).toString();
+
+        for (ParseOptions options : new ParseOptions[]{new ParseOptions(), new ParseOptions().setFlat(true), new ParseOptions().setOffHeap(true)}) {
+            Scraper parsed = Scraper.buildWithString(siteContent, options);
+            File file = snapshotFile();
+            parsed.writeSnapshot(file.getPath());
+
+            Scraper loaded = Scraper.buildWithSnapshot(file.getPath());
+            assertEquals(expected, loaded.getRoot().toString());
+            assertNull(loaded.getWebsiteContent());
+            assertEquals(parsed.getContentFromIdAsString("header1"), loaded.getContentFromIdAsString("header1"));
+            assertEquals(parsed.getContentFromClassAsString("item"), loaded.getContentFromClassAsString("item"));
+            assertEquals(parsed.getAllImagesFromPageAsString(), loaded.getAllImagesFromPageAsString());
+            assertTrue(loaded.containsAsBoolean("wörld"));
+        }
+    }
+
+    @Test
+    public void snapshotKeepsUrl() throws IOException {
+        File html = snapshotFile();
+        Files.write(html.toPath(), siteContent.getBytes(StandardCharsets.UTF_8));
+        File file = snapshotFile();
+
+        Scraper.buildWithFile(html.getPath()).writeSnapshot(file.getPath());
+        assertEquals(html.getPath(), Scraper.buildWithSnapshot(file.getPath()).getUrl());
+
+        Scraper.buildWithString(siteContent).writeSnapshot(file.getPath());
+        assertNull(Scraper.buildWithSnapshot(file.getPath()).getUrl());
+    }
+
+    @Test
+    public void emptyPageMakesEmptySnapshot() throws IOException {
+        File file = snapshotFile();
+        Scraper.buildWithString("just text").writeSnapshot(file.getPath());
+
+        Scraper loaded = Scraper.buildWithSnapshot(file.getPath());
+        assertNull(loaded.getRoot());
+        assertEquals(0, loaded.getDocument().size());
+    }
+
+    @Test
+    public void otherFilesAreNotRead() throws IOException {
+        File file = snapshotFile();
+        Files.write(file.toPath(), siteContent.getBytes(StandardCharsets.UTF_8));
+        Scraper notSnapshot = Scraper.buildWithSnapshot(file.getPath());
+        assertNull(notSnapshot.getRoot());
+        assertNull(notSnapshot.getDocument());
+
+        Scraper.buildWithString(siteContent).writeSnapshot(file.getPath());
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+        assertNull(Scraper.buildWithSnapshot(file.getPath()).getDocument());
+    }
+
+    @Test
+    public void changedHeadersAreNotRead() throws IOException {
+        File file = snapshotFile();
+        Scraper.buildWithString(siteContent).writeSnapshot(file.getPath());
+        byte[] bytes = Files.readAllBytes(file.toPath());
+
+        // the snapshot header is 12 bytes without an url, then the document: magic, version, registry fingerprint, elements ...
+        int[][] changes = {{8, Integer.MAX_VALUE - 4}, {20, 12345}, {24, 0x40000000}, {24, Integer.MAX_VALUE}, {28, -1}, {40, 1 << 29}};
+        for (int[] change : changes) {
+            ByteBuffer changed = ByteBuffer.wrap(bytes.clone()).order(ByteOrder.LITTLE_ENDIAN);
+            changed.putInt(change[0], change[1]);
+            Files.write(file.toPath(), changed.array());
+            assertNull(Scraper.buildWithSnapshot(file.getPath()).getDocument());
+        }
+
+        Files.write(file.toPath(), bytes);
+        assertNotNull(Scraper.buildWithSnapshot(file.getPath()).getDocument());
+    }
+
+    @Test
+    public void documentOfTreeReadsTheSame() throws ParseException {
+        String expected = new TreeBuilder().build(siteContent).toString();
+        assertEquals(expected, FlatDocument.of(new TreeBuilder().build(siteContent)).getRoot().toString());
+        assertEquals(0, FlatDocument.of(null).size());
+    }
+}
@@ -0,0 +1,89 @@
+import Scraper.Element;
+import Scraper.Exceptions.ParseException;
+import Scraper.ParseOptions;
+import Scraper.Scraper;
+import Scraper.TextIndex;
+import Scraper.TreeBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Test_TextIndex {
+
+    private static void assertSameTextSearches(Scraper expected, Scraper actual, Element expectedScope, Element actualScope) {
+        for (String search : new String[]{"Text 1", "text 4", "TEXT", "ext", "xt", "", "link", "no source", "missing", "ΣΟΦΟΣ", "σοφος", "İstanbul", "istanbul"}){
+            assertEquals(expected.containsAsBoolean(search, expectedScope), actual.containsAsBoolean(search, actualScope), search);
+            assertEquals(expected.containsAsNode(search, expectedScope).toString(), actual.containsAsNode(search, actualScope).toString(), search);
+            assertEquals(expected.containsCaseInSensetiveAsBoolean(search, expectedScope), actual.containsCaseInSensetiveAsBoolean(search, actualScope), search);
+            assertEquals(expected.containsCaseInSensetiveAsNode(search, expectedScope).toString(), actual.containsCaseInSensetiveAsNode(search, actualScope).toString(), search);
+        }
+    }
+
+    @Test
+    public void textIndexedScraperAnswersLikeWalkingScraper() {
+        String html = Test_ElementIndex.indexedPage().replace("</body>", "<h1>ΣΟΦΟΣ</h1><h2>İstanbul</h2></body>");
+        Scraper walking = Scraper.buildWithString(html);
+        Scraper indexed = Scraper.buildWithString(html, new ParseOptions().setTextIndexed(true));
+
+        assertNull(walking.getTextIndex());
+        assertTrue(indexed.getTextIndex().covers(indexed.getRoot()));
+        assertSameTextSearches(walking, indexed, walking.getRoot(), indexed.getRoot());
+        assertEquals(11, indexed.containsAsNode("Text 1").size());
+        assertTrue(indexed.containsCaseInSensetiveAsBoolean("ΣΟΦΟΣ"));
+
+        for (int n : new int[]{0, 10, 49}){
+            Element walkingDiv = walking.getRoot().getNodeChild(0).getNodeChild(n);
+            Element indexedDiv = indexed.getRoot().getNodeChild(0).getNodeChild(n);
+            assertSameTextSearches(walking, indexed, walkingDiv, indexedDiv);
+        }
+
+        Scraper lazy = Scraper.buildWithString(html, new ParseOptions().setLazy(true).setTextIndexed(true));
+        assertTrue(lazy.getTextIndex().isValid());
+        assertSameTextSearches(walking, lazy, walking.getRoot(), lazy.getRoot());
+    }
+
+    @Test
+    public void changedTreeIsSearchedWithoutTextIndex() throws ParseException {
+        Scraper scraper = Scraper.buildWithString(Test_ElementIndex.indexedPage(), new ParseOptions().setTextIndexed(true));
+        TextIndex index = scraper.getTextIndex();
+        Element body = scraper.getRoot().getNodeChild(0);
+
+        body.addNodeChild(new TreeBuilder().build("<p>added text</p>"));
+
+        assertFalse(index.isValid());
+        assertThrows(IllegalArgumentException.class, () -> index.contains("added", body));
+        assertTrue(scraper.containsAsBoolean("added"));
+        assertEquals(1, scraper.containsCaseInSensetiveAsNode("ADDED TEXT").size());
+    }
+
+    @Test
+    public void changedTextsAreSearchedWithoutTextIndex() {
+        Scraper scraper = Scraper.buildWithString(Test_ElementIndex.indexedPage(), new ParseOptions().setTextIndexed(true));
+        TextIndex index = scraper.getTextIndex();
+        Element body = scraper.getRoot().getNodeChild(0);
+
+        body.addStringChild("needle");
+        assertFalse(index.isValid());
+        assertTrue(scraper.containsAsBoolean("needle"));
+
+        scraper = Scraper.buildWithString(Test_ElementIndex.indexedPage(), new ParseOptions().setTextIndexed(true));
+        Element first = scraper.containsAsNode("Text 0").get(0);
+        String old = first.getStringChild(0);
+        first.getStringChildren().set(0, "haystack");
+        assertEquals(List.of(first), scraper.containsAsNode("haystack"));
+        assertFalse(scraper.containsAsNode(old).contains(first));
+
+        scraper = Scraper.buildWithString(Test_ElementIndex.indexedPage(), new ParseOptions().setTextIndexed(true));
+        first = scraper.containsAsNode("Text 0").get(0);
+        old = first.getStringChild(0);
+        first.getStringChildren().remove(0);
+        assertFalse(scraper.containsAsNode(old).contains(first));
+
+        scraper = Scraper.buildWithString(Test_ElementIndex.indexedPage(), new ParseOptions().setTextIndexed(true));
+        scraper.getRoot().getNodeChild(0).setStringChildren(new ArrayList<>(List.of("replaced")));
+        assertTrue(scraper.containsCaseInSensetiveAsBoolean("REPLACED"));
+    }
+}
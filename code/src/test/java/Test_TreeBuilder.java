@@ -0,0 +1,407 @@
+import Scraper.Element;
+import Scraper.ElementFilter;
+import Scraper.Exceptions.ParseException;
+import Scraper.ParseOptions;
+import Scraper.Scraper;
+import Scraper.TagRegistry;
+import Scraper.TreeBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Test_TreeBuilder {
+
+    static String page(int n) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<!DOCTYPE html><html lang=\"en\"><body id=\"page").append(n).append("\">");
+        sb.append("<!-- comment ").append(n).append(" -->");
+        sb.append("<script>var x = \"<p>\";</script>");
+        for (int i = 0; i < n % 20 + 1; i++) {
+            sb.append("<div class=\"item\"><p>text ").append(n).append('-').append(i).append("</p><img src=\"").append(i).append(".jpg\"></div>");
+        }
+        sb.append("</body></html>");
+        return sb.toString();
+    }
+
+    private static void checkPage(Element root, int n) {
+        assertEquals("html", root.getTag());
+        Element body = root.getNodeChildren().get(0);
+        assertEquals("page" + n, body.getAttributes().get("id"));
+
+        // script element with its content skipped, then one div per item
+        assertEquals("script", body.getNodeChildren().get(0).getTag());
+        assertEquals(n % 20 + 2, body.getNodeChildren().size());
+
+        for (int i = 0; i < n % 20 + 1; i++) {
+            Element div = body.getNodeChildren().get(i + 1);
+            assertEquals("item", div.getAttributes().get("class"));
+            assertEquals("text " + n + "-" + i, div.getNodeChildren().get(0).getStringChildren().get(0));
+            assertEquals(i + ".jpg", div.getNodeChildren().get(1).getAttributes().get("src"));
+        }
+    }
+
+    @Test
+    public void buildsTreeWithInstance() throws ParseException {
+        Element root = new TreeBuilder().build(page(3));
+        checkPage(root, 3);
+    }
+
+    @Test
+    public void instanceCanBeReused() throws ParseException {
+        TreeBuilder builder = new TreeBuilder();
+        for (int n = 0; n < 10; n++)
+            checkPage(builder.build(page(n)), n);
+    }
+
+    @Test
+    public void buildsManyPagesConcurrently() throws Exception {
+        int pages = 5000;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+
+        try {
+            List<Future<Element>> futures = new ArrayList<>();
+            for (int n = 0; n < pages; n++) {
+                String html = page(n);
+                futures.add(pool.submit(() -> new TreeBuilder().build(html)));
+            }
+
+            for (int n = 0; n < pages; n++)
+                checkPage(futures.get(n).get(), n);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void buildsSameTreeFromReaderAsFromString() throws ParseException, IOException {
+        StringBuilder sb = new StringBuilder("<html><body>");
+        for (int n = 0; n < 2000; n++)
+            sb.append("<div class=\"item\"><!-- c --><p>text ").append(n).append("</p><br><script>a<b</script></div>");
+        sb.append("</body></html>");
+        String html = sb.toString();
+
+        // hands out a few characters per read, so tokens are split over many chunks
+        Reader trickle = new Reader() {
+            private int position;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (position >= html.length())
+                    return -1;
+                int count = Math.min(Math.min(length, position % 7 + 1), html.length() - position);
+                html.getChars(position, position + count, buffer, offset);
+                position += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        String expected = new TreeBuilder().build(html).toString();
+        assertEquals(expected, new TreeBuilder().build(trickle).toString());
+        assertEquals(expected, new TreeBuilder().build(new StringReader(html)).toString());
+    }
+
+    @Test
+    public void scraperBuildsFromInputStream() {
+        String html = "<html><body><h1 id=\"header1\">Hello wörld</h1>\n<p\nclass=\"text\">This is my world</p></body></html>";
+        Scraper sc = Scraper.buildWithInputStream(new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("Hello wörld", sc.getContentFromIdAsString("header1").get(0));
+        assertEquals("This is my world", sc.getContentFromClassAsString("text").get(0));
+    }
+
+    @Test
+    public void streamedTextIsTheSameAsStringText() throws ParseException, IOException {
+        StringBuilder sb = new StringBuilder("<html>\n<body>\n");
+        for (int n = 0; n < 500; n++)
+            sb.append("  <div class=\"item\">\n    <p>Hello\r\n      world ").append(n).append("\tand\n\n friends</p>\n  </div>\n");
+        sb.append("</body>\n</html>\n");
+        String html = sb.toString();
+
+        // a few characters per read, so runs of line breaks are split over chunks
+        Reader trickle = new Reader() {
+            private int position;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (position >= html.length())
+                    return -1;
+                int count = Math.min(Math.min(length, position % 5 + 1), html.length() - position);
+                html.getChars(position, position + count, buffer, offset);
+                position += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        Scraper fromString = Scraper.buildWithString(html);
+        assertEquals("Hello world 7 and friends", fromString.getContentFromTagAsString("p").get(7));
+
+        String expected = fromString.getRoot().toString();
+        assertEquals(expected, Scraper.buildWithReader(trickle).getRoot().toString());
+        assertEquals(expected, Scraper.buildWithInputStream(new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8))).getRoot().toString());
+        assertEquals(expected, new TreeBuilder().build(new StringReader(html)).toString());
+    }
+
+    @Test
+    public void buildsOnlySubtreesAcceptedByFilter() {
+        String html = "<html><body><nav class=\"menu\"><a href=\"/\">home</a></nav>"
+                + "<div class=\"product\"><h2>Chair</h2><span class=\"price\">10</span></div>"
+                + "<footer><div class=\"ad\">buy</div></footer>"
+                + "<div class=\"product\"><h2>Table</h2><img src=\"t.jpg\"><span class=\"price\">20</span></div></body></html>";
+
+        Scraper sc = Scraper.buildWithString(html, ElementFilter.className("product"));
+        Element root = sc.getRoot();
+
+        assertEquals("html", root.getTag());
+        assertEquals(2, root.getNodeChildren().size());
+        assertArrayEquals(new String[]{"10", "20"}, sc.getContentFromClassAsString("price").toArray());
+        assertArrayEquals(new String[]{"Chair", "Table"}, sc.getContentFromTagAsString("h2").toArray());
+        assertTrue(sc.getLinksInPageAsNode().isEmpty());
+        assertFalse(sc.containsAsBoolean("buy"));
+    }
+
+    @Test
+    public void filtersOnTagAndId() throws ParseException {
+        String html = "<html><body><p id=\"intro\">hi</p><table><tr><td>1</td></tr></table><p>skip</p></body></html>";
+
+        Element root = new TreeBuilder(ElementFilter.id("intro").or(ElementFilter.tag("table"))).build(html);
+
+        assertEquals(2, root.getNodeChildren().size());
+        assertEquals("hi", root.getNodeChildren().get(0).getStringChildren().get(0));
+        assertEquals("table", root.getNodeChildren().get(1).getTag());
+        assertEquals("1", root.getNodeChildren().get(1).getNodeChildren().get(0).getNodeChildren().get(0).getStringChildren().get(0));
+    }
+
+    @Test
+    public void keepsWholePageWhenRootIsAccepted() throws ParseException {
+        String html = "<html><body><p>a</p></body></html>";
+        Element expected = new TreeBuilder().build(html);
+
+        assertEquals(expected.toString(), new TreeBuilder(ElementFilter.tag("html")).build(html).toString());
+    }
+
+    @Test
+    public void lazyScraperAnswersLikeEagerScraper() {
+        StringBuilder sb = new StringBuilder("<html><body>");
+        for (int n = 0; n < 1000; n++)
+            sb.append("<div id=\"d").append(n).append("\"><img id=\"i").append(n).append("\" src=\"").append(n).append(".jpg\">")
+                    .append("<video id=\"v").append(n).append("\"><source src=\"").append(n).append(".mp4\"></video>Text ").append(n).append("</div>");
+        sb.append("</body></html>");
+        String html = sb.toString();
+
+        Scraper eager = Scraper.buildWithString(html);
+        Scraper lazy = Scraper.buildLazyWithString(html);
+
+        assertEquals("5.jpg", lazy.getImageByIdAsString("i5"));
+        assertEquals("7.mp4", lazy.getVideoByIdAsString("v7"));
+        assertEquals("v3", lazy.getVideoByIdAsNode("v3").getAttributes().get("id"));
+        assertTrue(lazy.containsAsBoolean("Text 20"));
+        assertTrue(lazy.containsCaseInSensetiveAsBoolean("text 900"));
+        assertFalse(lazy.containsAsBoolean("missing"));
+        assertNull(lazy.getImageByIdAsNode("missing"));
+
+        assertEquals(eager.getRoot().toString(), lazy.getRoot().toString());
+        assertEquals(eager.getContentFromTagAsString("div"), lazy.getContentFromTagAsString("div"));
+    }
+
+    @Test
+    public void lazyScraperOfMalformedHtmlHasNoTreeLikeEagerScraper() {
+        String html = "<html><body><img id=\"first\" src=\"first.jpg\"><div>Text</span></body></html>";
+        Scraper eager = Scraper.buildWithString(html);
+        assertNull(eager.getRoot());
+
+        Scraper lazy = Scraper.buildLazyWithString(html);
+        assertNull(lazy.getRoot());
+
+        // what is found before the error is answered, after it the scraper has no tree, and no index, like the eager one
+        Scraper searched = Scraper.buildWithString(html, new ParseOptions().setLazy(true).setIndexed(true));
+        assertEquals("first.jpg", searched.getImageByIdAsString("first"));
+        assertThrows(NullPointerException.class, () -> searched.getImageByIdAsNode("missing"));
+        assertThrows(NullPointerException.class, () -> eager.getImageByIdAsNode("missing"));
+        assertThrows(NullPointerException.class, () -> searched.containsAsBoolean("missing"));
+        assertThrows(NullPointerException.class, () -> eager.containsAsBoolean("missing"));
+        assertNull(searched.getRoot());
+        assertNull(searched.getIndex());
+    }
+
+    @Test
+    public void lazyScraperWithFilterAnswersLikeEagerScraper() {
+        StringBuilder sb = new StringBuilder("<html><body>");
+        for (int n = 0; n < 1000; n++)
+            sb.append("<div id=\"d").append(n).append("\"><img id=\"i").append(n).append("\" src=\"").append(n).append(".jpg\">")
+                    .append("<p class=\"keep\">Text ").append(n).append("</p></div>");
+        sb.append("</body></html><img id=\"last\" src=\"last.jpg\">");
+        String html = sb.toString();
+        ElementFilter filter = ElementFilter.tag("img").or(ElementFilter.className("keep"));
+
+        Scraper eager = Scraper.buildWithString(html, new ParseOptions().setFilter(filter));
+        Scraper lazy = Scraper.buildWithString(html, new ParseOptions().setFilter(filter).setLazy(true));
+
+        // the kept elements are found while parsing, which stops at the element found
+        Element i5 = lazy.getImageByIdAsNode("i5");
+        assertEquals("5.jpg", i5.getAttributes().get("src"));
+        assertEquals(11, i5.getParent().getNodeChildCount());
+        assertTrue(lazy.containsAsBoolean("Text 20"));
+        assertEquals("last.jpg", lazy.getImageByIdAsString("last"));
+        assertNull(lazy.getImageByIdAsNode("d5"));
+
+        assertEquals(eager.getRoot().toString(), lazy.getRoot().toString());
+        assertEquals(eager.getContentFromClassAsString("keep"), lazy.getContentFromClassAsString("keep"));
+    }
+
+    @Test
+    public void scraperBuildsFromMappedFile() throws IOException {
+        String html = "\uFEFF<html>\n<body>\n\t<p\n   class=\"text\">Bl\u00e5b\u00e6r   og  \u20ac</p>\n\t<img src=\"\u00f8.jpg\">\n</body>\n</html>\n";
+        // a mapped file can not be deleted on every platform while the mapping is alive
+        Path file = Files.createTempFile("framescraper", ".html");
+        file.toFile().deleteOnExit();
+        Files.write(file, html.getBytes(StandardCharsets.UTF_8));
+
+        Scraper sc = Scraper.buildWithFile(file.toString());
+
+        assertEquals("Bl\u00e5b\u00e6r   og  \u20ac", sc.getContentFromClassAsString("text").get(0));
+        assertEquals("\u00f8.jpg", sc.getAllImagesFromPageAsString().get(0));
+        assertEquals(html.substring(1), sc.getWebsiteContent());
+    }
+
+    @Test
+    public void sharesKnownNamesAndGivesTagIds() throws ParseException {
+        Element root = new TreeBuilder().build("<html><div class=\"a\"></div><div class=\"b\"></div><my-tag></my-tag></html>");
+        Element first = root.getNodeChildren().get(0);
+        Element second = root.getNodeChildren().get(1);
+
+        assertSame(first.getTag(), second.getTag());
+        assertSame(first.getAttributeNames().get(0), second.getAttributeNames().get(0));
+        assertEquals(TagRegistry.idOf("div"), first.getTagId());
+        assertEquals(TagRegistry.UNKNOWN, root.getNodeChildren().get(2).getTagId());
+        assertEquals("my-tag", root.getNodeChildren().get(2).getTag());
+    }
+
+    @Test
+    public void zeroCopyKeepsViewsUntilAsked() throws ParseException {
+        String html = page(3);
+        TreeBuilder builder = new TreeBuilder();
+        builder.setZeroCopy(true);
+        Element root = builder.build(html);
+
+        assertEquals(new TreeBuilder().build(html).toString(), root.toString());
+        checkPage(builder.build(html), 3);
+
+        Element div = root.getNodeChildren().get(0).getNodeChildren().get(1);
+        Element p = div.getNodeChildren().get(0);
+        assertFalse(p.getTextChildren().get(0) instanceof String);
+        assertEquals("text 3-0", p.getStringChildren().get(0));
+        assertTrue(p.getTextChildren().get(0) instanceof String);
+
+        assertTrue(div.attributeEquals("class", "item"));
+        assertEquals("item", div.getAttributes().get("class"));
+    }
+
+    @Test
+    public void scraperBuildsWithZeroCopyOptions() {
+        String html = page(5);
+        Scraper eager = Scraper.buildWithString(html);
+        Scraper zeroCopy = Scraper.buildWithString(html, new ParseOptions().setZeroCopy(true));
+
+        assertEquals(eager.getRoot().toString(), zeroCopy.getRoot().toString());
+        assertEquals(eager.getContentFromClassAsString("item"), zeroCopy.getContentFromClassAsString("item"));
+        assertEquals(eager.getContentFromIdAsString("page5"), zeroCopy.getContentFromIdAsString("page5"));
+        assertEquals(eager.getAllImagesFromPageAsString(), zeroCopy.getAllImagesFromPageAsString());
+    }
+
+    @Test
+    public void compactElementKeepsReadAccess() throws ParseException {
+        Element root = new TreeBuilder().build("<html><p id=\"a\" class=\"x\" id=\"b\">text</p><br></html>");
+        Element p = root.getNodeChildren().get(0);
+        Element br = root.getNodeChildren().get(1);
+
+        assertEquals(List.of("id", "class", "id"), p.getAttributeNames());
+        assertEquals("b", p.getAttributes().get("id"));
+        assertEquals(2, p.getAttributes().size());
+        assertTrue(p.hasAttribute("class"));
+        assertFalse(p.hasAttribute("href"));
+
+        assertTrue(br.getNodeChildren().isEmpty());
+        assertTrue(br.getStringChildren().isEmpty());
+        assertTrue(br.getAttributes().isEmpty());
+        assertEquals(0, br.getNodeChildCount());
+
+        p.getAttributes().put("href", "/x");
+        p.getAttributes().remove("id");
+        assertEquals(List.of("class", "href"), p.getAttributeNames());
+
+        br.getNodeChildren().add(new Element("span"));
+        br.addStringChild("more");
+        assertEquals("span", br.getNodeChild(0).getTag());
+        assertEquals("more", br.getStringChild(0));
+
+        // the getters still give ArrayLists, and changing them changes the element
+        ArrayList<Element> children = root.getNodeChildren();
+        children.removeIf(child -> child == br);
+        assertEquals(1, root.getNodeChildCount());
+        ArrayList<String> texts = p.getStringChildren();
+        texts.add("after");
+        assertEquals(List.of("text", "after"), p.getStringChildren());
+        ArrayList<String> names = p.getAttributeNames();
+        assertTrue(names.contains("href"));
+        br.setStringChildren(new ArrayList<>(List.of("new")));
+        assertEquals(new ArrayList<>(List.of("new")), br.getStringChildren());
+    }
+
+    @Test
+    public void listViewsPassOnEveryArrayListMethod() throws Exception {
+        Element root = new TreeBuilder().build("<html><p>a</p><p>b</p></html>");
+        ArrayList<Element> children = root.getNodeChildren();
+
+        // the ArrayList the view extends is empty, a method of it not passed on would read that instead of the element
+        for (Method method : ArrayList.class.getDeclaredMethods())
+            if (Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers()))
+                assertEquals(children.getClass(), children.getClass().getMethod(method.getName(), method.getParameterTypes()).getDeclaringClass());
+
+        // the methods added to ArrayList in Java 21, called by name so this also runs on older versions
+        Element first = children.get(0);
+        Element last = children.get(1);
+        assertSame(first, sequenced(children, "getFirst"));
+        assertSame(last, sequenced(children, "getLast"));
+        Element added = new Element("span");
+        sequenced(children, "addFirst", added);
+        assertSame(added, root.getNodeChild(0));
+        assertSame(added, sequenced(children, "removeFirst"));
+        assertSame(last, sequenced(children, "removeLast"));
+        assertEquals(1, root.getNodeChildCount());
+        sequenced(children, "addLast", added);
+        assertSame(added, root.getNodeChild(1));
+        InvocationTargetException empty = assertThrows(InvocationTargetException.class, () -> sequenced(new Element("br").getNodeChildren(), "getFirst"));
+        assertTrue(empty.getCause() instanceof NoSuchElementException);
+    }
+
+    private static Object sequenced(ArrayList<?> list, String name, Object... arguments) throws Exception {
+        Method method = list.getClass().getMethod(name, arguments.length == 0 ? new Class<?>[0] : new Class<?>[]{Object.class});
+        method.setAccessible(true);
+        return method.invoke(list, arguments);
+    }
+}
@@ -1,9 +1,20 @@
 import Scraper.Exceptions.ParseException;
 import Scraper.Scraper;
 import Scraper.Element;
+import Scraper.ParseOptions;
+import Scraper.ElementVisitor;
+import Scraper.TreeBuilder;
+import Scraper.TreeTraverser;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -56,7 +67,7 @@ public class Test_TreeTraverser {
 
     @Test
     public void TagContentFromUserRequestedHtmlTagReturnedCorrectlyAsNode() {
-        ArrayList<SoupNode> actualArray = sc.getContentFromTagAsNode("p");
+        ArrayList<Element> actualArray = sc.getContentFromTagAsNode("p");
         String expected = "yo who";
         String actual = actualArray.get(0).getStringChildren().get(0);
         assertEquals(expected, actual);
@@ -77,7 +88,7 @@ public class Test_TreeTraverser {
     @Test
     public void IdContentFromUserRequestedHtmlIDReturnedCorrectlyAsNode() {
         String[] expectedArray = {"chIld, of CHIld."};
-        ArrayList<SoupNode> actualArray = sc.getContentFromIdAsNode("header1");
+        ArrayList<Element> actualArray = sc.getContentFromIdAsNode("header1");
 
         for(int i = 0; i < actualArray.size(); i++) {
             assertEquals(expectedArray[i], actualArray.get(i).getStringChildren().get(0));
@@ -95,7 +106,7 @@ public class Test_TreeTraverser {
     @Test
     public void ClassContentFromUserRequestedHtmlClassReturnedCorrectlyAsNode() {
         String[] expectedArray = {"yo who", "https://www.w3schools.com/"};
-        ArrayList<SoupNode> actualArray = sc.getContentFromClassAsNode("testClass");
+        ArrayList<Element> actualArray = sc.getContentFromClassAsNode("testClass");
 
         for(int i = 0; i < actualArray.size(); i++)
             assertEquals(expectedArray[i], actualArray.get(i).getStringChildren().get(0));
@@ -112,10 +123,10 @@ public class Test_TreeTraverser {
     @Test
     public void returnsLinksFromSiteCorrectlyAsNode() {
         String[] expectedArray = {"https://www.w3schools.com/", "https://www.test.com/"};
-        ArrayList<SoupNode> nodeArray = sc.getLinksInPageAsNode();
+        ArrayList<Element> nodeArray = sc.getLinksInPageAsNode();
         ArrayList<String> actualArray = new ArrayList<>();
 
-        for (SoupNode soupNode : nodeArray)
+        for (Element soupNode : nodeArray)
             actualArray.add(soupNode.getAttributes().get("href"));
 
         assertArrayEquals(expectedArray, actualArray.toArray());
@@ -166,10 +177,10 @@ public class Test_TreeTraverser {
     @Test
     public void getsAllImageLinksFromSiteAsNode() {
         String[] expectedArray = {"img_girl.jpg", "www.google.com/hjelp/img_boy.jpg"};
-        ArrayList<SoupNode> nodeArray = sc.getAllImagesFromPageAsNode();
+        ArrayList<Element> nodeArray = sc.getAllImagesFromPageAsNode();
         ArrayList<String> actualArray = new ArrayList<>();
 
-        for (SoupNode soupNode : nodeArray)
+        for (Element soupNode : nodeArray)
             actualArray.add(soupNode.getAttributes().get("src"));
 
         assertArrayEquals(expectedArray, actualArray.toArray());
@@ -186,7 +197,7 @@ public class Test_TreeTraverser {
     @Test
     public void getSpecificImageByIdFromSiteAsNode() {
         String expectedImage = "img_girl.jpg";
-        SoupNode actualNode = sc.getImageByIdAsNode("bestebildet");
+        Element actualNode = sc.getImageByIdAsNode("bestebildet");
 
         assertEquals(expectedImage, actualNode.getAttributes().get("src"));
     }
@@ -202,10 +213,10 @@ public class Test_TreeTraverser {
     @Test
     public void getsSpecificImagesByClassNameFromSiteAsNode() {
         String[] expectedArray = {"img_girl.jpg", "www.google.com/hjelp/img_boy.jpg"};
-        ArrayList<SoupNode> nodeArray = sc.getImageByClassAsNode("bestebildene");
+        ArrayList<Element> nodeArray = sc.getImageByClassAsNode("bestebildene");
         ArrayList<String> actualArray = new ArrayList<>();
 
-        for (SoupNode soupNode : nodeArray)
+        for (Element soupNode : nodeArray)
             actualArray.add(soupNode.getAttributes().get("src"));
 
         assertArrayEquals(expectedArray, actualArray.toArray());
@@ -222,10 +233,10 @@ public class Test_TreeTraverser {
     @Test
     public void getsAllVideosFromSiteCorrectlyAsNode() {
         String[] expectedArray = {"video_girl.mp4", "www.google.com/hjelp/video_boy.wma"};
-        ArrayList<SoupNode> nodeArray = sc.getAllVideosFromPageAsNode();
+        ArrayList<Element> nodeArray = sc.getAllVideosFromPageAsNode();
         ArrayList<String> actualArray = new ArrayList<>();
 
-        for (SoupNode soupNode : nodeArray)
+        for (Element soupNode : nodeArray)
             actualArray.add(soupNode.getAttributes().get("src"));
 
         assertArrayEquals(expectedArray, actualArray.toArray());
@@ -242,7 +253,7 @@ public class Test_TreeTraverser {
     @Test
     public void getsSpecificVideoByIdFromSiteAsNode() {
         String expected = "video_girl.mp4";
-        SoupNode actualNode = sc.getVideoByIdAsNode("bestevideoen");
+        Element actualNode = sc.getVideoByIdAsNode("bestevideoen");
 
         assertEquals(expected, actualNode.getAttributes().get("src"));
     }
@@ -258,10 +269,10 @@ public class Test_TreeTraverser {
     @Test
     public void getsSpecificVideosByClassNameFromSiteAsNode() {
         String[] expectedArray = {"video_girl.mp4"};
-        ArrayList<SoupNode> nodeArray = sc.getVideoByClassAsNode("bestevideoene");
+        ArrayList<Element> nodeArray = sc.getVideoByClassAsNode("bestevideoene");
         ArrayList<String> actualArray = new ArrayList<>();
 
-        for (SoupNode soupNode : nodeArray)
+        for (Element soupNode : nodeArray)
             actualArray.add(soupNode.getAttributes().get("src"));
 
         assertArrayEquals(expectedArray, actualArray.toArray());
@@ -299,4 +310,214 @@ public class Test_TreeTraverser {
         assertArrayEquals(expectedArray, actualArray.toArray());
     }
 
+    @Test
+    public void repeatedSearchesDoNotPileUp() {
+        sc.getAttributeContentWithIdAndNameAsString("bestebildet", "alt");
+        ArrayList<String> actualArray = sc.getAttributeContentWithIdAndNameAsString("bestebildet", "alt");
+
+        assertArrayEquals(new String[]{"Girl in a jacket"}, actualArray.toArray());
+    }
+
+    @Test
+    public void missingIdIsNotFound() {
+        assertEquals("img_girl.jpg", sc.getImageByIdAsString("bestebildet"));
+        assertEquals("", sc.getImageByIdAsString("nothing"));
+        assertEquals("video_girl.mp4", sc.getVideoByIdAsString("bestevideoen"));
+        assertEquals("", sc.getVideoByIdAsString("nothing"));
+        assertNull(sc.getImageByIdAsNode("nothing"));
+        assertNull(sc.getVideoByIdAsNode("nothing"));
+    }
+
+    @Test
+    public void searchesRunConcurrently() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                int n = i;
+                futures.add(pool.submit(() -> {
+                    switch (n % 4) {
+                        case 0:
+                            return sc.getContentFromTagAsString("p").equals(List.of("yo who", "yo mama"));
+                        case 1:
+                            return sc.getAllImagesFromPageAsString().equals(List.of("img_girl.jpg", "www.google.com/hjelp/img_boy.jpg"));
+                        case 2:
+                            return sc.getClassesInPage().equals(List.of("class1", "bestebildene", "bestevideoene", "testClass"));
+                        default:
+                            return sc.containsAsBoolean("yo mama") && !sc.containsAsBoolean("nothing");
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures)
+                assertTrue(future.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String deepPage(int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            sb.append("<div class=\"level\">");
+        sb.append("<img id=\"deepest\" src=\"deep.jpg\"><p>bottom</p>");
+        for (int i = 0; i < depth; i++)
+            sb.append("</div>");
+        return sb.toString();
+    }
+
+    @Test
+    public void searchesDeepDocuments() {
+        Scraper deep = Scraper.buildWithString(deepPage(100_000));
+
+        assertEquals(List.of("bottom"), deep.getContentFromTagAsString("p"));
+        assertTrue(deep.containsAsBoolean("bottom"));
+        assertTrue(deep.containsCaseInSensetiveAsBoolean("BOTTOM"));
+        assertFalse(deep.containsAsBoolean("top"));
+        assertEquals("deep.jpg", deep.getImageByIdAsString("deepest"));
+        assertEquals(List.of("deep.jpg"), deep.getAllImagesFromPageAsString());
+        assertEquals(List.of("level"), deep.getClassesInPage());
+        assertEquals(100_000, deep.getAttributeContentWithTagAndNameAsNode("div", "class").size());
+    }
+
+    @Test
+    public void walkGivesDepthsBelowItsRecursion() {
+        Element deep = Scraper.buildWithString(deepPage(2_000)).getRoot();
+        List<Integer> depths = new ArrayList<>();
+        List<String> tags = new ArrayList<>();
+        TreeTraverser.walk(deep, (node, depth) -> {
+            depths.add(depth);
+            tags.add(node.getTag());
+            return ElementVisitor.Next.CONTINUE;
+        });
+
+        assertEquals(2_002, depths.size());
+        for (int i = 0; i < 2_000; i++)
+            assertEquals(i, (int) depths.get(i));
+        assertEquals(List.of(2_000, 2_000), depths.subList(2_000, 2_002));
+        assertEquals(List.of("img", "p"), tags.subList(2_000, 2_002));
+
+        // stopping below the levels walked by recursion ends the whole walk
+        assertTrue(TreeTraverser.walk(deep, (node, depth) -> depth == 1_500 ? ElementVisitor.Next.STOP : ElementVisitor.Next.CONTINUE));
+    }
+
+    @Test
+    public void walkSkipsAndStops() {
+        List<String> visited = new ArrayList<>();
+        boolean stopped = TreeTraverser.walk(rootNode, (node, depth) -> {
+            visited.add(depth + node.getTag());
+            return node.getTag().equals("p") ? ElementVisitor.Next.SKIP_CHILDREN : ElementVisitor.Next.CONTINUE;
+        });
+
+        assertFalse(stopped);
+        assertEquals(List.of("0body", "1img", "1video", "1p", "1a", "1img", "1video", "1h1"), visited);
+
+        visited.clear();
+        stopped = TreeTraverser.walk(rootNode, (node, depth) -> {
+            visited.add(node.getTag());
+            return node.getTag().equals("a") ? ElementVisitor.Next.STOP : ElementVisitor.Next.CONTINUE;
+        });
+        assertTrue(stopped);
+        assertEquals(List.of("body", "img", "video", "p", "a"), visited);
+    }
+
+    @Test
+    public void streamsGiveTheSameAsLists() {
+        assertEquals(sc.getContentFromTagAsString("p"), sc.streamContentFromTagAsString("p").collect(Collectors.toList()));
+        assertEquals(sc.getContentFromTagAsNode("body"), sc.streamContentFromTagAsNode("body").collect(Collectors.toList()));
+        assertEquals(sc.getContentFromIdAsString("para"), sc.streamContentFromIdAsString("para").collect(Collectors.toList()));
+        assertEquals(sc.getContentFromIdAsNode("para"), sc.streamContentFromIdAsNode("para").collect(Collectors.toList()));
+        assertEquals(sc.getContentFromClassAsString("testClass"), sc.streamContentFromClassAsString("testClass").collect(Collectors.toList()));
+        assertEquals(sc.getContentFromClassAsNode("testClass"), sc.streamContentFromClassAsNode("testClass").collect(Collectors.toList()));
+        assertEquals(sc.getLinksInPageAsNode(), sc.streamLinksInPageAsNode().collect(Collectors.toList()));
+        assertEquals(sc.getAllImagesFromPageAsNode(), sc.streamAllImagesFromPageAsNode().collect(Collectors.toList()));
+        assertEquals(sc.getAllVideosFromPageAsNode(), sc.streamAllVideosFromPageAsNode().collect(Collectors.toList()));
+        assertEquals(sc.containsAsNode("o"), sc.streamContainsAsNode("o").collect(Collectors.toList()));
+        assertEquals(sc.select("p > a, img"), sc.streamSelect("p > a, img").collect(Collectors.toList()));
+
+        Element p = sc.getContentFromIdAsNode("para").get(0);
+        assertEquals(sc.getLinksInPageAsNode(p), sc.streamLinksInPageAsNode(p).collect(Collectors.toList()));
+        assertEquals(List.of(), sc.streamContentFromTagAsString("h2").collect(Collectors.toList()));
+    }
+
+    @Test
+    public void streamsStopAtTheFirstMatch() {
+        List<String> visited = new ArrayList<>();
+        Element first = TreeTraverser.stream(rootNode)
+                .peek(node -> visited.add(node.getTag()))
+                .filter(node -> node.getTag().equals("a"))
+                .findFirst().get();
+
+        assertEquals("https://www.w3schools.com/", first.getAttributes().get("href"));
+        assertEquals(List.of("body", "img", "video", "p", "a"), visited);
+        assertEquals("img_girl.jpg", sc.streamAllImagesFromPageAsNode().findFirst().get().getAttributes().get("src"));
+        assertTrue(sc.streamContainsAsNode("mama").anyMatch(node -> node.getTag().equals("p")));
+        assertEquals(1, sc.streamSelect("a").limit(1).count());
+    }
+
+    @Test
+    public void iteratorGoesThroughTheTreeInOrder() {
+        List<String> tags = new ArrayList<>();
+        Iterator<Element> elements = TreeTraverser.iterator(rootNode);
+        while (elements.hasNext())
+            tags.add(elements.next().getTag());
+
+        assertEquals(List.of("body", "img", "video", "p", "a", "p", "a", "img", "video", "h1"), tags);
+        assertFalse(TreeTraverser.iterator(null).hasNext());
+        assertThrows(java.util.NoSuchElementException.class, elements::next);
+    }
+
+    @Test
+    public void indexedStreamsGiveTheSameAsLists() {
+        Scraper indexed = Scraper.buildWithString(siteContent, new ParseOptions().setIndexed(true));
+
+        assertNotNull(indexed.getIndex());
+        assertEquals(indexed.getContentFromTagAsString("p"), indexed.streamContentFromTagAsString("p").collect(Collectors.toList()));
+        assertEquals(indexed.getContentFromClassAsNode("testClass"), indexed.streamContentFromClassAsNode("testClass").collect(Collectors.toList()));
+        assertEquals(indexed.getAllImagesFromPageAsNode(), indexed.streamAllImagesFromPageAsNode().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void parallelStreamsKeepDocumentOrder() throws ParseException {
+        StringBuilder page = new StringBuilder("<ul>");
+        for (int i = 0; i < 10000; i++)
+            page.append("<li class=\"c").append(i % 3).append("\"><a href=\"/").append(i).append("\">").append(i).append("</a></li>");
+        page.append("</ul>");
+        Scraper big = Scraper.buildWithString(page.toString());
+
+        assertEquals(big.getContentFromClassAsNode("c1"), big.streamContentFromClassAsNode("c1").parallel().collect(Collectors.toList()));
+        assertEquals(big.getContentFromTagAsString("a"), big.streamContentFromTagAsString("a").parallel().collect(Collectors.toList()));
+        assertEquals(big.getLinksInPageAsNode().get(0), big.streamLinksInPageAsNode().parallel().findFirst().get());
+
+        // a changed tree is no longer numbered, it is walked and split once the walk is collected
+        Element root = new TreeBuilder().build(page.toString());
+        root.addNodeChild(new TreeBuilder().build("<p>last</p>"));
+        assertNull(root.getDocumentOrder());
+        List<Element> sequential = TreeTraverser.stream(root).collect(Collectors.toList());
+        assertEquals(20_002, sequential.size());
+        assertEquals(sequential, TreeTraverser.stream(root).parallel().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void spliteratorSplitsLargeTreesInHalves() {
+        Spliterator<Element> small = TreeTraverser.spliterator(rootNode);
+        assertEquals(10, small.estimateSize());
+        assertNull(small.trySplit());
+
+        // a page too small to be worth running in parts stays in one
+        StringBuilder page = new StringBuilder("<div>");
+        for (int i = 0; i < 8000; i++)
+            page.append("<p>").append(i).append("</p>");
+        assertNull(TreeTraverser.spliterator(Scraper.buildWithString(page + "</div>").getRoot()).trySplit());
+
+        for (int i = 8000; i < 20000; i++)
+            page.append("<p>").append(i).append("</p>");
+        Scraper big = Scraper.buildWithString(page.append("</div>").toString());
+
+        Spliterator<Element> suffix = TreeTraverser.spliterator(big.getRoot());
+        assertTrue(suffix.hasCharacteristics(Spliterator.SIZED | Spliterator.ORDERED));
+        Spliterator<Element> prefix = suffix.trySplit();
+        assertEquals(10000, prefix.estimateSize());
+        assertEquals(10001, suffix.estimateSize());
+        prefix.tryAdvance(element -> assertSame(big.getRoot(), element));
+    }
 }
@@ -0,0 +1,119 @@
+import Scraper.Element;
+import Scraper.Exceptions.ParseException;
+import Scraper.ParseOptions;
+import Scraper.Scraper;
+import Scraper.TreeBuilder;
+import Scraper.XPath;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Test_XPath {
+    String siteContent = "<html><body id=\"body\">" +
+            "<div id=\"d1\" class=\"box\"><p id=\"p1\" class=\"text\">one</p><p id=\"p2\">two</p><span id=\"s1\">3</span><p id=\"p3\" lang=\"en\">three</p></div>" +
+            "<div id=\"d2\" class=\"box\"><ul id=\"u1\"><li id=\"l1\">a</li><li id=\"l2\">b<div id=\"d3\"><p id=\"p4\">four</p></div></li><li id=\"l3\">c</li></ul></div>" +
+            "<a id=\"a1\" href=\"/item/1\">x</a><a id=\"a2\" href=\"http://other/item.html\">y</a>" +
+            "</body></html>";
+    Scraper sc = Scraper.buildWithString(siteContent);
+
+    private static List<String> ids(ArrayList<Element> elements) {
+        List<String> ids = new ArrayList<>();
+        for (Element element : elements)
+            ids.add(element.getAttributes().get("id"));
+        return ids;
+    }
+
+    @Test
+    public void selectsAlongPaths() {
+        assertEquals(List.of("body"), ids(sc.getXPathAsNode("/html/body")));
+        assertEquals(List.of("p1", "p2", "p3", "p4"), ids(sc.getXPathAsNode("//p")));
+        assertEquals(List.of("p1", "p2", "p3", "p4"), ids(sc.getXPathAsNode("//div/p")));
+        assertEquals(List.of("p1", "p2", "p3", "p4"), ids(sc.getXPathAsNode("//div//p")));
+        assertEquals(List.of("l1", "l2", "l3"), ids(sc.getXPathAsNode("body/div/ul/*")));
+        assertEquals(List.of("d2"), ids(sc.getXPathAsNode("//li/../..")));
+        assertEquals(List.of("html"), List.of(sc.getXPathAsNode("/*").get(0).getTag()));
+        assertEquals(List.of(), sc.getXPathAsNode("/body"));
+    }
+
+    @Test
+    public void selectsWithPositions() {
+        assertEquals(List.of("p1", "u1", "p4"), ids(sc.getXPathAsNode("//div/*[1]")));
+        assertEquals(List.of("p1", "p4"), ids(sc.getXPathAsNode("//p[1]")));
+        assertEquals(List.of("p3", "p4"), ids(sc.getXPathAsNode("//p[last()]")));
+        assertEquals(List.of("p2"), ids(sc.getXPathAsNode("//div/p[last()-1]")));
+        assertEquals(List.of("p1", "p2", "p4"), ids(sc.getXPathAsNode("//div/p[position() < 3]")));
+        assertEquals(List.of("p1"), ids(sc.getXPathAsNode("/html/body/div[1]/p[1]")));
+        assertEquals(List.of("l3"), ids(sc.getXPathAsNode("//li[3]")));
+    }
+
+    @Test
+    public void selectsWithPredicates() {
+        assertEquals(List.of("p3"), ids(sc.getXPathAsNode("//p[@lang]")));
+        assertEquals(List.of("p1"), ids(sc.getXPathAsNode("//p[@class='text']")));
+        assertEquals(List.of("p2", "p3", "p4"), ids(sc.getXPathAsNode("//p[not(@class = \"text\")]")));
+        assertEquals(List.of("p2"), ids(sc.getXPathAsNode("//p[text()='two']")));
+        assertEquals(List.of("a1", "a2"), ids(sc.getXPathAsNode("//a[contains(@href, 'item')]")));
+        assertEquals(List.of("a2"), ids(sc.getXPathAsNode("//a[starts-with(@href, 'http') and text() = 'y']")));
+        assertEquals(List.of("p1", "p3"), ids(sc.getXPathAsNode("//p[@class or @lang]")));
+        assertEquals(List.of("d1"), ids(sc.getXPathAsNode("//div[span = 3]")));
+        assertEquals(List.of("d1"), ids(sc.getXPathAsNode("//div[span > 2 and p]")));
+        assertEquals(List.of("d2"), ids(sc.getXPathAsNode("//div[ul]")));
+    }
+
+    @Test
+    public void selectsAlongOtherAxes() {
+        assertEquals(List.of("p2", "s1", "p3"), ids(sc.getXPathAsNode("//p[@id='p1']/following-sibling::*")));
+        assertEquals(List.of("p3"), ids(sc.getXPathAsNode("//span/following-sibling::p[1]")));
+        assertEquals(List.of("p2"), ids(sc.getXPathAsNode("//span/preceding-sibling::p[1]")));
+        assertEquals(List.of("d2", "d3"), ids(sc.getXPathAsNode("//p[@id='p4']/ancestor::div")));
+        assertEquals(List.of("d3"), ids(sc.getXPathAsNode("//p[@id='p4']/ancestor::div[1]")));
+        assertEquals(List.of("l2"), ids(sc.getXPathAsNode("//p[@id='p4']/ancestor-or-self::*[@id][3]")));
+        assertEquals(List.of("d3", "p4"), ids(sc.getXPathAsNode("//li/descendant::*")));
+        assertEquals(List.of("s1"), ids(sc.getXPathAsNode("//span/self::span")));
+    }
+
+    @Test
+    public void selectsTextsAndAttributes() {
+        assertEquals(List.of("/item/1", "http://other/item.html"), sc.getXPathAsString("//a/@href"));
+        assertEquals(List.of("one", "two", "three", "four"), sc.getXPathAsString("//p/text()"));
+        assertEquals(List.of("one", "two", "three", "four"), sc.getXPathAsString("//p"));
+        assertEquals(List.of("p3"), ids(sc.getXPathAsNode("//p/@lang")));
+    }
+
+    @Test
+    public void relativePathsStartFromStartNode() {
+        Element d2 = sc.getRoot().getNodeChild(0).getNodeChild(1);
+        assertEquals(List.of("l1", "l2", "l3"), ids(sc.getXPathAsNode("ul/li", d2)));
+        assertEquals(List.of("p4"), ids(sc.getXPathAsNode(".//p", d2)));
+        assertEquals(List.of("p1", "p2", "p3", "p4"), ids(sc.getXPathAsNode("//p", d2)));
+        assertEquals(List.of("body"), ids(sc.getXPathAsNode("..", d2)));
+        assertEquals(List.of("d2"), ids(sc.getXPathAsNode(".", d2)));
+    }
+
+    @Test
+    public void flatAndChangedTreesGiveTheSameResult() throws ParseException {
+        Scraper flat = Scraper.buildWithString(siteContent, new ParseOptions().setFlat(true));
+        for (String expression : new String[]{"//div//p", "//li/following-sibling::li", "//p/ancestor::*[@class]"})
+            assertEquals(ids(sc.getXPathAsNode(expression)), ids(flat.getXPathAsNode(expression)), expression);
+
+        Element root = new TreeBuilder().build(siteContent);
+        root.getNodeChild(0).addNodeChild(new TreeBuilder().build("<p id=\"p5\">five</p>"));
+        assertEquals(List.of("p1", "p2", "p3", "p4", "p5"), ids(XPath.compile("//p").selectNodes(root)));
+        assertEquals(List.of("p1", "p2", "p3", "p4", "p5"), ids(XPath.compile("//body//p").selectNodes(root)));
+    }
+
+    @Test
+    public void compiledExpressionsAreKept() {
+        assertSame(XPath.compile("//div/p[1]"), XPath.compile("//div/p[1]"));
+        assertEquals("//div/p[1]", XPath.compile("//div/p[1]").toString());
+    }
+
+    @Test
+    public void invalidExpressionsAreRejected() {
+        for (String expression : new String[]{"", "//", "//p[", "//p[@a='x]", "//p/@a/b", "//p[count(a)]", "sideways::p", "//p]", "//p[last()-]"})
+            assertThrows(IllegalArgumentException.class, () -> XPath.compile(expression), expression);
+    }
+}
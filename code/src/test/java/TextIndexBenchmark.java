@@ -0,0 +1,34 @@
+import Scraper.ParseOptions;
+import Scraper.Scraper;
+
+/**
+ * Time of building a page with and without a TextIndex, and of 100 keyword checks on it with and without case,
+ * answered by walking the tree or by comparing only the texts the index gives.
+ * Run with: java -Xmx2g -cp build/classes/java/main:build/classes/java/test TextIndexBenchmark
+ */
+public class TextIndexBenchmark {
+
+    static int checks(Scraper scraper) {
+        int found = 0;
+        for (int i = 0; i < 25; i++){
+            found += scraper.containsAsBoolean("Product " + i * 1999) ? 1 : 0;
+            found += scraper.containsAsBoolean("out of stock") ? 1 : 0;
+            found += scraper.containsCaseInSensetiveAsBoolean("PRODUCT " + i * 1999 + "0") ? 1 : 0;
+            found += scraper.containsCaseInSensetiveAsNode(i * 3 + " kr").size();
+        }
+        return found;
+    }
+
+    public static void main(String[] args) {
+        String html = ElementMemoryBenchmark.page(50_000);
+
+        System.out.printf("%-28s %10s %10s%n", "search", "found", "ms");
+        FlatDocumentBenchmark.time("build", () -> Scraper.buildWithString(html).getRoot().getNodeChildCount());
+        FlatDocumentBenchmark.time("build, text indexed", () -> Scraper.buildWithString(html, new ParseOptions().setTextIndexed(true)).getRoot().getNodeChildCount());
+
+        Scraper walking = Scraper.buildWithString(html);
+        Scraper indexed = Scraper.buildWithString(html, new ParseOptions().setTextIndexed(true));
+        FlatDocumentBenchmark.time("100 checks, walk", () -> checks(walking));
+        FlatDocumentBenchmark.time("100 checks, text index", () -> checks(indexed));
+    }
+}
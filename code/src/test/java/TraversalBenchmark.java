@@ -0,0 +1,73 @@
+import Scraper.Element;
+import Scraper.Exceptions.ParseException;
+import Scraper.TreeBuilder;
+import Scraper.TreeTraverser;
+
+import java.util.ArrayList;
+
+/**
+ * Time of searches over a whole page with the walk TreeTraverser runs on, next to the same searches written as recursive methods,
+ * the way TreeTraverser used to be. A small page, a wide page of products, a page of many elements side by side and a page nested
+ * a few thousand levels deep are searched, the walk recurses through the first levels and keeps a stack of its own below them.
+ * Run with: java -Xmx2g -cp build/classes/java/main:build/classes/java/test TraversalBenchmark
+ */
+public class TraversalBenchmark {
+
+    static void textsOfTag(Element node, String tag, ArrayList<String> result) {
+        if (node.getTag().equals(tag))
+            for (int i = 0; i < node.getStringChildCount(); i++)
+                result.add(node.getStringChild(i));
+        for (int i = 0; i < node.getNodeChildCount(); i++)
+            textsOfTag(node.getNodeChild(i), tag, result);
+    }
+
+    static boolean contains(Element node, String searchString) {
+        for (int i = 0; i < node.getStringChildCount(); i++)
+            if (node.getStringChild(i).contains(searchString))
+                return true;
+        for (int i = 0; i < node.getNodeChildCount(); i++)
+            if (contains(node.getNodeChild(i), searchString))
+                return true;
+        return false;
+    }
+
+    static String deepPage(int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            sb.append("<div><h4>level ").append(i).append("</h4>");
+        for (int i = 0; i < depth; i++)
+            sb.append("</div>");
+        return sb.toString();
+    }
+
+    static String flatPage(int children) {
+        StringBuilder sb = new StringBuilder("<html><body>");
+        for (int i = 0; i < children; i++)
+            sb.append("<h4>item ").append(i).append("</h4>");
+        return sb.append("</body></html>").toString();
+    }
+
+    static void compare(String page, Element root) {
+        FlatDocumentBenchmark.time(page + " tag, recursive", () -> {
+            ArrayList<String> result = new ArrayList<>();
+            textsOfTag(root, "h4", result);
+            return result.size();
+        });
+        FlatDocumentBenchmark.time(page + " tag, walk", () -> TreeTraverser.traversingGetContentFromTagAsString(root, "h4").size());
+        FlatDocumentBenchmark.time(page + " contains, recursive", () -> contains(root, "not there") ? 1 : 0);
+        FlatDocumentBenchmark.time(page + " contains, walk", () -> TreeTraverser.traversingContainsAsBoolean(root, "not there") ? 1 : 0);
+    }
+
+    public static void main(String[] args) throws ParseException {
+        Element shallow = new TreeBuilder().build(ElementMemoryBenchmark.page(100));
+        Element wide = new TreeBuilder().build(ElementMemoryBenchmark.page(50_000));
+        Element flat = new TreeBuilder().build(flatPage(200_000));
+        Element deep = new TreeBuilder().build(deepPage(3_000));
+
+        System.out.printf("%-28s %10s %10s%n", "search", "found", "ms");
+        compare("shallow", shallow);
+        compare("wide", wide);
+        compare("flat", flat);
+        compare("deep", deep);
+    }
+}
@@ -0,0 +1,64 @@
+import Scraper.Exceptions.ParseException;
+import Scraper.TreeBuilder;
+
+/**
+ * Parse time per byte for generated pages from 10 KB up to 50 MB.
+ * The pages mix long text runs, inline data URIs and ordinary markup, so a tokenizer that copies
+ * characters one at a time shows up as a per byte cost that grows with the page size.
+ * Run with: java -Xmx2g -cp build/classes/java/main:build/classes/java/test TreeBuilderBenchmark
+ */
+public class TreeBuilderBenchmark {
+
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000, 10_000_000, 50_000_000};
+
+    static String page(int size) {
+        StringBuilder sb = new StringBuilder(size + 1024);
+        sb.append("<!DOCTYPE html><html><body>");
+
+        StringBuilder dataUri = new StringBuilder("data:image/png;base64,");
+        for (int i = 0; i < Math.min(size / 4, 1_000_000); i++)
+            dataUri.append((char) ('A' + i % 26));
+
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < Math.min(size / 4, 1_000_000); i++)
+            longText.append(i % 7 == 0 ? ' ' : (char) ('a' + i % 26));
+
+        int block = 0;
+        while (sb.length() < size) {
+            if (block % 50 == 0)
+                sb.append("<img src=\"").append(dataUri).append("\">");
+            if (block % 50 == 25)
+                sb.append("<p>").append(longText).append("</p>");
+            sb.append("<div class=\"item\" id=\"i").append(block).append("\"><a href=\"/item/").append(block)
+                    .append("\">Item ").append(block).append("</a>\n\t<span>price ").append(block).append("</span></div>");
+            block++;
+        }
+
+        sb.append("</body></html>");
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws ParseException {
+        TreeBuilder builder = new TreeBuilder();
+
+        // warm up the jit on a mid sized page
+        String warmup = page(1_000_000);
+        for (int i = 0; i < 20; i++)
+            builder.build(warmup);
+
+        System.out.printf("%12s %12s %10s%n", "bytes", "ms", "ns/byte");
+        for (int size : SIZES) {
+            String html = page(size);
+            int runs = Math.max(1, 20_000_000 / size);
+
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < runs; i++) {
+                long start = System.nanoTime();
+                builder.build(html);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+
+            System.out.printf("%12d %12.2f %10.2f%n", html.length(), best / 1e6, (double) best / html.length());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+import Scraper.Element;
+import Scraper.Scraper;
+
+import java.util.ArrayList;
+
+/**
+ * Time of XPath expressions over a page of products, next to the same searches done with one search for the products
+ * followed by a search from each of them, the way it is done without XPath.
+ * Run with: java -Xmx2g -cp build/classes/java/main:build/classes/java/test XPathBenchmark
+ */
+public class XPathBenchmark {
+
+    public static void main(String[] args) {
+        Scraper scraper = Scraper.buildWithString(ElementMemoryBenchmark.page(50_000));
+
+        System.out.printf("%-28s %10s %10s%n", "search", "found", "ms");
+        FlatDocumentBenchmark.time("search per product", () -> {
+            ArrayList<Element> images = new ArrayList<>();
+            for (Element product : scraper.getImageByClassAsNode("product"))
+                for (Element link : scraper.getLinksInPageAsNode(product))
+                    images.addAll(scraper.getAllImagesFromPageAsNode(link));
+            return images.size();
+        });
+        FlatDocumentBenchmark.time("xpath", () -> scraper.getXPathAsNode("//li[@class='product']/a/img").size());
+        FlatDocumentBenchmark.time("xpath, positions", () -> scraper.getXPathAsString("//ul/li[position() > 25000]/h4").size());
+        FlatDocumentBenchmark.time("xpath, ancestor", () -> scraper.getXPathAsString("//b[contains(text(), '9999')]/ancestor::li/@id").size());
+    }
+}